@@ -0,0 +1,139 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import org.geotools.graph.structure.compact.CompactGraph;
+
+/**
+ * Calculates the shortest path between two nodes of a {@link CompactGraph}
+ * using the A Star algorithm, like {@link AStarShortestPathFinder} does on a
+ * graph.
+ * <p>
+ * Nodes are settled by increasing cost from the source plus an estimate of
+ * the cost to the target. The estimate must never exceed the actual cost, and
+ * must be consistent: the estimate at a node never exceeds the weight of an
+ * edge plus the estimate at the other end. By default the estimate is the
+ * euclidean distance between the node coordinates, which satisfies both when
+ * the edges are weighted by the length of their line strings. When some nodes
+ * have no coordinates the estimate is zero, and the search settles the nodes
+ * like the Dijkstra algorithm.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class CompactAStarShortestPathFinder extends CompactShortestPathFinder {
+
+  /**
+   * Estimates a zero cost, which turns the search into the Dijkstra algorithm.
+   */
+  public static final Heuristic ZERO = new Heuristic() {
+    public double estimate(int node, int target) {
+      return(0);
+    }
+  };
+
+  /** search state **/
+  private Search m_search;
+
+  /** estimate of the cost to the target **/
+  private Heuristic m_heuristic;
+
+  /**
+   * Constructs a new path finder estimating the cost to the target with the
+   * euclidean distance.
+   *
+   * @param graph The graph to calculate paths for, with node coordinates. If
+   *   some nodes have none, no estimate is used.
+   */
+  public CompactAStarShortestPathFinder(CompactGraph graph) {
+    this(graph, euclidean(graph, 1));
+  }
+
+  /**
+   * Constructs a new path finder.
+   *
+   * @param graph The graph to calculate paths for.
+   * @param heuristic Estimates the cost from a node to the target.
+   */
+  public CompactAStarShortestPathFinder(CompactGraph graph, Heuristic heuristic) {
+    super(graph);
+    m_search = new Search(graph.getNodeCount());
+    m_heuristic = heuristic;
+  }
+
+  protected void search(int source, int target) {
+    CompactGraph graph = m_graph;
+    Search s = m_search;
+    s.start(source, m_heuristic.estimate(source, target));
+
+    while (!s.queue.isEmpty()) {
+      int n = s.queue.extract();
+      if (!s.settle(n)) continue;
+      if (n == target) {
+        found(s.getCost(n), s.getEdges(graph, n));
+        return;
+      }
+
+      double cost = s.getCost(n);
+      int end = graph.getOutOffset(n + 1);
+      for (int i = graph.getOutOffset(n); i < end; i++) {
+        int e = graph.getOutEdge(i);
+        int m = graph.getOtherNode(e, n);
+        if (s.isSettled(m)) continue;
+
+        double c = cost + graph.getWeight(e);
+        if (c < s.getCost(m)) {
+          s.relax(m, c, e, c + m_heuristic.estimate(m, target));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the heuristic estimating the cost between two nodes as their
+   * euclidean distance times a factor, for instance the inverse of the
+   * maximum speed when weighting edges by travel time. Returns {@link #ZERO}
+   * if some nodes have no coordinates, as estimates mixing distances with
+   * unknown coordinates would not be consistent.
+   */
+  public static Heuristic euclidean(final CompactGraph graph, final double factor) {
+    for (int n = 0; n < graph.getNodeCount(); n++) {
+      if (Double.isNaN(graph.getX(n)) || Double.isNaN(graph.getY(n))) return(ZERO);
+    }
+    return(new Heuristic() {
+      public double estimate(int node, int target) {
+        double dx = graph.getX(node) - graph.getX(target);
+        double dy = graph.getY(node) - graph.getY(target);
+        return(Math.sqrt(dx * dx + dy * dy) * factor);
+      }
+    });
+  }
+
+  /**
+   * Estimates the cost of the shortest path between two nodes.
+   */
+  public static interface Heuristic {
+
+    /**
+     * Returns the estimated cost from a node to the target.
+     *
+     * @param node Index of the node.
+     * @param target Index of the target node.
+     */
+    public double estimate(int node, int target);
+  }
+}
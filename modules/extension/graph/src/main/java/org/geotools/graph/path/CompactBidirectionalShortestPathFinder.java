@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import org.geotools.graph.structure.compact.CompactGraph;
+
+/**
+ * Calculates the shortest path between two nodes of a {@link CompactGraph}
+ * using a bidirectional Dijkstra search.
+ * <p>
+ * One search grows from the source along the outgoing edges, the other from
+ * the target along the incoming edges, the smaller queue being expanded
+ * first. The best path joining both searches is tracked as they meet, and
+ * the search stops once the sum of the smallest costs left in both queues
+ * cannot improve on it. On road networks this settles far fewer nodes than
+ * a single Dijkstra search.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class CompactBidirectionalShortestPathFinder extends CompactShortestPathFinder {
+
+  /** search states, from the source and from the target **/
+  private Search m_forward;
+  private Search m_backward;
+
+  /** best path found so far **/
+  private double m_best;
+  private int m_meeting;
+
+  public CompactBidirectionalShortestPathFinder(CompactGraph graph) {
+    super(graph);
+    m_forward = new Search(graph.getNodeCount());
+    m_backward = new Search(graph.getNodeCount());
+  }
+
+  protected void search(int source, int target) {
+    m_forward.start(source, 0);
+    m_backward.start(target, 0);
+    m_best = Double.POSITIVE_INFINITY;
+    m_meeting = -1;
+
+    if (source == target) {
+      found(0, new int[0]);
+      return;
+    }
+
+    while (!m_forward.queue.isEmpty() && !m_backward.queue.isEmpty()) {
+      if (m_forward.queue.peekKey() + m_backward.queue.peekKey() >= m_best) break;
+
+      if (m_forward.queue.size() <= m_backward.queue.size()) {
+        expand(m_forward, m_backward, true);
+      }
+      else {
+        expand(m_backward, m_forward, false);
+      }
+    }
+
+    if (m_meeting != -1) {
+      int[] head = m_forward.getEdges(m_graph, m_meeting);
+      int[] tail = m_backward.getEdges(m_graph, m_meeting);
+
+      //the backward edges go from the target to the meeting node
+      int[] edges = new int[head.length + tail.length];
+      System.arraycopy(head, 0, edges, 0, head.length);
+      for (int i = 0; i < tail.length; i++) {
+        edges[head.length + i] = tail[tail.length - 1 - i];
+      }
+      found(m_best, edges);
+    }
+  }
+
+  /**
+   * Settles the next node of a search and relaxes its edges.
+   */
+  private void expand(Search s, Search other, boolean forward) {
+    CompactGraph graph = m_graph;
+    int n = s.queue.extract();
+    if (!s.settle(n)) return;
+
+    double cost = s.getCost(n);
+    int end = forward ? graph.getOutOffset(n + 1) : graph.getInOffset(n + 1);
+    for (int i = forward ? graph.getOutOffset(n) : graph.getInOffset(n); i < end; i++) {
+      int e = forward ? graph.getOutEdge(i) : graph.getInEdge(i);
+      int m = graph.getOtherNode(e, n);
+      double c = cost + graph.getWeight(e);
+      s.relax(m, c, e, c);
+
+      //check for a better path through the edge
+      double total = s.getCost(m) + other.getCost(m);
+      if (total < m_best) {
+        m_best = total;
+        m_meeting = m;
+      }
+    }
+  }
+}
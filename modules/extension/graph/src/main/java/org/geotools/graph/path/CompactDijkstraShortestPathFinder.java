@@ -0,0 +1,95 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import org.geotools.graph.structure.compact.CompactGraph;
+
+/**
+ * Calculates shortest paths in a {@link CompactGraph} using Dijkstra's
+ * Shortest Path Algorithm, like {@link DijkstraShortestPathFinder} does on a
+ * graph.
+ * <p>
+ * When calculating the path between two nodes the search stops as soon as the
+ * target is settled. Calculating from a source only settles every node
+ * reachable from it, the paths to each of them being then available through
+ * {@link #getCost(int)} and {@link #getPath(int)}.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class CompactDijkstraShortestPathFinder extends CompactShortestPathFinder {
+
+  /** search state **/
+  private Search m_search;
+
+  public CompactDijkstraShortestPathFinder(CompactGraph graph) {
+    super(graph);
+    m_search = new Search(graph.getNodeCount());
+  }
+
+  /**
+   * Calculates the shortest path from a node to every other node of the graph.
+   *
+   * @param source Index of the node to calculate paths from.
+   */
+  public void calculate(int source) {
+    calculate(source, -1);
+  }
+
+  protected void search(int source, int target) {
+    CompactGraph graph = m_graph;
+    Search s = m_search;
+    s.start(source, 0);
+
+    while (!s.queue.isEmpty()) {
+      int n = s.queue.extract();
+      if (!s.settle(n)) continue;
+      if (n == target) break;
+
+      double cost = s.getCost(n);
+      int end = graph.getOutOffset(n + 1);
+      for (int i = graph.getOutOffset(n); i < end; i++) {
+        int e = graph.getOutEdge(i);
+        double c = cost + graph.getWeight(e);
+        s.relax(graph.getOtherNode(e, n), c, e, c);
+      }
+    }
+
+    if (target != -1 && s.isSettled(target)) {
+      found(s.getCost(target), s.getEdges(graph, target));
+    }
+  }
+
+  /**
+   * Returns the cost of the shortest path from the source to a node, infinity
+   * if the node was not reached. Only meaningful for the target, or for every
+   * node after calculating from a source only.
+   */
+  public double getCost(int node) {
+    return(m_search.isSettled(node) ? m_search.getCost(node) : Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns a path <B>from</B> a node <B>to</B> the source, null if the node
+   * was not reached. Only meaningful for the target, or for every node after
+   * calculating from a source only.
+   */
+  public Path getPath(int node) {
+    if (!m_search.isSettled(node)) return(null);
+    return(createPath(m_source, m_search.getEdges(m_graph, node)));
+  }
+}
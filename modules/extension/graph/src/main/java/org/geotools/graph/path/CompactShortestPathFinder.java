@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import java.util.Arrays;
+
+import org.geotools.graph.structure.Node;
+import org.geotools.graph.structure.basic.BasicEdge;
+import org.geotools.graph.structure.compact.CompactGraph;
+import org.geotools.graph.structure.line.BasicXYNode;
+import org.geotools.graph.util.IntPriorityQueue;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Base class of the shortest path finders working on a {@link CompactGraph}.
+ * <p>
+ * The search state is held in primitive arrays allocated once per finder and
+ * reset in constant time between two calculations, so a finder is meant to be
+ * reused for many queries. A finder is not thread safe, use one per thread,
+ * the graph itself being safely shared.
+ * </p>
+ * <p>
+ * The path found is returned as a {@link Path} like the other path finders
+ * do. If the compact graph was built from a graph, the path is made of the
+ * nodes of that graph, otherwise of {@link BasicXYNode}s created for the
+ * path, whose id is the index of the compact graph node, linked by edges
+ * whose id is the index of the compact graph edge and whose object is the
+ * object the edge was built from.
+ * </p>
+ *
+ * @see CompactDijkstraShortestPathFinder
+ * @see CompactBidirectionalShortestPathFinder
+ * @see CompactAStarShortestPathFinder
+ *
+ * @source $URL$
+ */
+public abstract class CompactShortestPathFinder {
+
+  /** graph to calculate paths for **/
+  protected CompactGraph m_graph;
+
+  /** end points of the last calculation **/
+  protected int m_source = -1;
+  protected int m_target = -1;
+
+  /** edges of the path found, from source to target **/
+  protected int[] m_edges;
+
+  /** cost of the path found **/
+  protected double m_cost = Double.POSITIVE_INFINITY;
+
+  public CompactShortestPathFinder(CompactGraph graph) {
+    m_graph = graph;
+  }
+
+  public CompactGraph getGraph() {
+    return(m_graph);
+  }
+
+  /**
+   * Calculates the shortest path between two nodes.
+   *
+   * @param source Index of the node to calculate the path from.
+   * @param target Index of the node to calculate the path to.
+   */
+  public void calculate(int source, int target) {
+    m_source = source;
+    m_target = target;
+    m_edges = null;
+    m_cost = Double.POSITIVE_INFINITY;
+
+    search(source, target);
+  }
+
+  /**
+   * Searches the shortest path, calling {@link #found(double, int[])} if any.
+   */
+  protected abstract void search(int source, int target);
+
+  /**
+   * Records the path found.
+   *
+   * @param cost The cost of the path.
+   * @param edges The edges of the path, from source to target.
+   */
+  protected void found(double cost, int[] edges) {
+    m_cost = cost;
+    m_edges = edges;
+  }
+
+  /**
+   * Returns the cost of the path found by the last calculation, infinity if
+   * the target cannot be reached from the source.
+   */
+  public double getCost() {
+    return(m_cost);
+  }
+
+  /**
+   * Returns the indexes of the edges of the path found by the last
+   * calculation, from the source to the target, or null if the target cannot
+   * be reached from the source.
+   */
+  public int[] getEdgeIndexes() {
+    return(m_edges);
+  }
+
+  /**
+   * Returns a path <B>from</B> the target <B>to</B> the source of the last
+   * calculation, like the other shortest path finders do, or null if the
+   * target cannot be reached from the source.
+   *
+   * @see Path#riterator()
+   * @see Path#reverse()
+   */
+  public Path getPath() {
+    if (m_edges == null) return(null);
+    return(createPath(m_source, m_edges));
+  }
+
+  /**
+   * Creates the path following edges, from the last node to the first one.
+   */
+  protected Path createPath(int source, int[] edges) {
+    int[] nodes = new int[edges.length + 1];
+    nodes[0] = source;
+    for (int i = 0; i < edges.length; i++) {
+      nodes[i + 1] = m_graph.getOtherNode(edges[i], nodes[i]);
+    }
+
+    Path path = new Path();
+    if (m_graph.getNode(source) != null) {
+      for (int i = nodes.length - 1; i >= 0; i--) {
+        path.add(m_graph.getNode(nodes[i]));
+      }
+      return(path);
+    }
+
+    //build the nodes and edges of the path
+    Node[] pnodes = new Node[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      BasicXYNode node = new BasicXYNode();
+      node.setID(nodes[i]);
+      if (!Double.isNaN(m_graph.getX(nodes[i]))) {
+        node.setCoordinate(new Coordinate(m_graph.getX(nodes[i]), m_graph.getY(nodes[i])));
+      }
+      pnodes[i] = node;
+    }
+    for (int i = 0; i < edges.length; i++) {
+      BasicEdge edge = new BasicEdge(pnodes[i], pnodes[i + 1]);
+      edge.setID(edges[i]);
+      edge.setObject(m_graph.getEdgeObject(edges[i]));
+      pnodes[i].add(edge);
+      pnodes[i + 1].add(edge);
+    }
+    for (int i = pnodes.length - 1; i >= 0; i--) {
+      path.add(pnodes[i]);
+    }
+    return(path);
+  }
+
+  /**
+   * State of a search from a root node: node costs, the edges leading to the
+   * nodes, the settled nodes and the queue of nodes to settle. Nodes whose
+   * stamp is not the current generation are unreached, which makes resetting
+   * the search a constant time operation.
+   */
+  protected static class Search {
+    private double[] m_costs;
+    private int[] m_parents;
+    private int[] m_reached;
+    private int[] m_settled;
+    private int m_generation = 0;
+
+    /** queue of nodes to settle **/
+    public IntPriorityQueue queue = new IntPriorityQueue();
+
+    public Search(int nnodes) {
+      m_costs = new double[nnodes];
+      m_parents = new int[nnodes];
+      m_reached = new int[nnodes];
+      m_settled = new int[nnodes];
+    }
+
+    /**
+     * Starts a new search from a node.
+     */
+    public void start(int root, double key) {
+      if (++m_generation == Integer.MAX_VALUE) {
+        Arrays.fill(m_reached, 0);
+        Arrays.fill(m_settled, 0);
+        m_generation = 1;
+      }
+      queue.clear();
+
+      m_costs[root] = 0;
+      m_parents[root] = -1;
+      m_reached[root] = m_generation;
+      queue.insert(root, key);
+    }
+
+    /**
+     * Returns the cost of the best path to a node found so far, infinity if
+     * the node was not reached.
+     */
+    public double getCost(int node) {
+      return(m_reached[node] == m_generation ? m_costs[node] : Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Updates the cost of a node if lower than the current one.
+     *
+     * @param node The node reached.
+     * @param cost The cost of the path to the node.
+     * @param edge The last edge of the path to the node.
+     * @param key The key of the node in the queue.
+     *
+     * @return True if the cost was updated.
+     */
+    public boolean relax(int node, double cost, int edge, double key) {
+      if (cost < getCost(node)) {
+        m_costs[node] = cost;
+        m_parents[node] = edge;
+        m_reached[node] = m_generation;
+        queue.insert(node, key);
+        return(true);
+      }
+      return(false);
+    }
+
+    /**
+     * Marks a node as settled.
+     *
+     * @return False if the node was already settled, the queue entry being
+     *         a stale one.
+     */
+    public boolean settle(int node) {
+      if (m_settled[node] == m_generation) return(false);
+      m_settled[node] = m_generation;
+      return(true);
+    }
+
+    public boolean isSettled(int node) {
+      return(m_settled[node] == m_generation);
+    }
+
+    /**
+     * Returns the edges of the path from the root to a node, in that order.
+     */
+    public int[] getEdges(CompactGraph graph, int node) {
+      int count = 0;
+      for (int n = node; m_parents[n] != -1; n = graph.getOtherNode(m_parents[n], n)) {
+        count++;
+      }
+
+      int[] edges = new int[count];
+      for (int n = node; m_parents[n] != -1; n = graph.getOtherNode(m_parents[n], n)) {
+        edges[--count] = m_parents[n];
+      }
+      return(edges);
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.structure.compact;
+
+import java.util.Map;
+
+import org.geotools.graph.structure.Edge;
+import org.geotools.graph.structure.Node;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Read only graph held in primitive arrays, in compressed sparse row form.
+ * <p>
+ * Nodes and edges are identified by their index, from 0 to the node (edge)
+ * count minus one. Each edge has a source node, a target node and a weight,
+ * computed once when the graph is built. The edges incident to a node are
+ * stored contiguously in an adjacency array: the outgoing edges of node
+ * <code>n</code> are the edges <code>getOutEdge(i)</code> for <code>i</code>
+ * from <code>getOutOffset(n)</code> (included) to
+ * <code>getOutOffset(n + 1)</code> (excluded), and likewise for the incoming
+ * edges. In an undirected graph the outgoing and incoming edges of a node are
+ * all its edges.
+ * </p>
+ * <p>
+ * A graph built from a {@link org.geotools.graph.structure.Graph} keeps track
+ * of its nodes and edges, see {@link #getNode(int)} and {@link #getEdge(int)}.
+ * A graph built from line strings or features only holds the node coordinates
+ * and, optionally, the objects the edges were built from.
+ * </p>
+ *
+ * @see CompactGraphBuilder
+ * @see org.geotools.graph.path.CompactShortestPathFinder
+ *
+ * @source $URL$
+ */
+public class CompactGraph {
+
+  /** whether edges go from their source to their target only **/
+  private boolean m_directed;
+
+  /** number of nodes **/
+  private int m_nnodes;
+
+  /** node coordinates, NaN when unknown **/
+  private double[] m_x, m_y;
+
+  /** edge end points and weights **/
+  private int[] m_sources, m_targets;
+  private double[] m_weights;
+
+  /** adjacency, outgoing then incoming, the same arrays if undirected **/
+  private int[] m_outOffsets, m_outEdges;
+  private int[] m_inOffsets, m_inEdges;
+
+  /** objects edges were built from, may be null **/
+  private Object[] m_objects;
+
+  /** graph components, null unless built from a graph **/
+  private Node[] m_nodes;
+  private Edge[] m_edges;
+  private Map m_node2index;
+
+  /** index of node coordinates, null if built from a graph **/
+  private CoordinateIndex m_index;
+
+  CompactGraph(
+    boolean directed, int nnodes, double[] x, double[] y,
+    int[] sources, int[] targets, double[] weights, Object[] objects
+  ) {
+    m_directed = directed;
+    m_nnodes = nnodes;
+    m_x = x;
+    m_y = y;
+    m_sources = sources;
+    m_targets = targets;
+    m_weights = weights;
+    m_objects = objects;
+
+    int[][] out = adjacency(nnodes, sources, directed ? null : targets);
+    m_outOffsets = out[0];
+    m_outEdges = out[1];
+    if (directed) {
+      int[][] in = adjacency(nnodes, targets, null);
+      m_inOffsets = in[0];
+      m_inEdges = in[1];
+    }
+    else {
+      m_inOffsets = m_outOffsets;
+      m_inEdges = m_outEdges;
+    }
+  }
+
+  /**
+   * Sorts edges by node with a counting sort, the edges incident to both
+   * ends when the second array of end points is specified.
+   */
+  private static int[][] adjacency(int nnodes, int[] ends, int[] otherEnds) {
+    int nedges = ends.length;
+    int[] offsets = new int[nnodes + 1];
+    for (int e = 0; e < nedges; e++) {
+      offsets[ends[e] + 1]++;
+      if (otherEnds != null && otherEnds[e] != ends[e]) offsets[otherEnds[e] + 1]++;
+    }
+    for (int n = 0; n < nnodes; n++) {
+      offsets[n + 1] += offsets[n];
+    }
+
+    int[] edges = new int[offsets[nnodes]];
+    int[] next = new int[nnodes];
+    System.arraycopy(offsets, 0, next, 0, nnodes);
+    for (int e = 0; e < nedges; e++) {
+      edges[next[ends[e]]++] = e;
+      if (otherEnds != null && otherEnds[e] != ends[e]) edges[next[otherEnds[e]]++] = e;
+    }
+    return(new int[][] {offsets, edges});
+  }
+
+  void setComponents(Node[] nodes, Edge[] edges, Map node2index) {
+    m_nodes = nodes;
+    m_edges = edges;
+    m_node2index = node2index;
+  }
+
+  void setCoordinateIndex(CoordinateIndex index) {
+    m_index = index;
+  }
+
+  /**
+   * Determines if the edges of the graph are directed, from their source to
+   * their target.
+   */
+  public boolean isDirected() {
+    return(m_directed);
+  }
+
+  public int getNodeCount() {
+    return(m_nnodes);
+  }
+
+  public int getEdgeCount() {
+    return(m_sources.length);
+  }
+
+  /**
+   * Returns the x coordinate of a node, NaN if unknown.
+   */
+  public double getX(int node) {
+    return(m_x[node]);
+  }
+
+  /**
+   * Returns the y coordinate of a node, NaN if unknown.
+   */
+  public double getY(int node) {
+    return(m_y[node]);
+  }
+
+  /**
+   * Returns the node at a coordinate, the coordinate must be the one of an
+   * end point of the line strings the graph was built from.
+   *
+   * @return The node index, or -1 if no node is at that coordinate.
+   */
+  public int getNodeIndex(Coordinate c) {
+    if (m_index == null) {
+      for (int n = 0; n < m_nnodes; n++) {
+        if (m_x[n] == c.x && m_y[n] == c.y) return(n);
+      }
+      return(-1);
+    }
+    return(m_index.get(c.x, c.y));
+  }
+
+  /**
+   * Returns the index of a node of the graph the compact graph was built from.
+   *
+   * @return The node index, or -1 if the node is not part of the graph.
+   */
+  public int getNodeIndex(Node node) {
+    if (m_node2index == null) return(-1);
+    Integer index = (Integer) m_node2index.get(node);
+    return(index != null ? index.intValue() : -1);
+  }
+
+  /**
+   * Returns the node of the graph the compact graph was built from, or null
+   * if it was built from line strings or features.
+   */
+  public Node getNode(int node) {
+    return(m_nodes != null ? m_nodes[node] : null);
+  }
+
+  /**
+   * Returns the edge of the graph the compact graph was built from, or null
+   * if it was built from line strings or features.
+   */
+  public Edge getEdge(int edge) {
+    return(m_edges != null ? m_edges[edge] : null);
+  }
+
+  /**
+   * Returns the object an edge was built from, the line string or feature,
+   * or the object of the edge of the graph the compact graph was built from.
+   * Null if objects were not retained.
+   */
+  public Object getEdgeObject(int edge) {
+    if (m_edges != null) return(m_edges[edge].getObject());
+    return(m_objects != null ? m_objects[edge] : null);
+  }
+
+  /**
+   * Returns the source of an edge, the A node of an undirected edge.
+   */
+  public int getSource(int edge) {
+    return(m_sources[edge]);
+  }
+
+  /**
+   * Returns the target of an edge, the B node of an undirected edge.
+   */
+  public int getTarget(int edge) {
+    return(m_targets[edge]);
+  }
+
+  /**
+   * Returns the node at the other end of an edge.
+   */
+  public int getOtherNode(int edge, int node) {
+    int source = m_sources[edge];
+    return(source == node ? m_targets[edge] : source);
+  }
+
+  public double getWeight(int edge) {
+    return(m_weights[edge]);
+  }
+
+  /**
+   * Returns the start of the outgoing edges of a node in the adjacency, the
+   * end being the start of the next node.
+   */
+  public int getOutOffset(int node) {
+    return(m_outOffsets[node]);
+  }
+
+  /**
+   * Returns the edge at a position of the outgoing adjacency.
+   */
+  public int getOutEdge(int i) {
+    return(m_outEdges[i]);
+  }
+
+  /**
+   * Returns the start of the incoming edges of a node in the adjacency, the
+   * end being the start of the next node.
+   */
+  public int getInOffset(int node) {
+    return(m_inOffsets[node]);
+  }
+
+  /**
+   * Returns the edge at a position of the incoming adjacency.
+   */
+  public int getInEdge(int i) {
+    return(m_inEdges[i]);
+  }
+}
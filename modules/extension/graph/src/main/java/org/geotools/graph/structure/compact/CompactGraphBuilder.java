@@ -0,0 +1,262 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.structure.compact;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.geotools.graph.structure.DirectedEdge;
+import org.geotools.graph.structure.DirectedGraph;
+import org.geotools.graph.structure.Edge;
+import org.geotools.graph.structure.Graph;
+import org.geotools.graph.structure.Node;
+import org.geotools.graph.structure.basic.BasicEdge;
+import org.geotools.graph.structure.line.BasicXYNode;
+import org.geotools.graph.structure.line.XYNode;
+import org.geotools.graph.traverse.standard.DijkstraIterator.EdgeWeighter;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Builds a {@link CompactGraph}, either from the objects a
+ * {@link org.geotools.graph.build.line.LineStringGraphGenerator} or a
+ * {@link org.geotools.graph.build.feature.FeatureGraphGenerator} would be
+ * fed with, or from an existing graph.
+ * <p>
+ * Line strings, multi line strings and features are added the way the
+ * generators add them: the edge joins the nodes at the first and last
+ * coordinates of the line string (of the first line string of a multi line
+ * string), the nodes being shared by the edges whose ends have equal
+ * coordinates. When directed, edges go from their first coordinate to their
+ * last one, like with a
+ * {@link org.geotools.graph.build.line.DirectedLineStringGraphGenerator}.
+ * Snapping ends within a tolerance is not supported.
+ * </p>
+ * <p>
+ * The weight of the edges is computed when they are added, by the edge
+ * weighter if any, or as the length of their line string. The weighter is
+ * handed an edge whose nodes are {@link XYNode}s and whose object is the
+ * line string or feature added, as generated by the graph generators.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class CompactGraphBuilder {
+
+  private boolean m_directed;
+  private EdgeWeighter m_weighter;
+  private boolean m_retainObjects = true;
+
+  /** nodes **/
+  private CoordinateIndex m_index = new CoordinateIndex();
+
+  /** edges **/
+  private int[] m_sources = new int[16];
+  private int[] m_targets = new int[16];
+  private double[] m_weights = new double[16];
+  private Object[] m_objects = new Object[16];
+  private int m_nedges = 0;
+
+  /** whether the graph was built **/
+  private boolean m_built = false;
+
+  /**
+   * Constructs a builder of undirected graphs weighted by the length of the
+   * line strings.
+   */
+  public CompactGraphBuilder() {
+    this(false, null);
+  }
+
+  /**
+   * Constructs a new builder.
+   *
+   * @param directed Whether edges go from the first to the last coordinate of
+   *        their line string only.
+   * @param weighter Associates weights with edges, null to weight them by the
+   *        length of their line string.
+   */
+  public CompactGraphBuilder(boolean directed, EdgeWeighter weighter) {
+    m_directed = directed;
+    m_weighter = weighter;
+  }
+
+  /**
+   * Sets whether the line strings or features the edges are built from are
+   * kept, see {@link CompactGraph#getEdgeObject(int)}. Defaults to true,
+   * setting it to false saves the memory they use.
+   */
+  public void setRetainObjects(boolean retainObjects) {
+    m_retainObjects = retainObjects;
+  }
+
+  /**
+   * Adds an edge to the graph.
+   *
+   * @param obj A {@link LineString}, {@link MultiLineString} or a
+   *        {@link SimpleFeature} whose default geometry is one of them.
+   *
+   * @return The index of the edge.
+   */
+  public int add(Object obj) {
+    if (m_built) throw new IllegalStateException("Graph already built");
+
+    Object geometry = obj instanceof SimpleFeature
+      ? ((SimpleFeature) obj).getDefaultGeometry() : obj;
+
+    LineString ls = null;
+    if (geometry instanceof MultiLineString) {
+      ls = (LineString) ((MultiLineString) geometry).getGeometryN(0);
+    }
+    else {
+      ls = (LineString) geometry;
+    }
+    if (!(obj instanceof SimpleFeature)) obj = ls;
+
+    Coordinate c0 = ls.getCoordinateN(0);
+    Coordinate c1 = ls.getCoordinateN(ls.getNumPoints() - 1);
+    int source = m_index.add(c0.x, c0.y);
+    int target = m_index.add(c1.x, c1.y);
+
+    double weight;
+    if (m_weighter != null) {
+      BasicXYNode a = new BasicXYNode();
+      a.setCoordinate(c0);
+      BasicXYNode b = new BasicXYNode();
+      b.setCoordinate(c1);
+      Edge e = new BasicEdge(a, b);
+      e.setObject(obj);
+      weight = m_weighter.getWeight(e);
+    }
+    else {
+      weight = ls.getLength();
+    }
+
+    return(addEdge(source, target, weight, m_retainObjects ? obj : null));
+  }
+
+  private int addEdge(int source, int target, double weight, Object obj) {
+    if (m_nedges == m_sources.length) {
+      int capacity = m_nedges * 2;
+      m_sources = grow(m_sources, capacity);
+      m_targets = grow(m_targets, capacity);
+      m_weights = CoordinateIndex.grow(m_weights, capacity);
+      Object[] objects = new Object[capacity];
+      System.arraycopy(m_objects, 0, objects, 0, m_nedges);
+      m_objects = objects;
+    }
+    m_sources[m_nedges] = source;
+    m_targets[m_nedges] = target;
+    m_weights[m_nedges] = weight;
+    m_objects[m_nedges] = obj;
+    return(m_nedges++);
+  }
+
+  /**
+   * Builds the graph from the edges added, no edge can be added afterwards.
+   */
+  public CompactGraph build() {
+    m_built = true;
+    m_index.trim();
+
+    Object[] objects = null;
+    if (m_retainObjects) {
+      objects = new Object[m_nedges];
+      System.arraycopy(m_objects, 0, objects, 0, m_nedges);
+    }
+
+    CompactGraph graph = new CompactGraph(
+      m_directed, m_index.size(), m_index.m_x, m_index.m_y,
+      grow(m_sources, m_nedges), grow(m_targets, m_nedges),
+      CoordinateIndex.grow(m_weights, m_nedges), objects
+    );
+    graph.setCoordinateIndex(m_index);
+    return(graph);
+  }
+
+  /**
+   * Builds a compact graph from a graph, such as the one built by a
+   * {@link org.geotools.graph.build.line.LineStringGraphGenerator}. The
+   * compact graph is directed if the graph is a {@link DirectedGraph}, and
+   * keeps track of the nodes and edges of the graph. Node coordinates are
+   * taken from {@link XYNode}s and nodes whose object is a point or a
+   * coordinate.
+   *
+   * @param graph The graph.
+   * @param weighter Associates weights with edges in the graph.
+   */
+  public static CompactGraph build(Graph graph, EdgeWeighter weighter) {
+    boolean directed = graph instanceof DirectedGraph;
+
+    int nnodes = graph.getNodes().size();
+    Node[] nodes = new Node[nnodes];
+    Map node2index = new IdentityHashMap(nnodes * 2);
+    double[] x = new double[nnodes];
+    double[] y = new double[nnodes];
+    int n = 0;
+    for (Iterator itr = graph.getNodes().iterator(); itr.hasNext(); n++) {
+      Node node = (Node) itr.next();
+      nodes[n] = node;
+      node2index.put(node, new Integer(n));
+
+      Coordinate c = coordinate(node);
+      x[n] = c != null ? c.x : Double.NaN;
+      y[n] = c != null ? c.y : Double.NaN;
+    }
+
+    int nedges = graph.getEdges().size();
+    Edge[] edges = new Edge[nedges];
+    int[] sources = new int[nedges];
+    int[] targets = new int[nedges];
+    double[] weights = new double[nedges];
+    int e = 0;
+    for (Iterator itr = graph.getEdges().iterator(); itr.hasNext(); e++) {
+      Edge edge = (Edge) itr.next();
+      Node source = directed ? ((DirectedEdge) edge).getInNode() : edge.getNodeA();
+      Node target = directed ? ((DirectedEdge) edge).getOutNode() : edge.getNodeB();
+
+      edges[e] = edge;
+      sources[e] = ((Integer) node2index.get(source)).intValue();
+      targets[e] = ((Integer) node2index.get(target)).intValue();
+      weights[e] = weighter.getWeight(edge);
+    }
+
+    CompactGraph compact = new CompactGraph(
+      directed, nnodes, x, y, sources, targets, weights, null
+    );
+    compact.setComponents(nodes, edges, node2index);
+    return(compact);
+  }
+
+  private static Coordinate coordinate(Node node) {
+    if (node instanceof XYNode) return(((XYNode) node).getCoordinate());
+    if (node.getObject() instanceof Point) return(((Point) node.getObject()).getCoordinate());
+    if (node.getObject() instanceof Coordinate) return((Coordinate) node.getObject());
+    return(null);
+  }
+
+  private static int[] grow(int[] array, int length) {
+    int[] grown = new int[length];
+    System.arraycopy(array, 0, grown, 0, Math.min(array.length, length));
+    return(grown);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.structure.compact;
+
+import java.util.Arrays;
+
+/**
+ * Numbers distinct 2D coordinates, in the order they are added, with an open
+ * addressing hash table of node indexes so that no object is created per
+ * coordinate. Coordinates are equal when their x and y are, like
+ * {@link com.vividsolutions.jts.geom.Coordinate#equals2D}.
+ *
+ * @source $URL$
+ */
+class CoordinateIndex {
+
+  /** coordinates by index **/
+  double[] m_x = new double[16];
+  double[] m_y = new double[16];
+  int m_count = 0;
+
+  /** hash table of indexes, -1 for empty slots **/
+  int[] m_table = newTable(32);
+
+  /**
+   * Returns the index of a coordinate, or -1 if it was not added.
+   */
+  int get(double x, double y) {
+    int mask = m_table.length - 1;
+    for (int i = hash(x, y) & mask;; i = (i + 1) & mask) {
+      int n = m_table[i];
+      if (n == -1) return(-1);
+      if (m_x[n] == x && m_y[n] == y) return(n);
+    }
+  }
+
+  /**
+   * Returns the index of a coordinate, adding it if needed.
+   */
+  int add(double x, double y) {
+    int mask = m_table.length - 1;
+    int i = hash(x, y) & mask;
+    for (;; i = (i + 1) & mask) {
+      int n = m_table[i];
+      if (n == -1) break;
+      if (m_x[n] == x && m_y[n] == y) return(n);
+    }
+
+    if (m_count == m_x.length) {
+      m_x = grow(m_x, m_count * 2);
+      m_y = grow(m_y, m_count * 2);
+    }
+    int n = m_count++;
+    m_x[n] = x;
+    m_y[n] = y;
+    m_table[i] = n;
+
+    //keep the table at most half full
+    if (m_count * 2 > m_table.length) rehash(m_table.length * 2);
+    return(n);
+  }
+
+  int size() {
+    return(m_count);
+  }
+
+  /**
+   * Releases the unused capacity of the coordinate arrays.
+   */
+  void trim() {
+    m_x = grow(m_x, m_count);
+    m_y = grow(m_y, m_count);
+  }
+
+  private void rehash(int capacity) {
+    int[] table = newTable(capacity);
+    int mask = capacity - 1;
+    for (int n = 0; n < m_count; n++) {
+      int i = hash(m_x[n], m_y[n]) & mask;
+      while (table[i] != -1) i = (i + 1) & mask;
+      table[i] = n;
+    }
+    m_table = table;
+  }
+
+  private static int[] newTable(int capacity) {
+    int[] table = new int[capacity];
+    Arrays.fill(table, -1);
+    return(table);
+  }
+
+  static double[] grow(double[] array, int length) {
+    double[] grown = new double[length];
+    System.arraycopy(array, 0, grown, 0, Math.min(array.length, length));
+    return(grown);
+  }
+
+  private static int hash(double x, double y) {
+    //normalize -0.0 to 0.0, equal for ==
+    long bits = Double.doubleToLongBits(x + 0.0) * 31 + Double.doubleToLongBits(y + 0.0);
+    int h = (int) (bits ^ (bits >>> 32));
+    //spread the bits, the table size is a power of two
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    return(h);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary heap of int values ordered by increasing double keys, held in
+ * primitive arrays.
+ * <p>
+ * Unlike {@link PriorityQueue} the keys of queued values cannot be updated:
+ * a value whose key decreases is inserted again, and the caller skips the
+ * stale entries as they come out of the queue. This is the usual way of
+ * running Dijkstra like searches without a map from values to heap positions.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class IntPriorityQueue {
+
+  private double[] m_keys;
+  private int[] m_values;
+  private int m_count = 0;
+
+  public IntPriorityQueue() {
+    this(64);
+  }
+
+  public IntPriorityQueue(int capacity) {
+    m_keys = new double[Math.max(capacity, 1)];
+    m_values = new int[m_keys.length];
+  }
+
+  /**
+   * Adds a value to the queue.
+   *
+   * @param value The value.
+   * @param key The key ordering the value.
+   */
+  public void insert(int value, double key) {
+    if (m_count == m_keys.length) {
+      int capacity = m_keys.length * 2;
+      double[] keys = new double[capacity];
+      int[] values = new int[capacity];
+      System.arraycopy(m_keys, 0, keys, 0, m_count);
+      System.arraycopy(m_values, 0, values, 0, m_count);
+      m_keys = keys;
+      m_values = values;
+    }
+
+    //move up
+    int i = m_count++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (m_keys[parent] <= key) break;
+      m_keys[i] = m_keys[parent];
+      m_values[i] = m_values[parent];
+      i = parent;
+    }
+    m_keys[i] = key;
+    m_values[i] = value;
+  }
+
+  /**
+   * Returns the smallest key in the queue.
+   */
+  public double peekKey() {
+    if (m_count == 0)
+      throw new NoSuchElementException("Heap empty.");
+    return(m_keys[0]);
+  }
+
+  /**
+   * Returns the value with the smallest key in the queue, without removing it.
+   */
+  public int peek() {
+    if (m_count == 0)
+      throw new NoSuchElementException("Heap empty.");
+    return(m_values[0]);
+  }
+
+  /**
+   * Removes the value with the smallest key from the queue.
+   *
+   * @return The value removed.
+   */
+  public int extract() {
+    if (m_count == 0)
+      throw new NoSuchElementException("Heap empty.");
+
+    int value = m_values[0];
+    int last = --m_count;
+    if (last > 0) {
+      double key = m_keys[last];
+      int v = m_values[last];
+
+      //move down
+      int i = 0;
+      int half = last >>> 1;
+      while (i < half) {
+        int child = 2 * i + 1;
+        if (child + 1 < last && m_keys[child + 1] < m_keys[child]) child++;
+        if (key <= m_keys[child]) break;
+        m_keys[i] = m_keys[child];
+        m_values[i] = m_values[child];
+        i = child;
+      }
+      m_keys[i] = key;
+      m_values[i] = v;
+    }
+    return(value);
+  }
+
+  public boolean isEmpty() {
+    return(m_count == 0);
+  }
+
+  public int size() {
+    return(m_count);
+  }
+
+  public void clear() {
+    m_count = 0;
+  }
+}
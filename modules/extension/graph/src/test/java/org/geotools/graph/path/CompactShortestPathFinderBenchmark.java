@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import java.util.Random;
+
+import org.geotools.graph.build.line.LineStringGraphGenerator;
+import org.geotools.graph.structure.Edge;
+import org.geotools.graph.structure.Graph;
+import org.geotools.graph.structure.compact.CompactGraph;
+import org.geotools.graph.structure.compact.CompactGraphBuilder;
+import org.geotools.graph.traverse.standard.DijkstraIterator.EdgeWeighter;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ * Measures the shortest path queries per second on a road like grid, with the
+ * {@link DijkstraShortestPathFinder} on the graph built by a
+ * {@link LineStringGraphGenerator} and with the compact graph path finders.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the size
+ * of the grid and the number of queries.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class CompactShortestPathFinderBenchmark {
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+    GeometryFactory gf = new GeometryFactory();
+    Random random = new Random(0);
+    Coordinate[][] coords = new Coordinate[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        coords[i][j] = new Coordinate(
+          i + random.nextDouble() * 0.4, j + random.nextDouble() * 0.4
+        );
+      }
+    }
+
+    LineStringGraphGenerator gen = new LineStringGraphGenerator();
+    long start = System.nanoTime();
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        if (i + 1 < n) gen.add(gf.createLineString(new Coordinate[] {coords[i][j], coords[i + 1][j]}));
+        if (j + 1 < n) gen.add(gf.createLineString(new Coordinate[] {coords[i][j], coords[i][j + 1]}));
+      }
+    }
+    Graph graph = gen.getGraph();
+    System.out.printf("%-14s %,10.0f ms%n", "graph", (System.nanoTime() - start) / 1e6);
+
+    EdgeWeighter weighter = new EdgeWeighter() {
+      public double getWeight(Edge e) {
+        return(((LineString) e.getObject()).getLength());
+      }
+    };
+    start = System.nanoTime();
+    CompactGraph compact = CompactGraphBuilder.build(graph, weighter);
+    System.out.printf("%-14s %,10.0f ms%n", "compact graph", (System.nanoTime() - start) / 1e6);
+    System.out.printf("%,d nodes, %,d edges%n", compact.getNodeCount(), compact.getEdgeCount());
+
+    int[] sources = new int[queries];
+    int[] targets = new int[queries];
+    for (int i = 0; i < queries; i++) {
+      sources[i] = random.nextInt(compact.getNodeCount());
+      targets[i] = random.nextInt(compact.getNodeCount());
+    }
+
+    // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+    for (int i = 0; i < 3; i++) {
+      start = System.nanoTime();
+      int count = Math.max(1, queries / 10);
+      for (int q = 0; q < count; q++) {
+        DijkstraShortestPathFinder pfinder = new DijkstraShortestPathFinder(
+          graph, compact.getNode(sources[q]), weighter
+        );
+        pfinder.calculate();
+        pfinder.getPath(compact.getNode(targets[q]));
+      }
+      report("graph", count, start);
+
+      benchmark("dijkstra", new CompactDijkstraShortestPathFinder(compact), sources, targets);
+      benchmark("bidirectional", new CompactBidirectionalShortestPathFinder(compact), sources, targets);
+      benchmark("a star", new CompactAStarShortestPathFinder(compact), sources, targets);
+    }
+  }
+
+  static void benchmark(
+    String name, CompactShortestPathFinder finder, int[] sources, int[] targets
+  ) {
+    long start = System.nanoTime();
+    for (int q = 0; q < sources.length; q++) {
+      finder.calculate(sources[q], targets[q]);
+      finder.getPath();
+    }
+    report(name, sources.length, start);
+  }
+
+  static void report(String name, int count, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%-14s %,10.1f queries/s%n", name, count / seconds);
+  }
+}
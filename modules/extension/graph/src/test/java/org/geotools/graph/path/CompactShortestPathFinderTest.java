@@ -0,0 +1,319 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.path;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.geotools.graph.build.basic.BasicGraphBuilder;
+import org.geotools.graph.build.line.DirectedLineStringGraphGenerator;
+import org.geotools.graph.build.line.LineStringGraphGenerator;
+import org.geotools.graph.structure.Edge;
+import org.geotools.graph.structure.Graph;
+import org.geotools.graph.structure.Node;
+import org.geotools.graph.structure.compact.CompactGraph;
+import org.geotools.graph.structure.compact.CompactGraphBuilder;
+import org.geotools.graph.structure.line.XYNode;
+import org.geotools.graph.traverse.standard.DijkstraIterator.EdgeWeighter;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class CompactShortestPathFinderTest extends TestCase {
+
+  private static final double EPS = 1e-9;
+
+  public CompactShortestPathFinderTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Create an undirected grid and calculate paths between random nodes. <BR>
+   * <BR>
+   * Expected: 1. Costs should be those calculated by the dijkstra shortest
+   *              path finder on the graph.
+   *           2. Paths should go from target to source along edges of the
+   *              graph and cost the cost of the path.
+   */
+  public void test_undirected() {
+    LineStringGraphGenerator gen = new LineStringGraphGenerator();
+    buildGrid(gen, 20, false, 0);
+    Graph graph = gen.getGraph();
+
+    CompactGraph compact = CompactGraphBuilder.build(graph, weighter());
+    assertFalse(compact.isDirected());
+    assertEquals(graph.getNodes().size(), compact.getNodeCount());
+    assertEquals(graph.getEdges().size(), compact.getEdgeCount());
+
+    CompactShortestPathFinder[] finders = finders(compact);
+    Random random = new Random(1);
+    for (int i = 0; i < 20; i++) {
+      int source = random.nextInt(compact.getNodeCount());
+      DijkstraShortestPathFinder pfinder = new DijkstraShortestPathFinder(
+        graph, compact.getNode(source), weighter()
+      );
+      pfinder.calculate();
+
+      for (int j = 0; j < 10; j++) {
+        int target = random.nextInt(compact.getNodeCount());
+        double expected = pfinder.getCost(compact.getNode(target));
+
+        for (int k = 0; k < finders.length; k++) {
+          finders[k].calculate(source, target);
+          assertEquals(expected, finders[k].getCost(), EPS);
+
+          Path p = finders[k].getPath();
+          assertTrue(p.getFirst() == compact.getNode(target));
+          assertTrue(p.getLast() == compact.getNode(source));
+          assertTrue(p.isValid());
+          assertEquals(expected, cost(p), EPS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Create a directed grid with edges randomly reversed and calculate paths
+   * between random nodes. <BR>
+   * <BR>
+   * Expected: 1. Costs should be those of the shortest path tree calculated
+   *              from the source.
+   *           2. Edges of the paths should go from source to target.
+   */
+  public void test_directed() {
+    DirectedLineStringGraphGenerator gen = new DirectedLineStringGraphGenerator();
+    buildGrid(gen, 20, true, 2);
+    CompactGraph compact = CompactGraphBuilder.build(gen.getGraph(), weighter());
+    assertTrue(compact.isDirected());
+
+    CompactDijkstraShortestPathFinder tree = new CompactDijkstraShortestPathFinder(compact);
+    CompactShortestPathFinder[] finders = finders(compact);
+    Random random = new Random(3);
+    for (int i = 0; i < 20; i++) {
+      int source = random.nextInt(compact.getNodeCount());
+      tree.calculate(source);
+
+      for (int j = 0; j < 10; j++) {
+        int target = random.nextInt(compact.getNodeCount());
+        double expected = tree.getCost(target);
+        if (Double.isInfinite(expected)) {
+          assertNull(tree.getPath(target));
+        }
+
+        for (int k = 0; k < finders.length; k++) {
+          finders[k].calculate(source, target);
+          assertEquals(expected, finders[k].getCost(), EPS);
+
+          int[] edges = finders[k].getEdgeIndexes();
+          if (Double.isInfinite(expected)) {
+            assertNull(edges);
+            assertNull(finders[k].getPath());
+            continue;
+          }
+
+          int node = source;
+          double cost = 0;
+          for (int e = 0; e < edges.length; e++) {
+            assertEquals(node, compact.getSource(edges[e]));
+            node = compact.getTarget(edges[e]);
+            cost += compact.getWeight(edges[e]);
+          }
+          assertEquals(target, node);
+          assertEquals(expected, cost, EPS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate a path from a node to itself. <BR>
+   * <BR>
+   * Expected: 1. Path should contain the node only, at no cost.
+   */
+  public void test_sameNode() {
+    LineStringGraphGenerator gen = new LineStringGraphGenerator();
+    buildGrid(gen, 3, false, 0);
+    CompactGraph compact = CompactGraphBuilder.build(gen.getGraph(), weighter());
+
+    CompactShortestPathFinder[] finders = finders(compact);
+    for (int k = 0; k < finders.length; k++) {
+      finders[k].calculate(4, 4);
+      assertEquals(0d, finders[k].getCost(), 0d);
+      assertEquals(0, finders[k].getEdgeIndexes().length);
+
+      Path p = finders[k].getPath();
+      assertEquals(1, p.size());
+      assertTrue(p.getFirst() == compact.getNode(4));
+    }
+  }
+
+  /**
+   * Build a compact graph from line strings and calculate a path. <BR>
+   * <BR>
+   * Expected: 1. Path nodes should be created with the coordinates of the
+   *              compact graph nodes, edges with the line strings.
+   */
+  public void test_builtPath() {
+    GeometryFactory gf = new GeometryFactory();
+    CompactGraphBuilder builder = new CompactGraphBuilder();
+    LineString l0 = line(gf, 0, 0, 1, 0);
+    LineString l1 = line(gf, 1, 0, 1, 1);
+    LineString l2 = line(gf, 0, 0, 5, 5);
+    builder.add(l0);
+    builder.add(l1);
+    builder.add(l2);
+    CompactGraph compact = builder.build();
+
+    int source = compact.getNodeIndex(new Coordinate(0, 0));
+    int target = compact.getNodeIndex(new Coordinate(1, 1));
+
+    CompactShortestPathFinder[] finders = finders(compact);
+    for (int k = 0; k < finders.length; k++) {
+      finders[k].calculate(source, target);
+      assertEquals(2d, finders[k].getCost(), EPS);
+
+      Path p = finders[k].getPath();
+      assertEquals(3, p.size());
+      assertTrue(p.isValid());
+      assertEquals(new Coordinate(1, 1), ((XYNode) p.getFirst()).getCoordinate());
+      assertEquals(new Coordinate(0, 0), ((XYNode) p.getLast()).getCoordinate());
+      assertEquals(target, p.getFirst().getID());
+      assertEquals(source, p.getLast().getID());
+
+      Edge e = ((Node) p.get(1)).getEdge((Node) p.get(2));
+      assertTrue(e.getObject() == l0);
+    }
+  }
+
+  /**
+   * Create a graph whose nodes have no coordinates and calculate paths
+   * between all nodes. <BR>
+   * <BR>
+   * Expected: 1. A star should not estimate any cost.
+   *           2. Costs should be those of the shortest path tree calculated
+   *              from the source.
+   */
+  public void test_noCoordinates() {
+    BasicGraphBuilder builder = new BasicGraphBuilder();
+    Node[] nodes = new Node[20];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = builder.buildNode();
+      builder.addNode(nodes[i]);
+    }
+    Random random = new Random(5);
+    for (int i = 0; i < 60; i++) {
+      Node a = nodes[random.nextInt(nodes.length)];
+      Node b = nodes[random.nextInt(nodes.length)];
+      if (a == b) continue;
+      Edge e = builder.buildEdge(a, b);
+      e.setObject(new Double(1 + random.nextInt(10)));
+      builder.addEdge(e);
+    }
+    EdgeWeighter weighter = new EdgeWeighter() {
+      public double getWeight(Edge e) {
+        return(((Double) e.getObject()).doubleValue());
+      }
+    };
+    CompactGraph compact = CompactGraphBuilder.build(builder.getGraph(), weighter);
+    assertTrue(Double.isNaN(compact.getX(0)));
+    assertSame(
+      CompactAStarShortestPathFinder.ZERO,
+      CompactAStarShortestPathFinder.euclidean(compact, 1)
+    );
+
+    CompactDijkstraShortestPathFinder tree = new CompactDijkstraShortestPathFinder(compact);
+    CompactAStarShortestPathFinder finder = new CompactAStarShortestPathFinder(compact);
+    for (int source = 0; source < compact.getNodeCount(); source++) {
+      tree.calculate(source);
+      for (int target = 0; target < compact.getNodeCount(); target++) {
+        finder.calculate(source, target);
+        assertEquals(tree.getCost(target), finder.getCost(), EPS);
+      }
+    }
+  }
+
+  private CompactShortestPathFinder[] finders(CompactGraph graph) {
+    return(new CompactShortestPathFinder[] {
+      new CompactDijkstraShortestPathFinder(graph),
+      new CompactBidirectionalShortestPathFinder(graph),
+      new CompactAStarShortestPathFinder(graph)
+    });
+  }
+
+  /**
+   * Builds a grid of line strings whose nodes are slightly moved, reversing
+   * one edge out of <code>reverse</code> when directed.
+   */
+  private void buildGrid(
+    LineStringGraphGenerator gen, int n, boolean directed, int reverse
+  ) {
+    GeometryFactory gf = new GeometryFactory();
+    Random random = new Random(0);
+
+    Coordinate[][] coords = new Coordinate[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        coords[i][j] = new Coordinate(
+          i + random.nextDouble() * 0.4, j + random.nextDouble() * 0.4
+        );
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        if (i + 1 < n) add(gen, gf, coords[i][j], coords[i + 1][j], directed && random.nextInt(reverse) == 0);
+        if (j + 1 < n) add(gen, gf, coords[i][j], coords[i][j + 1], directed && random.nextInt(reverse) == 0);
+      }
+    }
+  }
+
+  private void add(
+    LineStringGraphGenerator gen, GeometryFactory gf, Coordinate c0, Coordinate c1, boolean reversed
+  ) {
+    gen.add(gf.createLineString(reversed ? new Coordinate[] {c1, c0} : new Coordinate[] {c0, c1}));
+  }
+
+  private LineString line(GeometryFactory gf, double x0, double y0, double x1, double y1) {
+    return(gf.createLineString(
+      new Coordinate[] {new Coordinate(x0, y0), new Coordinate(x1, y1)}
+    ));
+  }
+
+  private double cost(Path p) {
+    double cost = 0;
+    for (int i = 0; i < p.size() - 1; i++) {
+      Edge e = ((Node) p.get(i)).getEdge((Node) p.get(i + 1));
+      cost += weighter().getWeight(e);
+    }
+    return(cost);
+  }
+
+  private EdgeWeighter weighter() {
+    return(new EdgeWeighter() {
+      public double getWeight(Edge e) {
+        return(((LineString) e.getObject()).getLength());
+      }
+    });
+  }
+}
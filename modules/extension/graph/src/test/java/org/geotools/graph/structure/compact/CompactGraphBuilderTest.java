@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.graph.structure.compact;
+
+import junit.framework.TestCase;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.graph.structure.Edge;
+import org.geotools.graph.structure.line.XYNode;
+import org.geotools.graph.traverse.standard.DijkstraIterator.EdgeWeighter;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class CompactGraphBuilderTest extends TestCase {
+
+  private GeometryFactory m_gf = new GeometryFactory();
+
+  public CompactGraphBuilderTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Add line strings sharing end points to an undirected graph. <BR>
+   * <BR>
+   * Expected: 1. Nodes should be shared by the edges ending at the same
+   *              coordinate.
+   *           2. Edges should be adjacent to both their nodes.
+   *           3. Edges should be weighted by their length.
+   */
+  public void test_undirected() {
+    CompactGraphBuilder builder = new CompactGraphBuilder();
+    LineString l0 = line(0, 0, 3, 4);
+    assertEquals(0, builder.add(l0));
+    assertEquals(1, builder.add(line(3, 4, 3, 0)));
+    assertEquals(2, builder.add(line(0, 0, 3, 0)));
+    CompactGraph graph = builder.build();
+
+    assertFalse(graph.isDirected());
+    assertEquals(3, graph.getNodeCount());
+    assertEquals(3, graph.getEdgeCount());
+    assertEquals(-1, graph.getNodeIndex(new Coordinate(1, 1)));
+
+    int a = graph.getNodeIndex(new Coordinate(0, 0));
+    int b = graph.getNodeIndex(new Coordinate(3, 4));
+    int c = graph.getNodeIndex(new Coordinate(3, 0));
+    assertEquals(3d, graph.getX(b), 0d);
+    assertEquals(4d, graph.getY(b), 0d);
+
+    assertEquals(a, graph.getSource(0));
+    assertEquals(b, graph.getTarget(0));
+    assertEquals(b, graph.getOtherNode(0, a));
+    assertEquals(a, graph.getOtherNode(0, b));
+    assertEquals(5d, graph.getWeight(0), 0d);
+    assertTrue(graph.getEdgeObject(0) == l0);
+
+    assertEquals(2, degree(graph, a));
+    assertEquals(2, degree(graph, b));
+    assertEquals(2, degree(graph, c));
+    assertEquals(graph.getOutOffset(c), graph.getInOffset(c));
+    assertNull(graph.getNode(a));
+    assertNull(graph.getEdge(0));
+
+    try {
+      builder.add(line(0, 0, 1, 1));
+      fail();
+    }
+    catch (IllegalStateException e) {}
+  }
+
+  /**
+   * Add line strings to a directed graph. <BR>
+   * <BR>
+   * Expected: 1. Edges should go out of their first coordinate and into their
+   *              last one.
+   */
+  public void test_directed() {
+    CompactGraphBuilder builder = new CompactGraphBuilder(true, null);
+    builder.add(line(0, 0, 1, 0));
+    builder.add(line(1, 0, 1, 1));
+    builder.add(line(1, 1, 0, 0));
+    builder.add(line(0, 0, 0, 0));
+    CompactGraph graph = builder.build();
+
+    assertTrue(graph.isDirected());
+    assertEquals(3, graph.getNodeCount());
+
+    int a = graph.getNodeIndex(new Coordinate(0, 0));
+    int b = graph.getNodeIndex(new Coordinate(1, 0));
+    assertEquals(2, graph.getOutOffset(a + 1) - graph.getOutOffset(a));
+    assertEquals(2, graph.getInOffset(a + 1) - graph.getInOffset(a));
+    assertEquals(1, graph.getOutOffset(b + 1) - graph.getOutOffset(b));
+    assertEquals(0, graph.getInEdge(graph.getInOffset(b)));
+    assertEquals(1, graph.getInOffset(b + 1) - graph.getInOffset(b));
+  }
+
+  /**
+   * Add features weighted by an attribute. <BR>
+   * <BR>
+   * Expected: 1. Weighter should be handed edges whose object is the feature
+   *              and whose nodes are located at the line string ends.
+   *           2. Edge objects should not be kept if not retained.
+   */
+  public void test_features() throws Exception {
+    SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+    tb.setName("road");
+    tb.add("geom", LineString.class);
+    tb.add("speed", Double.class);
+    SimpleFeatureBuilder fb = new SimpleFeatureBuilder(tb.buildFeatureType());
+
+    EdgeWeighter weighter = new EdgeWeighter() {
+      public double getWeight(Edge e) {
+        SimpleFeature f = (SimpleFeature) e.getObject();
+        assertEquals(
+          ((LineString) f.getDefaultGeometry()).getCoordinateN(0),
+          ((XYNode) e.getNodeA()).getCoordinate()
+        );
+        return(((LineString) f.getDefaultGeometry()).getLength()
+          / ((Double) f.getAttribute("speed")).doubleValue());
+      }
+    };
+
+    CompactGraphBuilder builder = new CompactGraphBuilder(false, weighter);
+    builder.setRetainObjects(false);
+    fb.add(line(0, 0, 0, 10));
+    fb.add(new Double(5));
+    builder.add(fb.buildFeature("road.0"));
+    fb.add(line(0, 10, 10, 10));
+    fb.add(new Double(2));
+    builder.add(fb.buildFeature("road.1"));
+    CompactGraph graph = builder.build();
+
+    assertEquals(3, graph.getNodeCount());
+    assertEquals(2d, graph.getWeight(0), 0d);
+    assertEquals(5d, graph.getWeight(1), 0d);
+    assertNull(graph.getEdgeObject(0));
+  }
+
+  private int degree(CompactGraph graph, int node) {
+    return(graph.getOutOffset(node + 1) - graph.getOutOffset(node));
+  }
+
+  private LineString line(double x0, double y0, double x1, double y1) {
+    return(m_gf.createLineString(
+      new Coordinate[] {new Coordinate(x0, y0), new Coordinate(x1, y1)}
+    ));
+  }
+}
@@ -77,6 +77,7 @@ import org.geotools.xml.impl.MismatchedBindingFinder;
 import org.geotools.xml.impl.NamespaceSupportWrapper;
 import org.geotools.xml.impl.SchemaIndexImpl;
 import org.opengis.feature.Feature;
+import org.picocontainer.ComponentAdapter;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.defaults.DefaultPicoContainer;
 import org.w3c.dom.Attr;
@@ -167,6 +168,9 @@ public class Encoder {
     /** property extractors */
     private List propertyExtractors;
 
+    /** encoder delegate factories */
+    private List delegateFactories;
+
     /** element encoder */
     private ElementEncoder encoder;
 
@@ -274,6 +278,15 @@ public class Encoder {
         //add the property extractor for bindings as first
         propertyExtractors.add(0, new BindingPropertyExtractor(this, context));
 
+        //encoder delegate factories, instantiated against this context since they are usually
+        // registered by configurations in a parent container
+        delegateFactories = new ArrayList();
+        List adapters = Schemas.getComponentAdaptersOfType(context, EncoderDelegateFactory.class);
+        for (Iterator a = adapters.iterator(); a.hasNext();) {
+            ComponentAdapter adapter = (ComponentAdapter) a.next();
+            delegateFactories.add(adapter.getComponentInstance(context));
+        }
+
         //create output properties with some defaults
         outputProps = new Properties();
         outputProps.setProperty(INDENT_AMOUNT_KEY, "2");
@@ -1027,7 +1040,12 @@ O:
                                 }
                             }
 
-                            if ((maxOccurs == -1) || (maxOccurs > 1)) {
+                            //check for a delegate encoding the value as a whole
+                            EncoderDelegate delegate = createEncoderDelegate(obj, child, entry.element);
+
+                            if (delegate != null) {
+                                entry.children.add(new Object[] { child, new SingleIterator(delegate), obj });
+                            } else if ((maxOccurs == -1) || (maxOccurs > 1)) {
                                 //may have a collection or array, unwrap it
                                 Iterator iterator = null;
 
@@ -1136,6 +1154,26 @@ O:
         return new String(out.toByteArray());
     }
 
+    /**
+     * Looks up a delegate encoding a child value through the registered
+     * {@link EncoderDelegateFactory} instances.
+     *
+     * @return The delegate, or <code>null</code> if none of the factories handles the value.
+     */
+    protected EncoderDelegate createEncoderDelegate(Object value, XSDElementDeclaration element,
+            XSDElementDeclaration parent) {
+        for (Iterator f = delegateFactories.iterator(); f.hasNext();) {
+            EncoderDelegateFactory factory = (EncoderDelegateFactory) f.next();
+            EncoderDelegate delegate = factory.createEncoderDelegate(value, element, parent);
+
+            if (delegate != null) {
+                return delegate;
+            }
+        }
+
+        return null;
+    }
+
     protected void closeIterator(Iterator iterator, Object source) {
         DataUtilities.close( iterator );
     }
@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+
+
+/**
+ * Factory used by the encoder to hand over the encoding of a child value to an
+ * {@link EncoderDelegate}, typically to stream large contents such as feature collections
+ * straight to the output instead of building an element per encoded object.
+ * <p>
+ * Factories are looked up in the encoder context, and consulted for every child value before
+ * it is encoded through the bindings. The delegate is responsible for encoding the child
+ * element itself, once per occurrence when the value holds multiple occurrences.
+ * </p>
+ *
+ * @source $URL$
+ */
+public interface EncoderDelegateFactory {
+    /**
+     * Creates a delegate encoding a child value.
+     *
+     * @param value The child value, a collection or an iterator for multi valued elements.
+     * @param element The declaration of the child element.
+     * @param parent The declaration of the element being encoded.
+     *
+     * @return The delegate, or <code>null</code> if the value should go through the regular
+     *         encoding routine.
+     */
+    EncoderDelegate createEncoderDelegate(Object value, XSDElementDeclaration element,
+            XSDElementDeclaration parent);
+}
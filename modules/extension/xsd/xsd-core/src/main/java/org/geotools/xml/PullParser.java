@@ -27,8 +27,7 @@ public class PullParser {
 
     PullParserHandler handler;
     XMLStreamReader pp;
-
-    Attributes atts = new Attributes();
+    StreamReaderAttributes atts;
 
     public PullParser(Configuration config, InputStream input, QName element) {
         this(config, input, new ElementPullParserHandler(element, config));
@@ -45,6 +44,7 @@ public class PullParser {
     public PullParser(Configuration config, InputStream input, PullParserHandler handler) {
         this.handler = handler;
         pp = createPullParser(input);
+        atts = new StreamReaderAttributes(pp);
     }
 
     public Object parse() throws XMLStreamException, IOException, SAXException {
@@ -134,78 +134,6 @@ public class PullParser {
             qName.getLocalPart();
     }
 
-    class Attributes implements org.xml.sax.Attributes {
-
-        public int getLength() { return pp.getAttributeCount(); }
-        public String getURI(int index) { return pp.getAttributeNamespace(index); }
-        public String getLocalName(int index) { return pp.getAttributeLocalName(index); }
-        public String getQName(int index) {
-            final String prefix = pp.getAttributePrefix(index);
-            if(prefix != null) {
-                return prefix+':'+pp.getAttributeName(index);
-            } else {
-                return str(pp.getAttributeName(index));
-            }
-        }
-        public String getType(int index) { return pp.getAttributeType(index); }
-        public String getValue(int index) { return pp.getAttributeValue(index); }
-
-        public int getIndex(String uri, String localName) {
-            for (int i = 0; i < pp.getAttributeCount(); i++)
-            {
-                if(pp.getAttributeNamespace(i).equals(uri)
-                   && pp.getAttributeName(i).equals(localName))
-                {
-                    return i;
-                }
-
-            }
-            return -1;
-        }
-
-        public int getIndex(String qName) {
-            for (int i = 0; i < pp.getAttributeCount(); i++)
-            {
-                if(pp.getAttributeName(i).equals(qName))
-                {
-                    return i;
-                }
-
-            }
-            return -1;
-        }
-
-        public String getType(String uri, String localName) {
-            for (int i = 0; i < pp.getAttributeCount(); i++)
-            {
-                if(pp.getAttributeNamespace(i).equals(uri)
-                   && pp.getAttributeName(i).equals(localName))
-                {
-                    return pp.getAttributeType(i);
-                }
-
-            }
-            return null;
-        }
-        public String getType(String qName) {
-            for (int i = 0; i < pp.getAttributeCount(); i++)
-            {
-                if(pp.getAttributeName(i).equals(qName))
-                {
-                    return pp.getAttributeType(i);
-                }
-
-            }
-            return null;
-        }
-        public String getValue(String uri, String localName) {
-            return pp.getAttributeValue(uri, localName);
-        }
-        public String getValue(String qName) {
-            return pp.getAttributeValue(null, qName);
-        }
-    }
-
     static abstract class PullParserHandler extends ParserHandler {
 
         PullParser parser;
@@ -0,0 +1,57 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+
+
+/**
+ * Parses the elements with simple content straight from their text and attributes, bypassing
+ * the bindings of their type, typically to read large lists of coordinates without walking the
+ * bindings for every element and list item.
+ * <p>
+ * Parsers are looked up in the parser context once per document, and consulted for every
+ * element before a handler is created for it. A parser must return exactly what the bindings
+ * registered for the elements it accepts would, so it is usually registered by the
+ * configuration registering those bindings; a configuration overriding the bindings should
+ * unregister it.
+ * </p>
+ *
+ * @source $URL$
+ */
+public interface SimpleContentParser {
+    /**
+     * Determines if the parser handles an element.
+     *
+     * @param element The declaration of the element.
+     *
+     * @return <code>true</code> to parse the element with {@link #parse(ElementInstance, Node)}
+     *         rather than through the bindings.
+     */
+    boolean canParse(XSDElementDeclaration element);
+
+    /**
+     * Parses an element.
+     *
+     * @param instance The element instance, holding its text.
+     * @param node The parse node of the element, holding its parsed attributes and linked to
+     *        its parent node.
+     *
+     * @return The parsed value.
+     */
+    Object parse(ElementInstance instance, Node node) throws Exception;
+}
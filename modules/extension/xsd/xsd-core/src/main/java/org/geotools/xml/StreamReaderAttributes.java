@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.Attributes;
+
+
+/**
+ * Sax view of the attributes of the current start element of a stax stream reader, used to
+ * feed a {@link org.geotools.xml.impl.ParserHandler} from a pull parser.
+ *
+ * @source $URL$
+ */
+class StreamReaderAttributes implements Attributes {
+
+    XMLStreamReader pp;
+
+    StreamReaderAttributes(XMLStreamReader pp) {
+        this.pp = pp;
+    }
+
+    public int getLength() {
+        return pp.getAttributeCount();
+    }
+
+    public String getURI(int index) {
+        String uri = pp.getAttributeNamespace(index);
+        return uri != null ? uri : "";
+    }
+
+    public String getLocalName(int index) {
+        return pp.getAttributeLocalName(index);
+    }
+
+    public String getQName(int index) {
+        String prefix = pp.getAttributePrefix(index);
+        String localName = pp.getAttributeLocalName(index);
+        return prefix != null && prefix.length() > 0 ? prefix + ":" + localName : localName;
+    }
+
+    public String getType(int index) {
+        return pp.getAttributeType(index);
+    }
+
+    public String getValue(int index) {
+        return pp.getAttributeValue(index);
+    }
+
+    public int getIndex(String uri, String localName) {
+        for (int i = 0; i < pp.getAttributeCount(); i++) {
+            if (getURI(i).equals(uri) && getLocalName(i).equals(localName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getIndex(String qName) {
+        for (int i = 0; i < pp.getAttributeCount(); i++) {
+            if (getQName(i).equals(qName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getType(String uri, String localName) {
+        int i = getIndex(uri, localName);
+        return i != -1 ? getType(i) : null;
+    }
+
+    public String getType(String qName) {
+        int i = getIndex(qName);
+        return i != -1 ? getType(i) : null;
+    }
+
+    public String getValue(String uri, String localName) {
+        int i = getIndex(uri, localName);
+        return i != -1 ? getValue(i) : null;
+    }
+
+    public String getValue(String qName) {
+        int i = getIndex(qName);
+        return i != -1 ? getValue(i) : null;
+    }
+}
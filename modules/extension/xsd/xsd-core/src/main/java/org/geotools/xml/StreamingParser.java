@@ -17,13 +17,17 @@
 package org.geotools.xml;
 
 import org.xml.sax.SAXException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.geotools.xml.impl.Buffer;
 import org.geotools.xml.impl.ElementNameStreamingParserHandler;
 import org.geotools.xml.impl.StreamingParserHandler;
 import org.geotools.xml.impl.TypeStreamingParserHandler;
@@ -110,6 +114,12 @@ import org.geotools.xml.impl.TypeStreamingParserHandler;
  *    }
  *  </pre>
  * </p>
+ * <p>
+ * The document is read with a stax stream reader driven by the thread calling {@link #parse()},
+ * each call reading just enough of the document to find the next object, and the events are
+ * handed to the same sax handler as the one used by {@link Parser}. No thread is created and the
+ * input stream is closed once the end of the document is reached, or parsing failed.
+ * </p>
  *
  * @author Justin Deoliveira, The Open Planning Project
  * @deprecated {@link PullParser} is meant as a better replacement. 
@@ -124,9 +134,14 @@ public class StreamingParser {
     private StreamingParserHandler handler;
 
     /**
-     * The sax parser.
+     * The pull parser.
+     */
+    private XMLStreamReader pp;
+
+    /**
+     * The attributes of the current element.
      */
-    private SAXParser parser;
+    private StreamReaderAttributes atts;
 
     /**
      * The xml input.
@@ -134,9 +149,9 @@ public class StreamingParser {
     private InputStream input;
 
     /**
-     * The parsing thread.
+     * Whether the document was started.
      */
-    private Thread thread;
+    private boolean started;
 
     /**
      * Creates a new instance of the type based streaming parser.
@@ -222,9 +237,15 @@ public class StreamingParser {
      */
     protected StreamingParser(Configuration configuration, InputStream input,
         StreamingParserHandler handler) throws ParserConfigurationException, SAXException {
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        spf.setNamespaceAware(true);
-        parser = spf.newSAXParser();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        try {
+            pp = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw (SAXException) new SAXException("Error creating pull parser").initCause(e);
+        }
+        atts = new StreamReaderAttributes(pp);
 
         this.handler = handler;
         this.input = input;
@@ -239,24 +260,95 @@ public class StreamingParser {
      * available.
      */
     public Object parse() {
-        if (thread == null) {
-            Runnable runnable = new Runnable() {
-                    public void run() {
-                        try {
-                            parser.parse(input, handler);
-                        } catch (Exception e) {
-                            //close the buffer
-                            handler.getBuffer().close();
-                            throw new RuntimeException(e);
-                        }
+        Buffer buffer = handler.getBuffer();
+        if (pp == null) {
+            //end of document reached
+            return buffer.get();
+        }
+
+        try {
+            if (!started) {
+                started = true;
+                handler.startDocument();
+            }
+
+            //read until the handler streams an object out
+            while (pp.hasNext()) {
+                switch (pp.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                    for (int i = 0; i < pp.getNamespaceCount(); i++) {
+                        String prefix = pp.getNamespacePrefix(i);
+                        String uri = pp.getNamespaceURI(i);
+                        handler.startPrefixMapping(prefix != null ? prefix : "",
+                            uri != null ? uri : "");
                     }
-                    ;
-                };
+                    handler.startElement(uri(), pp.getLocalName(), qName(), atts);
+                    break;
 
-            thread = new Thread(runnable);
-            thread.start();
+                case XMLStreamReader.CHARACTERS:
+                case XMLStreamReader.CDATA:
+                    handler.characters(pp.getTextCharacters(), pp.getTextStart(),
+                        pp.getTextLength());
+                    break;
+
+                case XMLStreamReader.SPACE:
+                    handler.ignorableWhitespace(pp.getTextCharacters(), pp.getTextStart(),
+                        pp.getTextLength());
+                    break;
+
+                case XMLStreamReader.END_ELEMENT:
+                    handler.endElement(uri(), pp.getLocalName(), qName());
+
+                    //undeclare the namespaces in reverse order
+                    for (int i = pp.getNamespaceCount() - 1; i >= 0; i--) {
+                        String prefix = pp.getNamespacePrefix(i);
+                        handler.endPrefixMapping(prefix != null ? prefix : "");
+                    }
+
+                    if (buffer.size() > 0) {
+                        return buffer.get();
+                    }
+                    break;
+                }
+            }
+
+            handler.endDocument();
+            close();
+        } catch (Exception e) {
+            //close the buffer
+            buffer.close();
+            close();
+            throw new RuntimeException(e);
         }
 
-        return handler.getBuffer().get();
+        return buffer.get();
+    }
+
+    String uri() {
+        String uri = pp.getNamespaceURI();
+        return uri != null ? uri : "";
+    }
+
+    String qName() {
+        String prefix = pp.getPrefix();
+        return prefix != null && prefix.length() > 0 ? prefix + ":" + pp.getLocalName()
+            : pp.getLocalName();
+    }
+
+    /**
+     * Closes the pull parser and the input, like the sax parser does at the end of the document.
+     */
+    void close() {
+        try {
+            pp.close();
+        } catch (XMLStreamException e) {
+            //ignore
+        }
+        try {
+            input.close();
+        } catch (IOException e) {
+            //ignore
+        }
+        pp = null;
     }
 }
@@ -37,11 +37,24 @@ import org.geotools.xml.Binding;
 public class BindingLoader {
     
     Map bindings;
+
+    /** shared execution plans of the bindings */
+    BindingPlanCache.Plans plans;
     
     public BindingLoader( Map bindings ) {
         this.bindings = bindings;
     }
 
+    /**
+     * Returns the execution plans shared by the parsers and encoders using the same bindings.
+     */
+    public synchronized BindingPlanCache.Plans getPlans() {
+        if (plans == null) {
+            plans = BindingPlanCache.getInstance().getPlans(bindings);
+        }
+        return plans;
+    }
+
     /**
      * Loads a binding with a specifc QName into a context.
      *
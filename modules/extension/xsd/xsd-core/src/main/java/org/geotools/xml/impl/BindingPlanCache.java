@@ -0,0 +1,240 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.xsd.XSDFeature;
+import org.eclipse.xsd.XSDTypeDefinition;
+import org.geotools.util.ConcurrentSoftValueHashMap;
+import org.picocontainer.ComponentAdapter;
+
+
+/**
+ * Process wide cache of the binding execution plans, shared by all the parsers and encoders.
+ * <p>
+ * The plan of an element or attribute is the list of the names of the bindings
+ * {@link BindingWalker} executes for it, found by walking its type hierarchy. It only depends
+ * on the bindings of the configuration and on the schema component, so the plans are grouped by
+ * the classes of the bindings registered in a map, as returned by
+ * {@link org.geotools.xml.Configuration#setupBindings()}: two parsers built from configurations
+ * registering the same binding classes share their plans, even if the configurations are distinct
+ * instances or register binding instances. The bindings themselves are still instantiated in the
+ * context of each parser.
+ * </p>
+ * <p>
+ * The execution mode of a binding is assumed to depend on its class only. Bindings whose
+ * execution mode changes with their state, or with the state of the configuration, are not
+ * supported: the plan built first is used by all the parsers.
+ * </p>
+ * <p>
+ * The plans of a map of bindings are softly referenced, and the schema components weakly
+ * referenced, so schemas parsed for a single document do not pile up in the cache.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class BindingPlanCache {
+
+    /** the shared instance */
+    static final BindingPlanCache INSTANCE = new BindingPlanCache();
+
+    /**
+     * Returns the cache shared by all the parsers and encoders.
+     */
+    public static BindingPlanCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** plans by map of binding classes */
+    ConcurrentSoftValueHashMap<Map<Object, Class>, Plans> plans =
+        new ConcurrentSoftValueHashMap<Map<Object, Class>, Plans>();
+
+    /** statistics */
+    AtomicLong hits = new AtomicLong();
+    AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the plans for a map of bindings.
+     *
+     * @param bindings The bindings, keyed by {@link QName}, as classes, instances or component
+     *        adapters.
+     */
+    public Plans getPlans(Map bindings) {
+        // the key is a copy, which must not change while in the map, holding the binding classes
+        // so that binding instances do not make a new key each time
+        Map<Object, Class> key = Collections.unmodifiableMap(getBindingClasses(bindings));
+        Plans p = plans.get(key);
+        if (p == null) {
+            p = new Plans();
+            Plans existing = plans.putIfAbsent(key, p);
+            if (existing != null) {
+                p = existing;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Maps the names of the bindings to their classes.
+     */
+    static Map<Object, Class> getBindingClasses(Map bindings) {
+        Map<Object, Class> classes = new HashMap<Object, Class>(bindings.size() * 4 / 3 + 1);
+        for (Iterator i = bindings.entrySet().iterator(); i.hasNext();) {
+            Map.Entry entry = (Map.Entry) i.next();
+            Object binding = entry.getValue();
+            Class clazz;
+            if (binding instanceof Class) {
+                clazz = (Class) binding;
+            } else if (binding instanceof ComponentAdapter) {
+                clazz = ((ComponentAdapter) binding).getComponentImplementation();
+            } else {
+                clazz = binding != null ? binding.getClass() : null;
+            }
+            classes.put(entry.getKey(), clazz);
+        }
+        return classes;
+    }
+
+    /**
+     * Removes all the plans, for instance to release memory. The plans are never invalidated
+     * otherwise, see the class documentation about the execution modes.
+     */
+    public void clear() {
+        plans.clear();
+    }
+
+    /**
+     * Returns the number of times a plan was found in the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of times a plan had to be built by walking a type hierarchy.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of maps of bindings with plans in the cache.
+     */
+    public int getBindingsCount() {
+        return plans.size();
+    }
+
+    /**
+     * Returns the number of plans in the cache.
+     */
+    public int getPlanCount() {
+        int count = 0;
+        for (Plans p : plans.values()) {
+            count += p.size();
+        }
+        return count;
+    }
+
+    /**
+     * Resets the hit and miss counts.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "BindingPlanCache[bindings=" + getBindingsCount() + ", plans=" + getPlanCount()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    /**
+     * The plans built against a map of bindings, by schema component and containing type.
+     */
+    public class Plans {
+
+        /** plans by component, then by container, the null container stored under the component */
+        Map<XSDFeature, Map<Object, List<QName>>> plans =
+            new WeakHashMap<XSDFeature, Map<Object, List<QName>>>();
+
+        /**
+         * Returns the plan of a component, or <code>null</code> if it has not been built yet.
+         *
+         * @param component The element or attribute.
+         * @param container The containing type, used to name the bindings of anonymous types,
+         *        may be <code>null</code>.
+         *
+         * @return The names of the bindings to execute, in order.
+         */
+        public List<QName> get(XSDFeature component, XSDTypeDefinition container) {
+            List<QName> plan = null;
+            synchronized (this) {
+                Map<Object, List<QName>> byContainer = plans.get(component);
+                if (byContainer != null) {
+                    plan = byContainer.get(container != null ? container : component);
+                }
+            }
+
+            if (plan != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            return plan;
+        }
+
+        /**
+         * Stores the plan of a component.
+         *
+         * @param component The element or attribute.
+         * @param container The containing type, may be <code>null</code>.
+         * @param plan The names of the bindings to execute, in order.
+         */
+        public void put(XSDFeature component, XSDTypeDefinition container, List<QName> plan) {
+            synchronized (this) {
+                Map<Object, List<QName>> byContainer = plans.get(component);
+                if (byContainer == null) {
+                    byContainer = new WeakHashMap<Object, List<QName>>(2);
+                    plans.put(component, byContainer);
+                }
+                byContainer.put(container != null ? container : component,
+                        Collections.unmodifiableList(plan));
+            }
+        }
+
+        /**
+         * Returns the number of plans.
+         */
+        public synchronized int size() {
+            int size = 0;
+            for (Map<Object, List<QName>> byContainer : plans.values()) {
+                size += byContainer.size();
+            }
+            return size;
+        }
+    }
+}
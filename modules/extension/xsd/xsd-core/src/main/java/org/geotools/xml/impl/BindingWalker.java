@@ -49,6 +49,7 @@ public class BindingWalker implements TypeWalker.Visitor {
     TypeWalker typeWalker;
     MutablePicoContainer context;
     ArrayList bindings;
+    List<QName> names;
     XSDFeature component;
     XSDTypeDefinition container;
 
@@ -137,6 +138,7 @@ public class BindingWalker implements TypeWalker.Visitor {
         if (binding != null) {
             //add the binding
             bindings.add(binding);
+            names.add(bindingName);
 
             //check execution mode, if override break out
             if (binding.getExecutionMode() == Binding.OVERRIDE) {
@@ -152,10 +154,30 @@ public class BindingWalker implements TypeWalker.Visitor {
         BindingExecutionChain chain = (BindingExecutionChain) chains.get(component);
 
         if (chain == null) {
+            //look for a plan built by another walker against the same bindings
+            BindingPlanCache.Plans plans = loader.getPlans();
+            List<QName> plan = plans.get(component, container);
+
+            if (plan != null) {
+                List loaded = new ArrayList(plan.size());
+                for (QName name : plan) {
+                    Binding binding = loader.loadBinding(name, context);
+                    if (binding != null) {
+                        loaded.add(binding);
+                    }
+                }
+
+                chain = new BindingExecutionChain(loaded);
+                chains.put(component, chain);
+                chain.execute(visitor);
+                return;
+            }
+
             this.container = container;
             this.component = component;
             this.context = context;
             this.bindings = new ArrayList();
+            this.names = new ArrayList<QName>();
 
             //first walk the type hierarchy to get the binding objects
             typeWalker.walk(component.getType(), this);
@@ -172,15 +194,19 @@ public class BindingWalker implements TypeWalker.Visitor {
                         //override, clear the binding list
                         bindings.clear();
                         bindings.add(binding);
+                        names.clear();
+                        names.add(qName);
                     } else {
                         //not override, add as first
                         bindings.add(0, binding);
+                        names.add(0, qName);
                     }
                 }
             }
 
             chain = new BindingExecutionChain(bindings);
             chains.put(component, chain);
+            plans.put(component, container, names);
         }
 
         chain.execute(visitor);
@@ -86,6 +86,10 @@ public class Buffer {
         return object;
     }
 
+    public synchronized int size() {
+        return size;
+    }
+
     public synchronized void close() {
         closed = true;
         notifyAll();
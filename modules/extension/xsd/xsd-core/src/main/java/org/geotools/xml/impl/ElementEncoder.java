@@ -86,6 +86,22 @@ public class ElementEncoder {
         return executor.getEncodedElement();
     }
 
+    /**
+     * Encodes a value corresponding to an element of simple type as text, without creating any
+     * DOM node.
+     *
+     * @param value The value to encode.
+     * @param element The declaration of the element corresponding to the value.
+     * @param container The type containing the element, may be <code>null</code>.
+     *
+     * @return The encoded text, or <code>null</code> if no binding encoded the value.
+     */
+    public String encodeText(Object value, XSDElementDeclaration element, XSDTypeDefinition container) {
+        SimpleContentEncodeExecutor executor = new SimpleContentEncodeExecutor(value, element, logger);
+        BindingVisitorDispatch.walk(value, bindingWalker, element, executor, container, context);
+        return executor.getText();
+    }
+
     public Attr encode(Object value, XSDAttributeDeclaration attribute, Document document,
             XSDTypeDefinition container) {
         AttributeEncodeExecutor executor = new AttributeEncodeExecutor(value, attribute, document,
@@ -89,6 +89,33 @@ public class ElementHandlerImpl extends HandlerImpl implements ElementHandler {
         //clear handler list
         //childHandlers.clear();
 
+        //create the element and its parse tree, with the attributes
+        createElement(qName, attributes);
+
+        // trigger the leading edge initialize callback
+        ElementInitializer initer = new ElementInitializer(element, node, parent.getContext());
+        parser.getBindingWalker().walk(element.getElementDeclaration(), initer, container(), parent.getContext());
+
+        //create context for children 
+        //TODO: this should only be done if the element is complex, this class
+        // needs to be split into two, one for complex, other for simple
+        setContext(new DefaultPicoContainer(parent.getContext()));
+
+        //set the context on the binding factory
+        ((BindingFactoryImpl) parser.getBindingFactory()).setContext(getContext());
+
+        //"start" the child handler
+        parent.startChildHandler(this);
+
+        //        ContextInitializer initer = new ContextInitializer(element, node,
+        //                getContext());
+        //        parser.getBindingWalker().walk(element .getElementDeclaration(), initer, getContext() );
+    }
+
+    /**
+     * Creates the element instance and its parse node, parsing the attributes.
+     */
+    void createElement(QName qName, Attributes attributes) {
         //create the attributes
         List atts = new ArrayList();
 
@@ -189,26 +216,6 @@ public class ElementHandlerImpl extends HandlerImpl implements ElementHandler {
             Object parsed = executor.getValue();
             node.addAttribute(new NodeImpl(attribute, parsed));
         }
-
-
-        // trigger the leading edge initialize callback
-        ElementInitializer initer = new ElementInitializer(element, node, parent.getContext());
-        parser.getBindingWalker().walk(element.getElementDeclaration(), initer, container(), parent.getContext());
-
-        //create context for children 
-        //TODO: this should only be done if the element is complex, this class
-        // needs to be split into two, one for complex, other for simple
-        setContext(new DefaultPicoContainer(parent.getContext()));
-
-        //set the context on the binding factory
-        ((BindingFactoryImpl) parser.getBindingFactory()).setContext(getContext());
-
-        //"start" the child handler
-        parent.startChildHandler(this);
-
-        //        ContextInitializer initer = new ContextInitializer(element, node,
-        //                getContext());
-        //        parser.getBindingWalker().walk(element .getElementDeclaration(), initer, getContext() );
     }
 
     public void characters(char[] ch, int start, int length)
@@ -266,7 +273,7 @@ public class ElementHandlerImpl extends HandlerImpl implements ElementHandler {
      * @param element
      * @return
      */
-    private boolean isNil(ElementImpl element) {
+    boolean isNil(ElementImpl element) {
         for(AttributeInstance att : element.getAttributes()) {
             if("nil".equals(att.getName()) && "http://www.w3.org/2001/XMLSchema-instance".equals(att.getNamespace())) {
                 return "true".equals(att.getText());
@@ -337,8 +344,8 @@ public class ElementHandlerImpl extends HandlerImpl implements ElementHandler {
         //childHandlers.add(child);
         node.addChild(child.getParseNode());
 
-        //initialize the context for the handler
-        if (child instanceof ElementHandler) {
+        //initialize the context for the handler, unless no bindings are run for it
+        if (child instanceof ElementHandler && !(child instanceof SimpleContentElementHandler)) {
             //get the containing type (we do this for anonymous complex types)
             ElementInstance childInstance = (ElementInstance) child.getComponent();
             ContextInitializer initer = new ContextInitializer(childInstance, node,
@@ -20,6 +20,7 @@ import org.eclipse.xsd.XSDAttributeDeclaration;
 import org.eclipse.xsd.XSDElementDeclaration;
 import javax.xml.namespace.QName;
 import org.geotools.xml.SchemaIndex;
+import org.geotools.xml.SimpleContentParser;
 
 
 /**
@@ -47,6 +48,12 @@ public class HandlerFactoryImpl implements HandlerFactory {
 
     public ElementHandler createElementHandler(XSDElementDeclaration element, Handler parent,
         ParserHandler parser) {
+        SimpleContentParser simpleContentParser = parser.getSimpleContentParser(element);
+
+        if (simpleContentParser != null) {
+            return new SimpleContentElementHandler(element, parent, parser, simpleContentParser);
+        }
+
         return new ElementHandlerImpl(element, parent, parser);
     }
 }
@@ -44,6 +44,7 @@ import org.geotools.xml.ElementInstance;
 import org.geotools.xml.ParserDelegate;
 import org.geotools.xml.ParserDelegate2;
 import org.geotools.xml.SchemaIndex;
+import org.geotools.xml.SimpleContentParser;
 import org.geotools.xml.Schemas;
 import org.geotools.xs.XS;
 import org.picocontainer.ComponentAdapter;
@@ -134,6 +135,9 @@ public class ParserHandler extends DefaultHandler {
 
     /** entity resolver */
     EntityResolver entityResolver;
+
+    /** parsers of simple content bypassing the bindings */
+    List<SimpleContentParser> simpleContentParsers = new ArrayList<SimpleContentParser>();
     
     public ParserHandler(Configuration config) {
         this.config = config;
@@ -246,6 +250,26 @@ public class ParserHandler extends DefaultHandler {
     public EntityResolver getEntityResolver() {
         return entityResolver;
     }
+
+    /**
+     * Returns the parser bypassing the bindings for the simple content of an element.
+     *
+     * @param element The declaration of the element.
+     *
+     * @return The parser, or <code>null</code> if the element has to be parsed through the
+     *         bindings.
+     */
+    public SimpleContentParser getSimpleContentParser(XSDElementDeclaration element) {
+        for (int i = 0; i < simpleContentParsers.size(); i++) {
+            SimpleContentParser parser = simpleContentParsers.get(i);
+
+            if (parser.canParse(element)) {
+                return parser;
+            }
+        }
+
+        return null;
+    }
     
     public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
         if (entityResolver != null) {
@@ -303,6 +327,15 @@ public class ParserHandler extends DefaultHandler {
         //register configuration itself
         context.registerComponentInstance( config );
 
+        //simple content parsers, instantiated against this context since they are usually
+        // registered by configurations in a parent container
+        simpleContentParsers.clear();
+        List adapters = Schemas.getComponentAdaptersOfType(context, SimpleContentParser.class);
+        for (Iterator a = adapters.iterator(); a.hasNext();) {
+            ComponentAdapter adapter = (ComponentAdapter) a.next();
+            simpleContentParsers.add((SimpleContentParser) adapter.getComponentInstance(context));
+        }
+
         validator.startDocument();
         docHandler.startDocument();
     }
@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.xml.SimpleContentParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+
+/**
+ * Element handler parsing the element with a {@link SimpleContentParser} rather than through
+ * the bindings.
+ * <p>
+ * No binding is run for the element, so no context is created for it and neither the
+ * initialization nor the parsing bindings of its type are walked: only its attributes are
+ * parsed the usual way.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class SimpleContentElementHandler extends ElementHandlerImpl {
+    /** the parser of the element content */
+    SimpleContentParser simpleContentParser;
+
+    public SimpleContentElementHandler(XSDElementDeclaration content, Handler parent,
+        ParserHandler parser, SimpleContentParser simpleContentParser) {
+        super(content, parent, parser);
+        this.simpleContentParser = simpleContentParser;
+    }
+
+    public void startElement(QName qName, Attributes attributes)
+        throws SAXException {
+        createElement(qName, attributes);
+
+        //unexpected children get the context of the parent
+        setContext(parent.getContext());
+
+        //"start" the child handler
+        parent.startChildHandler(this);
+    }
+
+    public void endElement(QName qName) throws SAXException {
+        if (isNil(element)) {
+            value = null;
+        } else {
+            try {
+                value = simpleContentParser.parse(element, node);
+            } catch (Throwable t) {
+                String msg = "Parsing failed for " + element.getName() + ": " + t.toString();
+                throw new RuntimeException(msg, t);
+            }
+        }
+
+        //set the value for this node in the parse tree
+        node.setValue(value);
+
+        //end this child handler
+        parent.endChildHandler(this);
+    }
+
+    public void startChildHandler(Handler child) {
+        node.addChild(child.getParseNode());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.util.Converters;
+import org.geotools.xml.Binding;
+import org.geotools.xml.SimpleBinding;
+
+
+/**
+ * Encodes the value of an element of simple type as text, running the same chain of simple
+ * bindings as {@link ElementEncodeExecutor} without creating any DOM node.
+ * <p>
+ * Complex bindings, such as the one of xs:anyType, are ignored.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class SimpleContentEncodeExecutor implements BindingWalker.Visitor {
+    /** the object being encoded **/
+    Object object;
+
+    /** the element being encoded **/
+    XSDElementDeclaration element;
+
+    /** the encoded text **/
+    String text;
+
+    /** logger */
+    Logger logger;
+
+    public SimpleContentEncodeExecutor(Object object, XSDElementDeclaration element, Logger logger) {
+        this.object = object;
+        this.element = element;
+        this.logger = logger;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void visit(Binding binding) {
+        if (!(binding instanceof SimpleBinding)) {
+            return;
+        }
+
+        if (object == null) {
+            throw new RuntimeException("Unable to encode " + element.getName() + ", value is null.");
+        }
+
+        if (binding.getType() == null) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Binding: " + binding.getTarget() + " does not declare a target type");
+            }
+
+            return;
+        }
+
+        //ensure that the type of the object being encoded matches the type of the binding
+        if (!binding.getType().isAssignableFrom(object.getClass())) {
+            Object converted = Converters.convert(object, binding.getType());
+
+            if (converted != null) {
+                object = converted;
+            } else {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("[ " + object.getClass() + " ] is not of type " + binding.getType());
+                }
+
+                return;
+            }
+        }
+
+        try {
+            String value = ((SimpleBinding) binding).encode(object, text);
+
+            if (value != null) {
+                text = value;
+            }
+        } catch (Throwable t) {
+            String msg = "Encode failed for " + element.getName() + ". Cause: "
+                + t.getLocalizedMessage();
+            throw new RuntimeException(msg, t);
+        }
+    }
+}
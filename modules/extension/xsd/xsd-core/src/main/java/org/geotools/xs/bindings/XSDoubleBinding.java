@@ -102,6 +102,9 @@ public class XSDoubleBinding implements SimpleBinding {
         if ("INF".equals(value)) {
             return new Double(Double.POSITIVE_INFINITY);
         }
+        if ("-INF".equals(value)) {
+            return new Double(Double.NEGATIVE_INFINITY);
+        }
 
         return new Double((String) value);
     }
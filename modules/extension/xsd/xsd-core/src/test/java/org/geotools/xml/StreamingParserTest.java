@@ -0,0 +1,101 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import org.geotools.ml.MLConfiguration;
+import org.geotools.ml.Mail;
+import org.geotools.ml.bindings.ML;
+
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class StreamingParserTest extends TestCase {
+
+    public void testParseElementName() throws Exception {
+        CloseTrackingInputStream input =
+            new CloseTrackingInputStream(ML.class.getResourceAsStream("mails.xml"));
+        StreamingParser parser = new StreamingParser(new MLConfiguration(), input,
+            new QName(ML.NAMESPACE, "mail"));
+
+        Mail m = (Mail) parser.parse();
+        assertNotNull(m);
+        assertEquals(0, m.getId().intValue());
+        assertNotNull(m.getEnvelope());
+        assertFalse(input.closed);
+
+        m = (Mail) parser.parse();
+        assertNotNull(m);
+        assertEquals(1, m.getId().intValue());
+
+        assertNull(parser.parse());
+        assertTrue(input.closed);
+        assertNull(parser.parse());
+    }
+
+    public void testParseType() throws Exception {
+        StreamingParser parser = new StreamingParser(new MLConfiguration(),
+            ML.class.getResourceAsStream("mails.xml"), Mail.class);
+
+        int count = 0;
+        while (parser.parse() != null) {
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    public void testParseMalformed() throws Exception {
+        String xml = "<mails xmlns='" + ML.NAMESPACE + "'><mail id='0'><body>no end</mail>";
+        CloseTrackingInputStream input =
+            new CloseTrackingInputStream(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        StreamingParser parser = new StreamingParser(new MLConfiguration(), input, Mail.class);
+
+        try {
+            parser.parse();
+            fail("Should have failed on the mismatched end tag");
+        } catch (RuntimeException e) {
+            // fine
+        }
+        assertTrue(input.closed);
+        assertNull(parser.parse());
+    }
+
+    static class CloseTrackingInputStream extends FilterInputStream {
+        boolean closed;
+
+        CloseTrackingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.geotools.ml.MLConfiguration;
+import org.geotools.ml.Mail;
+import org.geotools.ml.bindings.ML;
+import org.geotools.ml.bindings.MLSchemaLocationResolver;
+import org.geotools.xml.Parser;
+import org.geotools.xml.impl.BindingPlanCache.Plans;
+import org.geotools.xs.XS;
+import org.geotools.xs.bindings.XSStringBinding;
+
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class BindingPlanCacheTest extends TestCase {
+
+    public void testPlansShared() throws Exception {
+        BindingPlanCache cache = BindingPlanCache.getInstance();
+        parse();
+
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        List mails = parse();
+
+        //a new configuration and parser, but the same bindings
+        assertEquals(2, mails.size());
+        assertEquals(1, ((Mail) mails.get(1)).getId().intValue());
+        assertEquals(misses, cache.getMissCount());
+        assertTrue(cache.getHitCount() > hits);
+        assertTrue(cache.getPlanCount() > 0);
+    }
+
+    public void testPlansByBindings() throws Exception {
+        BindingPlanCache cache = BindingPlanCache.getInstance();
+        Map bindings = new MLConfiguration().setupBindings();
+        Map other = new MLConfiguration().setupBindings();
+        assertSame(cache.getPlans(bindings), cache.getPlans(other));
+
+        other.remove(ML.MAILTYPE);
+        assertNotSame(cache.getPlans(bindings), cache.getPlans(other));
+    }
+
+    public void testPlansByBindingClasses() throws Exception {
+        BindingPlanCache cache = BindingPlanCache.getInstance();
+        Map bindings = new MLConfiguration().setupBindings();
+        bindings.put(XS.STRING, new XSStringBinding());
+        Plans plans = cache.getPlans(bindings);
+        int count = cache.getBindingsCount();
+
+        //binding instances of the same classes share the plans, and do not add keys
+        for (int i = 0; i < 10; i++) {
+            Map other = new MLConfiguration().setupBindings();
+            other.put(XS.STRING, new XSStringBinding());
+            assertSame(plans, cache.getPlans(other));
+        }
+        assertEquals(count, cache.getBindingsCount());
+
+        Map classes = new MLConfiguration().setupBindings();
+        classes.put(XS.STRING, XSStringBinding.class);
+        assertSame(plans, cache.getPlans(classes));
+    }
+
+    List parse() throws Exception {
+        Parser parser = new Parser(new MLConfiguration());
+        return (List) parser.parse(MLSchemaLocationResolver.class.getResourceAsStream(
+                    "mails.xml"));
+    }
+}
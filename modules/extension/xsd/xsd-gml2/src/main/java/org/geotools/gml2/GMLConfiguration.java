@@ -51,6 +51,8 @@ import org.geotools.gml2.bindings.GMLPointTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonMemberTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonPropertyTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonTypeBinding;
+import org.geotools.gml2.simple.GML2EncoderDelegateFactory;
+import org.geotools.gml2.simple.GML2SimpleContentParser;
 import org.geotools.xlink.XLINKConfiguration;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.Parser;
@@ -83,6 +85,13 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = new QName( "org.geotools.gml", "encodeFeatureMember" );
 
+    /**
+     * Boolean property which controls whether feature collections of simple features are
+     * streamed straight to the output, instead of going through the bindings one element at a
+     * time. The output is equivalent, but not necessarily identical.
+     */
+    public static final QName OPTIMIZED_ENCODING = new QName( "org.geotools.gml", "optimizedEncoding" );
+
     /**
      * Srs name style to encode srsName URI's with
      */
@@ -192,6 +201,8 @@ public class GMLConfiguration extends Configuration {
      * <li>{@link GeometryFactory}
      * <li>{@link FeatureTypeCache}
      * <li>{@link DefaultFeatureCollections}
+     * <li>{@link GML2EncoderDelegateFactory}, used when {@link #OPTIMIZED_ENCODING} is set
+     * <li>{@link GML2SimpleContentParser}
      * </ul>
      * </p>
      */
@@ -204,6 +215,8 @@ public class GMLConfiguration extends Configuration {
             CoordinateArraySequenceFactory.instance());
         container.registerComponentImplementation(GeometryFactory.class);
         container.registerComponentImplementation(DefaultFeatureCollections.class);
+        container.registerComponentImplementation(GML2EncoderDelegateFactory.class);
+        container.registerComponentImplementation(GML2SimpleContentParser.class);
 
         container.registerComponentInstance(srsSyntax);
     }
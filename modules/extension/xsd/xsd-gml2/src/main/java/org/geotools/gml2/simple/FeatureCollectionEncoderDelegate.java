@@ -0,0 +1,205 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.gml2.bindings.GMLEncodingUtils;
+import org.geotools.util.Converters;
+import org.geotools.xml.EncoderDelegate;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Base class of the delegates writing the features of a collection of simple features straight
+ * to the output, instead of going through the bindings and a DOM element for each of them.
+ * <p>
+ * The properties are written in the order worked out by
+ * {@link FeatureCollectionEncoderDelegateFactory#getEncoding(SimpleFeatureType)}, subclasses
+ * writing the feature identifiers, bounds and geometries the way their version of gml does.
+ * </p>
+ *
+ * @source $URL$
+ */
+public abstract class FeatureCollectionEncoderDelegate implements EncoderDelegate {
+
+    protected final FeatureCollection features;
+
+    protected final XSDElementDeclaration member;
+
+    protected final FeatureCollectionEncoderDelegateFactory factory;
+
+    /** the last crs encountered, and its srsName */
+    CoordinateReferenceSystem lastCrs;
+
+    String lastSrsName;
+
+    protected FeatureCollectionEncoderDelegate(FeatureCollection features,
+            XSDElementDeclaration member, FeatureCollectionEncoderDelegateFactory factory) {
+        this.features = features;
+        this.member = member;
+        this.factory = factory;
+    }
+
+    public void encode(ContentHandler output) throws Exception {
+        GMLWriter writer = new GMLWriter(output, factory.namespaces, factory.gml.getNamespaceURI());
+        String memberName = member.getName();
+        boolean single = !"featureMember".equals(memberName);
+        boolean noBounds = factory.configuration.hasProperty(GMLConfiguration.NO_FEATURE_BOUNDS);
+
+        if (single) {
+            writer.startGML(memberName, null);
+        }
+        FeatureIterator it = features.features();
+        try {
+            SimpleFeatureType lastType = null;
+            FeatureTypeEncoding encoding = null;
+            while (it.hasNext()) {
+                SimpleFeature feature = (SimpleFeature) it.next();
+                if (feature.getFeatureType() != lastType) {
+                    lastType = feature.getFeatureType();
+                    encoding = factory.getEncoding(lastType);
+                    if (encoding == null) {
+                        throw new IllegalArgumentException("Cannot stream features of type "
+                                + lastType.getName() + ", the collection is not homogeneous");
+                    }
+                }
+                if (!single) {
+                    writer.startGML(memberName, null);
+                }
+                encodeFeature(feature, encoding, noBounds, writer);
+                if (!single) {
+                    writer.endGML(memberName);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        if (single) {
+            writer.endGML(memberName);
+        }
+    }
+
+    void encodeFeature(SimpleFeature feature, FeatureTypeEncoding encoding, boolean noBounds,
+            GMLWriter writer) throws Exception {
+        AttributesImpl atts = writer.attributes();
+        encodeFeatureAttributes(feature, atts, writer);
+        writer.startElement(encoding.namespaceURI, encoding.localName, encoding.qName, atts);
+
+        // TODO: same hack for our lame xlink implementation as the bindings
+        if (feature.getUserData().get("xlink:id") == null) {
+            for (FeatureTypeEncoding.Property property : encoding.properties) {
+                switch (property.kind) {
+                case FeatureTypeEncoding.BOUNDS:
+                    if (!noBounds) {
+                        BoundingBox bounds = feature.getBounds();
+                        if (!bounds.isEmpty() || feature.getDefaultGeometry() != null) {
+                            writer.startElement(property.namespaceURI, property.localName,
+                                    property.qName, null);
+                            encodeEnvelope(bounds, writer);
+                            writer.endElement(property.namespaceURI, property.localName,
+                                    property.qName);
+                        }
+                    }
+                    break;
+                case FeatureTypeEncoding.GEOMETRY:
+                    Geometry geometry = (Geometry) feature.getAttribute(property.index);
+                    if (geometry != null) {
+                        writer.startElement(property.namespaceURI, property.localName,
+                                property.qName, null);
+                        if (!GMLEncodingUtils.isEmpty(geometry)) {
+                            encodeGeometry(geometry, getSrsName(encoding.featureType
+                                    .getCoordinateReferenceSystem()), property, writer);
+                        }
+                        writer.endElement(property.namespaceURI, property.localName,
+                                property.qName);
+                    }
+                    break;
+                default:
+                    Object value = feature.getAttribute(property.index);
+                    if (value != null) {
+                        String text;
+                        if (property.kind == FeatureTypeEncoding.SIMPLE) {
+                            text = factory.encoder.encodeText(value, property.element,
+                                    property.container);
+                        } else {
+                            text = Converters.convert(value, String.class);
+                        }
+                        if (text == null) {
+                            text = value.toString();
+                        }
+                        writer.startElement(property.namespaceURI, property.localName,
+                                property.qName, null);
+                        writer.characters(text);
+                        writer.endElement(property.namespaceURI, property.localName,
+                                property.qName);
+                    }
+                }
+            }
+        }
+
+        writer.endElement(encoding.namespaceURI, encoding.localName, encoding.qName);
+    }
+
+    /**
+     * Returns the srsName of a crs, caching the last one
+     */
+    protected String getSrsName(CoordinateReferenceSystem crs) {
+        if (crs == null) {
+            return null;
+        }
+        if (crs != lastCrs) {
+            lastCrs = crs;
+            lastSrsName = toSrsName(crs);
+        }
+        return lastSrsName;
+    }
+
+    /**
+     * Adds the attributes identifying the feature
+     */
+    protected abstract void encodeFeatureAttributes(SimpleFeature feature, AttributesImpl atts,
+            GMLWriter writer);
+
+    /**
+     * Writes the bounds of a feature, inside the gml:boundedBy element
+     */
+    protected abstract void encodeEnvelope(BoundingBox bounds, GMLWriter writer) throws Exception;
+
+    /**
+     * Writes a non empty geometry, inside its property element
+     *
+     * @param geometry the geometry
+     * @param srsName the srsName of the feature type crs, may be null
+     * @param property the geometry property
+     */
+    protected abstract void encodeGeometry(Geometry geometry, String srsName,
+            FeatureTypeEncoding.Property property, GMLWriter writer) throws Exception;
+
+    /**
+     * Returns the srsName written for a crs
+     */
+    protected abstract String toSrsName(CoordinateReferenceSystem crs);
+}
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.xsd.XSDComplexTypeDefinition;
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.eclipse.xsd.XSDForm;
+import org.eclipse.xsd.XSDParticle;
+import org.eclipse.xsd.XSDSimpleTypeDefinition;
+import org.eclipse.xsd.XSDTypeDefinition;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.gml2.bindings.GMLEncodingUtils;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.EncoderDelegate;
+import org.geotools.xml.EncoderDelegateFactory;
+import org.geotools.xml.SchemaIndex;
+import org.geotools.xml.Schemas;
+import org.geotools.xml.XSD;
+import org.geotools.xml.impl.ElementEncoder;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Base class of the factories streaming the feature members of collections of simple features
+ * when {@link GMLConfiguration#OPTIMIZED_ENCODING} is set.
+ * <p>
+ * The way the features of a type are encoded is worked out from the schema once, the same way
+ * {@link GMLEncodingUtils#AbstractFeatureType_getProperties} does for each feature, and cached
+ * for the life of the encoder. Feature types with properties of complex type other than
+ * geometries are left to the regular encoding routine.
+ * </p>
+ *
+ * @source $URL$
+ */
+public abstract class FeatureCollectionEncoderDelegateFactory implements EncoderDelegateFactory {
+
+    /** marks the feature types that cannot be streamed */
+    static final FeatureTypeEncoding UNSUPPORTED = new FeatureTypeEncoding(null, null, null, null,
+            new ArrayList<FeatureTypeEncoding.Property>());
+
+    protected final XSD gml;
+
+    protected final GMLEncodingUtils encodingUtils;
+
+    protected final Set<String> toFilter;
+
+    protected final Configuration configuration;
+
+    protected final SchemaIndex schemaIndex;
+
+    protected final NamespaceSupport namespaces;
+
+    protected final ElementEncoder encoder;
+
+    final Map<SimpleFeatureType, FeatureTypeEncoding> encodings = new HashMap<SimpleFeatureType, FeatureTypeEncoding>();
+
+    /**
+     * @param gml the gml schema
+     * @param toFilter the gml properties of the feature type not encoded as gml properties when
+     *        the feature type is not found in the schema
+     */
+    protected FeatureCollectionEncoderDelegateFactory(XSD gml, Set<String> toFilter,
+            Configuration configuration, SchemaIndex schemaIndex, NamespaceSupport namespaces,
+            ElementEncoder encoder) {
+        this.gml = gml;
+        this.encodingUtils = new GMLEncodingUtils(gml);
+        this.toFilter = toFilter;
+        this.configuration = configuration;
+        this.schemaIndex = schemaIndex;
+        this.namespaces = namespaces;
+        this.encoder = encoder;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public NamespaceSupport getNamespaces() {
+        return namespaces;
+    }
+
+    public EncoderDelegate createEncoderDelegate(Object value, XSDElementDeclaration element,
+            XSDElementDeclaration parent) {
+        if (!(value instanceof FeatureCollection) || !isFeatureMember(element)
+                || !configuration.hasProperty(GMLConfiguration.OPTIMIZED_ENCODING)) {
+            return null;
+        }
+        FeatureCollection collection = (FeatureCollection) value;
+        if (!(collection.getSchema() instanceof SimpleFeatureType)
+                || GMLWriter.qualify(namespaces, gml.getNamespaceURI(), "_Feature") == null) {
+            return null;
+        }
+        if (getEncoding((SimpleFeatureType) collection.getSchema()) == null) {
+            return null;
+        }
+        return createDelegate(collection, element);
+    }
+
+    /**
+     * Returns true if the element is a feature member element handled by the delegates
+     */
+    protected boolean isFeatureMember(XSDElementDeclaration element) {
+        return gml.getNamespaceURI().equals(element.getTargetNamespace())
+                && "featureMember".equals(element.getName());
+    }
+
+    /**
+     * Creates the delegate streaming the features
+     *
+     * @param collection the features
+     * @param element the feature member element
+     */
+    protected abstract EncoderDelegate createDelegate(FeatureCollection collection,
+            XSDElementDeclaration element);
+
+    /**
+     * Returns the way the features of a type are encoded, or null if they cannot be streamed
+     */
+    public synchronized FeatureTypeEncoding getEncoding(SimpleFeatureType featureType) {
+        FeatureTypeEncoding encoding = encodings.get(featureType);
+        if (encoding == null) {
+            encoding = buildEncoding(featureType);
+            encodings.put(featureType, encoding != null ? encoding : UNSUPPORTED);
+        }
+        return encoding != UNSUPPORTED ? encoding : null;
+    }
+
+    FeatureTypeEncoding buildEncoding(SimpleFeatureType featureType) {
+        String namespace = featureType.getName().getNamespaceURI();
+        if (namespace == null) {
+            return null;
+        }
+        String typeName = featureType.getTypeName();
+        String qName = GMLWriter.qualify(namespaces, namespace, typeName);
+        if (qName == null) {
+            return null;
+        }
+
+        // find the type in the schema, or create a mock one
+        QName qualifiedTypeName = new QName(namespace, typeName);
+        XSDTypeDefinition type = schemaIndex.getTypeDefinition(qualifiedTypeName);
+        if (type == null) {
+            XSDElementDeclaration e = schemaIndex.getElementDeclaration(qualifiedTypeName);
+            if (e != null) {
+                type = e.getTypeDefinition();
+            }
+        }
+        if (type == null) {
+            type = encodingUtils.createXmlTypeFromFeatureType(featureType, schemaIndex, toFilter);
+        }
+
+        List particles = Schemas.getChildElementParticles(type, true);
+        List<FeatureTypeEncoding.Property> properties = new ArrayList<FeatureTypeEncoding.Property>();
+        O: for (int i = 0; i < particles.size(); i++) {
+            XSDParticle particle = (XSDParticle) particles.get(i);
+            XSDElementDeclaration attribute = (XSDElementDeclaration) particle.getContent();
+            if (attribute.isElementDeclarationReference()) {
+                attribute = attribute.getResolvedElementDeclaration();
+            }
+            String uri = attribute.getTargetNamespace() != null ? attribute.getTargetNamespace()
+                    : namespace;
+            boolean isGML = gml.getNamespaceURI().equals(uri);
+
+            if (isGML && "boundedBy".equals(attribute.getName())) {
+                properties.add(new FeatureTypeEncoding.Property(FeatureTypeEncoding.BOUNDS, -1,
+                        uri, attribute.getName(), GMLWriter.qualify(namespaces, uri,
+                                attribute.getName()), attribute, type, null));
+                continue;
+            }
+
+            // gml attributes overridden by the schema are ignored
+            if (isGML) {
+                for (int j = i + 1; j < particles.size(); j++) {
+                    XSDElementDeclaration attribute2 = (XSDElementDeclaration) ((XSDParticle) particles
+                            .get(j)).getContent();
+                    if (attribute2.isElementDeclarationReference()) {
+                        attribute2 = attribute2.getResolvedElementDeclaration();
+                    }
+                    if (attribute2.getName().equals(attribute.getName())) {
+                        continue O;
+                    }
+                }
+            }
+
+            // make sure the feature type has the attribute
+            AttributeDescriptor descriptor = featureType.getDescriptor(attribute.getName());
+            if (descriptor == null) {
+                continue;
+            }
+
+            String localName = attribute.getName();
+            String propertyName = localName;
+            if (qualified(attribute)) {
+                propertyName = GMLWriter.qualify(namespaces, uri, localName);
+                if (propertyName == null) {
+                    return null;
+                }
+            } else {
+                uri = "";
+            }
+
+            XSDTypeDefinition propertyType = attribute.getType();
+            int index = featureType.indexOf(localName);
+            int kind;
+            String gmlType = null;
+            if (propertyType instanceof XSDSimpleTypeDefinition) {
+                kind = FeatureTypeEncoding.SIMPLE;
+            } else if (descriptor instanceof GeometryDescriptor) {
+                gmlType = getGMLTypeName(propertyType);
+                if (gmlType == null) {
+                    return null;
+                }
+                kind = FeatureTypeEncoding.GEOMETRY;
+            } else if (isGML && propertyType instanceof XSDComplexTypeDefinition
+                    && ((XSDComplexTypeDefinition) propertyType).getContentType() instanceof XSDSimpleTypeDefinition) {
+                kind = FeatureTypeEncoding.TEXT;
+            } else {
+                // needs the bindings
+                return null;
+            }
+            properties.add(new FeatureTypeEncoding.Property(kind, index, uri, localName,
+                    propertyName, attribute, type, gmlType));
+        }
+
+        return new FeatureTypeEncoding(featureType, namespace, typeName, qName, properties);
+    }
+
+    /**
+     * Returns true if the element is encoded with a qualified name, as the encoder does when it
+     * is namespace aware
+     */
+    static boolean qualified(XSDElementDeclaration e) {
+        return e.isGlobal() || e.getSchema() == null
+                || e.getSchema().getElementFormDefault() == XSDForm.QUALIFIED_LITERAL;
+    }
+
+    /**
+     * Returns the local name of the first type of the gml schema the type derives from, or null
+     */
+    String getGMLTypeName(XSDTypeDefinition type) {
+        while (type != null) {
+            if (gml.getNamespaceURI().equals(type.getTargetNamespace()) && type.getName() != null) {
+                return type.getName();
+            }
+            XSDTypeDefinition base = type.getBaseType();
+            if (base == type) {
+                break;
+            }
+            type = base;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.eclipse.xsd.XSDTypeDefinition;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * The way the features of a simple feature type are encoded, worked out once from the schema
+ * for all the features of the type.
+ *
+ * @source $URL$
+ */
+public class FeatureTypeEncoding {
+
+    /** The gml:boundedBy property */
+    public static final int BOUNDS = 0;
+
+    /** A geometry property */
+    public static final int GEOMETRY = 1;
+
+    /** A property of simple type, encoded through the bindings */
+    public static final int SIMPLE = 2;
+
+    /** A gml property with simple content, such as gml:name, encoded as a string */
+    public static final int TEXT = 3;
+
+    /**
+     * An encoded property of the features
+     */
+    public static class Property {
+
+        /** The kind of property, one of the constants of {@link FeatureTypeEncoding} */
+        public final int kind;
+
+        /** The index of the attribute in the feature type, -1 for the bounds */
+        public final int index;
+
+        public final String namespaceURI;
+
+        public final String localName;
+
+        public final String qName;
+
+        /** The element declaration of the property */
+        public final XSDElementDeclaration element;
+
+        /** The type declaring the property */
+        public final XSDTypeDefinition container;
+
+        /**
+         * For geometries, the local name of the gml type of the property, such as
+         * GeometryPropertyType
+         */
+        public final String gmlType;
+
+        public Property(int kind, int index, String namespaceURI, String localName, String qName,
+                XSDElementDeclaration element, XSDTypeDefinition container, String gmlType) {
+            this.kind = kind;
+            this.index = index;
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.qName = qName;
+            this.element = element;
+            this.container = container;
+            this.gmlType = gmlType;
+        }
+    }
+
+    final SimpleFeatureType featureType;
+
+    final String namespaceURI;
+
+    final String localName;
+
+    final String qName;
+
+    final List<Property> properties;
+
+    public FeatureTypeEncoding(SimpleFeatureType featureType, String namespaceURI,
+            String localName, String qName, List<Property> properties) {
+        this.featureType = featureType;
+        this.namespaceURI = namespaceURI;
+        this.localName = localName;
+        this.qName = qName;
+        this.properties = Collections.unmodifiableList(properties);
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    public String getLocalName() {
+        return localName;
+    }
+
+    public String getQName() {
+        return qName;
+    }
+
+    /**
+     * The encoded properties, in schema order
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+}
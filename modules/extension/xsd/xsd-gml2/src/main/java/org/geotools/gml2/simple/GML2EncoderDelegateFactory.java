@@ -0,0 +1,49 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.GML;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.EncoderDelegate;
+import org.geotools.xml.SchemaIndex;
+import org.geotools.xml.impl.ElementEncoder;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Streams the gml:featureMember elements of collections of simple features in gml 2.
+ *
+ * @source $URL$
+ */
+public class GML2EncoderDelegateFactory extends FeatureCollectionEncoderDelegateFactory {
+
+    public GML2EncoderDelegateFactory(Configuration configuration, SchemaIndex schemaIndex,
+            NamespaceSupport namespaces, ElementEncoder encoder) {
+        super(GML.getInstance(), new HashSet<String>(Arrays.asList("name", "description",
+                "boundedBy")), configuration, schemaIndex, namespaces, encoder);
+    }
+
+    @Override
+    protected EncoderDelegate createDelegate(FeatureCollection collection,
+            XSDElementDeclaration element) {
+        return new GML2FeatureCollectionEncoderDelegate(collection, element, this);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Writes the features of a collection in gml 2, all the coordinates being written as
+ * gml:coordinates.
+ *
+ * @source $URL$
+ */
+public class GML2FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    public GML2FeatureCollectionEncoderDelegate(FeatureCollection features,
+            XSDElementDeclaration member, GML2EncoderDelegateFactory factory) {
+        super(features, member, factory);
+    }
+
+    @Override
+    protected void encodeFeatureAttributes(SimpleFeature feature, AttributesImpl atts,
+            GMLWriter writer) {
+        if (feature.getIdentifier() != null && feature.getIdentifier().getID() != null) {
+            atts.addAttribute("", "fid", "fid", "CDATA", feature.getIdentifier().getID());
+        }
+    }
+
+    @Override
+    protected void encodeEnvelope(BoundingBox bounds, GMLWriter writer) throws Exception {
+        if (bounds.isEmpty()) {
+            writer.startGML("null", null);
+            writer.characters("unknown");
+            writer.endGML("null");
+            return;
+        }
+        AttributesImpl atts = writer.attributes();
+        String srsName = getSrsName(bounds.getCoordinateReferenceSystem());
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        writer.startGML("Box", atts);
+        writer.startGML("coordinates", null);
+        writer.characters(bounds.getMinX() + "," + bounds.getMinY() + " " + bounds.getMaxX()
+                + "," + bounds.getMaxY());
+        writer.endGML("coordinates");
+        writer.endGML("Box");
+    }
+
+    @Override
+    protected void encodeGeometry(Geometry geometry, String srsName,
+            FeatureTypeEncoding.Property property, GMLWriter writer) throws Exception {
+        int dimension = CoordinateSequences.coordinateDimension(geometry);
+        writeGeometry(geometry, srsName, Math.max(dimension, 2), writer);
+    }
+
+    void writeGeometry(Geometry geometry, String srsName, int dimension, GMLWriter writer)
+            throws Exception {
+        if (geometry instanceof Point) {
+            start("Point", srsName, writer);
+            coordinates(((Point) geometry).getCoordinateSequence(), dimension, writer);
+            writer.endGML("Point");
+        } else if (geometry instanceof LinearRing) {
+            start("LinearRing", srsName, writer);
+            coordinates(((LinearRing) geometry).getCoordinateSequence(), dimension, writer);
+            writer.endGML("LinearRing");
+        } else if (geometry instanceof LineString) {
+            start("LineString", srsName, writer);
+            coordinates(((LineString) geometry).getCoordinateSequence(), dimension, writer);
+            writer.endGML("LineString");
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            start("Polygon", srsName, writer);
+            writer.startGML("outerBoundaryIs", null);
+            writeGeometry(polygon.getExteriorRing(), null, dimension, writer);
+            writer.endGML("outerBoundaryIs");
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writer.startGML("innerBoundaryIs", null);
+                writeGeometry(polygon.getInteriorRingN(i), null, dimension, writer);
+                writer.endGML("innerBoundaryIs");
+            }
+            writer.endGML("Polygon");
+        } else if (geometry instanceof MultiPoint) {
+            writeCollection((GeometryCollection) geometry, "MultiPoint", "pointMember", srsName,
+                    dimension, writer);
+        } else if (geometry instanceof MultiLineString) {
+            writeCollection((GeometryCollection) geometry, "MultiLineString",
+                    "lineStringMember", srsName, dimension, writer);
+        } else if (geometry instanceof MultiPolygon) {
+            writeCollection((GeometryCollection) geometry, "MultiPolygon", "polygonMember",
+                    srsName, dimension, writer);
+        } else if (geometry instanceof GeometryCollection) {
+            writeCollection((GeometryCollection) geometry, "MultiGeometry", "geometryMember",
+                    srsName, dimension, writer);
+        } else {
+            throw new IllegalArgumentException("Cannot encode geometry of type "
+                    + geometry.getGeometryType());
+        }
+    }
+
+    void writeCollection(GeometryCollection collection, String name, String memberName,
+            String srsName, int dimension, GMLWriter writer) throws Exception {
+        start(name, srsName, writer);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            writer.startGML(memberName, null);
+            writeGeometry(collection.getGeometryN(i), null, dimension, writer);
+            writer.endGML(memberName);
+        }
+        writer.endGML(name);
+    }
+
+    void start(String name, String srsName, GMLWriter writer) throws Exception {
+        AttributesImpl atts = null;
+        if (srsName != null) {
+            atts = writer.attributes();
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        writer.startGML(name, atts);
+    }
+
+    void coordinates(CoordinateSequence cs, int dimension,
+            GMLWriter writer) throws Exception {
+        writer.startGML("coordinates", null);
+        writer.coordinates(cs, dimension, ',', ' ');
+        writer.endGML("coordinates");
+    }
+
+    @Override
+    protected String toSrsName(CoordinateReferenceSystem crs) {
+        return GML2EncodingUtils.toURI(crs);
+    }
+}
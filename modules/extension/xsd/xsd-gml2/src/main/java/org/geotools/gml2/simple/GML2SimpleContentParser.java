@@ -0,0 +1,173 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.eclipse.xsd.XSDTypeDefinition;
+import org.geotools.gml2.GML;
+import org.geotools.gml2.bindings.GMLCoordinatesTypeBinding;
+import org.geotools.xml.ElementInstance;
+import org.geotools.xml.Node;
+import org.geotools.xml.SimpleContentParser;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+
+/**
+ * Parses the gml:coordinates elements straight into coordinate sequences, bypassing the
+ * bindings.
+ * <p>
+ * Coordinates with the default separators are scanned without regular expressions, the same
+ * way {@link GMLCoordinatesTypeBinding} splits them, the others are handed over to the binding.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class GML2SimpleContentParser implements SimpleContentParser {
+
+    protected CoordinateSequenceFactory csFactory;
+
+    /** binding parsing the coordinates with other separators */
+    GMLCoordinatesTypeBinding coordinatesBinding;
+
+    public GML2SimpleContentParser(CoordinateSequenceFactory csFactory) {
+        this.csFactory = csFactory;
+        this.coordinatesBinding = new GMLCoordinatesTypeBinding(csFactory);
+    }
+
+    public boolean canParse(XSDElementDeclaration element) {
+        return isType(element, GML.CoordinatesType);
+    }
+
+    public Object parse(ElementInstance instance, Node node) throws Exception {
+        return parseCoordinates(instance, node);
+    }
+
+    /**
+     * Returns true if the element is declared with the specified type, and not a type derived
+     * from it, which may have bindings of its own
+     */
+    protected static boolean isType(XSDElementDeclaration element, QName type) {
+        XSDTypeDefinition definition = element.getTypeDefinition();
+        return definition != null && type.getLocalPart().equals(definition.getName())
+                && type.getNamespaceURI().equals(definition.getTargetNamespace());
+    }
+
+    /**
+     * Parses a coordinates element the way {@link GMLCoordinatesTypeBinding} does
+     */
+    protected CoordinateSequence parseCoordinates(ElementInstance instance, Node node)
+            throws Exception {
+        if (!hasDefaultValue(node, "decimal", ".") || !hasDefaultValue(node, "cs", ",")
+                || !hasDefaultValue(node, "ts", " ")) {
+            return (CoordinateSequence) coordinatesBinding.parse(instance, node, null);
+        }
+
+        // find the tuples, separated by any sequence of blanks
+        String text = instance.getText();
+        int length = text.length();
+        int[] bounds = new int[16];
+        int ncoords = 0;
+        int i = 0;
+        while (i < length) {
+            while (i < length && isBlank(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !isBlank(text.charAt(i))) {
+                i++;
+            }
+            if (bounds.length < ncoords * 2 + 2) {
+                int[] grown = new int[bounds.length * 2];
+                System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                bounds = grown;
+            }
+            bounds[ncoords * 2] = start;
+            bounds[ncoords * 2 + 1] = i;
+            ncoords++;
+        }
+
+        // then split them by coordinate separator
+        CoordinateSequence seq = null;
+        String[] oords = new String[3];
+        for (int c = 0; c < ncoords; c++) {
+            int dimension = split(text, bounds[c * 2], bounds[c * 2 + 1], oords);
+
+            if (seq == null) {
+                seq = csFactory.create(ncoords, dimension);
+            }
+
+            seq.setOrdinate(c, CoordinateSequence.X, Double.parseDouble(oords[0]));
+
+            if (dimension > 1) {
+                seq.setOrdinate(c, CoordinateSequence.Y, Double.parseDouble(oords[1]));
+            }
+
+            if (dimension > 2) {
+                seq.setOrdinate(c, CoordinateSequence.Z, Double.parseDouble(oords[2]));
+            }
+        }
+
+        return seq;
+    }
+
+    /**
+     * Splits a tuple by comma like {@link String#split(String)} does, trailing empty strings
+     * removed, keeping the first three ordinates.
+     * 
+     * @return the number of ordinates
+     */
+    static int split(String text, int start, int end, String[] oords) {
+        // trailing separators are ignored
+        while (end > start && text.charAt(end - 1) == ',') {
+            end--;
+        }
+        if (end == start) {
+            throw new IllegalArgumentException("No ordinates in tuple");
+        }
+
+        int dimension = 0;
+        int from = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ',') {
+                if (dimension < oords.length) {
+                    oords[dimension] = text.substring(from, i);
+                }
+                dimension++;
+                from = i + 1;
+            }
+        }
+        return dimension;
+    }
+
+    /**
+     * The blanks of the \s regular expression class
+     */
+    static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    static boolean hasDefaultValue(Node node, String attribute, String value) {
+        Node child = node.getAttribute(attribute);
+        return child == null || value.equals(child.getValue());
+    }
+}
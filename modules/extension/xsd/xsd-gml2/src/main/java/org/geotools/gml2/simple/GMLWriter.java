@@ -0,0 +1,194 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+
+/**
+ * Writes elements straight to a {@link ContentHandler}, reusing the same attributes and
+ * character buffers for all the elements written.
+ *
+ * @source $URL$
+ */
+public class GMLWriter {
+
+    static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+    ContentHandler handler;
+
+    NamespaceSupport namespaces;
+
+    String gmlURI;
+
+    String gmlPrefix;
+
+    /** the qualified names of the gml elements written so far */
+    Map<String, String> gmlNames = new HashMap<String, String>();
+
+    AttributesImpl attributes = new AttributesImpl();
+
+    StringBuilder text = new StringBuilder();
+
+    char[] buffer = new char[256];
+
+    /**
+     * Creates a new writer
+     *
+     * @param handler the handler elements are written to
+     * @param namespaces the namespaces declared in the document, used to qualify the names
+     * @param gmlURI the gml namespace
+     */
+    public GMLWriter(ContentHandler handler, NamespaceSupport namespaces, String gmlURI) {
+        this.handler = handler;
+        this.namespaces = namespaces;
+        this.gmlURI = gmlURI;
+        this.gmlPrefix = namespaces.getPrefix(gmlURI);
+    }
+
+    /**
+     * Returns the qualified name of an element, or null if the namespace has no prefix in the
+     * document and is not the default one
+     */
+    public static String qualify(NamespaceSupport namespaces, String uri, String localName) {
+        String prefix = namespaces.getPrefix(uri);
+        if (prefix != null && !"".equals(prefix)) {
+            return prefix + ":" + localName;
+        } else if (uri.equals(namespaces.getURI(""))) {
+            return localName;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the attributes instance reused across elements, emptied
+     */
+    public AttributesImpl attributes() {
+        attributes.clear();
+        return attributes;
+    }
+
+    /**
+     * Adds an attribute in the gml namespace
+     */
+    public void addGMLAttribute(AttributesImpl atts, String localName, String value) {
+        atts.addAttribute(gmlURI, localName, gmlName(localName), "CDATA", value);
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        handler.startElement(uri, localName, qName, atts != null ? atts : NO_ATTRIBUTES);
+    }
+
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        handler.endElement(uri, localName, qName);
+    }
+
+    /**
+     * Starts an element in the gml namespace
+     */
+    public void startGML(String localName, Attributes atts) throws SAXException {
+        handler.startElement(gmlURI, localName, gmlName(localName), atts != null ? atts
+                : NO_ATTRIBUTES);
+    }
+
+    /**
+     * Ends an element in the gml namespace
+     */
+    public void endGML(String localName) throws SAXException {
+        handler.endElement(gmlURI, localName, gmlName(localName));
+    }
+
+    String gmlName(String localName) {
+        String qName = gmlNames.get(localName);
+        if (qName == null) {
+            qName = gmlPrefix != null && !"".equals(gmlPrefix) ? gmlPrefix + ":" + localName
+                    : localName;
+            gmlNames.put(localName, qName);
+        }
+        return qName;
+    }
+
+    /**
+     * Writes text
+     */
+    public void characters(String value) throws SAXException {
+        text.setLength(0);
+        text.append(value);
+        flushText();
+    }
+
+    /**
+     * Writes the ordinates of a coordinate sequence, the tuple and coordinate separators being
+     * configurable so that both the gml2 coordinates and the gml3 positions can be written
+     *
+     * @param cs the coordinates
+     * @param dimension the number of ordinates written for each coordinate
+     * @param coordinateSeparator the separator of the ordinates of a coordinate
+     * @param tupleSeparator the separator of the coordinates
+     */
+    public void coordinates(CoordinateSequence cs, int dimension, char coordinateSeparator,
+            char tupleSeparator) throws SAXException {
+        text.setLength(0);
+        final int size = cs.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append(tupleSeparator);
+            }
+            for (int d = 0; d < dimension; d++) {
+                if (d > 0) {
+                    text.append(coordinateSeparator);
+                }
+                text.append(cs.getOrdinate(i, d));
+            }
+            if (text.length() >= 8192) {
+                flushText();
+                text.setLength(0);
+            }
+        }
+        flushText();
+    }
+
+    /**
+     * Writes the ordinates of a single position
+     */
+    public void position(double x, double y) throws SAXException {
+        text.setLength(0);
+        text.append(x).append(' ').append(y);
+        flushText();
+    }
+
+    void flushText() throws SAXException {
+        final int length = text.length();
+        if (length == 0) {
+            return;
+        }
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        text.getChars(0, length, buffer, 0);
+        handler.characters(buffer, 0, length);
+    }
+}
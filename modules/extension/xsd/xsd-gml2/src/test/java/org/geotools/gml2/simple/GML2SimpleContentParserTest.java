@@ -0,0 +1,106 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Parser;
+import org.picocontainer.MutablePicoContainer;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Checks the geometries parsed with {@link GML2SimpleContentParser} are the same as the ones
+ * parsed through the bindings.
+ *
+ * @source $URL$
+ */
+public class GML2SimpleContentParserTest extends TestCase {
+
+    static final String GML = "xmlns:gml='http://www.opengis.net/gml'";
+
+    public void testPoint() throws Exception {
+        assertSameGeometry("<gml:Point " + GML + "><gml:coordinates>1.5,2</gml:coordinates>"
+                + "</gml:Point>");
+        assertSameGeometry("<gml:Point " + GML + " srsName='EPSG:4326'>"
+                + "<gml:coordinates>1,2,3</gml:coordinates></gml:Point>");
+    }
+
+    public void testLineString() throws Exception {
+        assertSameGeometry("<gml:LineString " + GML + "><gml:coordinates>\n  0,0 1,1\t2,0.5"
+                + "\n</gml:coordinates></gml:LineString>");
+        assertSameGeometry("<gml:LineString " + GML + "><gml:coordinates>0,0,1 1,1,2,"
+                + "</gml:coordinates></gml:LineString>");
+        assertSameGeometry("<gml:LineString " + GML + "><gml:coordinates ts=' ' cs=','>0,0 1,1"
+                + "</gml:coordinates></gml:LineString>");
+        assertSameGeometry("<gml:LineString " + GML + "><gml:coordinates ts=';' cs=' '>0 0;1 1"
+                + "</gml:coordinates></gml:LineString>");
+    }
+
+    public void testMultiPolygon() throws Exception {
+        assertSameGeometry("<gml:MultiPolygon " + GML + " srsName='EPSG:4326'><gml:polygonMember>"
+                + "<gml:Polygon><gml:outerBoundaryIs><gml:LinearRing>"
+                + "<gml:coordinates>0,0 10,0 10,10 0,10 0,0</gml:coordinates>"
+                + "</gml:LinearRing></gml:outerBoundaryIs><gml:innerBoundaryIs><gml:LinearRing>"
+                + "<gml:coordinates>1,1 2,1 2,2 1,1</gml:coordinates>"
+                + "</gml:LinearRing></gml:innerBoundaryIs></gml:Polygon></gml:polygonMember>"
+                + "</gml:MultiPolygon>");
+    }
+
+    public void testInvalid() throws Exception {
+        String xml = "<gml:Point " + GML + "><gml:coordinates>1,,2</gml:coordinates></gml:Point>";
+        try {
+            parse(xml, new GMLConfiguration());
+            fail("Should have failed on the missing ordinate");
+        } catch (RuntimeException e) {
+            // fine
+        }
+    }
+
+    void assertSameGeometry(String xml) throws Exception {
+        Geometry expected = (Geometry) parse(xml, new BindingsConfiguration());
+        Geometry actual = (Geometry) parse(xml, new GMLConfiguration());
+        assertNotNull(expected);
+        assertTrue(actual.toString(), expected.equalsExact(actual));
+        assertEquals(expected.getUserData(), actual.getUserData());
+        Coordinate[] e = expected.getCoordinates();
+        Coordinate[] a = actual.getCoordinates();
+        for (int i = 0; i < e.length; i++) {
+            assertEquals(Double.doubleToLongBits(e[i].z), Double.doubleToLongBits(a[i].z));
+        }
+    }
+
+    Object parse(String xml, Configuration configuration) throws Exception {
+        return new Parser(configuration).parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    /**
+     * Parses everything through the bindings
+     */
+    static class BindingsConfiguration extends GMLConfiguration {
+        @Override
+        public void configureContext(MutablePicoContainer container) {
+            super.configureContext(container);
+            container.unregisterComponent(GML2SimpleContentParser.class);
+        }
+    }
+}
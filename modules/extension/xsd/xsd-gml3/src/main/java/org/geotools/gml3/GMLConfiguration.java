@@ -93,6 +93,8 @@ import org.geotools.gml3.bindings.CircleTypeBinding;
 import org.geotools.gml3.bindings.RingTypeBinding;
 import org.geotools.gml3.bindings.SurfacePatchArrayPropertyTypeBinding;
 import org.geotools.gml3.bindings.ext.CompositeCurveTypeBinding;
+import org.geotools.gml3.simple.GML3EncoderDelegateFactory;
+import org.geotools.gml3.simple.GML3SimpleContentParser;
 
 
 /**
@@ -118,6 +120,12 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = org.geotools.gml2.GMLConfiguration.ENCODE_FEATURE_MEMBER;
 
+    /**
+     * Boolean property which controls whether the features of simple feature collections are
+     * streamed to the output instead of being encoded through the bindings.
+     */
+    public static final QName OPTIMIZED_ENCODING = org.geotools.gml2.GMLConfiguration.OPTIMIZED_ENCODING;
+
     /**
      * Boolean property which controls whether geometry and envelope objects are encoded with an 
      * srs dimension attribute.
@@ -324,6 +332,8 @@ public class GMLConfiguration extends Configuration {
      * <ul>
      * <li>{@link CoordinateArraySequenceFactory} under {@link CoordinateSequenceFactory}
      * <li>{@link GeometryFactory}
+     * <li>{@link GML3EncoderDelegateFactory}, used when {@link #OPTIMIZED_ENCODING} is set
+     * <li>{@link GML3SimpleContentParser}
      * </ul>
      * </p>
      */
@@ -345,5 +355,8 @@ public class GMLConfiguration extends Configuration {
         }
 
         container.registerComponentInstance(srsSyntax);
+
+        container.registerComponentImplementation(GML3EncoderDelegateFactory.class);
+        container.registerComponentImplementation(GML3SimpleContentParser.class);
     }
 }
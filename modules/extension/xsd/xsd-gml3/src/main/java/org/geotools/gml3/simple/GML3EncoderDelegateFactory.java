@@ -0,0 +1,63 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegateFactory;
+import org.geotools.gml3.GML;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.EncoderDelegate;
+import org.geotools.xml.SchemaIndex;
+import org.geotools.xml.impl.ElementEncoder;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Streams the gml:featureMember and gml:featureMembers elements of collections of simple
+ * features in gml 3.1.
+ *
+ * @source $URL$
+ */
+public class GML3EncoderDelegateFactory extends FeatureCollectionEncoderDelegateFactory {
+
+    SrsSyntax srsSyntax;
+
+    public GML3EncoderDelegateFactory(Configuration configuration, SchemaIndex schemaIndex,
+            NamespaceSupport namespaces, ElementEncoder encoder, SrsSyntax srsSyntax) {
+        super(GML.getInstance(), new HashSet<String>(Arrays.asList("name", "description",
+                "boundedBy", "location", "metaDataProperty")), configuration, schemaIndex,
+                namespaces, encoder);
+        this.srsSyntax = srsSyntax;
+    }
+
+    @Override
+    protected boolean isFeatureMember(XSDElementDeclaration element) {
+        return super.isFeatureMember(element)
+                || (gml.getNamespaceURI().equals(element.getTargetNamespace()) && "featureMembers"
+                        .equals(element.getName()));
+    }
+
+    @Override
+    protected EncoderDelegate createDelegate(FeatureCollection collection,
+            XSDElementDeclaration element) {
+        return new GML3FeatureCollectionEncoderDelegate(collection, element, this);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.util.Map;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.FeatureTypeEncoding;
+import org.geotools.gml2.simple.GMLWriter;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.gml3.bindings.GML3EncodingUtils;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.Name;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Writes the features of a collection in gml 3.1, with gml:pos and gml:posList coordinates.
+ * <p>
+ * Multi line strings and multi polygons are written as gml:MultiCurve and gml:MultiSurface unless
+ * the property is declared with the gml 2 compatible property types.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class GML3FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    final boolean noSrsDimension;
+
+    public GML3FeatureCollectionEncoderDelegate(FeatureCollection features,
+            XSDElementDeclaration member, GML3EncoderDelegateFactory factory) {
+        super(features, member, factory);
+        this.noSrsDimension = factory.getConfiguration().hasProperty(
+                GMLConfiguration.NO_SRS_DIMENSION);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void encodeFeatureAttributes(SimpleFeature feature, AttributesImpl atts,
+            GMLWriter writer) {
+        if (feature.getIdentifier() != null && feature.getIdentifier().getRid() != null) {
+            writer.addGMLAttribute(atts, "id", feature.getIdentifier().getRid());
+        }
+        Map<Name, Object> clientProperties = (Map<Name, Object>) feature.getUserData().get(
+                Attributes.class);
+        if (clientProperties != null) {
+            for (Map.Entry<Name, Object> entry : clientProperties.entrySet()) {
+                if (entry.getValue() != null) {
+                    Name name = entry.getKey();
+                    String uri = name.getNamespaceURI() != null ? name.getNamespaceURI() : "";
+                    String qName = "".equals(uri) ? name.getLocalPart() : GMLWriter.qualify(
+                            factory.getNamespaces(), uri, name.getLocalPart());
+                    atts.addAttribute(uri, name.getLocalPart(),
+                            qName != null ? qName : name.getLocalPart(), "CDATA", entry
+                                    .getValue().toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void encodeEnvelope(BoundingBox bounds, GMLWriter writer) throws Exception {
+        if (bounds.isEmpty()) {
+            writer.startGML("Null", null);
+            writer.characters("unknown");
+            writer.endGML("Null");
+            return;
+        }
+        AttributesImpl atts = writer.attributes();
+        CoordinateReferenceSystem crs = bounds.getCoordinateReferenceSystem();
+        if (crs != null) {
+            if (!noSrsDimension) {
+                atts.addAttribute("", "srsDimension", "srsDimension", "CDATA",
+                        String.valueOf(crs.getCoordinateSystem().getDimension()));
+            }
+            atts.addAttribute("", "srsName", "srsName", "CDATA", getSrsName(crs));
+        }
+        writer.startGML("Envelope", atts);
+        writer.startGML("lowerCorner", null);
+        writer.position(bounds.getMinX(), bounds.getMinY());
+        writer.endGML("lowerCorner");
+        writer.startGML("upperCorner", null);
+        writer.position(bounds.getMaxX(), bounds.getMaxY());
+        writer.endGML("upperCorner");
+        writer.endGML("Envelope");
+    }
+
+    @Override
+    protected void encodeGeometry(Geometry geometry, String srsName,
+            FeatureTypeEncoding.Property property, GMLWriter writer) throws Exception {
+        int dimension = Math.max(CoordinateSequences.coordinateDimension(geometry), 2);
+        String srsDimension = noSrsDimension ? null : String.valueOf(dimension);
+        writeGeometry(geometry, srsName, GML3EncodingUtils.getID(geometry), srsDimension,
+                dimension, property.gmlType, writer);
+    }
+
+    void writeGeometry(Geometry geometry, String srsName, String id, String srsDimension,
+            int dimension, String gmlType, GMLWriter writer) throws Exception {
+        if (geometry instanceof Point) {
+            start("Point", srsName, id, srsDimension, writer);
+            writer.startGML("pos", null);
+            CoordinateSequence cs = ((Point) geometry).getCoordinateSequence();
+            writer.coordinates(cs, dimension, ' ', ' ');
+            writer.endGML("pos");
+            writer.endGML("Point");
+        } else if (geometry instanceof LinearRing) {
+            start("LinearRing", srsName, id, srsDimension, writer);
+            posList(((LinearRing) geometry).getCoordinateSequence(), dimension, writer);
+            writer.endGML("LinearRing");
+        } else if (geometry instanceof LineString) {
+            start("LineString", srsName, id, srsDimension, writer);
+            posList(((LineString) geometry).getCoordinateSequence(), dimension, writer);
+            writer.endGML("LineString");
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            start("Polygon", srsName, id, srsDimension, writer);
+            writer.startGML("exterior", null);
+            writeGeometry(polygon.getExteriorRing(), null, null, srsDimension, dimension, null,
+                    writer);
+            writer.endGML("exterior");
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writer.startGML("interior", null);
+                writeGeometry(polygon.getInteriorRingN(i), null, null, srsDimension, dimension,
+                        null, writer);
+                writer.endGML("interior");
+            }
+            writer.endGML("Polygon");
+        } else if (geometry instanceof MultiPoint) {
+            writeCollection((GeometryCollection) geometry, "MultiPoint", "pointMember", srsName,
+                    id, srsDimension, dimension, writer);
+        } else if (geometry instanceof MultiLineString) {
+            if ("MultiLineStringPropertyType".equals(gmlType)) {
+                writeCollection((GeometryCollection) geometry, "MultiLineString",
+                        "lineStringMember", srsName, id, srsDimension, dimension, writer);
+            } else {
+                writeCollection((GeometryCollection) geometry, "MultiCurve", "curveMember",
+                        srsName, id, srsDimension, dimension, writer);
+            }
+        } else if (geometry instanceof MultiPolygon) {
+            if ("MultiPolygonPropertyType".equals(gmlType)) {
+                writeCollection((GeometryCollection) geometry, "MultiPolygon", "polygonMember",
+                        srsName, id, srsDimension, dimension, writer);
+            } else {
+                writeCollection((GeometryCollection) geometry, "MultiSurface", "surfaceMember",
+                        srsName, id, srsDimension, dimension, writer);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            writeCollection((GeometryCollection) geometry, "MultiGeometry", "geometryMember",
+                    srsName, id, srsDimension, dimension, writer);
+        } else {
+            throw new IllegalArgumentException("Cannot encode geometry of type "
+                    + geometry.getGeometryType());
+        }
+    }
+
+    void writeCollection(GeometryCollection collection, String name, String memberName,
+            String srsName, String id, String srsDimension, int dimension, GMLWriter writer)
+            throws Exception {
+        start(name, srsName, id, srsDimension, writer);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            writer.startGML(memberName, null);
+            writeGeometry(collection.getGeometryN(i), null, null, srsDimension, dimension, null,
+                    writer);
+            writer.endGML(memberName);
+        }
+        writer.endGML(name);
+    }
+
+    void start(String name, String srsName, String id, String srsDimension, GMLWriter writer)
+            throws Exception {
+        AttributesImpl atts = writer.attributes();
+        if (id != null) {
+            writer.addGMLAttribute(atts, "id", id);
+        }
+        if (srsDimension != null) {
+            atts.addAttribute("", "srsDimension", "srsDimension", "CDATA", srsDimension);
+        }
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        writer.startGML(name, atts);
+    }
+
+    void posList(CoordinateSequence cs, int dimension, GMLWriter writer) throws Exception {
+        writer.startGML("posList", null);
+        writer.coordinates(cs, dimension, ' ', ' ');
+        writer.endGML("posList");
+    }
+
+    @Override
+    protected String toSrsName(CoordinateReferenceSystem crs) {
+        return GML2EncodingUtils.toURI(crs, ((GML3EncoderDelegateFactory) factory).srsSyntax);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.xsd.XSDElementDeclaration;
+import org.geotools.gml2.simple.GML2SimpleContentParser;
+import org.geotools.gml3.GML;
+import org.geotools.gml3.bindings.DirectPositionListTypeBinding;
+import org.geotools.gml3.bindings.DirectPositionTypeBinding;
+import org.geotools.gml3.bindings.DoubleListBinding;
+import org.geotools.xml.ElementInstance;
+import org.geotools.xml.Node;
+
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Parses the gml:posList, gml:pos (and other direct positions such as the envelope corners)
+ * and gml:coordinates elements of gml 3.1, bypassing the bindings.
+ * <p>
+ * The lists of doubles are split and parsed in a single pass, rather than collapsing their
+ * whitespaces and walking the bindings of every item, then turned into direct positions by
+ * {@link DirectPositionListTypeBinding} and {@link DirectPositionTypeBinding}, which take the
+ * dimension and reference system from the parse tree as usual.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class GML3SimpleContentParser extends GML2SimpleContentParser {
+
+    DirectPositionListTypeBinding positionListBinding;
+
+    DirectPositionTypeBinding positionBinding;
+
+    public GML3SimpleContentParser(CoordinateSequenceFactory csFactory,
+            GeometryFactory geometryFactory) {
+        super(csFactory);
+        this.positionListBinding = new DirectPositionListTypeBinding();
+        this.positionBinding = new DirectPositionTypeBinding(geometryFactory);
+    }
+
+    @Override
+    public boolean canParse(XSDElementDeclaration element) {
+        return isType(element, GML.DirectPositionListType)
+                || isType(element, GML.DirectPositionType)
+                || isType(element, GML.CoordinatesType);
+    }
+
+    @Override
+    public Object parse(ElementInstance instance, Node node) throws Exception {
+        if (isType(instance.getElementDeclaration(), GML.DirectPositionListType)) {
+            return positionListBinding.parse(instance, node, parseDoubleList(instance.getText()));
+        } else if (isType(instance.getElementDeclaration(), GML.DirectPositionType)) {
+            return positionBinding.parse(instance, node, parseDoubleList(instance.getText()));
+        }
+        return parseCoordinates(instance, node);
+    }
+
+    /**
+     * Parses a gml:doubleList the way the bindings do: whitespaces are collapsed and each item
+     * parsed as a xs:double, giving the array {@link DoubleListBinding} builds.
+     */
+    static Double[] parseDoubleList(String text) {
+        text = text.trim();
+        int length = text.length();
+        if (length == 0) {
+            // an empty list, as the bindings give for an empty element
+            return new Double[0];
+        }
+        List<Double> values = new ArrayList<Double>();
+        int i = 0;
+        do {
+            int start = i;
+            while (i < length && !isSpace(text.charAt(i))) {
+                i++;
+            }
+            values.add(parseDouble(text.substring(start, i)));
+            while (i < length && isSpace(text.charAt(i))) {
+                i++;
+            }
+        } while (i < length);
+
+        return values.toArray(new Double[values.size()]);
+    }
+
+    /**
+     * Parses a xs:double like {@link org.geotools.xs.bindings.XSDoubleBinding}
+     */
+    static Double parseDouble(String value) {
+        if ("INF".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        } else if ("-INF".equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.valueOf(value);
+    }
+
+    /**
+     * The characters the whitespace collapsing turns into spaces
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
@@ -69,6 +69,7 @@ import org.geotools.gml3.bindings.TimePositionTypeBinding;
 import org.geotools.gml3.bindings.TimePositionUnionBinding;
 import org.geotools.gml3.v3_2.bindings.AbstractRingTypeBinding;
 import org.geotools.gml3.bindings.ext.CompositeCurveTypeBinding;
+import org.geotools.gml3.simple.GML3EncoderDelegateFactory;
 import org.geotools.gml3.v3_2.bindings.DoubleListBinding;
 import org.geotools.gml3.v3_2.bindings.EnvelopeTypeBinding;
 import org.geotools.gml3.v3_2.bindings.GML32EncodingUtils;
@@ -278,6 +279,7 @@ public class GMLConfiguration extends Configuration {
 
         delegate.configureContext(container);
         container.unregisterComponent(GML3EncodingUtils.class);
+        container.unregisterComponent(GML3EncoderDelegateFactory.class);
         container.registerComponentInstance(new GML32EncodingUtils());
     }
 } 
@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.bindings.TEST;
+import org.geotools.gml3.bindings.TestConfiguration;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Encoder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ * Measures the features per second encoded in gml 3 through the bindings and streamed by
+ * {@link GML3FeatureCollectionEncoderDelegate}, the output being discarded.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of features and
+ * the number of coordinates of their line strings.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class GML3FeatureCollectionEncoderBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int coordinates = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("Road");
+        tb.setNamespaceURI(TEST.NAMESPACE);
+        tb.add("geom", LineString.class, DefaultGeographicCRS.WGS84);
+        tb.add("name", String.class);
+        tb.add("lanes", Integer.class);
+        tb.add("length", Double.class);
+        tb.add("opened", Date.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        Random random = new Random(0);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < count; i++) {
+            Coordinate[] cs = new Coordinate[coordinates];
+            for (int j = 0; j < coordinates; j++) {
+                cs[j] = new Coordinate(random.nextDouble() * 360 - 180,
+                        random.nextDouble() * 180 - 90);
+            }
+            builder.add(gf.createLineString(cs));
+            builder.add("road " + i);
+            builder.add(1 + random.nextInt(4));
+            builder.add(random.nextDouble() * 1000);
+            builder.add(new Date(random.nextInt() * 1000L));
+            features.add(builder.buildFeature("road." + i));
+        }
+        FeatureCollection collection = DataUtilities.collection(features);
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            benchmark("bindings", collection, false);
+            benchmark("streamed", collection, true);
+        }
+    }
+
+    static void benchmark(String name, FeatureCollection features, boolean optimized)
+            throws Exception {
+        Configuration configuration = new TestConfiguration();
+        if (optimized) {
+            configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        }
+        Encoder encoder = new Encoder(configuration);
+        CountingOutputStream output = new CountingOutputStream();
+
+        long start = System.nanoTime();
+        encoder.encode(features, TEST.TestFeatureCollection, output);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %,10.0f features/s (%,d bytes)%n", name, features.size()
+                / seconds, output.count);
+    }
+
+    static class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
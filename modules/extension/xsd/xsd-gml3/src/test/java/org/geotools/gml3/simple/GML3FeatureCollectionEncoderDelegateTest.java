@@ -0,0 +1,183 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.bindings.TEST;
+import org.geotools.gml3.bindings.TestConfiguration;
+import org.geotools.referencing.CRS;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Encoder;
+import org.geotools.xml.Parser;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Checks the features streamed by {@link GML3FeatureCollectionEncoderDelegate} parse back to the
+ * same features as the ones encoded through the bindings.
+ *
+ * @source $URL$
+ */
+public class GML3FeatureCollectionEncoderDelegateTest extends TestCase {
+
+    static final String[] GEOMETRIES = { "POINT(1.5 2)", "LINESTRING(0 0, 1 1, 2 0.5)",
+            "POLYGON((0 0,10 0,10 10,0 10,0 0),(1 1,2 1,2 2,1 1))", "MULTIPOINT((0 0),(1 1))",
+            "MULTILINESTRING((0 0,1 1),(2 2,3 3))",
+            "MULTIPOLYGON(((0 0,1 0,1 1,0 0)),((5 5,6 5,6 6,5 5)))",
+            "GEOMETRYCOLLECTION(POINT(0 0),LINESTRING(1 1,2 2))", "LINEARRING(0 0,1 0,1 1,0 0)",
+            "POINT(1 2 3)" };
+
+    FeatureCollection schemaFeatures;
+
+    FeatureCollection otherFeatures;
+
+    protected void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName(TEST.TestFeature.getLocalPart());
+        tb.setNamespaceURI(TEST.NAMESPACE);
+        tb.add("geom", Point.class, CRS.decode("EPSG:4326"));
+        tb.add("count", Integer.class);
+        tb.add("date", Date.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        WKTReader reader = new WKTReader();
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 10; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] {
+                    reader.read("POINT(" + i + " " + (i * 0.5) + ")"), i, new Date(0) },
+                    "test." + i));
+        }
+        features.add(SimpleFeatureBuilder.build(type, new Object[] { null, null, null },
+                "test.null"));
+        schemaFeatures = DataUtilities.collection(features);
+
+        // a feature type the schema does not know about
+        tb = new SimpleFeatureTypeBuilder();
+        tb.setName("Other");
+        tb.setNamespaceURI(TEST.NAMESPACE);
+        tb.add("geom", Geometry.class, CRS.decode("EPSG:4326"));
+        tb.add("name", String.class);
+        tb.add("value", Double.class);
+        tb.add("flag", Boolean.class);
+        type = tb.buildFeatureType();
+
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < GEOMETRIES.length; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] {
+                    reader.read(GEOMETRIES[i]), "a<b&c", 1.0 / (i + 3), i % 2 == 0 }, "other."
+                    + i));
+        }
+        otherFeatures = DataUtilities.collection(features);
+    }
+
+    public void testSchemaFeatureType() throws Exception {
+        assertSameFeatures(schemaFeatures);
+    }
+
+    public void testMockFeatureType() throws Exception {
+        String optimized = encode(otherFeatures, true);
+        // the streamed encoding uses curve members for multi line strings
+        assertTrue(optimized.contains("MultiCurve"));
+        assertFalse(encode(otherFeatures, false).contains("MultiCurve"));
+
+        assertSameFeatures(otherFeatures);
+    }
+
+    public void testNoBounds() throws Exception {
+        String optimized = encode(otherFeatures, true, GMLConfiguration.NO_FEATURE_BOUNDS,
+                GMLConfiguration.NO_SRS_DIMENSION);
+        assertFalse(optimized.contains("boundedBy"));
+        assertFalse(optimized.contains("srsDimension"));
+
+        assertSameFeatures(otherFeatures, GMLConfiguration.NO_FEATURE_BOUNDS,
+                GMLConfiguration.NO_SRS_DIMENSION);
+    }
+
+    void assertSameFeatures(FeatureCollection features, QName... properties) throws Exception {
+        List<SimpleFeature> expected = parse(encode(features, false, properties));
+        List<SimpleFeature> actual = parse(encode(features, true, properties));
+
+        assertEquals(features.size(), expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            SimpleFeature e = expected.get(i);
+            SimpleFeature a = actual.get(i);
+            assertEquals(e.getID(), a.getID());
+            assertEquals(e.getAttributeCount(), a.getAttributeCount());
+            for (int j = 0; j < e.getAttributeCount(); j++) {
+                Object ev = e.getAttribute(j);
+                Object av = a.getAttribute(j);
+                if (ev instanceof Geometry) {
+                    assertTrue(e.getID() + ": " + ev + " != " + av,
+                            ((Geometry) ev).equalsExact((Geometry) av));
+                } else {
+                    assertEquals(e.getID(), ev, av);
+                }
+            }
+        }
+    }
+
+    String encode(FeatureCollection features, boolean optimized, QName... properties)
+            throws Exception {
+        Configuration configuration = new TestConfiguration();
+        for (QName property : properties) {
+            configuration.getProperties().add(property);
+        }
+        if (optimized) {
+            configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        }
+        Encoder encoder = new Encoder(configuration);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        encoder.encode(features, TEST.TestFeatureCollection, output);
+        return new String(output.toByteArray(), "UTF-8");
+    }
+
+    List<SimpleFeature> parse(String xml) throws Exception {
+        Parser parser = new Parser(new TestConfiguration());
+        FeatureCollection fc = (FeatureCollection) parser.parse(new ByteArrayInputStream(xml
+                .getBytes("UTF-8")));
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        FeatureIterator it = fc.features();
+        try {
+            while (it.hasNext()) {
+                features.add((SimpleFeature) it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return features;
+    }
+}
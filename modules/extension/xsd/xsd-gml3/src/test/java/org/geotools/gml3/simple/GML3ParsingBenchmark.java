@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.bindings.TEST;
+import org.geotools.gml3.bindings.TestConfiguration;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Encoder;
+import org.geotools.xml.StreamingParser;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.picocontainer.MutablePicoContainer;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ * Measures the features per second streamed out of a large gml 3 feature collection, such as a
+ * WFS response, with the coordinates parsed through the bindings and by
+ * {@link GML3SimpleContentParser}.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of features and
+ * the number of coordinates of their line strings.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class GML3ParsingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int coordinates = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("Road");
+        tb.setNamespaceURI(TEST.NAMESPACE);
+        tb.add("geom", LineString.class, DefaultGeographicCRS.WGS84);
+        tb.add("name", String.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        Random random = new Random(0);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < count; i++) {
+            Coordinate[] cs = new Coordinate[coordinates];
+            for (int j = 0; j < coordinates; j++) {
+                cs[j] = new Coordinate(random.nextDouble() * 360 - 180,
+                        random.nextDouble() * 180 - 90);
+            }
+            builder.add(gf.createLineString(cs));
+            builder.add("road " + i);
+            features.add(builder.buildFeature("road." + i));
+        }
+
+        Configuration configuration = new TestConfiguration();
+        configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Encoder(configuration).encode(DataUtilities.collection(features),
+                TEST.TestFeatureCollection, output);
+        byte[] document = output.toByteArray();
+        System.out.printf("%,d features, %,d bytes%n", count, document.length);
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            benchmark("bindings", document, new BindingsConfiguration());
+            benchmark("simple", document, new TestConfiguration());
+        }
+    }
+
+    static void benchmark(String name, byte[] document, Configuration configuration)
+            throws Exception {
+        long start = System.nanoTime();
+        StreamingParser parser = new StreamingParser(configuration, new ByteArrayInputStream(
+                document), SimpleFeature.class);
+        int count = 0;
+        while (parser.parse() != null) {
+            count++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %,10.0f features/s%n", name, count / seconds);
+    }
+
+    /**
+     * Parses everything through the bindings
+     */
+    static class BindingsConfiguration extends Configuration {
+        public BindingsConfiguration() {
+            super(TEST.getInstance());
+            addDependency(new GMLConfiguration() {
+                @Override
+                public void configureContext(MutablePicoContainer container) {
+                    super.configureContext(container);
+                    container.unregisterComponent(GML3SimpleContentParser.class);
+                }
+            });
+        }
+
+        protected void registerBindings(MutablePicoContainer container) {
+        }
+    }
+}
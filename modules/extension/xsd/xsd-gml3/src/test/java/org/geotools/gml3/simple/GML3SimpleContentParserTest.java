@@ -0,0 +1,239 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.referencing.CRS;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.ElementInstance;
+import org.geotools.xml.Node;
+import org.geotools.xml.Parser;
+import org.geotools.xml.StreamingParser;
+import org.geotools.xs.bindings.XSDoubleBinding;
+import org.opengis.feature.simple.SimpleFeature;
+import org.picocontainer.MutablePicoContainer;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequenceFactory;
+
+/**
+ * Checks the geometries parsed with {@link GML3SimpleContentParser} are the same as the ones
+ * parsed through the bindings.
+ *
+ * @source $URL$
+ */
+public class GML3SimpleContentParserTest extends TestCase {
+
+    static final String GML = "xmlns:gml='http://www.opengis.net/gml'";
+
+    public void testPoint() throws Exception {
+        assertSameValue("<gml:Point " + GML + "><gml:pos>1.5 2</gml:pos></gml:Point>");
+        assertSameValue("<gml:Point " + GML + " srsName='EPSG:4326' srsDimension='3'>"
+                + "<gml:pos> 1 \n 2\t3 </gml:pos></gml:Point>");
+        assertSameValue("<gml:Point " + GML + "><gml:pos>INF 1e3</gml:pos></gml:Point>");
+        assertSameValue("<gml:Point " + GML + "><gml:pos>-INF 2</gml:pos></gml:Point>");
+        // empty positions give an empty list of doubles, whatever the binding makes of it
+        assertSameResult("<gml:Point " + GML + "><gml:pos/></gml:Point>");
+        assertSameResult("<gml:Point " + GML + "><gml:pos> </gml:pos></gml:Point>");
+        assertSameValue("<gml:Point " + GML + "><gml:coordinates>1,2</gml:coordinates>"
+                + "</gml:Point>");
+    }
+
+    public void testLineString() throws Exception {
+        assertSameValue("<gml:LineString " + GML + " srsName='urn:x-ogc:def:crs:EPSG:4326'>"
+                + "<gml:posList>0 0 1 1\n  2 0.5</gml:posList></gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + " srsDimension='3'>"
+                + "<gml:posList>0 0 1 1 1 2 2 0.5 3</gml:posList></gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + "><gml:posList srsDimension='3' count='2'>"
+                + "0 0 1 1 1 2</gml:posList></gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + "><gml:posList>0 -INF 1 INF</gml:posList>"
+                + "</gml:LineString>");
+        assertSameResult("<gml:LineString " + GML + "><gml:posList/></gml:LineString>");
+        assertSameResult("<gml:LineString " + GML + "><gml:posList>\n </gml:posList>"
+                + "</gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + "><gml:pos>0 0</gml:pos>"
+                + "<gml:pos>1 1</gml:pos></gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + "><gml:coordinates>0,0 1,1\n2,2 "
+                + "</gml:coordinates></gml:LineString>");
+        assertSameValue("<gml:LineString " + GML + "><gml:coordinates cs=';' decimal=','>"
+                + "0,5;0 1;1,5</gml:coordinates></gml:LineString>");
+    }
+
+    public void testPolygon() throws Exception {
+        assertSameValue("<gml:MultiSurface " + GML + " srsName='EPSG:4326'><gml:surfaceMember>"
+                + "<gml:Polygon><gml:exterior><gml:LinearRing>"
+                + "<gml:posList>0 0 10 0 10 10 0 10 0 0</gml:posList>"
+                + "</gml:LinearRing></gml:exterior><gml:interior><gml:LinearRing>"
+                + "<gml:posList>1 1 2 1 2 2 1 1</gml:posList>"
+                + "</gml:LinearRing></gml:interior></gml:Polygon></gml:surfaceMember>"
+                + "</gml:MultiSurface>");
+    }
+
+    public void testEnvelope() throws Exception {
+        assertSameValue("<gml:Envelope " + GML + " srsName='EPSG:4326'>"
+                + "<gml:lowerCorner>0 1</gml:lowerCorner><gml:upperCorner>2 3</gml:upperCorner>"
+                + "</gml:Envelope>");
+    }
+
+    public void testDoubles() throws Exception {
+        // NaN cannot be compared through the geometries
+        XSDoubleBinding binding = new XSDoubleBinding();
+        for (String value : new String[] { "INF", "-INF", "NaN", "1e3", "-0", "0.5" }) {
+            Double expected = (Double) binding.parse(null, value);
+            assertEquals(value, Double.doubleToLongBits(expected.doubleValue()),
+                    Double.doubleToLongBits(GML3SimpleContentParser.parseDouble(value)
+                            .doubleValue()));
+        }
+        assertEquals(0, GML3SimpleContentParser.parseDoubleList("").length);
+        assertEquals(0, GML3SimpleContentParser.parseDoubleList(" \n\t").length);
+        assertEquals(3, GML3SimpleContentParser.parseDoubleList(" NaN -INF\n1 ").length);
+    }
+
+    public void testInvalid() throws Exception {
+        String xml = "<gml:Point " + GML + "><gml:pos>1 a</gml:pos></gml:Point>";
+        try {
+            parse(xml, new GMLConfiguration());
+            fail("Should have failed on the invalid number");
+        } catch (RuntimeException e) {
+            // fine
+        }
+    }
+
+    public void testStreaming() throws Exception {
+        List<SimpleFeature> expected = stream(new BindingsConfiguration());
+        CountingConfiguration configuration = new CountingConfiguration();
+        List<SimpleFeature> actual = stream(configuration);
+        assertEquals(95, configuration.parser.count);
+        assertEquals(49, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame((Geometry) expected.get(i).getDefaultGeometry(), (Geometry) actual.get(i)
+                    .getDefaultGeometry());
+        }
+    }
+
+    List<SimpleFeature> stream(Configuration configuration) throws Exception {
+        StreamingParser parser = new StreamingParser(configuration, getClass()
+                .getResourceAsStream("/org/geotools/gml3/states.xml"), SimpleFeature.class);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        SimpleFeature f;
+        while ((f = (SimpleFeature) parser.parse()) != null) {
+            features.add(f);
+        }
+        return features;
+    }
+
+    /**
+     * Checks the simple content parser gives the same value as the bindings, or fails as well
+     * if the bindings do
+     */
+    void assertSameResult(String xml) throws Exception {
+        Object expected;
+        try {
+            expected = parse(xml, new BindingsConfiguration());
+        } catch (RuntimeException e) {
+            try {
+                parse(xml, new GMLConfiguration());
+                fail("Should have failed like the bindings: " + e);
+            } catch (RuntimeException fine) {
+                // fine
+            }
+            return;
+        }
+        Object actual = parse(xml, new GMLConfiguration());
+        if (expected instanceof Geometry) {
+            assertSame((Geometry) expected, (Geometry) actual);
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    void assertSameValue(String xml) throws Exception {
+        Object expected = parse(xml, new BindingsConfiguration());
+        Object actual = parse(xml, new GMLConfiguration());
+        if (expected instanceof Geometry) {
+            assertSame((Geometry) expected, (Geometry) actual);
+        } else {
+            assertEquals(expected, actual);
+            assertTrue(CRS.equalsIgnoreMetadata(
+                    ((ReferencedEnvelope) expected).getCoordinateReferenceSystem(),
+                    ((ReferencedEnvelope) actual).getCoordinateReferenceSystem()));
+        }
+    }
+
+    void assertSame(Geometry expected, Geometry actual) {
+        assertNotNull(expected);
+        assertTrue(actual.toString(), expected.equalsExact(actual));
+        assertEquals(expected.getUserData(), actual.getUserData());
+        Coordinate[] e = expected.getCoordinates();
+        Coordinate[] a = actual.getCoordinates();
+        for (int i = 0; i < e.length; i++) {
+            assertEquals(Double.doubleToLongBits(e[i].z), Double.doubleToLongBits(a[i].z));
+        }
+    }
+
+    Object parse(String xml, Configuration configuration) throws Exception {
+        return new Parser(configuration).parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    /**
+     * Parses everything through the bindings
+     */
+    static class BindingsConfiguration extends GMLConfiguration {
+        @Override
+        public void configureContext(MutablePicoContainer container) {
+            super.configureContext(container);
+            container.unregisterComponent(GML3SimpleContentParser.class);
+        }
+    }
+
+    /**
+     * Counts the elements parsed with the simple content parser
+     */
+    static class CountingConfiguration extends BindingsConfiguration {
+        CountingParser parser = new CountingParser();
+
+        @Override
+        public void configureContext(MutablePicoContainer container) {
+            super.configureContext(container);
+            container.registerComponentInstance(parser);
+        }
+    }
+
+    static class CountingParser extends GML3SimpleContentParser {
+        int count;
+
+        CountingParser() {
+            super(CoordinateArraySequenceFactory.instance(), new GeometryFactory());
+        }
+
+        @Override
+        public Object parse(ElementInstance instance, Node node) throws Exception {
+            count++;
+            return super.parse(instance, node);
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.geotools.coverage.grid.GeneralGridEnvelope;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.io.imageio.DecodedTileCache;
 import org.geotools.data.DataSourceException;
 import org.geotools.data.DefaultServiceInfo;
 import org.geotools.data.ServiceInfo;
@@ -155,6 +156,9 @@ public abstract class AbstractGridCoverage2DReader implements GridCoverage2DRead
      */
     protected GridCoverageFactory coverageFactory;
 
+    /** The cache of the decoded source tiles, may be null */
+    protected DecodedTileCache decodedTileCache;
+
     private Map<String,ArrayList<Resolution>> resolutionsLevelsMap = new HashMap<String,ArrayList<Resolution>>();
 
     protected ImageInputStreamSpi inStreamSPI;
@@ -208,6 +212,11 @@ public abstract class AbstractGridCoverage2DReader implements GridCoverage2DRead
             this.coverageFactory = CoverageFactoryFinder.getGridCoverageFactory(this.hints);
         }
 
+        // shared cache of the decoded tiles
+        if (this.hints.containsKey(Hints.DECODED_TILE_CACHE)) {
+            this.decodedTileCache = (DecodedTileCache) this.hints.get(Hints.DECODED_TILE_CACHE);
+        }
+
         //
         // Setting input
         //
@@ -220,6 +229,28 @@ public abstract class AbstractGridCoverage2DReader implements GridCoverage2DRead
 
     }
 
+    /**
+     * Returns the cache of the decoded source tiles this reader shares with the others, as set by
+     * the {@link Hints#DECODED_TILE_CACHE} hint, or null if the tiles are not cached.
+     */
+    public DecodedTileCache getDecodedTileCache() {
+        return decodedTileCache;
+    }
+
+    /**
+     * Sets the cache of the decoded source tiles, null to disable the caching.
+     * 
+     * @param decodedTileCache
+     */
+    public void setDecodedTileCache(DecodedTileCache decodedTileCache) {
+        this.decodedTileCache = decodedTileCache;
+        if (decodedTileCache != null) {
+            hints.put(Hints.DECODED_TILE_CACHE, decodedTileCache);
+        } else {
+            hints.remove(Hints.DECODED_TILE_CACHE);
+        }
+    }
+
     /**
      * This method is responsible for checking the provided coverage name against the coverage name for this {@link GridCoverage2DReader}.
      * 
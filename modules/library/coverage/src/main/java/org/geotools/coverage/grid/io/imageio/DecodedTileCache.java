@@ -0,0 +1,378 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.grid.io.imageio;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+
+/**
+ * A cache of the source tiles decoded by {@link ImageReader}s, shared among the grid coverage
+ * readers so that overlapping requests, such as adjacent WMS tiles, do not decode the same
+ * compressed tiles over and over. Unlike the JAI tile cache, which only holds the tiles of the
+ * operations of a given rendering chain, tiles are keyed by source, image index (the overview
+ * level), tile position and band selection, and survive across requests.
+ * <p>
+ * Tiles are evicted in least recently used order when the memory they use goes over the budget.
+ * Only plain reads can be served from the cache: a read with subsampling, a destination image,
+ * destination bands or a destination type falls back on the reader. Untiled images are cut in
+ * {@link #DEFAULT_TILE_SIZE} wide square tiles.
+ * <p>
+ * The cache is thread safe; decoding happens outside of its lock, so two threads missing the same
+ * tile at once may both decode it. Images returned by {@link #read} are copies the caller can
+ * modify freely.
+ *
+ * @see org.geotools.factory.Hints#DECODED_TILE_CACHE
+ *
+ * @source $URL$
+ */
+public class DecodedTileCache {
+
+    /** The size of the tiles untiled images are cut into */
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    /** The default memory budget, 64MB */
+    public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+    /** The tiles, in access order */
+    private final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<TileKey, BufferedImage>(
+            64, 0.75f, true);
+
+    private long memoryBudget;
+
+    private long memoryUsage;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Creates a cache with the {@link #DEFAULT_MEMORY_BUDGET default memory budget}.
+     */
+    public DecodedTileCache() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Creates a cache with the given memory budget.
+     *
+     * @param memoryBudget the maximum number of bytes used by the cached tiles
+     */
+    public DecodedTileCache(long memoryBudget) {
+        setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Reads a region of an image through the cache, decoding only the tiles it does not hold yet.
+     * The reader must have its input set to the specified source.
+     *
+     * @param source the identity of the data read, usually the file or URL the reader points
+     *        to, used along with the image index to key the tiles
+     * @param reader the reader used to decode the missing tiles
+     * @param imageIndex the image to read
+     * @param param the read parameters, may be null
+     * @return the requested region, as {@link ImageReader#read(int, ImageReadParam)} would return
+     *         it
+     * @throws IOException
+     */
+    public BufferedImage read(Object source, ImageReader reader, int imageIndex,
+            ImageReadParam param) throws IOException {
+        if (source == null || !canCache(param)) {
+            return reader.read(imageIndex, param);
+        }
+
+        // the tile grid
+        final Rectangle bounds = new Rectangle(0, 0, reader.getWidth(imageIndex),
+                reader.getHeight(imageIndex));
+        final int tileWidth;
+        final int tileHeight;
+        final int gridX;
+        final int gridY;
+        if (reader.isImageTiled(imageIndex)) {
+            tileWidth = reader.getTileWidth(imageIndex);
+            tileHeight = reader.getTileHeight(imageIndex);
+            gridX = reader.getTileGridXOffset(imageIndex);
+            gridY = reader.getTileGridYOffset(imageIndex);
+        } else {
+            tileWidth = Math.min(bounds.width, DEFAULT_TILE_SIZE);
+            tileHeight = Math.min(bounds.height, DEFAULT_TILE_SIZE);
+            gridX = 0;
+            gridY = 0;
+        }
+        final Rectangle region = param != null && param.getSourceRegion() != null ? param
+                .getSourceRegion().intersection(bounds) : bounds;
+        if (region.isEmpty() || tileWidth <= 0 || tileHeight <= 0) {
+            return reader.read(imageIndex, param);
+        }
+        final int[] bands = param != null ? param.getSourceBands() : null;
+
+        // gather the tiles, and copy them in the result
+        final int minTileX = Math.max(0, (region.x - gridX) / tileWidth);
+        final int minTileY = Math.max(0, (region.y - gridY) / tileHeight);
+        final int maxTileX = (region.x + region.width - 1 - gridX) / tileWidth;
+        final int maxTileY = (region.y + region.height - 1 - gridY) / tileHeight;
+        BufferedImage result = null;
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                final Rectangle tileBounds = new Rectangle(gridX + tileX * tileWidth, gridY + tileY
+                        * tileHeight, tileWidth, tileHeight).intersection(bounds);
+                final TileKey key = new TileKey(source, imageIndex, tileX, tileY, bands);
+                BufferedImage tile = get(key);
+                if (tile == null) {
+                    final ImageReadParam tileParam = reader.getDefaultReadParam();
+                    tileParam.setSourceRegion(tileBounds);
+                    tileParam.setSourceBands(bands);
+                    tile = reader.read(imageIndex, tileParam);
+                    put(key, tile);
+                }
+                if (result == null) {
+                    WritableRaster raster = tile.getRaster().createCompatibleWritableRaster(
+                            region.width, region.height);
+                    result = new BufferedImage(tile.getColorModel(), raster,
+                            tile.isAlphaPremultiplied(), null);
+                }
+                // copy the overlapping part only, some rasters mishandle negative offsets
+                final Rectangle overlap = tileBounds.intersection(region);
+                final Raster overlapping = tile.getRaster().createChild(overlap.x - tileBounds.x,
+                        overlap.y - tileBounds.y, overlap.width, overlap.height, 0, 0, null);
+                result.getRaster().setRect(overlap.x - region.x, overlap.y - region.y, overlapping);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if reads with the specified parameters can be served from the cache, the
+     * others go straight to the reader
+     *
+     * @param param
+     */
+    public static boolean canCache(ImageReadParam param) {
+        if (param == null) {
+            return true;
+        }
+        final Point offset = param.getDestinationOffset();
+        return param.getSourceXSubsampling() == 1 && param.getSourceYSubsampling() == 1
+                && param.getSubsamplingXOffset() == 0 && param.getSubsamplingYOffset() == 0
+                && param.getDestination() == null && param.getDestinationBands() == null
+                && param.getDestinationType() == null && (offset == null || offset.x == 0 && offset.y == 0)
+                && (!param.canSetSourceRenderSize() || param.getSourceRenderSize() == null);
+    }
+
+    /**
+     * Returns the cached tile for the key, or null
+     */
+    synchronized BufferedImage get(TileKey key) {
+        final BufferedImage tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tile;
+    }
+
+    /**
+     * Caches a tile, evicting the least recently used ones if the memory budget is exceeded. Tiles
+     * larger than the whole budget are not cached.
+     */
+    synchronized void put(TileKey key, BufferedImage tile) {
+        final long size = getSize(tile);
+        if (size > memoryBudget) {
+            return;
+        }
+        final BufferedImage old = tiles.put(key, tile);
+        if (old != null) {
+            memoryUsage -= getSize(old);
+        }
+        memoryUsage += size;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<BufferedImage> it = tiles.values().iterator();
+        while (memoryUsage > memoryBudget && it.hasNext()) {
+            memoryUsage -= getSize(it.next());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns the number of bytes used by the data of a tile
+     */
+    static long getSize(BufferedImage tile) {
+        final DataBuffer buffer = tile.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Removes the tiles of the specified source, for example after the file has been changed
+     *
+     * @param source
+     */
+    public synchronized void flush(Object source) {
+        final Iterator<Map.Entry<TileKey, BufferedImage>> it = tiles.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<TileKey, BufferedImage> entry = it.next();
+            if (entry.getKey().source.equals(source)) {
+                memoryUsage -= getSize(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the tiles
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * The maximum number of bytes used by the cached tiles
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the maximum number of bytes used by the cached tiles, evicting tiles if needed
+     *
+     * @param memoryBudget
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("The memory budget must be positive, but was "
+                    + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    /**
+     * The number of bytes used by the cached tiles
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * The number of tiles in the cache
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * The number of tiles served from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of tiles that had to be decoded
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of tiles evicted to stay within the memory budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DecodedTileCache[tiles=" + tiles.size() + ", memory=" + memoryUsage + "/"
+                + memoryBudget + ", hits=" + hits + ", misses=" + misses + ", evictions="
+                + evictions + "]";
+    }
+
+    /**
+     * Identifies a decoded tile
+     */
+    static final class TileKey {
+
+        final Object source;
+
+        final int imageIndex;
+
+        final int tileX;
+
+        final int tileY;
+
+        final int[] bands;
+
+        final int hashCode;
+
+        TileKey(Object source, int imageIndex, int tileX, int tileY, int[] bands) {
+            this.source = source;
+            this.imageIndex = imageIndex;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.bands = bands != null ? bands.clone() : null;
+            int hash = source.hashCode();
+            hash = 31 * hash + imageIndex;
+            hash = 31 * hash + tileX;
+            hash = 31 * hash + tileY;
+            this.hashCode = 31 * hash + Arrays.hashCode(bands);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return imageIndex == other.imageIndex && tileX == other.tileX && tileY == other.tileY
+                    && source.equals(other.source) && Arrays.equals(bands, other.bands);
+        }
+    }
+}
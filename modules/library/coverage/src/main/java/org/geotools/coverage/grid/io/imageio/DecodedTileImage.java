@@ -0,0 +1,187 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.grid.io.imageio;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.SourcelessOpImage;
+import javax.media.jai.util.ImagingException;
+
+/**
+ * An image reading a region of an {@link ImageReader} image through a {@link DecodedTileCache},
+ * one tile at a time as they are requested, the way the JAI ImageRead operation does without the
+ * cache. The tile layout is taken from the {@link JAI#KEY_IMAGE_LAYOUT} hint, falling back on the
+ * tiling of the image read, or on {@link DecodedTileCache#DEFAULT_TILE_SIZE} wide tiles.
+ * <p>
+ * Like the ImageRead operation, the image owns the reader and its input stream, which are closed
+ * when the image is disposed.
+ *
+ * @source $URL$
+ */
+public class DecodedTileImage extends SourcelessOpImage {
+
+    /** Logger. */
+    private final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(DecodedTileImage.class);
+
+    private final DecodedTileCache cache;
+
+    private final Object source;
+
+    private final ImageReader reader;
+
+    private final int imageIndex;
+
+    /** The region of the image read, whose origin is the origin of this image */
+    private final Rectangle region;
+
+    private final int[] bands;
+
+    private boolean disposed;
+
+    /**
+     * Creates an image reading the specified region through the cache. Only the first pixel is
+     * decoded here, to find out the image type.
+     *
+     * @param cache the cache the tiles are read through
+     * @param source the identity of the data read, see {@link DecodedTileCache#read}
+     * @param reader the reader, with its input set to the source, owned by the image from now on
+     * @param imageIndex the image to read
+     * @param param the read parameters, which must be {@link DecodedTileCache#canCache cacheable}
+     * @param configuration the rendering hints, may be null
+     * @throws IOException
+     */
+    public static DecodedTileImage create(DecodedTileCache cache, Object source,
+            ImageReader reader, int imageIndex, ImageReadParam param, Map<?, ?> configuration)
+            throws IOException {
+        if (!DecodedTileCache.canCache(param)) {
+            throw new IllegalArgumentException("The read parameters cannot be cached");
+        }
+        final Rectangle bounds = new Rectangle(0, 0, reader.getWidth(imageIndex),
+                reader.getHeight(imageIndex));
+        final Rectangle region = param != null && param.getSourceRegion() != null ? param
+                .getSourceRegion().intersection(bounds) : bounds;
+        if (region.isEmpty()) {
+            throw new IllegalArgumentException("The source region is empty");
+        }
+        final int[] bands = param != null ? param.getSourceBands() : null;
+        final BufferedImage sample = cache.read(source, reader, imageIndex,
+                getParam(reader, region.x, region.y, 1, 1, bands));
+
+        // tile layout, the hinted one or the one of the image read
+        final ImageLayout hinted = configuration != null ? (ImageLayout) configuration
+                .get(JAI.KEY_IMAGE_LAYOUT) : null;
+        int tileWidth = hinted != null && hinted.isValid(ImageLayout.TILE_WIDTH_MASK) ? hinted
+                .getTileWidth(null) : -1;
+        int tileHeight = hinted != null && hinted.isValid(ImageLayout.TILE_HEIGHT_MASK) ? hinted
+                .getTileHeight(null) : -1;
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            if (reader.isImageTiled(imageIndex)) {
+                tileWidth = reader.getTileWidth(imageIndex);
+                tileHeight = reader.getTileHeight(imageIndex);
+            } else {
+                tileWidth = DecodedTileCache.DEFAULT_TILE_SIZE;
+                tileHeight = DecodedTileCache.DEFAULT_TILE_SIZE;
+            }
+        }
+        tileWidth = Math.min(tileWidth, region.width);
+        tileHeight = Math.min(tileHeight, region.height);
+        final ImageLayout layout = new ImageLayout(0, 0, region.width, region.height, 0, 0,
+                tileWidth, tileHeight, sample.getSampleModel().createCompatibleSampleModel(
+                        tileWidth, tileHeight), sample.getColorModel());
+
+        return new DecodedTileImage(layout, configuration, cache, source, reader, imageIndex,
+                region, bands);
+    }
+
+    private DecodedTileImage(ImageLayout layout, Map<?, ?> configuration,
+            DecodedTileCache cache, Object source, ImageReader reader, int imageIndex,
+            Rectangle region, int[] bands) {
+        super(layout, configuration, layout.getSampleModel(null), 0, 0, region.width,
+                region.height);
+        this.cache = cache;
+        this.source = source;
+        this.reader = reader;
+        this.imageIndex = imageIndex;
+        this.region = region;
+        this.bands = bands != null ? bands.clone() : null;
+    }
+
+    /**
+     * Returns read parameters for the specified area of the image read
+     */
+    private static ImageReadParam getParam(ImageReader reader, int x, int y, int width,
+            int height, int[] bands) {
+        final ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        param.setSourceBands(bands);
+        return param;
+    }
+
+    @Override
+    protected void computeRect(PlanarImage[] sources, WritableRaster dest, Rectangle destRect) {
+        final ImageReadParam param = getParam(reader, region.x + destRect.x,
+                region.y + destRect.y, destRect.width, destRect.height, bands);
+        final BufferedImage tile;
+        synchronized (this) {
+            if (disposed) {
+                throw new IllegalStateException("The image has been disposed");
+            }
+            try {
+                tile = cache.read(source, reader, imageIndex, param);
+            } catch (IOException e) {
+                throw new ImagingException("Unable to read the tiles of " + source, e);
+            }
+        }
+        dest.setRect(destRect.x, destRect.y, tile.getRaster());
+    }
+
+    /**
+     * Disposes the reader and closes its input stream.
+     */
+    @Override
+    public synchronized void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        super.dispose();
+        try {
+            final Object input = reader.getInput();
+            if (input instanceof ImageInputStream) {
+                ((ImageInputStream) input).close();
+            }
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+        } finally {
+            reader.dispose();
+        }
+    }
+}
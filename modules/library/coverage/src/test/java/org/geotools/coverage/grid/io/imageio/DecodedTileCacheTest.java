@@ -0,0 +1,177 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.grid.io.imageio;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing {@link DecodedTileCache}.
+ *
+ * @source $URL$
+ */
+public class DecodedTileCacheTest extends Assert {
+
+    File file;
+
+    ImageInputStream stream;
+
+    ImageReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        // an untiled image, cut in 512x512 tiles by the cache
+        BufferedImage image = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(0);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        file = File.createTempFile("tiles", ".png");
+        ImageIO.write(image, "png", file);
+
+        stream = ImageIO.createImageInputStream(file);
+        reader = ImageIO.getImageReaders(stream).next();
+        reader.setInput(stream);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.dispose();
+        stream.close();
+        file.delete();
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache();
+        assertRead(cache, new Rectangle(100, 200, 700, 500));
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.getTileCount());
+
+        // an adjacent region shares two tiles
+        assertRead(cache, new Rectangle(600, 200, 600, 500));
+        assertEquals(2, cache.getHits());
+        assertEquals(6, cache.getMisses());
+
+        // the whole image
+        assertRead(cache, (Rectangle) null);
+        assertEquals(6, cache.getTileCount());
+        assertTrue(cache.getMemoryUsage() >= 1200 * 900 * 3);
+    }
+
+    @Test
+    public void testBands() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache();
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(10, 10, 100, 100));
+        assertRead(cache, param);
+        assertEquals(1, cache.getMisses());
+
+        // another band selection is another tile
+        if (reader.getImageTypes(0).next().getNumBands() == 3) {
+            param.setSourceBands(new int[] { 2 });
+            param.setDestinationBands(null);
+            ImageReadParam direct = reader.getDefaultReadParam();
+            direct.setSourceRegion(param.getSourceRegion());
+            direct.setSourceBands(param.getSourceBands());
+            try {
+                reader.read(0, direct);
+            } catch (IllegalArgumentException e) {
+                // the reader does not support band selection, nothing to test
+                return;
+            }
+            assertRead(cache, param);
+            assertEquals(2, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testSubsamplingBypass() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache();
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(2, 2, 0, 0);
+        assertRead(cache, param);
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getTileCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        // room for a couple of tiles only
+        DecodedTileCache cache = new DecodedTileCache(2 * 512 * 512 * 4);
+        assertRead(cache, (Rectangle) null);
+        assertEquals(6, cache.getMisses());
+        assertTrue(cache.getMemoryUsage() <= cache.getMemoryBudget());
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(6, cache.getTileCount() + cache.getEvictions());
+
+        // the last tiles read are still there
+        cache.resetStatistics();
+        assertRead(cache, new Rectangle(1100, 800, 10, 10));
+        assertEquals(1, cache.getHits());
+
+        cache.setMemoryBudget(0);
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache();
+        assertRead(cache, new Rectangle(0, 0, 10, 10));
+        assertEquals(1, cache.getTileCount());
+        cache.flush("another file");
+        assertEquals(1, cache.getTileCount());
+        cache.flush(file);
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    void assertRead(DecodedTileCache cache, Rectangle region) throws Exception {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(region);
+        assertRead(cache, param);
+    }
+
+    void assertRead(DecodedTileCache cache, ImageReadParam param) throws Exception {
+        BufferedImage expected = reader.read(0, param);
+        BufferedImage actual = cache.read(file, reader, 0, param);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getColorModel(), actual.getColorModel());
+        int[] expectedPixels = expected.getRaster().getPixels(0, 0, expected.getWidth(),
+                expected.getHeight(), (int[]) null);
+        int[] actualPixels = actual.getRaster().getPixels(0, 0, actual.getWidth(),
+                actual.getHeight(), (int[]) null);
+        assertArrayEquals(expectedPixels, actualPixels);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.coverage.grid.io.imageio;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing {@link DecodedTileImage}.
+ *
+ * @source $URL$
+ */
+public class DecodedTileImageTest extends Assert {
+
+    File file;
+
+    ImageReader reference;
+
+    @Before
+    public void setUp() throws Exception {
+        // a large untiled image, cut in 512x512 tiles by the cache
+        BufferedImage image = new BufferedImage(3000, 2000, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(0);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        file = File.createTempFile("tiles", ".png");
+        ImageIO.write(image, "png", file);
+        reference = openReader();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ((ImageInputStream) reference.getInput()).close();
+        reference.dispose();
+        file.delete();
+    }
+
+    ImageReader openReader() throws Exception {
+        ImageInputStream stream = ImageIO.createImageInputStream(file);
+        ImageReader reader = ImageIO.getImageReaders(stream).next();
+        reader.setInput(stream);
+        return reader;
+    }
+
+    @Test
+    public void testLargeTiledRead() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache(Long.MAX_VALUE);
+        ImageReadParam param = reference.getDefaultReadParam();
+        Rectangle region = new Rectangle(100, 50, 2800, 1900);
+        param.setSourceRegion(region);
+        ImageLayout layout = new ImageLayout();
+        layout.setTileWidth(256);
+        layout.setTileHeight(256);
+        ImageReader reader = openReader();
+        ImageInputStream stream = (ImageInputStream) reader.getInput();
+        DecodedTileImage image = DecodedTileImage.create(cache, file, reader, 0, param,
+                new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout));
+        try {
+            // the requested layout, and nothing but the first pixel decoded yet
+            assertEquals(0, image.getMinX());
+            assertEquals(0, image.getMinY());
+            assertEquals(region.width, image.getWidth());
+            assertEquals(region.height, image.getHeight());
+            assertEquals(256, image.getTileWidth());
+            assertEquals(256, image.getTileHeight());
+            assertEquals(1, cache.getTileCount());
+
+            // a tile only decodes the source tiles it overlaps
+            Raster tile = image.getTile(3, 3);
+            assertEquals(new Rectangle(768, 768, 256, 256), tile.getBounds());
+            assertEquals(5, cache.getTileCount());
+            assertPixels(tile.getBounds(), region.x + 768, region.y + 768, tile);
+
+            // the whole image, which the cache holds as source sized tiles
+            assertPixels(image.getBounds(), region.x, region.y, image.getData());
+            assertEquals(24, cache.getTileCount());
+            assertTrue(cache.getMemoryUsage() <= 24L * 512 * 512 * 3);
+        } finally {
+            image.dispose();
+        }
+
+        // the image owns the reader and its stream
+        try {
+            stream.read();
+            fail("The stream should have been closed");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testDefaultLayout() throws Exception {
+        DecodedTileCache cache = new DecodedTileCache();
+        ImageReader reader = openReader();
+        DecodedTileImage image = DecodedTileImage.create(cache, file, reader, 0, null, null);
+        try {
+            assertEquals(3000, image.getWidth());
+            assertEquals(DecodedTileCache.DEFAULT_TILE_SIZE, image.getTileWidth());
+            assertEquals(DecodedTileCache.DEFAULT_TILE_SIZE, image.getTileHeight());
+            Rectangle area = new Rectangle(2900, 1900, 100, 100);
+            assertPixels(area, area.x, area.y, image.getData(area));
+        } finally {
+            image.dispose();
+        }
+    }
+
+    /**
+     * Checks the raster holds the pixels of the image read at the specified position
+     */
+    void assertPixels(Rectangle bounds, int x, int y, Raster raster) throws Exception {
+        ImageReadParam param = reference.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, bounds.width, bounds.height));
+        BufferedImage expected = reference.read(0, param);
+        int[] expectedPixels = expected.getRaster().getPixels(0, 0, bounds.width,
+                bounds.height, (int[]) null);
+        int[] actualPixels = raster.getPixels(bounds.x, bounds.y, bounds.width, bounds.height,
+                (int[]) null);
+        assertArrayEquals(expectedPixels, actualPixels);
+    }
+}
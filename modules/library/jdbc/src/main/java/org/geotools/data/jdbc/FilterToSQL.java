@@ -36,6 +36,7 @@ import org.geotools.filter.FilterCapabilities;
 import org.geotools.filter.FunctionImpl;
 import org.geotools.filter.LikeFilterImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.JoinPropertyName;
 import org.geotools.jdbc.PrimaryKey;
@@ -581,8 +582,68 @@ public class FilterToSQL implements FilterVisitor, ExpressionVisitor {
      * 
      */
     public Object visit(Or filter, Object extraData) {
+        if (filter.getChildren().size() >= IndexedSpatialDisjunction.MIN_SIZE) {
+            IndexedSpatialDisjunction disjunction = new IndexedSpatialDisjunction(
+                    filter.getChildren());
+            if (disjunction.isIndexed()) {
+                return visit(filter, disjunction, "OR");
+            }
+        }
         return visit((BinaryLogicOperator)filter, "OR");
     }
+
+    /**
+     * Writes a large disjunction of spatial filters against literal geometries, giving the
+     * subclasses a chance to encode the spatial filters as a single predicate, see
+     * {@link #visitSpatialDisjunction(IndexedSpatialDisjunction, Object)}
+     */
+    Object visit(Or filter, IndexedSpatialDisjunction disjunction, Object extraData) {
+        LOGGER.finer("exporting spatial disjunction");
+
+        try {
+            out.write("(");
+
+            updateCurrentGeometry(disjunction.getProperty());
+            List<Filter> children;
+            boolean first = true;
+            if (visitSpatialDisjunction(disjunction, extraData)) {
+                children = disjunction.getOtherFilters();
+                first = false;
+            } else {
+                children = filter.getChildren();
+            }
+            for (Filter child : children) {
+                if (!first) {
+                    out.write(" OR ");
+                }
+                child.accept(this, extraData);
+                first = false;
+            }
+
+            out.write(")");
+        } catch (java.io.IOException ioe) {
+            throw new RuntimeException(IO_ERROR, ioe);
+        }
+        return extraData;
+    }
+
+    /**
+     * Encodes the spatial filters of a large disjunction, all comparing the same property
+     * against literal geometries, as a single predicate, such as a join against an array or a
+     * temporary table of the geometries, which the database can evaluate much faster than a long
+     * chain of ORs. The current geometry has already been set up for the property.
+     * <p>
+     * The default implementation returns false, having the filters encoded one by one.
+     * Subclasses must not write anything when they return false.
+     * </p>
+     * @param disjunction the spatial filters, see {@link IndexedSpatialDisjunction#getSpatialFilters()}
+     * @param extraData extra filter data
+     * @return true if the spatial filters have been encoded
+     */
+    protected boolean visitSpatialDisjunction(IndexedSpatialDisjunction disjunction,
+            Object extraData) throws IOException {
+        return false;
+    }
     
     /**
      * Common implementation for BinaryLogicOperator filters.  This way
@@ -988,23 +1049,7 @@ public class FilterToSQL implements FilterVisitor, ExpressionVisitor {
         }
 
         if (e1 instanceof PropertyName) {
-            // handle native srid
-            currentGeometry = null;
-            currentSRID = null;
-            currentDimension = null;
-            if (featureType != null) {
-                // going thru evaluate ensures we get the proper result even if the
-                // name has
-                // not been specified (convention -> the default geometry)
-                AttributeDescriptor descriptor = (AttributeDescriptor) e1.evaluate(featureType);
-                if (descriptor instanceof GeometryDescriptor) {
-                    currentGeometry = (GeometryDescriptor) descriptor;
-                    currentSRID = (Integer) descriptor.getUserData().get(
-                            JDBCDataStore.JDBC_NATIVE_SRID);
-                    currentDimension = (Integer) descriptor.getUserData().get(
-                            Hints.COORDINATE_DIMENSION);
-                }
-            }
+            updateCurrentGeometry((PropertyName) e1);
         }
 
         if (e1 instanceof PropertyName && e2 instanceof Literal) {
@@ -1019,6 +1064,30 @@ public class FilterToSQL implements FilterVisitor, ExpressionVisitor {
         
     }
 
+    /**
+     * Sets up the current geometry, native srid and dimension for the geometry property
+     * compared by a spatial filter
+     */
+    protected void updateCurrentGeometry(PropertyName property) {
+        // handle native srid
+        currentGeometry = null;
+        currentSRID = null;
+        currentDimension = null;
+        if (featureType != null) {
+            // going thru evaluate ensures we get the proper result even if the
+            // name has
+            // not been specified (convention -> the default geometry)
+            AttributeDescriptor descriptor = (AttributeDescriptor) property.evaluate(featureType);
+            if (descriptor instanceof GeometryDescriptor) {
+                currentGeometry = (GeometryDescriptor) descriptor;
+                currentSRID = (Integer) descriptor.getUserData().get(
+                        JDBCDataStore.JDBC_NATIVE_SRID);
+                currentDimension = (Integer) descriptor.getUserData().get(
+                        Hints.COORDINATE_DIMENSION);
+            }
+        }
+    }
+
     /**
      * Handles the common case of a PropertyName,Literal geometry binary spatial operator.
      */
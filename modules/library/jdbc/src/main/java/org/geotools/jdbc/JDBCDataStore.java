@@ -269,6 +269,12 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected int fetchSize;
     
+    /**
+     * The number of features buffered by the insert feature writers before sending them to
+     * the database in a single batch, defaulting to 1 (no batching).
+     */
+    protected int batchInsertSize = 1;
+    
     /**
      * flag controlling whether primary key columns of a table are exposed via the 
      * feature type.
@@ -409,6 +415,23 @@ public final class JDBCDataStore extends ContentDataStore
         this.fetchSize = fetchSize;
     }
 
+    /**
+     * The number of features the insert feature writers buffer before sending them to the
+     * database as a single batch. A value of 1 (the default) disables batching.
+     * @return
+     */
+    public int getBatchInsertSize() {
+        return batchInsertSize;
+    }
+
+    /**
+     * Changes the batch insert size. Values lower than 1 are treated as 1.
+     * @param batchInsertSize
+     */
+    public void setBatchInsertSize(int batchInsertSize) {
+        this.batchInsertSize = Math.max(1, batchInsertSize);
+    }
+
     /**
      * Determines if the datastore creates feature types which include those columns / attributes
      * which compose the primary key.
@@ -1538,6 +1561,18 @@ public final class JDBCDataStore extends ContentDataStore
     /**
      * Inserts a collection of new features into the database for a particular
      * feature type / table.
+     * <p>
+     * When more than one feature is provided, the features whose key values can be computed
+     * before the insert (provided fids, sequences, generated strings) are sent to the database
+     * in batches, the others are inserted one at a time and have their key values looked up
+     * as usual. The insertion order is preserved.
+     * </p>
+     * <p>
+     * If the dialect supports bulk inserts and all the key values can be computed before the
+     * insert, the whole collection is handed to
+     * {@link SQLDialect#insertBulk(String, String, List, List, int[], int[], List, Connection)}
+     * instead.
+     * </p>
      */
     protected void insert(Collection features, SimpleFeatureType featureType, Connection cx)
         throws IOException {
@@ -1547,6 +1582,9 @@ public final class JDBCDataStore extends ContentDataStore
         // first to figure out what the id will be, then the insert statement
         synchronized (this) {
             Statement st = null;
+            PreparedStatement batchPs = null;
+            String batchSql = null;
+            int batched = 0;
 
             try {
                 if ( !(dialect instanceof PreparedStatementSQLDialect) ) {
@@ -1555,6 +1593,12 @@ public final class JDBCDataStore extends ContentDataStore
                 
                 // figure out if we should determine what the fid is pre or post insert
                 boolean postInsert = dialect.lookupGeneratedValuesPostInsert() && isGenerated(key);
+                boolean batching = features.size() > 1;
+                
+                if (batching && dialect.isBulkInsertSupported()
+                        && insertBulk(features, featureType, key, postInsert, cx)) {
+                    return;
+                }
                 
                 for (Iterator f = features.iterator(); f.hasNext();) {
                     SimpleFeature feature = (SimpleFeature) f.next();
@@ -1567,28 +1611,66 @@ public final class JDBCDataStore extends ContentDataStore
                         keyValues = getNextValues( key, cx );
                     }
                     
-
-                    if ( dialect instanceof PreparedStatementSQLDialect ) {
-                        PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
-                        try {
-                            ((PreparedStatementSQLDialect)dialect).onInsert(ps, cx, featureType);
-                            ps.execute();
-                        } finally {
-                            closeSafe( ps );
+                    if (batching && isBatchInsertable(key, useExisting, postInsert)) {
+                        if ( dialect instanceof PreparedStatementSQLDialect ) {
+                            // features with a different statement structure (e.g., null geometries)
+                            // cannot go in the same batch
+                            String sql = insertSQLPSString(featureType, feature, key);
+                            if (batchPs != null && !sql.equals(batchSql)) {
+                                batchPs.executeBatch();
+                                closeSafe(batchPs);
+                                batchPs = null;
+                            }
+                            if (batchPs == null) {
+                                LOGGER.log(Level.FINE, "Inserting new features in batch with ps: {0}", sql);
+                                batchPs = cx.prepareStatement(sql);
+                                batchSql = sql;
+                                ((PreparedStatementSQLDialect)dialect).onInsert(batchPs, cx, featureType);
+                            }
+                            setInsertSQLPSValues(batchPs, featureType, feature, keyValues, key, cx);
+                            batchPs.addBatch();
+                        } else {
+                            String sql = insertSQL(featureType, feature, keyValues, cx);
+                            ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
+                            
+                            LOGGER.log(Level.FINE, "Inserting new feature in batch: {0}", sql);
+                            st.addBatch(sql);
+                            batched++;
                         }
                     } else {
-                        String sql = insertSQL(featureType, feature, keyValues, cx);
+                        // preserve the insertion order, and make sure the key values we
+                        // compute or look up are not affected by pending inserts
+                        if (batchPs != null) {
+                            batchPs.executeBatch();
+                            closeSafe(batchPs);
+                            batchPs = null;
+                        }
+                        if (batched > 0) {
+                            st.executeBatch();
+                            batched = 0;
+                        }
                         
-                        //TODO: execute in batch to improve performance?
-                        ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
+                        if ( dialect instanceof PreparedStatementSQLDialect ) {
+                            PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
+                            try {
+                                ((PreparedStatementSQLDialect)dialect).onInsert(ps, cx, featureType);
+                                ps.execute();
+                            } finally {
+                                closeSafe( ps );
+                            }
+                        } else {
+                            String sql = insertSQL(featureType, feature, keyValues, cx);
+                            
+                            ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
+                            
+                            LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
+                            st.execute(sql);
+                        }
                         
-                        LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
-                        st.execute(sql);
-                    }
-                    
-                    if ( keyValues == null ) {
-                        //grab the key values post insert
-                        keyValues = getLastValues(key,cx);
+                        if ( keyValues == null ) {
+                            //grab the key values post insert
+                            keyValues = getLastValues(key,cx);
+                        }
                     }
                     
                     //report the feature id as user data since we cant set the fid
@@ -1596,15 +1678,160 @@ public final class JDBCDataStore extends ContentDataStore
                     feature.getUserData().put("fid", fid);
                 }
 
-                //st.executeBatch();
+                if (batchPs != null) {
+                    batchPs.executeBatch();
+                }
+                if (batched > 0) {
+                    st.executeBatch();
+                }
             } catch (SQLException e) {
                 String msg = "Error inserting features";
                 throw (IOException) new IOException(msg).initCause(e);
             } finally {
+                closeSafe(batchPs);
                 closeSafe(st);
             }
         }
     }
+    
+    /**
+     * Loads the features using the dialect bulk insert support, see
+     * {@link SQLDialect#insertBulk(String, String, List, List, int[], int[], List, Connection)}.
+     * Returns false without inserting anything if the key values of some of the features cannot
+     * be computed before the insert, in that case the caller should fall back on the ordinary
+     * insert path.
+     */
+    private boolean insertBulk(Collection features, SimpleFeatureType featureType,
+            PrimaryKey key, boolean postInsert, Connection cx) throws SQLException, IOException {
+        // check all the key values can be computed up front
+        int generated = 0;
+        for (Iterator f = features.iterator(); f.hasNext();) {
+            SimpleFeature feature = (SimpleFeature) f.next();
+            boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
+            if (!isBatchInsertable(key, useExisting, postInsert)) {
+                return false;
+            }
+            if (!useExisting) {
+                generated++;
+            }
+        }
+
+        // reserve the sequence values with a single call per key column
+        List<PrimaryKeyColumn> keyColumns = key.getColumns();
+        List<List<Object>> sequenceValues = new ArrayList<List<Object>>(keyColumns.size());
+        for (PrimaryKeyColumn col : keyColumns) {
+            List<Object> values = null;
+            if (generated > 0 && col instanceof SequencedPrimaryKeyColumn) {
+                String sequenceName = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                values = dialect.getNextSequenceValues(databaseSchema, sequenceName, generated, cx);
+                if (values == null) {
+                    return false;
+                }
+            }
+            sequenceValues.add(values);
+        }
+
+        // the non key attributes first, then the key columns, as in the insert statements
+        Set<String> pkColumnNames = getColumnNames(key);
+        List<AttributeDescriptor> attributes = new ArrayList<AttributeDescriptor>();
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (!pkColumnNames.contains(att.getLocalName())) {
+                attributes.add(att);
+            }
+        }
+        int columnCount = attributes.size() + keyColumns.size();
+        List<String> columnNames = new ArrayList<String>(columnCount);
+        List<Class> bindings = new ArrayList<Class>(columnCount);
+        int[] srids = new int[columnCount];
+        int[] dimensions = new int[columnCount];
+        Arrays.fill(srids, -1);
+        Arrays.fill(dimensions, -1);
+        for (int i = 0; i < attributes.size(); i++) {
+            AttributeDescriptor att = attributes.get(i);
+            columnNames.add(att.getLocalName());
+            bindings.add(att.getType().getBinding());
+            if (att instanceof GeometryDescriptor) {
+                srids[i] = getDescriptorSRID(att);
+                dimensions[i] = getDescriptorDimension(att);
+            }
+        }
+        for (PrimaryKeyColumn col : keyColumns) {
+            columnNames.add(col.getName());
+            bindings.add(col.getType());
+        }
+
+        List<Object[]> rows = new ArrayList<Object[]>(features.size());
+        List<String> fids = new ArrayList<String>(features.size());
+        int nextSequenceValue = 0;
+        for (Iterator f = features.iterator(); f.hasNext();) {
+            SimpleFeature feature = (SimpleFeature) f.next();
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < attributes.size(); i++) {
+                row[i] = feature.getAttribute(attributes.get(i).getLocalName());
+            }
+
+            List<Object> keyValues;
+            if (Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID))) {
+                keyValues = decodeFID(key, feature.getID(), true);
+            } else {
+                keyValues = new ArrayList<Object>(keyColumns.size());
+                for (int j = 0; j < keyColumns.size(); j++) {
+                    List<Object> values = sequenceValues.get(j);
+                    if (values != null) {
+                        keyValues.add(values.get(nextSequenceValue));
+                    } else {
+                        keyValues.add(getNextValue(keyColumns.get(j), key, cx));
+                    }
+                }
+                nextSequenceValue++;
+            }
+            for (int j = 0; j < keyValues.size(); j++) {
+                row[attributes.size() + j] = keyValues.get(j);
+            }
+            rows.add(row);
+            fids.add(featureType.getTypeName() + "." + encodeFID(keyValues));
+        }
+
+        LOGGER.log(Level.FINE, "Inserting {0} features in bulk into {1}", new Object[] {
+                rows.size(), featureType.getTypeName() });
+        dialect.insertBulk(databaseSchema, featureType.getTypeName(), columnNames, bindings,
+                srids, dimensions, rows, cx);
+
+        //report the feature ids as user data since we cant set the fid
+        int i = 0;
+        for (Iterator f = features.iterator(); f.hasNext();) {
+            ((SimpleFeature) f.next()).getUserData().put("fid", fids.get(i++));
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the key values of a feature can be determined before the insert without
+     * depending on the previous inserts being executed, which allows the feature to be inserted
+     * as part of a batch.
+     */
+    private boolean isBatchInsertable(PrimaryKey key, boolean useExisting, boolean postInsert) {
+        if (useExisting) {
+            return true;
+        }
+        if (postInsert) {
+            return false;
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col instanceof SequencedPrimaryKeyColumn) {
+                continue;
+            }
+            if (col instanceof AutoGeneratedPrimaryKeyColumn) {
+                return false;
+            }
+            // numeric values are computed as max + 1, which would return the same value
+            // until the batch is executed
+            if (Number.class.isAssignableFrom(col.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
      * Updates an existing feature(s) in the database for a particular feature type / table.
@@ -3888,15 +4115,33 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected PreparedStatement insertSQLPS(SimpleFeatureType featureType, SimpleFeature feature, List keyValues, Connection cx) 
         throws IOException, SQLException {
-        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
-        
-        // grab the primary key and collect the pk column names 
+        // grab the primary key 
         PrimaryKey key = null; 
         try {
             key = getPrimaryKey(featureType);
         } catch (IOException e) {
             throw new RuntimeException( e );
         }
+        
+        String sql = insertSQLPSString(featureType, feature, key);
+        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
+        
+        //create the prepared statement
+        PreparedStatement ps = cx.prepareStatement(sql);
+        setInsertSQLPSValues(ps, featureType, feature, keyValues, key, cx);
+        
+        return ps;
+    }
+    
+    /**
+     * Generates the sql of a 'INSERT INTO' prepared statement. Features whose sql is the same
+     * can be inserted using the same statement.
+     */
+    String insertSQLPSString(SimpleFeatureType featureType, SimpleFeature feature, PrimaryKey key)
+            throws SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        
+        // collect the pk column names 
         Set<String> pkColumnNames = getColumnNames(key);
         
         StringBuffer sql = new StringBuffer();
@@ -3956,10 +4201,20 @@ public final class JDBCDataStore extends ContentDataStore
         
         sql.setLength(sql.length()-1);
         sql.append(")");
-        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
         
-        //create the prepared statement
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        return sql.toString();
+    }
+    
+    /**
+     * Sets the feature attribute and key values in a prepared statement built with
+     * {@link #insertSQLPSString(SimpleFeatureType, SimpleFeature, PrimaryKey)}
+     */
+    void setInsertSQLPSValues(PreparedStatement ps, SimpleFeatureType featureType,
+            SimpleFeature feature, List keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        Set<String> pkColumnNames = getColumnNames(key);
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
         
         //set the attribute values
         int i = 1;
@@ -4010,8 +4265,6 @@ public final class JDBCDataStore extends ContentDataStore
                 }
             }
         }
-        
-        return ps;
     }
     
     /**
@@ -20,16 +20,26 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentState;
 import org.geotools.factory.Hints;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * 
+ * Feature writer appending new features to a table.
+ * <p>
+ * When the datastore {@link JDBCDataStore#getBatchInsertSize() batch insert size} is greater
+ * than one the written features are buffered and inserted in batches, the buffer being
+ * flushed when full and on {@link #close()}. The identifiers of the written features are
+ * updated once their batch is inserted.
+ * </p>
  *
  * @source $URL$
  */
@@ -38,21 +48,44 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
     
     ResultSetFeature last;
     
+    /**
+     * Copies of the features waiting to be inserted
+     */
+    List<SimpleFeature> buffer;
+    
+    /**
+     * The identifiers handed out to the callers for the buffered features
+     */
+    List<FeatureIdImpl> bufferIds;
+    
+    int batchSize;
+    
     public JDBCInsertFeatureWriter(String sql, Connection cx,
             JDBCFeatureSource featureSource, Hints hints) throws SQLException, IOException {
         super(sql, cx, featureSource, featureSource.getSchema(), hints);
         last = new ResultSetFeature( rs, cx );
+        initBuffer();
     }
 
     public JDBCInsertFeatureWriter(PreparedStatement ps, Connection cx, JDBCFeatureSource featureSource, Hints hints)
         throws SQLException, IOException {
         super( ps, cx, featureSource, featureSource.getSchema(), hints );
         last = new ResultSetFeature( rs, ps.getConnection() );
+        initBuffer();
     }
     
     public JDBCInsertFeatureWriter(JDBCUpdateFeatureWriter other) {
         super(other);
         last = other.last;
+        initBuffer();
+    }
+    
+    void initBuffer() {
+        batchSize = dataStore.getBatchInsertSize();
+        if (batchSize > 1) {
+            buffer = new ArrayList<SimpleFeature>(batchSize);
+            bufferIds = new ArrayList<FeatureIdImpl>(batchSize);
+        }
     }
 
     public boolean hasNext() throws IOException {
@@ -71,6 +104,16 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
     }
 
     public void write() throws IOException {
+        if (buffer != null) {
+            // the feature is going to be reused by next(), buffer a copy of it
+            buffer.add(SimpleFeatureBuilder.copy(last));
+            bufferIds.add((FeatureIdImpl) last.getIdentifier());
+            if (buffer.size() >= batchSize) {
+                flush();
+            }
+            return;
+        }
+        
         try {
             //do the insert
             dataStore.insert(last, featureType, st.getConnection());
@@ -87,12 +130,48 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
         }
     }
 
-    public void close() throws IOException {
-        super.close();
+    /**
+     * Inserts the buffered features in a single batch, updates their identifiers and
+     * notifies the additions
+     */
+    void flush() throws IOException {
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
         
-        if ( last != null ) {
-            last.close();
-            last = null;
+        try {
+            dataStore.insert(buffer, featureType, st.getConnection());
+            
+            ContentEntry entry = featureSource.getEntry();
+            ContentState state = entry.getState( this.tx );
+            for (int i = 0; i < buffer.size(); i++) {
+                SimpleFeature feature = buffer.get(i);
+                
+                //the datastore sets as userData, grab it and update the fid
+                String fid = (String) feature.getUserData().get( "fid" );
+                ((FeatureIdImpl) feature.getIdentifier()).setID( fid );
+                bufferIds.get(i).setID( fid );
+                
+                state.fireFeatureAdded( featureSource, feature );
+            }
+        } catch (SQLException e) {
+            throw (IOException) new IOException().initCause(e);
+        } finally {
+            buffer.clear();
+            bufferIds.clear();
+        }
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            super.close();
+            
+            if ( last != null ) {
+                last.close();
+                last = null;
+            }
         }
     }
 }
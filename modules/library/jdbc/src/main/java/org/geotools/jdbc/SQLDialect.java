@@ -1155,6 +1155,73 @@ public abstract class SQLDialect {
         return null;
     }
     
+    /**
+     * Obtains the next <tt>count</tt> values of a sequence, incrementing the sequence in the
+     * process.
+     * <p>
+     * This method is used when inserting features in bulk, the default implementation calls
+     * {@link #getNextSequenceValue(String, String, Connection)} once per value. Subclasses
+     * can override to reserve all the values with a single round trip to the database.
+     * </p>
+     * @param schemaName The schema name, this might be <code>null</code>.
+     * @param sequenceName The name of the sequence.
+     * @param count The number of values to obtain.
+     * @param cx The database connection.
+     *
+     * @return The next values of the sequence, or <code>null</code>.
+     */
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        List<Object> values = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++) {
+            Object value = getNextSequenceValue(schemaName, sequenceName, cx);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+    
+    /**
+     * Returns true if the dialect can load rows with a database specific bulk mechanism, 
+     * see {@link #insertBulk(String, String, List, List, int[], int[], List, Connection)}.
+     * <p>
+     * Default implementation returns <code>false</code>.
+     * </p>
+     */
+    public boolean isBulkInsertSupported() {
+        return false;
+    }
+    
+    /**
+     * Inserts a set of rows into a table using a database specific bulk loading mechanism,
+     * such as the PostgreSQL COPY command.
+     * <p>
+     * This method is called only if {@link #isBulkInsertSupported()} returns <code>true</code>,
+     * and only for rows whose primary key values have been computed before the insert: the
+     * key columns are part of <tt>columnNames</tt> like any other column.
+     * </p>
+     * <p>
+     * This method is given a direct connection to the database, but this connection
+     * should never be closed. However any statements or result sets instantiated
+     * from the connection must be closed.
+     * </p>
+     * @param schemaName The schema name, this might be <code>null</code>.
+     * @param tableName The name of the table.
+     * @param columnNames The names of the columns being loaded.
+     * @param bindings The java type of each column.
+     * @param srids The native srid of each geometry column, -1 for non geometric ones
+     * @param dimensions The native dimension of each geometry column, -1 for non geometric ones
+     * @param rows The rows to be loaded, each one with a value per column
+     * @param cx The database connection.
+     */
+    public void insertBulk(String schemaName, String tableName, List<String> columnNames,
+            List<Class> bindings, int[] srids, int[] dimensions, List<Object[]> rows,
+            Connection cx) throws SQLException, IOException {
+        throw new UnsupportedOperationException("Bulk insert is not supported by this dialect");
+    }
+    
     /**
      * Returns true if this dialect can encode both {@linkplain Query#getStartIndex()}
      * and {@linkplain Query#getMaxFeatures()} into native SQL. 
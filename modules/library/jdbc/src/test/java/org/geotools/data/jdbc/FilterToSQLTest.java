@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -31,6 +33,8 @@ import junit.framework.TestCase;
 import org.geotools.data.jdbc.fidmapper.FIDMapper;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
@@ -40,6 +44,7 @@ import org.opengis.filter.PropertyIsEqualTo;
 import org.opengis.filter.expression.Add;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.spatial.BBOX;
 
 
 
@@ -243,6 +248,33 @@ public class FilterToSQLTest extends TestCase {
         assertEquals("WHERE (id = 'fid1')", output.toString());
     }
     
+    public void testSpatialDisjunction() throws Exception {
+        List<Filter> children = new ArrayList<Filter>();
+        children.add(filterFac.equals(filterFac.property("testAttr"), filterFac.literal(5)));
+        for (int i = 0; i < IndexedSpatialDisjunction.MIN_SIZE; i++) {
+            children.add(filterFac.bbox("geom", i, i, i + 1, i + 1, null));
+        }
+        FilterToSQL encoder = new FilterToSQL(output) {
+            @Override
+            protected FilterCapabilities createFilterCapabilities() {
+                FilterCapabilities caps = super.createFilterCapabilities();
+                caps.addType(BBOX.class);
+                return caps;
+            }
+
+            @Override
+            protected boolean visitSpatialDisjunction(IndexedSpatialDisjunction disjunction,
+                    Object extraData) throws IOException {
+                out.write(disjunction.getProperty().getPropertyName() + " IN "
+                        + disjunction.getSpatialFilters().size() + " BOXES");
+                return true;
+            }
+        };
+        encoder.encode(filterFac.or(children));
+        assertEquals("WHERE (geom IN " + IndexedSpatialDisjunction.MIN_SIZE
+                + " BOXES OR testAttr = 5)", output.toString());
+    }
+
     public void testEscapeQuote() throws FilterToSQLException {
         PropertyIsEqualTo equals = filterFac.equals(filterFac.property("attribute"), filterFac.literal("A'A"));
         encoder.encode(equals);
@@ -149,6 +149,51 @@ public abstract class JDBCFeatureStoreTest extends JDBCTestSupport {
         }
     }
     
+    public void testAddFeaturesBatch() throws IOException {
+        // more features than the batch size, to have both a full and a partial batch
+        dataStore.setBatchInsertSize(2);
+        
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+        
+        FeatureEventWatcher watcher = new FeatureEventWatcher();
+        
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        featureStore.addFeatureListener( watcher );
+        List<FeatureId> fids = featureStore.addFeatures((SimpleFeatureCollection)collection);
+        assertEquals( watcher.bounds, collection.getBounds() );
+        
+        assertEquals(3, fids.size());
+        assertEquals(3, new HashSet<FeatureId>(fids).size());
+
+        SimpleFeatureCollection features = featureStore.getFeatures();
+        assertEquals(6, features.size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        for (int i = 0; i < fids.size(); i++) {
+            FeatureId identifier = fids.get(i);
+            Id filter = ff.id(Collections.singleton(identifier));
+
+            features = featureStore.getFeatures(filter);
+            assertEquals(1, features.size());
+
+            SimpleFeatureIterator iterator = features.features();
+            try {
+                SimpleFeature feature = (SimpleFeature) iterator.next();
+                assertEquals(identifier.getID(), feature.getID());
+                assertEquals(i + 3, ((Number) feature.getAttribute(aname("intProperty"))).intValue());
+            }
+            finally {
+                iterator.close();
+            }
+        }
+    }
+    
     public void testAddInTransaction() throws IOException {
         SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
         DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
@@ -17,6 +17,7 @@
 package org.geotools.jdbc;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureReader;
@@ -33,6 +34,7 @@ import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
 import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -90,6 +92,52 @@ public abstract class JDBCPrimaryKeyTest extends JDBCTestSupport {
         assertPrimaryKeyValues(features,4);
     }
     
+    public void testAutoGeneratedPrimaryKeyBatchInsert() throws Exception {
+        JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("auto"));
+        assertTrue( fs.getPrimaryKey().getColumns().get(0) instanceof AutoGeneratedPrimaryKeyColumn );
+        
+        dataStore.setBatchInsertSize(10);
+        addFeatures(fs.getSchema(), fs);
+        assertPrimaryKeyValues(fs.getFeatures(), 5);
+    }
+    
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("seq"));
+        assertTrue( fs.getPrimaryKey().getColumns().get(0) instanceof SequencedPrimaryKeyColumn );
+        
+        dataStore.setBatchInsertSize(10);
+        addFeatures(fs.getSchema(), fs);
+        assertPrimaryKeyValues(fs.getFeatures(), 5);
+    }
+    
+    public void testNonIncrementingPrimaryKeyBatchInsert() throws Exception {
+        JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("noninc"));
+        assertTrue( fs.getPrimaryKey().getColumns().get(0) instanceof NonIncrementingPrimaryKeyColumn );
+        
+        dataStore.setBatchInsertSize(10);
+        addFeatures(fs.getSchema(), fs);
+        assertPrimaryKeyValues(fs.getFeatures(), 5);
+    }
+    
+    /**
+     * Adds two features in one call, checking the returned identifiers
+     */
+    protected void addFeatures( SimpleFeatureType featureType, JDBCFeatureStore features ) throws Exception {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder( featureType );
+        b.add("four");
+        b.add( new GeometryFactory().createPoint( new Coordinate(4,4) ) );
+        SimpleFeature f4 = b.buildFeature(null);
+        b.add("five");
+        b.add( new GeometryFactory().createPoint( new Coordinate(5,5) ) );
+        SimpleFeature f5 = b.buildFeature(null);
+        
+        List<FeatureId> fids = features.addFeatures(DataUtilities.collection( new SimpleFeature[] { f4, f5 } ) );
+        
+        assertEquals(2, fids.size());
+        assertEquals(tname(featureType.getTypeName()) + ".4", fids.get(0).getID());
+        assertEquals(tname(featureType.getTypeName()) + ".5", fids.get(1).getID());
+    }
+    
     protected void addFeature( SimpleFeatureType featureType, JDBCFeatureStore features ) throws Exception {
         SimpleFeatureBuilder b = new SimpleFeatureBuilder( featureType );
         b.add("four");
@@ -16,12 +16,16 @@
  */
 package org.geotools.jdbc;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Literal;
@@ -100,6 +104,19 @@ public abstract class JDBCSpatialFiltersTest extends JDBCTestSupport {
         checkSingleResult(features, "r2");
     }
 
+    public void testLargeBboxDisjunction() throws Exception {
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+        // should match only "r2", the other boxes are far away from the data
+        List<Filter> boxes = new ArrayList<Filter>();
+        for (int i = 0; i < 50; i++) {
+            boxes.add(ff.bbox(aname("geom"), 20 + i, 20, 21 + i, 21, "EPSG:4326"));
+        }
+        boxes.add(ff.bbox(aname("geom"), 2, 3, 4, 5, "EPSG:4326"));
+        FeatureCollection features = dataStore.getFeatureSource(tname("road")).getFeatures(
+                ff.or(boxes));
+        checkSingleResult(features, "r2");
+    }
+
     public void testCrossesFilter() throws Exception {
         FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
         // should match only "r2"
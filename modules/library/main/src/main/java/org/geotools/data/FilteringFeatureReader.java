@@ -17,10 +17,14 @@
 package org.geotools.data;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.NoSuchElementException;
 
 import org.geotools.feature.IllegalAttributeException;
+import org.geotools.filter.batch.BatchFilterEvaluator;
 import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
 
@@ -38,6 +42,12 @@ import org.opengis.filter.Filter;
  * <p>
  * Jody here - changed hasNext() to peek as required.
  * </p>
+ * 
+ * <p>
+ * Simple features are read ahead in batches of {@link #BATCH_SIZE} and evaluated at once by a
+ * {@link BatchFilterEvaluator} compiled against the feature type, unless no part of the filter
+ * can be compiled.
+ * </p>
  *
  * @author Chris Holmes
  *
@@ -50,6 +60,19 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
     protected final Filter filter;
     protected F next;
 
+    /** The number of features read ahead and filtered at once */
+    public static final int BATCH_SIZE = 256;
+
+    private BatchFilterEvaluator evaluator;
+
+    private SimpleFeature[] batch;
+
+    private int batchCount;
+
+    private BitSet matches;
+
+    private int position;
+
     /**
      * Creates a new instance of AbstractFeatureReader
      * 
@@ -65,6 +88,16 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
         this.featureReader = featureReader;
         this.filter = filter;
         next = null;
+
+        T type = featureReader.getFeatureType();
+        if (type instanceof SimpleFeatureType && filter != null) {
+            evaluator = BatchFilterEvaluator.compile(filter, (SimpleFeatureType) type);
+            if (evaluator.isInterpreted()) {
+                evaluator = null;
+            } else {
+                batch = new SimpleFeature[BATCH_SIZE];
+            }
+        }
     }
 
     /**
@@ -121,6 +154,9 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
         if (next != null) {
             return true;
         }
+        if (evaluator != null) {
+            return nextMatch();
+        }
         try {
             F peek;
 
@@ -137,4 +173,42 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
         }
         return next != null;
     }
+
+    /**
+     * Looks for the next matching feature in the current batch, reading and filtering new batches
+     * as needed
+     */
+    @SuppressWarnings("unchecked")
+    private boolean nextMatch() throws IOException {
+        while (true) {
+            if (matches != null) {
+                int i = matches.nextSetBit(position);
+                if (i >= 0 && i < batchCount) {
+                    next = (F) batch[i];
+                    batch[i] = null;
+                    position = i + 1;
+                    return true;
+                }
+            }
+
+            // read the next batch
+            for (int i = 0; i < batchCount; i++) {
+                batch[i] = null;
+            }
+            batchCount = 0;
+            matches = null;
+            position = 0;
+            try {
+                while (batchCount < batch.length && featureReader.hasNext()) {
+                    batch[batchCount++] = (SimpleFeature) featureReader.next();
+                }
+            } catch (IllegalAttributeException e) {
+                throw new DataSourceException("Could not peek ahead", e);
+            }
+            if (batchCount == 0) {
+                return false;
+            }
+            matches = evaluator.evaluate(batch, batchCount);
+        }
+    }
 }
@@ -0,0 +1,548 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.store.EmptyFeatureCollection;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.collection.BaseSimpleFeatureCollection;
+import org.geotools.feature.collection.FilteringSimpleFeatureCollection;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.resources.NIOUtilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A spatially indexed feature collection keeping both the features and the index out of the Java
+ * heap, meant to stage large amounts of features for display without the memory and garbage
+ * collection overhead of {@link SpatialIndexFeatureCollection}.
+ * <p>
+ * The features are encoded with a {@link SimpleFeatureCodec} into pages of direct memory, and
+ * decoded only when iterated. The index is a packed R-tree, built with the Sort-Tile-Recursive
+ * algorithm the first time the collection is read, and stored in a direct buffer as well: each
+ * entry holds the bounds and either the address of a feature or the range of the children.
+ * </p>
+ * <p>
+ * As with {@link SpatialIndexFeatureCollection}, features can be added only until the index is
+ * built. The direct memory is released by {@link #dispose()}, or when the collection is garbage
+ * collected.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class OffHeapSpatialIndexFeatureCollection extends BaseSimpleFeatureCollection {
+
+    /** The default size of the direct memory pages holding the features */
+    public static final int DEFAULT_PAGE_SIZE = 16 * 1024 * 1024;
+
+    static final int NODE_SIZE = 16;
+
+    /** Four doubles for the bounds, and a long for the feature address or the children range */
+    static final int ENTRY_SIZE = 40;
+
+    int pageSize;
+
+    SimpleFeatureCodec codec;
+
+    List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+
+    ByteBuffer page;
+
+    /** The leaves, in insertion order, before the tree is built */
+    ByteBuffer leaves;
+
+    int count;
+
+    ByteBuffer tree;
+
+    int numNodes;
+
+    int numLevels;
+
+    public OffHeapSpatialIndexFeatureCollection(SimpleFeatureType schema) {
+        this(schema, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param schema
+     * @param pageSize The size of the direct memory pages holding the features
+     */
+    public OffHeapSpatialIndexFeatureCollection(SimpleFeatureType schema, int pageSize) {
+        super(schema);
+        if (!SimpleFeatureCodec.canEncode(schema)) {
+            throw new IllegalArgumentException("The attributes of " + schema.getTypeName()
+                    + " cannot be all serialized");
+        }
+        this.pageSize = pageSize;
+        this.codec = new SimpleFeatureCodec(schema);
+    }
+
+    public OffHeapSpatialIndexFeatureCollection(SimpleFeatureCollection copy) throws IOException {
+        this(copy.getSchema());
+        addAll(copy);
+    }
+
+    /**
+     * Adds a feature to the collection
+     *
+     * @param feature
+     * @throws IOException If the feature could not be encoded
+     * @throws IllegalStateException If the index has already been built
+     */
+    public synchronized void add(SimpleFeature feature) throws IOException {
+        if (tree != null) {
+            throw new IllegalStateException(
+                    "Cannot add features once the spatial index has been built");
+        }
+
+        // store the feature
+        ByteBuffer encoded = codec.encode(feature);
+        int size = encoded.remaining();
+        if (page == null || page.remaining() < size) {
+            page = ByteBuffer.allocateDirect(Math.max(pageSize, size));
+            pages.add(page);
+        }
+        long address = ((long) (pages.size() - 1) << 32) | page.position();
+        page.put(encoded);
+
+        // and its bounds, features without bounds are never returned by spatial searches
+        if (leaves == null) {
+            leaves = ByteBuffer.allocateDirect(ENTRY_SIZE * 1024);
+        } else if (leaves.remaining() < ENTRY_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(leaves.capacity() * 2);
+            leaves.flip();
+            grown.put(leaves);
+            NIOUtilities.clean(leaves);
+            leaves = grown;
+        }
+        BoundingBox bounds = feature.getBounds();
+        if (bounds == null || bounds.isEmpty()) {
+            leaves.putDouble(Double.POSITIVE_INFINITY);
+            leaves.putDouble(Double.POSITIVE_INFINITY);
+            leaves.putDouble(Double.NEGATIVE_INFINITY);
+            leaves.putDouble(Double.NEGATIVE_INFINITY);
+        } else {
+            leaves.putDouble(bounds.getMinX());
+            leaves.putDouble(bounds.getMinY());
+            leaves.putDouble(bounds.getMaxX());
+            leaves.putDouble(bounds.getMaxY());
+        }
+        leaves.putLong(address);
+        count++;
+    }
+
+    public void addAll(Collection<? extends SimpleFeature> features) throws IOException {
+        for (SimpleFeature feature : features) {
+            add(feature);
+        }
+    }
+
+    public void addAll(
+            FeatureCollection<? extends SimpleFeatureType, ? extends SimpleFeature> collection)
+            throws IOException {
+        FeatureIterator<? extends SimpleFeature> iter = collection.features();
+        try {
+            while (iter.hasNext()) {
+                add(iter.next());
+            }
+        } finally {
+            iter.close();
+        }
+    }
+
+    /**
+     * Builds the index if not done already, and returns it
+     */
+    synchronized ByteBuffer getTree() {
+        if (tree == null) {
+            buildTree();
+        }
+        return tree;
+    }
+
+    void buildTree() {
+        numNodes = count;
+        numLevels = 1;
+        int levelSize = count;
+        while (levelSize > 1) {
+            levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+            numNodes += levelSize;
+            numLevels++;
+        }
+        tree = ByteBuffer.allocateDirect(Math.max(1, numNodes) * ENTRY_SIZE);
+
+        // copy the leaves in STR order
+        int[] order = sortTileRecursive();
+        for (int i = 0; i < count; i++) {
+            copyEntry(leaves, order[i], tree, i);
+        }
+        if (leaves != null) {
+            NIOUtilities.clean(leaves);
+            leaves = null;
+        }
+
+        // pack the upper levels
+        int levelStart = 0;
+        int levelEnd = count;
+        int node = count;
+        while (levelEnd - levelStart > 1) {
+            for (int child = levelStart; child < levelEnd; child += NODE_SIZE) {
+                int end = Math.min(child + NODE_SIZE, levelEnd);
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int c = child; c < end; c++) {
+                    int p = c * ENTRY_SIZE;
+                    minX = Math.min(minX, tree.getDouble(p));
+                    minY = Math.min(minY, tree.getDouble(p + 8));
+                    maxX = Math.max(maxX, tree.getDouble(p + 16));
+                    maxY = Math.max(maxY, tree.getDouble(p + 24));
+                }
+                int p = node * ENTRY_SIZE;
+                tree.putDouble(p, minX);
+                tree.putDouble(p + 8, minY);
+                tree.putDouble(p + 16, maxX);
+                tree.putDouble(p + 24, maxY);
+                tree.putInt(p + 32, child);
+                tree.putInt(p + 36, end - child);
+                node++;
+            }
+            levelStart = levelEnd;
+            levelEnd = node;
+        }
+    }
+
+    static void copyEntry(ByteBuffer source, int sourceEntry, ByteBuffer target, int targetEntry) {
+        int s = sourceEntry * ENTRY_SIZE;
+        int t = targetEntry * ENTRY_SIZE;
+        target.putDouble(t, source.getDouble(s));
+        target.putDouble(t + 8, source.getDouble(s + 8));
+        target.putDouble(t + 16, source.getDouble(s + 16));
+        target.putDouble(t + 24, source.getDouble(s + 24));
+        target.putLong(t + 32, source.getLong(s + 32));
+    }
+
+    /**
+     * Sorts the leaves in vertical slices by the x of their centers, then each slice by the y of
+     * their centers, returning the leaf positions in the resulting order
+     */
+    int[] sortTileRecursive() {
+        int[] order = new int[count];
+        if (count == 0) {
+            return order;
+        }
+
+        // the keys hold the quantized ordinate in the upper bits, the position in the lower 31
+        long[] keys = new long[count];
+        double[] range = centerRange();
+        for (int i = 0; i < count; i++) {
+            keys[i] = (quantize(centerX(i), range[0], range[2]) << 31) | i;
+        }
+        Arrays.sort(keys);
+
+        int leafNodes = (count + NODE_SIZE - 1) / NODE_SIZE;
+        int slices = (int) Math.ceil(Math.sqrt(leafNodes));
+        int sliceSize = ((leafNodes + slices - 1) / slices) * NODE_SIZE;
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(start + sliceSize, count);
+            for (int i = start; i < end; i++) {
+                int leaf = (int) (keys[i] & Integer.MAX_VALUE);
+                keys[i] = (quantize(centerY(leaf), range[1], range[3]) << 31) | leaf;
+            }
+            Arrays.sort(keys, start, end);
+        }
+
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    double centerX(int leaf) {
+        int p = leaf * ENTRY_SIZE;
+        return (leaves.getDouble(p) + leaves.getDouble(p + 16)) / 2;
+    }
+
+    double centerY(int leaf) {
+        int p = leaf * ENTRY_SIZE;
+        return (leaves.getDouble(p + 8) + leaves.getDouble(p + 24)) / 2;
+    }
+
+    /**
+     * Returns the min x, min y, max x, max y of the leaf centers
+     */
+    double[] centerRange() {
+        double[] range = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (int i = 0; i < count; i++) {
+            double x = centerX(i);
+            double y = centerY(i);
+            // the centers of features without bounds are NaN
+            if (!Double.isNaN(x)) {
+                range[0] = Math.min(range[0], x);
+                range[1] = Math.min(range[1], y);
+                range[2] = Math.max(range[2], x);
+                range[3] = Math.max(range[3], y);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Maps the value on 32 bits, NaN values go first
+     */
+    static long quantize(double value, double min, double max) {
+        if (!(max > min) || Double.isNaN(value)) {
+            return 0;
+        }
+        return (long) ((value - min) / (max - min) * 0xFFFFFFFFL);
+    }
+
+    public SimpleFeatureIterator features() {
+        return new OffHeapFeatureIterator(getTree(), null);
+    }
+
+    /**
+     * Returns the features whose bounds intersect the specified envelope
+     *
+     * @param bbox
+     */
+    public SimpleFeatureIterator features(Envelope bbox) {
+        return new OffHeapFeatureIterator(getTree(), bbox);
+    }
+
+    @Override
+    public SimpleFeatureCollection subCollection(Filter filter) {
+        if (filter == Filter.INCLUDE) {
+            return this;
+        }
+        if (filter == Filter.EXCLUDE) {
+            return new EmptyFeatureCollection(schema);
+        }
+        Envelope bounds = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                null);
+        if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                || Double.isInfinite(bounds.getHeight())) {
+            return new FilteringSimpleFeatureCollection(this, filter);
+        }
+        return new FilteringSimpleFeatureCollection(new BoundedCollection(bounds), filter);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() {
+        ByteBuffer tree = getTree();
+        if (numNodes == 0) {
+            return new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+        }
+        int p = (numNodes - 1) * ENTRY_SIZE;
+        double minX = tree.getDouble(p);
+        double maxX = tree.getDouble(p + 16);
+        if (minX > maxX) {
+            // none of the features has bounds
+            return new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+        }
+        return new ReferencedEnvelope(minX, maxX, tree.getDouble(p + 8), tree.getDouble(p + 24),
+                schema.getCoordinateReferenceSystem());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof SimpleFeature)) {
+            return false;
+        }
+        SimpleFeature feature = (SimpleFeature) o;
+        BoundingBox bounds = feature.getBounds();
+        SimpleFeatureIterator it;
+        if (bounds == null || bounds.isEmpty()) {
+            it = features();
+        } else {
+            it = features(ReferencedEnvelope.reference(bounds));
+        }
+        try {
+            while (it.hasNext()) {
+                if (feature.equals(it.next())) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            it.close();
+        }
+    }
+
+    /**
+     * Releases the direct memory held by the collection, which cannot be used afterwards. Make
+     * sure no iterator is still open when calling this method.
+     */
+    public synchronized void dispose() {
+        for (ByteBuffer buffer : pages) {
+            NIOUtilities.clean(buffer);
+        }
+        pages.clear();
+        page = null;
+        if (leaves != null) {
+            NIOUtilities.clean(leaves);
+            leaves = null;
+        }
+        if (tree != null) {
+            NIOUtilities.clean(tree);
+        }
+        // leave an empty tree behind, so that the collection looks empty
+        tree = ByteBuffer.allocate(ENTRY_SIZE);
+        count = 0;
+        numNodes = 0;
+    }
+
+    /**
+     * Walks the tree depth first, decoding the features of the matching leaves. When no bounding
+     * box is provided the leaves are simply scanned in order.
+     */
+    class OffHeapFeatureIterator implements SimpleFeatureIterator {
+
+        ByteBuffer tree;
+
+        Envelope bbox;
+
+        SimpleFeatureCodec decoder = new SimpleFeatureCodec(schema);
+
+        ByteBuffer[] views = new ByteBuffer[pages.size()];
+
+        int[] stack;
+
+        int stackSize;
+
+        /** the next leaf to scan when there is no bbox, or a matching leaf found by the search */
+        int leaf;
+
+        boolean leafFound;
+
+        OffHeapFeatureIterator(ByteBuffer tree, Envelope bbox) {
+            this.tree = tree;
+            this.bbox = bbox;
+            if (bbox != null) {
+                stack = new int[numLevels * NODE_SIZE + 1];
+                if (numNodes > 0) {
+                    stack[stackSize++] = numNodes - 1;
+                }
+            }
+        }
+
+        boolean intersects(int node) {
+            int p = node * ENTRY_SIZE;
+            return !(tree.getDouble(p) > bbox.getMaxX() || tree.getDouble(p + 16) < bbox.getMinX()
+                    || tree.getDouble(p + 8) > bbox.getMaxY() || tree.getDouble(p + 24) < bbox
+                    .getMinY());
+        }
+
+        public boolean hasNext() {
+            if (bbox == null) {
+                return leaf < count;
+            }
+            while (!leafFound && stackSize > 0) {
+                int node = stack[--stackSize];
+                if (!intersects(node)) {
+                    continue;
+                }
+                if (node < count) {
+                    leaf = node;
+                    leafFound = true;
+                } else {
+                    int p = node * ENTRY_SIZE;
+                    int first = tree.getInt(p + 32);
+                    // push in reverse order so that the children are visited in tree order
+                    for (int child = first + tree.getInt(p + 36) - 1; child >= first; child--) {
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+            return leafFound;
+        }
+
+        public SimpleFeature next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more features in this collection");
+            }
+            long address = tree.getLong(leaf * ENTRY_SIZE + 32);
+            if (bbox == null) {
+                leaf++;
+            } else {
+                leafFound = false;
+            }
+
+            int pageIndex = (int) (address >>> 32);
+            ByteBuffer view = views[pageIndex];
+            if (view == null) {
+                view = pages.get(pageIndex).duplicate();
+                views[pageIndex] = view;
+            }
+            view.position((int) address);
+            try {
+                return decoder.decode(view);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to decode the feature", e);
+            }
+        }
+
+        public void close() {
+            views = null;
+        }
+    }
+
+    /**
+     * The features intersecting a bounding box, to be further filtered
+     */
+    class BoundedCollection extends BaseSimpleFeatureCollection {
+
+        Envelope bbox;
+
+        BoundedCollection(Envelope bbox) {
+            super(OffHeapSpatialIndexFeatureCollection.this.schema);
+            this.bbox = bbox;
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            return OffHeapSpatialIndexFeatureCollection.this.features(bbox);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.InStream;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Encodes simple features of a given type in a compact binary form, and decodes them back
+ * straight out of a {@link ByteBuffer}, be it a heap, direct or memory mapped one.
+ * <p>
+ * No type metadata is written for the attributes, the feature type drives both the encoding and
+ * the decoding: each attribute is a null marker followed by the primitive value for numbers,
+ * booleans and dates, UTF-8 for strings, WKB for geometries, and java serialization for anything
+ * else. The bindings are compared by identity, a subclass of a known type is serialized.
+ * </p>
+ * <p>
+ * Instances keep reusable buffers around and are not thread safe.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class SimpleFeatureCodec {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    SimpleFeatureType schema;
+
+    List<AttributeDescriptor> attributes;
+
+    SimpleFeatureBuilder builder;
+
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    WKBWriter writer2D = new WKBWriter(2);
+
+    WKBWriter writer3D = new WKBWriter(3);
+
+    WKBReader reader = new WKBReader();
+
+    public SimpleFeatureCodec(SimpleFeatureType schema) {
+        this.schema = schema;
+        this.attributes = schema.getAttributeDescriptors();
+        this.builder = new SimpleFeatureBuilder(schema);
+    }
+
+    /**
+     * Returns true if all the attributes of the type can be encoded, that is, their bindings are
+     * serializable
+     *
+     * @param schema
+     */
+    public static boolean canEncode(SimpleFeatureType schema) {
+        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
+            Class<?> binding = ad.getType().getBinding();
+            if (!binding.isPrimitive() && !Serializable.class.isAssignableFrom(binding)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SimpleFeatureType getSchema() {
+        return schema;
+    }
+
+    /**
+     * Encodes the feature. The returned buffer is ready to be read, and is valid only until the
+     * next call to this method.
+     *
+     * @param feature
+     * @throws IOException
+     */
+    public ByteBuffer encode(SimpleFeature feature) throws IOException {
+        buffer.clear();
+        String fid = feature.getID();
+        if (fid == null) {
+            ensureCapacity(4);
+            buffer.putInt(-1);
+        } else {
+            putBytes(fid.getBytes(UTF8));
+        }
+        for (int i = 0; i < attributes.size(); i++) {
+            encodeAttribute(attributes.get(i), feature.getAttribute(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    void encodeAttribute(AttributeDescriptor ad, Object value) throws IOException {
+        ensureCapacity(9);
+        if (value == null) {
+            buffer.put((byte) 1);
+            return;
+        }
+        buffer.put((byte) 0);
+        Class<?> binding = ad.getType().getBinding();
+        if (binding == Boolean.class || binding == boolean.class) {
+            buffer.put(((Boolean) value).booleanValue() ? (byte) 1 : (byte) 0);
+        } else if (binding == Byte.class || binding == byte.class) {
+            buffer.put((Byte) value);
+        } else if (binding == Short.class || binding == short.class) {
+            buffer.putShort((Short) value);
+        } else if (binding == Integer.class || binding == int.class) {
+            buffer.putInt((Integer) value);
+        } else if (binding == Long.class || binding == long.class) {
+            buffer.putLong((Long) value);
+        } else if (binding == Float.class || binding == float.class) {
+            buffer.putFloat((Float) value);
+        } else if (binding == Double.class || binding == double.class) {
+            buffer.putDouble((Double) value);
+        } else if (binding == String.class) {
+            putBytes(((String) value).getBytes(UTF8));
+        } else if (binding == java.sql.Date.class || binding == java.sql.Time.class
+                || binding == java.sql.Timestamp.class || binding == java.util.Date.class) {
+            buffer.putLong(((Date) value).getTime());
+        } else if (Geometry.class.isAssignableFrom(binding)) {
+            Geometry geometry = (Geometry) value;
+            Coordinate sample = geometry.getCoordinate();
+            WKBWriter writer = sample != null && !Double.isNaN(sample.z) ? writer3D : writer2D;
+            putBytes(writer.write(geometry));
+        } else {
+            // can't optimize, in this case we use an ObjectOutputStream to write out
+            // full metadata
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(value);
+            oos.flush();
+            putBytes(bos.toByteArray());
+        }
+    }
+
+    void putBytes(byte[] bytes) {
+        ensureCapacity(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Decodes a feature starting at the current position of the buffer, and moves the position
+     * past it
+     *
+     * @param source
+     * @throws IOException
+     */
+    public SimpleFeature decode(ByteBuffer source) throws IOException {
+        int fidLength = source.getInt();
+        String fid = fidLength < 0 ? null : getString(source, fidLength);
+        for (int i = 0; i < attributes.size(); i++) {
+            builder.add(decodeAttribute(attributes.get(i), source));
+        }
+        return builder.buildFeature(fid);
+    }
+
+    Object decodeAttribute(AttributeDescriptor ad, ByteBuffer source) throws IOException {
+        boolean isNull = source.get() != 0;
+        if (isNull) {
+            return null;
+        }
+        Class<?> binding = ad.getType().getBinding();
+        if (binding == Boolean.class || binding == boolean.class) {
+            return source.get() != 0;
+        } else if (binding == Byte.class || binding == byte.class) {
+            return source.get();
+        } else if (binding == Short.class || binding == short.class) {
+            return source.getShort();
+        } else if (binding == Integer.class || binding == int.class) {
+            return source.getInt();
+        } else if (binding == Long.class || binding == long.class) {
+            return source.getLong();
+        } else if (binding == Float.class || binding == float.class) {
+            return source.getFloat();
+        } else if (binding == Double.class || binding == double.class) {
+            return source.getDouble();
+        } else if (binding == String.class) {
+            return getString(source, source.getInt());
+        } else if (binding == java.sql.Date.class) {
+            return new java.sql.Date(source.getLong());
+        } else if (binding == java.sql.Time.class) {
+            return new java.sql.Time(source.getLong());
+        } else if (binding == java.sql.Timestamp.class) {
+            return new java.sql.Timestamp(source.getLong());
+        } else if (binding == java.util.Date.class) {
+            return new java.util.Date(source.getLong());
+        } else if (Geometry.class.isAssignableFrom(binding)) {
+            int length = source.getInt();
+            int end = source.position() + length;
+            try {
+                // read the WKB in place, no need to copy it out of the buffer first
+                return reader.read(new ByteBufferInStream(source));
+            } catch (ParseException e) {
+                throw new IOException("Failed to parse the geometry WKB", e);
+            } finally {
+                source.position(end);
+            }
+        } else {
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Could not read back object", e);
+            }
+        }
+    }
+
+    String getString(ByteBuffer source, int length) {
+        if (source.hasArray()) {
+            String result = new String(source.array(), source.arrayOffset() + source.position(),
+                    length, UTF8);
+            source.position(source.position() + length);
+            return result;
+        } else {
+            byte[] bytes = new byte[length];
+            source.get(bytes);
+            return new String(bytes, UTF8);
+        }
+    }
+
+    /**
+     * Feeds the WKB reader directly from the buffer
+     */
+    static class ByteBufferInStream implements InStream {
+        ByteBuffer source;
+
+        ByteBufferInStream(ByteBuffer source) {
+            this.source = source;
+        }
+
+        public void read(byte[] buf) throws IOException {
+            source.get(buf);
+        }
+    }
+}
@@ -63,7 +63,7 @@ import com.vividsolutions.jts.geom.Geometry;
  * @source $URL$
  */
 public class SpatialIndexFeatureSource implements SimpleFeatureSource {
-    SpatialIndexFeatureCollection contents;
+    SimpleFeatureCollection contents;
 
     private static FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
 
@@ -75,6 +75,10 @@ public class SpatialIndexFeatureSource implements SimpleFeatureSource {
         this.contents = original;
     }
 
+    public SpatialIndexFeatureSource(OffHeapSpatialIndexFeatureCollection original) {
+        this.contents = original;
+    }
+
     public void addFeatureListener(FeatureListener listener) {
     }
 
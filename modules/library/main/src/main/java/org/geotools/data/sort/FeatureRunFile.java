@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The temporary file holding all the sorted runs of a merge sort. Runs are written as blocks
+ * appended at the end of the file, so that several runs can be written in parallel, each one
+ * keeping track of the offsets of its own blocks. A single file descriptor is used regardless of
+ * the number of runs.
+ *
+ * @source $URL$
+ */
+class FeatureRunFile {
+
+    File file;
+
+    RandomAccessFile raf;
+
+    FileChannel channel;
+
+    long size;
+
+    public FeatureRunFile() throws IOException {
+        file = File.createTempFile("sorted", ".features");
+        try {
+            raf = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Appends a block at the end of the file
+     *
+     * @return the offset of the block in the file
+     * @throws IOException
+     */
+    public synchronized long append(ByteBuffer block) throws IOException {
+        long offset = size;
+        long position = offset;
+        while (block.hasRemaining()) {
+            position += channel.write(block, position);
+        }
+        size = position;
+        return offset;
+    }
+
+    /**
+     * Reads into the buffer starting at the specified offset, safe to be called concurrently
+     *
+     * @return the number of bytes read
+     * @throws IOException
+     */
+    public int read(ByteBuffer buffer, long offset) throws IOException {
+        return channel.read(buffer, offset);
+    }
+
+    /**
+     * Closes and removes the file
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        try {
+            raf.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.geotools.data.collection.SimpleFeatureCodec;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Reads back the sorted features of a run written by {@link FeatureRunWriter}, following its
+ * blocks in the shared {@link FeatureRunFile}. The blocks are read through a small buffer, so that
+ * many runs can be merged at the same time with a bounded amount of memory, and the features are
+ * decoded straight out of it
+ *
+ * @source $URL$
+ */
+class FeatureRunReader {
+
+    /**
+     * The size of the read buffer, a larger one is used if a single feature does not fit in it
+     */
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    FeatureRunFile file;
+
+    long[] offsets;
+
+    int[] lengths;
+
+    int blocks;
+
+    /** The block being read, and the amount of bytes already read from it */
+    int block;
+
+    long blockPosition;
+
+    ByteBuffer buffer;
+
+    SimpleFeatureCodec codec;
+
+    SimpleFeature curr;
+
+    int count;
+
+    public FeatureRunReader(FeatureRunWriter run) {
+        this.file = run.runFile;
+        this.offsets = run.offsets;
+        this.lengths = run.lengths;
+        this.blocks = run.blocks;
+        this.count = run.count;
+        this.codec = new SimpleFeatureCodec(run.schema);
+        this.buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        buffer.limit(0);
+    }
+
+    public SimpleFeature feature() throws IOException {
+        if (curr == null && count > 0) {
+            curr = readNextFeature();
+        }
+        return curr;
+    }
+
+    public SimpleFeature next() throws IOException {
+        curr = readNextFeature();
+        return curr;
+    }
+
+    private SimpleFeature readNextFeature() throws IOException {
+        if (count <= 0) {
+            return null;
+        }
+
+        // each feature is prefixed by its encoded length
+        ensureAvailable(4);
+        int length = buffer.getInt();
+        ensureAvailable(length);
+        int start = buffer.position();
+        SimpleFeature feature = codec.decode(buffer);
+        buffer.position(start + length);
+        count--;
+
+        return feature;
+    }
+
+    /**
+     * Makes sure the buffer contains at least the specified amount of bytes past the current
+     * position, reading the next blocks of the run if necessary
+     *
+     * @param bytes
+     * @throws IOException
+     */
+    void ensureAvailable(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.hasRemaining() && block < blocks) {
+            long available = lengths[block] - blockPosition;
+            if (available == 0) {
+                block++;
+                blockPosition = 0;
+                continue;
+            }
+            int limit = buffer.limit();
+            buffer.limit((int) Math.min(limit, buffer.position() + available));
+            int read = file.read(buffer, offsets[block] + blockPosition);
+            buffer.limit(limit);
+            if (read < 0) {
+                break;
+            }
+            blockPosition += read;
+        }
+        buffer.flip();
+        if (buffer.remaining() < bytes) {
+            throw new IOException("Unexpected end of the sorted run in " + file.file);
+        }
+    }
+
+    /**
+     * Releases the read buffer, the run file is closed by its owner
+     */
+    public void close() {
+        buffer = null;
+        count = 0;
+        curr = null;
+    }
+
+}
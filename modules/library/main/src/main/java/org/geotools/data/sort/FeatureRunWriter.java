@@ -0,0 +1,167 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.geotools.data.collection.SimpleFeatureCodec;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Writes a sorted run into the shared {@link FeatureRunFile}, as a sequence of length prefixed
+ * features encoded by {@link SimpleFeatureCodec}. The run is buffered and appended to the file a
+ * block at a time, keeping track of the block offsets, so that several runs can be written in
+ * parallel. As a {@link Callable} the writer sorts its block of features and writes them out,
+ * otherwise already sorted features can be written one by one, as done when merging runs.
+ *
+ * @source $URL$
+ */
+class FeatureRunWriter implements Callable<FeatureRunWriter> {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    List<SimpleFeature> features;
+
+    Comparator<SimpleFeature> comparator;
+
+    SimpleFeatureType schema;
+
+    FeatureRunFile runFile;
+
+    SimpleFeatureCodec codec;
+
+    ByteBuffer output;
+
+    long[] offsets = new long[4];
+
+    int[] lengths = new int[4];
+
+    int blocks;
+
+    int count;
+
+    long bytes;
+
+    /**
+     * Builds a writer that will sort and write out the features when called
+     */
+    public FeatureRunWriter(List<SimpleFeature> features, Comparator<SimpleFeature> comparator,
+            SimpleFeatureType schema, FeatureRunFile runFile) {
+        this.features = features;
+        this.comparator = comparator;
+        this.schema = schema;
+        this.runFile = runFile;
+    }
+
+    /**
+     * Builds a writer for features that are already sorted, see {@link #write(SimpleFeature)}
+     */
+    public FeatureRunWriter(SimpleFeatureType schema, FeatureRunFile runFile) {
+        this(null, null, schema, runFile);
+    }
+
+    public FeatureRunWriter call() throws IOException {
+        try {
+            Collections.sort(features, comparator);
+            for (SimpleFeature feature : features) {
+                write(feature);
+            }
+            finish();
+        } finally {
+            // the features are not needed anymore, let them be collected
+            features = null;
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds a feature at the end of the run
+     *
+     * @throws IOException
+     */
+    public void write(SimpleFeature feature) throws IOException {
+        if (output == null) {
+            codec = new SimpleFeatureCodec(schema);
+            output = ByteBuffer.allocate(BLOCK_SIZE);
+        }
+
+        ByteBuffer encoded = codec.encode(feature);
+        int length = encoded.remaining();
+        if (output.remaining() < 4 + length) {
+            flush();
+        }
+        output.putInt(length);
+        if (output.remaining() < length) {
+            // larger than a block, write it as a block of its own
+            flush();
+            append(encoded);
+        } else {
+            output.put(encoded);
+        }
+        bytes += 4 + length;
+        count++;
+    }
+
+    /**
+     * Writes out the buffered features, the run is complete afterwards
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (output != null) {
+            flush();
+            output = null;
+            codec = null;
+        }
+    }
+
+    void flush() throws IOException {
+        output.flip();
+        if (output.hasRemaining()) {
+            append(output);
+        }
+        output.clear();
+    }
+
+    void append(ByteBuffer block) throws IOException {
+        int length = block.remaining();
+        long offset = runFile.append(block);
+        if (blocks == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blocks * 2);
+            lengths = Arrays.copyOf(lengths, blocks * 2);
+        }
+        offsets[blocks] = offset;
+        lengths[blocks] = length;
+        blocks++;
+    }
+
+    /**
+     * Opens a reader on the sorted run
+     */
+    public FeatureRunReader getReader() {
+        return new FeatureRunReader(this);
+    }
+
+}
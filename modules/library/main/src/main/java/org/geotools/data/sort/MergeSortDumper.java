@@ -16,24 +16,29 @@
  */
 package org.geotools.data.sort;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.io.RandomAccessFile;
-import java.io.Serializable;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.geotools.data.Query;
 import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.collection.SimpleFeatureCodec;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.geotools.factory.Hints;
+import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -41,21 +46,31 @@ import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
 
 import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.io.WKBWriter;
 
 class MergeSortDumper {
 
+    static final Logger LOGGER = Logging.getLogger(MergeSortDumper.class);
+
+    /**
+     * When generating the runs in parallel the memory budget is split among this many runs, the
+     * one being filled and the ones being sorted and written out
+     */
+    static final int PARALLEL_RUNS = 4;
+
+    /**
+     * The maximum number of runs merged at the same time. When there are more runs they are
+     * merged in groups into longer runs first, so that memory usage stays bounded
+     */
+    static final int MERGE_FAN_IN = 64;
+
     static final boolean canSort(SimpleFeatureType schema, SortBy[] sortBy) {
         if (sortBy == SortBy.UNSORTED) {
             return true;
         }
 
-        // check all attributes are serializable
-        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
-            Class<?> binding = ad.getType().getBinding();
-            if (!Serializable.class.isAssignableFrom(binding)) {
-                return false;
-            }
+        // check all attributes can be encoded
+        if (!SimpleFeatureCodec.canEncode(schema)) {
+            return false;
         }
 
         // check all sorting attributes are comparable
@@ -74,13 +89,6 @@ class MergeSortDumper {
         return true;
     }
 
-    static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, Query query)
-            throws IOException {
-        int maxFeatures = getMaxFeatures(query);
-
-        return getDelegateReader(reader, query.getSortBy(), maxFeatures);
-    }
-
     /**
      * Gets the max amount amount of features to keep in memory from the query and system hints
      * 
@@ -101,8 +109,22 @@ class MergeSortDumper {
         return maxFeatures;
     }
 
+    /**
+     * Sorts the reader contents. If they do not fit in memory, sorted runs are spilled to disk and
+     * merged back by the returned reader.
+     * 
+     * @param reader The reader to be sorted, it will be closed by this method
+     * @param sortBy The sorting directives
+     * @param maxFeatures The maximum number of features to keep in memory, or a negative number to
+     *        use the system default
+     * @param executor If not null, the runs are sorted and written out in parallel using it
+     * @param statistics Receives the memory budget and spill counts of this sort
+     * @return
+     * @throws IOException
+     */
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
-            int maxFeatures) throws IOException {
+            int maxFeatures, ExecutorService executor, MergeSortStatistics statistics)
+            throws IOException {
         if (maxFeatures < 0) {
             maxFeatures = getMaxFeatures(Query.ALL);
         }
@@ -121,35 +143,45 @@ class MergeSortDumper {
                             + "sorting properties are not comparable or the attributes are not serializable");
         }
 
-        int count = 0;
-        File file = null;
-        RandomAccessFile raf = null;
+        // when sorting in parallel several runs share the memory budget: at most the run being
+        // filled plus PARALLEL_RUNS - 1 runs being sorted and written out are in memory
+        int runSize = maxFeatures;
+        Semaphore permits = null;
+        if (executor != null) {
+            runSize = Math.max(1, maxFeatures / PARALLEL_RUNS);
+            permits = new Semaphore(PARALLEL_RUNS - 1);
+        }
+        statistics.memoryBudget = maxFeatures;
+        statistics.runSize = runSize;
+
         List<SimpleFeature> features = new ArrayList<SimpleFeature>();
-        List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
-        boolean cleanFile = true;
+        List<Future<FeatureRunWriter>> runs = new ArrayList<Future<FeatureRunWriter>>();
+        FeatureRunFile runFile = null;
+        boolean cleanRuns = true;
         try {
             // read and store into files as necessary
             while (reader.hasNext()) {
                 SimpleFeature f = reader.next();
                 features.add(f);
-                count++;
-
-                if (count > maxFeatures) {
-                    Collections.sort(features, comparator);
-                    if (raf == null) {
-                        file = File.createTempFile("sorted", ".features");
-                        file.delete();
-                        raf = new RandomAccessFile(file, "rw");
+
+                if (runFile != null && features.size() >= runSize) {
+                    runs.add(spill(features, comparator, schema, runFile, executor, permits));
+                    features = new ArrayList<SimpleFeature>();
+                } else if (runFile == null && features.size() > maxFeatures) {
+                    // the contents do not fit in memory, switch to merge-sort
+                    runFile = new FeatureRunFile();
+                    List<SimpleFeature> buffered = features;
+                    features = new ArrayList<SimpleFeature>();
+                    for (int i = 0; i < buffered.size(); i += runSize) {
+                        List<SimpleFeature> run = new ArrayList<SimpleFeature>(buffered.subList(i,
+                                Math.min(buffered.size(), i + runSize)));
+                        runs.add(spill(run, comparator, schema, runFile, executor, permits));
                     }
-                    FeatureBlockReader fbr = storeToFile(raf, features, schema);
-                    readers.add(fbr);
-                    count = 0;
-                    features.clear();
                 }
             }
 
             // return the appropriate reader
-            if (raf == null) {
+            if (runFile == null) {
                 // simple case, we managed to keep everything in memory, sort and return a
                 // reader based on the collection contents
                 Collections.sort(features, comparator);
@@ -157,15 +189,43 @@ class MergeSortDumper {
                 SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
                 return new DelegateSimpleFeatureReader(schema, fi);
             } else {
-                // go merge-sort
-                cleanFile = false;
-                return new MergeSortReader(schema, raf, file, readers, comparator);
+                if (!features.isEmpty()) {
+                    runs.add(spill(features, comparator, schema, runFile, executor, permits));
+                    features = null;
+                }
+
+                // wait for all the runs to be written
+                List<FeatureRunWriter> writers = new ArrayList<FeatureRunWriter>(runs.size());
+                for (Future<FeatureRunWriter> run : runs) {
+                    FeatureRunWriter writer = getRun(run);
+                    statistics.runs++;
+                    statistics.spilledFeatures += writer.count;
+                    statistics.spilledBytes += writer.bytes;
+                    writers.add(writer);
+                }
+
+                // merge groups of runs until few enough are left to be merged at once
+                while (writers.size() > MERGE_FAN_IN) {
+                    writers = mergePass(writers, schema, comparator, runFile);
+                    statistics.mergePasses++;
+                }
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Merge sorting from disk, " + statistics);
+                }
+
+                List<FeatureRunReader> readers = new ArrayList<FeatureRunReader>(writers.size());
+                for (FeatureRunWriter writer : writers) {
+                    readers.add(writer.getReader());
+                }
+                MergeSortReader merged = new MergeSortReader(schema, readers, comparator,
+                        runFile);
+                cleanRuns = false;
+                return merged;
             }
 
         } finally {
-            if (cleanFile && raf != null) {
-                raf.close();
-                file.delete();
+            if (cleanRuns && runFile != null) {
+                cleanup(runs, runFile);
             }
 
             reader.close();
@@ -173,85 +233,112 @@ class MergeSortDumper {
     }
 
     /**
-     * Writes the feature attributes to a binary file
-     * 
-     * @param features
-     * @return
-     * @throws IOException
+     * Merges the runs in groups of {@link #MERGE_FAN_IN}, each group becoming a new run appended to
+     * the run file. Groups are kept in order so that the merge stays stable
      */
-    static FeatureBlockReader storeToFile(RandomAccessFile raf, List<SimpleFeature> features,
-            SimpleFeatureType schema) throws IOException {
-        long start = raf.getFilePointer();
-
-        // write each attribute in the random access file
-        List<AttributeDescriptor> attributes = schema.getAttributeDescriptors();
-        for (SimpleFeature sf : features) {
-            // write feature id
-            raf.writeUTF(sf.getID());
-            // write the attributes
-            for (AttributeDescriptor ad : attributes) {
-                Object value = sf.getAttribute(ad.getLocalName());
-                writeAttribute(raf, ad, value);
+    static List<FeatureRunWriter> mergePass(List<FeatureRunWriter> runs, SimpleFeatureType schema,
+            Comparator<SimpleFeature> comparator, FeatureRunFile runFile) throws IOException {
+        List<FeatureRunWriter> merged = new ArrayList<FeatureRunWriter>();
+        for (int i = 0; i < runs.size(); i += MERGE_FAN_IN) {
+            List<FeatureRunWriter> group = runs.subList(i, Math.min(runs.size(), i + MERGE_FAN_IN));
+            if (group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
             }
-        }
 
-        return new FeatureBlockReader(raf, start, features.size(), schema);
+            List<FeatureRunReader> readers = new ArrayList<FeatureRunReader>(group.size());
+            for (FeatureRunWriter run : group) {
+                readers.add(run.getReader());
+            }
+            MergeSortReader groupReader = new MergeSortReader(schema, readers, comparator, null);
+            FeatureRunWriter writer = new FeatureRunWriter(schema, runFile);
+            try {
+                while (groupReader.hasNext()) {
+                    writer.write(groupReader.next());
+                }
+                writer.finish();
+            } finally {
+                groupReader.close();
+            }
+            merged.add(writer);
+        }
+        return merged;
     }
 
-    static void writeAttribute(RandomAccessFile raf, AttributeDescriptor ad, Object value)
+    /**
+     * Sorts and writes out a run, either directly or using the executor. In the latter case the
+     * method blocks until a permit is available, so that the number of runs in memory is bounded
+     */
+    static Future<FeatureRunWriter> spill(List<SimpleFeature> features,
+            Comparator<SimpleFeature> comparator, SimpleFeatureType schema,
+            FeatureRunFile runFile, ExecutorService executor, final Semaphore permits)
             throws IOException {
-        if (value == null) {
-            // null marker
-            raf.writeBoolean(true);
-        } else {
-            // not null, write the contents. This one requires some explanation. We are not
-            // writing any type metadata in the stream for the types we can optimize (primitives,
-            // numbers,
-            // strings and the like). This means we have to be 100% sure the class we're writing is
-            // actually the one we can optimize for, and not some subclass. Thus, we are authorized
-            // to use identity comparison instead of isAssignableFrom or equality, when we read back
-            // it must be as if we did not serialize stuff at all
-            raf.writeBoolean(false);
-            Class<?> binding = ad.getType().getBinding();
-            if (binding == Boolean.class) {
-                raf.writeBoolean((Boolean) value);
-            } else if (binding == Byte.class || binding == byte.class) {
-                raf.writeByte((Byte) value);
-            } else if (binding == Short.class || binding == short.class) {
-                raf.writeShort((Short) value);
-            } else if (binding == Integer.class || binding == int.class) {
-                raf.writeInt((Integer) value);
-            } else if (binding == Long.class || binding == long.class) {
-                raf.writeLong((Long) value);
-            } else if (binding == Float.class || binding == float.class) {
-                raf.writeFloat((Float) value);
-            } else if (binding == Double.class || binding == double.class) {
-                raf.writeDouble((Double) value);
-            } else if (binding == String.class) {
-                raf.writeUTF((String) value);
-            } else if (binding == java.sql.Date.class || binding == java.sql.Time.class
-                    || binding == java.sql.Timestamp.class || binding == java.util.Date.class) {
-                raf.writeLong(((Date) value).getTime());
-            } else if (Geometry.class.isAssignableFrom(binding)) {
-                WKBWriter writer = new WKBWriter();
-                byte[] buffer = writer.write((Geometry) value);
-                int length = buffer.length;
-                raf.writeInt(length);
-                raf.write(buffer);
+        final FeatureRunWriter writer = new FeatureRunWriter(features, comparator, schema, runFile);
+        if (executor == null) {
+            FutureTask<FeatureRunWriter> task = new FutureTask<FeatureRunWriter>(writer);
+            task.run();
+            return task;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for a sorted run");
+        }
+        try {
+            return executor.submit(new Callable<FeatureRunWriter>() {
+
+                public FeatureRunWriter call() throws Exception {
+                    try {
+                        return writer.call();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected execution
+            permits.release();
+            throw e;
+        }
+    }
+
+    static FeatureRunWriter getRun(Future<FeatureRunWriter> run) throws IOException {
+        try {
+            return run.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for a sorted run");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             } else {
-                // can't optimize, in this case we use an ObjectOutputStream to write out
-                // full metadata
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(bos);
-                oos.writeObject(value);
-                oos.flush();
-                byte[] bytes = bos.toByteArray();
-                raf.writeInt(bytes.length);
-                raf.write(bytes);
+                throw new IOException("Failed to sort and write out a run of features", cause);
             }
         }
     }
 
+    /**
+     * Waits for the runs still being written and removes the run file after a failure
+     */
+    static void cleanup(List<Future<FeatureRunWriter>> runs, FeatureRunFile runFile) {
+        for (Future<FeatureRunWriter> run : runs) {
+            try {
+                run.get();
+            } catch (Exception e) {
+                // the run failed, nothing else to wait for
+                LOGGER.log(Level.FINEST, "Sorted run failed", e);
+            }
+        }
+        try {
+            runFile.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to remove the sorted runs file", e);
+        }
+    }
+
     /**
      * Builds a comparator out of the sortBy list
      * 
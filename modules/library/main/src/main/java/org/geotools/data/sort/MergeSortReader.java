@@ -16,43 +16,72 @@
  */
 package org.geotools.data.sort;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * Reads from a list of {@link FeatureBlockReader} backed by a {@link RandomAccessFile} and performs
- * the classic merge-sort algorithm
+ * Reads from a list of {@link FeatureRunReader}, each one reading a run out of the shared
+ * {@link FeatureRunFile}, and performs a k-way merge of them, keeping the runs in a priority queue
+ * ordered by their current feature
  * 
  * @author Andrea Aime - GeoSolutions
  * 
  */
 class MergeSortReader implements SimpleFeatureReader {
 
-    List<FeatureBlockReader> readers;
+    List<FeatureRunReader> readers;
 
-    RandomAccessFile raf;
-
-    File file;
+    PriorityQueue<RunHead> queue;
 
     SimpleFeatureType schema;
 
     Comparator<SimpleFeature> comparator;
 
-    public MergeSortReader(SimpleFeatureType schema, RandomAccessFile raf, File file,
-            List<FeatureBlockReader> readers, Comparator<SimpleFeature> comparator) {
+    FeatureRunFile file;
+
+    /**
+     * Builds a reader merging the runs
+     * 
+     * @param schema The feature type
+     * @param readers The readers of the runs to be merged, in their original order
+     * @param comparator The sort order of the runs
+     * @param file The file holding the runs, closed along with this reader, or null if it's
+     *        managed by the caller
+     * @throws IOException
+     */
+    public MergeSortReader(SimpleFeatureType schema, List<FeatureRunReader> readers,
+            final Comparator<SimpleFeature> comparator, FeatureRunFile file) throws IOException {
         this.schema = schema;
-        this.comparator = comparator;
-        this.readers = readers;
-        this.raf = raf;
         this.file = file;
+        this.comparator = comparator;
+        this.readers = new ArrayList<FeatureRunReader>(readers);
+        this.queue = new PriorityQueue<RunHead>(Math.max(1, readers.size()),
+                new Comparator<RunHead>() {
+
+                    public int compare(RunHead h1, RunHead h2) {
+                        int result = comparator.compare(h1.feature, h2.feature);
+                        if (result == 0) {
+                            // keep the merge stable, earlier runs come first
+                            result = h1.run - h2.run;
+                        }
+                        return result;
+                    }
+                });
+        for (int i = 0; i < readers.size(); i++) {
+            FeatureRunReader reader = readers.get(i);
+            SimpleFeature feature = reader.feature();
+            if (feature != null) {
+                queue.add(new RunHead(i, reader, feature));
+            }
+        }
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -61,25 +90,16 @@ class MergeSortReader implements SimpleFeatureReader {
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
             NoSuchElementException {
-        if (readers.size() == 0) {
+        RunHead head = queue.poll();
+        if (head == null) {
             throw new NoSuchElementException();
         }
 
-        // find the smallest feature
-        int selected = 0;
-        for (int i = 1; i < readers.size(); i++) {
-            SimpleFeature sf = readers.get(selected).feature();
-            SimpleFeature cf = readers.get(i).feature();
-            if (comparator.compare(sf, cf) > 0) {
-                selected = i;
-            }
-        }
-
         // move on the reader of the selected feature
-        FeatureBlockReader reader = readers.get(selected);
-        SimpleFeature sf = reader.feature();
-        if (reader.next() == null) {
-            readers.remove(selected);
+        SimpleFeature sf = head.feature;
+        head.feature = head.reader.next();
+        if (head.feature != null) {
+            queue.add(head);
         }
 
         // return the selected feature
@@ -87,14 +107,35 @@ class MergeSortReader implements SimpleFeatureReader {
     }
 
     public boolean hasNext() throws IOException {
-        return readers.size() > 0;
+        return !queue.isEmpty();
     }
 
     public void close() throws IOException {
-        try {
-            raf.close();
-        } finally {
-            file.delete();
+        for (FeatureRunReader reader : readers) {
+            reader.close();
+        }
+        readers.clear();
+        queue.clear();
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+    }
+
+    /**
+     * The current feature of a run
+     */
+    static final class RunHead {
+        int run;
+
+        FeatureRunReader reader;
+
+        SimpleFeature feature;
+
+        RunHead(int run, FeatureRunReader reader, SimpleFeature feature) {
+            this.run = run;
+            this.reader = reader;
+            this.feature = feature;
         }
     }
 
@@ -0,0 +1,98 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+/**
+ * Reports how a sort has been performed: the memory budget it had, and how much data has been
+ * spilled to disk when the features did not fit in it.
+ *
+ * @source $URL$
+ */
+public class MergeSortStatistics {
+
+    int memoryBudget;
+
+    int runSize;
+
+    int runs;
+
+    long spilledFeatures;
+
+    long spilledBytes;
+
+    int mergePasses;
+
+    /**
+     * The maximum number of features kept in memory while sorting, as set by the caller or by the
+     * {@link org.geotools.factory.Hints#MAX_MEMORY_SORT} hint
+     */
+    public int getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * The number of features sorted and spilled together in each run, this is smaller than the
+     * memory budget when the runs are generated in parallel
+     */
+    public int getRunSize() {
+        return runSize;
+    }
+
+    /**
+     * The number of sorted runs spilled to disk, zero if the sort happened fully in memory
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * The number of features spilled to disk
+     */
+    public long getSpilledFeatures() {
+        return spilledFeatures;
+    }
+
+    /**
+     * The size in bytes of the spilled runs
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * The number of intermediate passes merging groups of runs into longer ones, needed when there
+     * are too many runs to be merged at once
+     */
+    public int getMergePasses() {
+        return mergePasses;
+    }
+
+    /**
+     * Returns true if the features did not fit in memory and have been merge sorted from disk
+     */
+    public boolean isSpilled() {
+        return runs > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MergeSortStatistics [memoryBudget=" + memoryBudget + ", runSize=" + runSize
+                + ", runs=" + runs + ", spilledFeatures=" + spilledFeatures + ", spilledBytes="
+                + spilledBytes + ", mergePasses=" + mergePasses + "]";
+    }
+
+}
@@ -19,6 +19,7 @@ package org.geotools.data.sort;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
 
 import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureReader;
@@ -30,7 +31,9 @@ import org.opengis.filter.sort.SortBy;
 /**
  * FeatureReader used to sort contents.
  * <p>
- * The implementation makes use of {@link MergeSortDumper).
+ * The implementation makes use of {@link MergeSortDumper). When the features do not fit in memory
+ * sorted runs are spilled to disk in a compact binary encoding, optionally in parallel, and then
+ * merged back. {@link #getStatistics()} reports the memory budget and how much has been spilled.
  * 
  * @source $URL$
  */
@@ -38,6 +41,8 @@ public class SortedFeatureReader implements SimpleFeatureReader {
 
     SimpleFeatureReader delegate;
 
+    MergeSortStatistics statistics = new MergeSortStatistics();
+
     /**
      * Checks if the schema and the sortBy are suitable for merge/sort. All attributes need to be
      * {@link Serializable}, all sorting attributes need to be {@link Comparable}
@@ -58,7 +63,7 @@ public class SortedFeatureReader implements SimpleFeatureReader {
      *        hint {@link Hints#MAX_MEMORY_SORT}
      */
     public SortedFeatureReader(SimpleFeatureReader reader, Query query) throws IOException {
-        this.delegate = MergeSortDumper.getDelegateReader(reader, query);
+        this(reader, query.getSortBy(), MergeSortDumper.getMaxFeatures(query));
     }
 
     /**
@@ -71,7 +76,33 @@ public class SortedFeatureReader implements SimpleFeatureReader {
      */
     public SortedFeatureReader(SimpleFeatureReader reader, SortBy[] sortBy, int maxFeatures)
             throws IOException {
-        this.delegate = MergeSortDumper.getDelegateReader(reader, sortBy, maxFeatures);
+        this(reader, sortBy, maxFeatures, null);
+    }
+
+    /**
+     * Builds a new sorting feature reader, generating the sorted runs in parallel
+     * 
+     * @param reader The reader to be sorted
+     * @param sortBy The sorting directives
+     * @param maxFeatures The maximum number of features to keep in memory, shared among the runs
+     *        being sorted in parallel
+     * @param executor The executor used to sort and write out the runs, or null to do it in the
+     *        calling thread
+     * @throws IOException
+     */
+    public SortedFeatureReader(SimpleFeatureReader reader, SortBy[] sortBy, int maxFeatures,
+            ExecutorService executor) throws IOException {
+        this.delegate = MergeSortDumper.getDelegateReader(reader, sortBy, maxFeatures, executor,
+                statistics);
+    }
+
+    /**
+     * Returns the memory budget and spill counts of this sort
+     * 
+     * @return
+     */
+    public MergeSortStatistics getStatistics() {
+        return statistics;
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -16,14 +16,21 @@
  */
 package org.geotools.data.store;
 
+import java.util.BitSet;
 import java.util.NoSuchElementException;
 
+import org.geotools.data.FilteringFeatureReader;
 import org.geotools.feature.FeatureIterator;
+import org.geotools.filter.batch.BatchFilterEvaluator;
 import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.Filter;
 
 /**
  * Decorates a FeatureIterator  with one that filters content.
+ * <p>
+ * Like {@link FilteringFeatureReader}, simple features are read ahead and filtered in batches by
+ * a {@link BatchFilterEvaluator} compiled against the type of the first feature.
  * 
  * @author Justin Deoliveira, The Open Planning Project
  *
@@ -44,6 +51,21 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
      * Next feature
      */
     protected F next;
+
+    /**
+     * Whether the batch evaluation has been set up, which happens on the first feature
+     */
+    private boolean compiled;
+
+    private BatchFilterEvaluator evaluator;
+
+    private SimpleFeature[] batch;
+
+    private int batchCount;
+
+    private BitSet matches;
+
+    private int position;
     
     public FilteringFeatureIterator( FeatureIterator<F> delegate, Filter filter ) {
         this.delegate = delegate;
@@ -54,6 +76,30 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
         if ( next != null ) {
             return true;
         }
+        if ( !compiled ) {
+            compiled = true;
+            if ( !delegate.hasNext() ) {
+                return false;
+            }
+            F first = delegate.next();
+            if ( first instanceof SimpleFeature && filter != null ) {
+                evaluator = BatchFilterEvaluator.compile( filter, ((SimpleFeature) first).getFeatureType() );
+                if ( evaluator.isInterpreted() ) {
+                    evaluator = null;
+                } else {
+                    batch = new SimpleFeature[FilteringFeatureReader.BATCH_SIZE];
+                    batch[batchCount++] = (SimpleFeature) first;
+                    readBatch();
+                }
+            }
+            if ( evaluator == null && filter.evaluate( first ) ) {
+                next = first;
+                return true;
+            }
+        }
+        if ( evaluator != null ) {
+            return nextMatch();
+        }
         
         while( delegate.hasNext() ) {
             F peek = (F) delegate.next();
@@ -72,11 +118,51 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
         return f;
     }
     
+    /**
+     * Looks for the next matching feature in the current batch, reading and filtering new batches
+     * as needed
+     */
+    @SuppressWarnings("unchecked")
+    private boolean nextMatch() {
+        while ( true ) {
+            if ( matches != null ) {
+                int i = matches.nextSetBit( position );
+                if ( i >= 0 && i < batchCount ) {
+                    next = (F) batch[i];
+                    batch[i] = null;
+                    position = i + 1;
+                    return true;
+                }
+            }
+            for ( int i = 0; i < batchCount; i++ ) {
+                batch[i] = null;
+            }
+            batchCount = 0;
+            readBatch();
+            if ( batchCount == 0 ) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Fills the batch from the delegate and filters it
+     */
+    private void readBatch() {
+        while ( batchCount < batch.length && delegate.hasNext() ) {
+            batch[batchCount++] = (SimpleFeature) delegate.next();
+        }
+        matches = batchCount > 0 ? evaluator.evaluate( batch, batchCount ) : null;
+        position = 0;
+    }
+    
     public void close() {
         delegate.close();
         delegate = null;
         next = null;
         filter = null;
+        batch = null;
+        matches = null;
     }
 
 
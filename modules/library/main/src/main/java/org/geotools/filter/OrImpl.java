@@ -19,6 +19,7 @@ package org.geotools.filter;
 import java.util.Iterator;
 import java.util.List;
 
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterVisitor;
 import org.opengis.filter.Or;
@@ -31,6 +32,9 @@ import org.opengis.filter.Or;
  */
 public class OrImpl extends LogicFilterImpl implements Or {
 	
+	/** Index of the spatial children, built on the first evaluation of a large disjunction */
+	private volatile IndexedSpatialDisjunction spatialIndex;
+	
 	protected OrImpl(org.opengis.filter.FilterFactory factory, List/*<Filter>*/ children) {
 		super(factory, children );
 		
@@ -39,6 +43,16 @@ public class OrImpl extends LogicFilterImpl implements Or {
 	}
 	
 	public boolean evaluate(Object feature) {
+		if (children.size() >= IndexedSpatialDisjunction.MIN_SIZE) {
+			IndexedSpatialDisjunction index = spatialIndex;
+			if (index == null || !index.isBuiltFrom(children)) {
+				index = new IndexedSpatialDisjunction(children);
+				spatialIndex = index;
+			}
+			if (index.isIndexed()) {
+				return index.evaluate(feature);
+			}
+		}
 		for (Iterator itr = children.iterator(); itr.hasNext();) {
 			Filter filter = (Filter)itr.next();
 			if( filter.evaluate( feature )) {
@@ -48,6 +62,12 @@ public class OrImpl extends LogicFilterImpl implements Or {
 		return false;
 	}
 	
+	@Override
+	public void setChildren(List children) {
+		super.setChildren(children);
+		spatialIndex = null;
+	}
+	
 	public Object accept(FilterVisitor visitor, Object extraData) {
 		return visitor.visit(this,extraData);
 	}
@@ -0,0 +1,677 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.factory.Hints;
+import org.geotools.filter.IsBetweenImpl;
+import org.geotools.filter.MultiCompareFilterImpl;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
+import org.geotools.util.ConverterFactory;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Evaluates a {@link Filter} over batches of {@link SimpleFeature}s of a given type.
+ * <p>
+ * The filter is compiled once against the feature type: attribute names are resolved to
+ * attribute indexes, literals are converted to the attribute bindings, the envelopes of the
+ * literal geometries are computed, and logical operators only evaluate their children on the
+ * features still undecided. The result of a batch is a {@link BitSet} with the matching
+ * features set.
+ * <p>
+ * The compiled evaluation gives the same results as {@link Filter#evaluate(Object)}: the
+ * comparisons are still performed by the filters themselves, the parts of the filter that cannot
+ * be compiled are interpreted, and so are the features of another type or holding multiple
+ * values.
+ * <p>
+ * The comparisons involving arithmetic expressions are compiled by the {@link ExpressionCompiler}.
+ *
+ * @source $URL$
+ */
+public abstract class BatchFilterEvaluator {
+
+    /**
+     * Compiles the filter against the specified feature type
+     *
+     * @param filter the filter to evaluate
+     * @param schema the type of the features the filter will be evaluated on
+     */
+    public static BatchFilterEvaluator compile(Filter filter, SimpleFeatureType schema) {
+        return new Compiler(schema).compile(filter);
+    }
+
+    /**
+     * Evaluates the filter on the first features of the array
+     *
+     * @param features the features
+     * @param count the number of features to evaluate
+     * @return the matching features
+     */
+    public BitSet evaluate(SimpleFeature[] features, int count) {
+        BitSet candidates = new BitSet(count);
+        candidates.set(0, count);
+        BitSet result = new BitSet(count);
+        evaluate(features, candidates, result);
+        return result;
+    }
+
+    /**
+     * Evaluates the filter on a single feature
+     */
+    public abstract boolean evaluate(SimpleFeature feature);
+
+    /**
+     * Evaluates the filter on the candidate features, setting the matching ones in the result
+     */
+    protected void evaluate(SimpleFeature[] features, BitSet candidates, BitSet result) {
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (evaluate(features[i])) {
+                result.set(i);
+            }
+        }
+    }
+
+    /**
+     * Returns true if no part of the filter could be compiled, in which case the evaluation is
+     * not faster than calling {@link Filter#evaluate(Object)}
+     */
+    public abstract boolean isInterpreted();
+
+    /**
+     * Builds the evaluators
+     */
+    static class Compiler {
+
+        final SimpleFeatureType schema;
+
+        SimpleFeatureType lastType;
+
+        Compiler(SimpleFeatureType schema) {
+            this.schema = schema;
+            this.lastType = schema;
+        }
+
+        /**
+         * Returns true if the feature is of the compiled type, meaning the attribute indexes can
+         * be used
+         */
+        boolean accepts(SimpleFeature feature) {
+            final SimpleFeatureType type = feature.getFeatureType();
+            if (type == lastType) {
+                return true;
+            }
+            if (schema.equals(type)) {
+                lastType = type;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the index of the attribute the expression refers to, or -1
+         */
+        int indexOf(Expression expression) {
+            if (!(expression instanceof PropertyName)) {
+                return -1;
+            }
+            final String name = ((PropertyName) expression).getPropertyName();
+            if (name == null || name.length() == 0 || name.indexOf('/') >= 0
+                    || name.indexOf(':') >= 0 || name.indexOf('@') >= 0 || name.indexOf('[') >= 0) {
+                return -1;
+            }
+            return schema.indexOf(name);
+        }
+
+        /**
+         * Returns the value of a literal, or null if the expression is not a literal or holds
+         * multiple values
+         */
+        Object literal(Expression expression) {
+            if (!(expression instanceof Literal)) {
+                return null;
+            }
+            final Object value = ((Literal) expression).getValue();
+            return value instanceof Collection ? null : value;
+        }
+
+        BatchFilterEvaluator compile(Filter filter) {
+            if (filter == Filter.INCLUDE || filter instanceof IncludeFilter) {
+                return new Constant(true);
+            } else if (filter == Filter.EXCLUDE || filter instanceof ExcludeFilter) {
+                return new Constant(false);
+            } else if (filter instanceof And) {
+                return new AndEvaluator(compile(((And) filter).getChildren()));
+            } else if (filter instanceof Or) {
+                return compileOr((Or) filter);
+            } else if (filter instanceof Not) {
+                return new NotEvaluator(compile(((Not) filter).getFilter()));
+            } else if (filter instanceof Id) {
+                Set<String> ids = new HashSet<String>();
+                for (Object id : ((Id) filter).getIDs()) {
+                    ids.add(String.valueOf(id));
+                }
+                return new IdEvaluator(ids);
+            } else if (filter instanceof MultiCompareFilterImpl) {
+                BatchFilterEvaluator arithmetic = ExpressionCompiler.compileComparison(
+                        (MultiCompareFilterImpl) filter, this);
+                if (arithmetic != null) {
+                    return arithmetic;
+                }
+                return compileComparison((MultiCompareFilterImpl) filter);
+            } else if (filter instanceof IsBetweenImpl) {
+                return compileBetween((IsBetweenImpl) filter);
+            } else if (filter instanceof PropertyIsNull) {
+                int index = indexOf(((PropertyIsNull) filter).getExpression());
+                if (index >= 0) {
+                    return new NullEvaluator(this, filter, index);
+                }
+            } else if (filter instanceof BBOX || filter instanceof Intersects
+                    || filter instanceof Contains || filter instanceof Within
+                    || filter instanceof Overlaps || filter instanceof Crosses
+                    || filter instanceof Touches || filter instanceof Equals) {
+                return compileSpatial((BinarySpatialOperator) filter);
+            }
+            return new Interpreted(filter);
+        }
+
+        List<BatchFilterEvaluator> compile(List<Filter> filters) {
+            List<BatchFilterEvaluator> children = new ArrayList<BatchFilterEvaluator>(
+                    filters.size());
+            for (Filter child : filters) {
+                children.add(compile(child));
+            }
+            return children;
+        }
+
+        /**
+         * Compiles a disjunction, evaluating its spatial children through an index when there
+         * are many of them
+         */
+        BatchFilterEvaluator compileOr(Or filter) {
+            final List<Filter> children = filter.getChildren();
+            if (children.size() >= IndexedSpatialDisjunction.MIN_SIZE) {
+                IndexedSpatialDisjunction index = new IndexedSpatialDisjunction(children);
+                if (index.isIndexed()) {
+                    List<BatchFilterEvaluator> evaluators = compile(index.getOtherFilters());
+                    evaluators.add(new SpatialIndexEvaluator(index));
+                    return new OrEvaluator(evaluators);
+                }
+            }
+            return new OrEvaluator(compile(children));
+        }
+
+        BatchFilterEvaluator compileComparison(MultiCompareFilterImpl filter) {
+            int index = indexOf(filter.getExpression1());
+            Object literal = literal(filter.getExpression2());
+            boolean propertyFirst = true;
+            if (index < 0 || literal == null) {
+                index = indexOf(filter.getExpression2());
+                literal = literal(filter.getExpression1());
+                propertyFirst = false;
+            }
+            if (index < 0 || literal == null) {
+                return new Interpreted(filter);
+            }
+
+            // only the numbers and dates are converted beforehand, the comparisons of the other
+            // types depend on the original value of the literal
+            final Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+            Object converted = null;
+            if ((Number.class.isAssignableFrom(binding) || Date.class.isAssignableFrom(binding))
+                    && !binding.isInstance(literal)) {
+                converted = Converters.convert(literal, binding, new Hints(
+                        ConverterFactory.SAFE_CONVERSION, Boolean.TRUE));
+            }
+            return new ComparisonEvaluator(this, filter, index, literal, converted, propertyFirst);
+        }
+
+        BatchFilterEvaluator compileBetween(IsBetweenImpl filter) {
+            final int index = indexOf(filter.getExpression());
+            final Object lower = literal(filter.getLowerBoundary());
+            final Object upper = literal(filter.getUpperBoundary());
+            if (index < 0 || lower == null || upper == null) {
+                return new Interpreted(filter);
+            }
+            // same conversions as IsBetweenImpl
+            final Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+            Object l = null;
+            Object u = null;
+            if (Comparable.class.isAssignableFrom(binding)) {
+                l = Converters.convert(lower, binding);
+                u = Converters.convert(upper, binding);
+            }
+            return new BetweenEvaluator(this, filter, index, lower, upper, binding, l, u);
+        }
+
+        BatchFilterEvaluator compileSpatial(BinarySpatialOperator filter) {
+            int index = indexOf(filter.getExpression1());
+            Object literal = literal(filter.getExpression2());
+            if (index < 0 || literal == null) {
+                index = indexOf(filter.getExpression2());
+                literal = literal(filter.getExpression1());
+            }
+            if (index < 0 || literal == null) {
+                return new Interpreted(filter);
+            }
+            final Geometry geometry = Converters.convert(literal, Geometry.class);
+            if (geometry == null || geometry.isEmpty()) {
+                return new Interpreted(filter);
+            }
+            return new EnvelopeEvaluator(this, filter, index, geometry.getEnvelopeInternal());
+        }
+    }
+
+    /**
+     * INCLUDE and EXCLUDE
+     */
+    static class Constant extends BatchFilterEvaluator {
+
+        final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            return value;
+        }
+
+        @Override
+        protected void evaluate(SimpleFeature[] features, BitSet candidates, BitSet result) {
+            if (value) {
+                result.or(candidates);
+            }
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return false;
+        }
+    }
+
+    /**
+     * Delegates to {@link Filter#evaluate(Object)}
+     */
+    static class Interpreted extends BatchFilterEvaluator {
+
+        final Filter filter;
+
+        Interpreted(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            return filter.evaluate(feature);
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return true;
+        }
+    }
+
+    /**
+     * Evaluates each child on the features matching all the previous ones
+     */
+    static class AndEvaluator extends BatchFilterEvaluator {
+
+        final BatchFilterEvaluator[] children;
+
+        AndEvaluator(List<BatchFilterEvaluator> children) {
+            this.children = children.toArray(new BatchFilterEvaluator[children.size()]);
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            for (BatchFilterEvaluator child : children) {
+                if (!child.evaluate(feature)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected void evaluate(SimpleFeature[] features, BitSet candidates, BitSet result) {
+            BitSet matching = candidates;
+            for (BatchFilterEvaluator child : children) {
+                if (matching.isEmpty()) {
+                    return;
+                }
+                BitSet next = new BitSet(features.length);
+                child.evaluate(features, matching, next);
+                matching = next;
+            }
+            result.or(matching);
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            for (BatchFilterEvaluator child : children) {
+                if (!child.isInterpreted()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Evaluates each child on the features not matching any of the previous ones
+     */
+    static class OrEvaluator extends BatchFilterEvaluator {
+
+        final BatchFilterEvaluator[] children;
+
+        OrEvaluator(List<BatchFilterEvaluator> children) {
+            this.children = children.toArray(new BatchFilterEvaluator[children.size()]);
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            for (BatchFilterEvaluator child : children) {
+                if (child.evaluate(feature)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected void evaluate(SimpleFeature[] features, BitSet candidates, BitSet result) {
+            BitSet remaining = (BitSet) candidates.clone();
+            for (BatchFilterEvaluator child : children) {
+                if (remaining.isEmpty()) {
+                    return;
+                }
+                BitSet matching = new BitSet(features.length);
+                child.evaluate(features, remaining, matching);
+                result.or(matching);
+                remaining.andNot(matching);
+            }
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            for (BatchFilterEvaluator child : children) {
+                if (!child.isInterpreted()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Evaluates the spatial children of a large disjunction through an index
+     */
+    static class SpatialIndexEvaluator extends BatchFilterEvaluator {
+
+        final IndexedSpatialDisjunction index;
+
+        SpatialIndexEvaluator(IndexedSpatialDisjunction index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            return index.evaluateSpatial(feature);
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return false;
+        }
+    }
+
+    static class NotEvaluator extends BatchFilterEvaluator {
+
+        final BatchFilterEvaluator child;
+
+        NotEvaluator(BatchFilterEvaluator child) {
+            this.child = child;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            return !child.evaluate(feature);
+        }
+
+        @Override
+        protected void evaluate(SimpleFeature[] features, BitSet candidates, BitSet result) {
+            BitSet matching = new BitSet(features.length);
+            child.evaluate(features, candidates, matching);
+            BitSet negated = (BitSet) candidates.clone();
+            negated.andNot(matching);
+            result.or(negated);
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return child.isInterpreted();
+        }
+    }
+
+    static class IdEvaluator extends BatchFilterEvaluator {
+
+        final Set<String> ids;
+
+        IdEvaluator(Set<String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            final String id = feature.getID();
+            return id != null && ids.contains(id);
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return false;
+        }
+    }
+
+    /**
+     * Base class of the evaluators reading an attribute by index, falling back on the filter for
+     * the features of other types
+     */
+    static abstract class AttributeEvaluator extends BatchFilterEvaluator {
+
+        final Compiler compiler;
+
+        final Filter filter;
+
+        final int index;
+
+        AttributeEvaluator(Compiler compiler, Filter filter, int index) {
+            this.compiler = compiler;
+            this.filter = filter;
+            this.index = index;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            if (!compiler.accepts(feature)) {
+                return filter.evaluate(feature);
+            }
+            final Object value = feature.getAttribute(index);
+            if (value instanceof Collection) {
+                return filter.evaluate(feature);
+            }
+            return evaluate(feature, value);
+        }
+
+        /**
+         * Evaluates the filter given the value of the attribute, which is not a collection
+         */
+        abstract boolean evaluate(SimpleFeature feature, Object value);
+
+        @Override
+        public boolean isInterpreted() {
+            return false;
+        }
+    }
+
+    static class ComparisonEvaluator extends AttributeEvaluator {
+
+        final MultiCompareFilterImpl comparison;
+
+        final Object literal;
+
+        final Object converted;
+
+        final boolean propertyFirst;
+
+        ComparisonEvaluator(Compiler compiler, MultiCompareFilterImpl filter, int index,
+                Object literal, Object converted, boolean propertyFirst) {
+            super(compiler, filter, index);
+            this.comparison = filter;
+            this.literal = literal;
+            this.converted = converted;
+            this.propertyFirst = propertyFirst;
+        }
+
+        @Override
+        boolean evaluate(SimpleFeature feature, Object value) {
+            final Object other = converted != null && value != null
+                    && value.getClass() == converted.getClass() ? converted : literal;
+            return propertyFirst ? comparison.evaluateInternal(value, other) : comparison
+                    .evaluateInternal(other, value);
+        }
+    }
+
+    static class BetweenEvaluator extends AttributeEvaluator {
+
+        final IsBetweenImpl between;
+
+        final Object lower;
+
+        final Object upper;
+
+        final Class<?> binding;
+
+        final Comparable lowerConverted;
+
+        final Comparable upperConverted;
+
+        BetweenEvaluator(Compiler compiler, IsBetweenImpl filter, int index, Object lower,
+                Object upper, Class<?> binding, Object lowerConverted, Object upperConverted) {
+            super(compiler, filter, index);
+            this.between = filter;
+            this.lower = lower;
+            this.upper = upper;
+            this.binding = binding;
+            this.lowerConverted = (Comparable) lowerConverted;
+            this.upperConverted = (Comparable) upperConverted;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean evaluate(SimpleFeature feature, Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (value.getClass() == binding && lowerConverted != null && upperConverted != null) {
+                return lowerConverted.compareTo(value) <= 0 && upperConverted.compareTo(value) >= 0;
+            }
+            return between.evaluateInternal(value, lower, upper);
+        }
+    }
+
+    static class NullEvaluator extends AttributeEvaluator {
+
+        NullEvaluator(Compiler compiler, Filter filter, int index) {
+            super(compiler, filter, index);
+        }
+
+        @Override
+        boolean evaluate(SimpleFeature feature, Object value) {
+            return false;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            if (!compiler.accepts(feature)) {
+                return filter.evaluate(feature);
+            }
+            return feature.getAttribute(index) == null;
+        }
+    }
+
+    /**
+     * Rejects the geometries whose envelope does not intersect the one of the literal, the
+     * operators it is used for all imply the envelopes intersect
+     */
+    static class EnvelopeEvaluator extends AttributeEvaluator {
+
+        final Envelope envelope;
+
+        EnvelopeEvaluator(Compiler compiler, Filter filter, int index, Envelope envelope) {
+            super(compiler, filter, index);
+            this.envelope = envelope;
+        }
+
+        @Override
+        boolean evaluate(SimpleFeature feature, Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (value instanceof Geometry) {
+                final Envelope other = ((Geometry) value).getEnvelopeInternal();
+                if (!other.isNull() && !envelope.intersects(other)) {
+                    return false;
+                }
+            }
+            return filter.evaluate(feature);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+
+/**
+ * An arithmetic {@link Expression} compiled by the {@link ExpressionCompiler}, evaluated on
+ * primitive doubles.
+ *
+ * @source $URL$
+ */
+public class CompiledExpression implements Expression {
+
+    final Expression expression;
+
+    final ExpressionCompiler.NumberEvaluator evaluator;
+
+    CompiledExpression(Expression expression, ExpressionCompiler.NumberEvaluator evaluator) {
+        this.expression = expression;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Returns the original expression
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Evaluates the expression without boxing the result
+     */
+    public double evaluateDouble(SimpleFeature feature) {
+        return evaluator.evaluate(feature);
+    }
+
+    public Object evaluate(Object object) {
+        if (object instanceof SimpleFeature) {
+            return new Double(evaluator.evaluate((SimpleFeature) object));
+        }
+        return expression.evaluate(object);
+    }
+
+    public <T> T evaluate(Object object, Class<T> context) {
+        if (object instanceof SimpleFeature) {
+            return Converters.convert(evaluate(object), context);
+        }
+        return expression.evaluate(object, context);
+    }
+
+    public Object accept(ExpressionVisitor visitor, Object extraData) {
+        return expression.accept(visitor, extraData);
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
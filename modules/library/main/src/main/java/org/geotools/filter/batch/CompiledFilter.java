@@ -0,0 +1,69 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+
+/**
+ * A {@link Filter} compiled by the {@link ExpressionCompiler}, evaluating the simple features
+ * through a {@link BatchFilterEvaluator}.
+ *
+ * @source $URL$
+ */
+public class CompiledFilter implements Filter {
+
+    final Filter filter;
+
+    final BatchFilterEvaluator evaluator;
+
+    CompiledFilter(Filter filter, BatchFilterEvaluator evaluator) {
+        this.filter = filter;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Returns the original filter
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the evaluator, which can also evaluate batches of features
+     */
+    public BatchFilterEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public boolean evaluate(Object object) {
+        if (object instanceof SimpleFeature) {
+            return evaluator.evaluate((SimpleFeature) object);
+        }
+        return filter.evaluate(object);
+    }
+
+    public Object accept(FilterVisitor visitor, Object extraData) {
+        return filter.accept(visitor, extraData);
+    }
+
+    @Override
+    public String toString() {
+        return filter.toString();
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import org.geotools.filter.Filters;
+import org.geotools.filter.IsEqualsToImpl;
+import org.geotools.filter.IsGreaterThanImpl;
+import org.geotools.filter.IsGreaterThanOrEqualToImpl;
+import org.geotools.filter.IsLessThenImpl;
+import org.geotools.filter.IsLessThenOrEqualToImpl;
+import org.geotools.filter.IsNotEqualToImpl;
+import org.geotools.filter.MultiCompareFilterImpl;
+import org.geotools.filter.expression.AddImpl;
+import org.geotools.filter.expression.DivideImpl;
+import org.geotools.filter.expression.MultiplyImpl;
+import org.geotools.filter.expression.SubtractImpl;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Compiles {@link Expression}s and {@link Filter}s bound to a {@link SimpleFeatureType} into
+ * trees of specialized evaluators, which are much cheaper to evaluate than the interpreted
+ * expressions when the same styles and filters are applied to many features.
+ * <p>
+ * The arithmetic expressions are evaluated on primitive doubles, without boxing the
+ * intermediate results: attributes are read by index, numeric literals are converted once and
+ * constant sub expressions are folded. The comparisons between arithmetic expressions and
+ * numeric values are compiled as well. Functions and any other expression are interpreted, and
+ * so are the features of other types, giving the same results as the original expressions.
+ * <p>
+ * The compiled expressions and filters delegate the visitors to the originals, so they can be
+ * encoded, simplified or inspected like them.
+ *
+ * @source $URL$
+ */
+public final class ExpressionCompiler {
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles the expression against the specified feature type
+     *
+     * @return a {@link CompiledExpression}, or the expression itself if it is not an arithmetic
+     *         expression
+     */
+    public static Expression compile(Expression expression, SimpleFeatureType schema) {
+        if (!isArithmetic(expression)) {
+            return expression;
+        }
+        final BatchFilterEvaluator.Compiler compiler = new BatchFilterEvaluator.Compiler(schema);
+        return new CompiledExpression(expression, compileNumber(expression, compiler));
+    }
+
+    /**
+     * Compiles the filter against the specified feature type
+     *
+     * @return a {@link CompiledFilter}, or the filter itself if no part of it can be compiled
+     */
+    public static Filter compile(Filter filter, SimpleFeatureType schema) {
+        final BatchFilterEvaluator evaluator = BatchFilterEvaluator.compile(filter, schema);
+        if (evaluator.isInterpreted()) {
+            return filter;
+        }
+        return new CompiledFilter(filter, evaluator);
+    }
+
+    static boolean isArithmetic(Expression expression) {
+        final Class<?> type = expression.getClass();
+        return type == AddImpl.class || type == SubtractImpl.class || type == MultiplyImpl.class
+                || type == DivideImpl.class;
+    }
+
+    /**
+     * Compiles an expression evaluated in a numeric context, the way the arithmetic expressions
+     * evaluate their operands through {@link Filters#number(Object)}
+     */
+    static NumberEvaluator compileNumber(Expression expression, BatchFilterEvaluator.Compiler compiler) {
+        if (isArithmetic(expression)) {
+            final BinaryExpression binary = (BinaryExpression) expression;
+            final NumberEvaluator left = compileNumber(binary.getExpression1(), compiler);
+            final NumberEvaluator right = compileNumber(binary.getExpression2(), compiler);
+            final NumberEvaluator result;
+            if (expression instanceof AddImpl) {
+                result = new AddEvaluator(left, right);
+            } else if (expression instanceof SubtractImpl) {
+                result = new SubtractEvaluator(left, right);
+            } else if (expression instanceof MultiplyImpl) {
+                result = new MultiplyEvaluator(left, right);
+            } else {
+                result = new DivideEvaluator(left, right);
+            }
+            if (left instanceof ConstantNumber && right instanceof ConstantNumber) {
+                return new ConstantNumber(result.evaluate(null));
+            }
+            return result;
+        } else if (expression instanceof Literal) {
+            try {
+                return new ConstantNumber(Filters.number(expression.evaluate(null)));
+            } catch (IllegalArgumentException e) {
+                // the interpreted evaluation will throw it
+                return new InterpretedNumber(expression);
+            }
+        } else if (expression instanceof PropertyName) {
+            final int index = compiler.indexOf(expression);
+            if (index >= 0) {
+                return new AttributeNumber(compiler, (PropertyName) expression, index);
+            }
+        }
+        return new InterpretedNumber(expression);
+    }
+
+    /**
+     * Compiles a comparison between an arithmetic expression and another arithmetic expression
+     * or a numeric literal, whose operands are never null
+     *
+     * @return the evaluator, or null if the comparison cannot be compiled this way
+     */
+    static BatchFilterEvaluator compileComparison(MultiCompareFilterImpl filter,
+            BatchFilterEvaluator.Compiler compiler) {
+        final Expression e1 = filter.getExpression1();
+        final Expression e2 = filter.getExpression2();
+        if (!(isArithmetic(e1) && (isArithmetic(e2) || isNumber(e2)) || isArithmetic(e2)
+                && isNumber(e1))) {
+            return null;
+        }
+        final Class<?> type = filter.getClass();
+        final int operator;
+        if (type == IsEqualsToImpl.class) {
+            operator = NumberComparison.EQUAL;
+        } else if (type == IsNotEqualToImpl.class) {
+            operator = NumberComparison.NOT_EQUAL;
+        } else if (type == IsLessThenImpl.class) {
+            operator = NumberComparison.LESS;
+        } else if (type == IsLessThenOrEqualToImpl.class) {
+            operator = NumberComparison.LESS_OR_EQUAL;
+        } else if (type == IsGreaterThanImpl.class) {
+            operator = NumberComparison.GREATER;
+        } else if (type == IsGreaterThanOrEqualToImpl.class) {
+            operator = NumberComparison.GREATER_OR_EQUAL;
+        } else {
+            return null;
+        }
+        return new NumberComparison(operator, compileNumber(e1, compiler), compileNumber(e2,
+                compiler));
+    }
+
+    static boolean isNumber(Expression expression) {
+        return expression instanceof Literal
+                && ((Literal) expression).getValue() instanceof Number;
+    }
+
+    /**
+     * Evaluates an expression as a primitive double
+     */
+    static abstract class NumberEvaluator {
+
+        abstract double evaluate(SimpleFeature feature);
+    }
+
+    static final class ConstantNumber extends NumberEvaluator {
+
+        final double value;
+
+        ConstantNumber(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return value;
+        }
+    }
+
+    static final class AttributeNumber extends NumberEvaluator {
+
+        final BatchFilterEvaluator.Compiler compiler;
+
+        final PropertyName property;
+
+        final int index;
+
+        AttributeNumber(BatchFilterEvaluator.Compiler compiler, PropertyName property, int index) {
+            this.compiler = compiler;
+            this.property = property;
+            this.index = index;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            if (!compiler.accepts(feature)) {
+                return Filters.number(property.evaluate(feature));
+            }
+            final Object value = feature.getAttribute(index);
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return Filters.number(value);
+        }
+    }
+
+    static final class InterpretedNumber extends NumberEvaluator {
+
+        final Expression expression;
+
+        InterpretedNumber(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return Filters.number(expression.evaluate(feature));
+        }
+    }
+
+    static final class AddEvaluator extends NumberEvaluator {
+
+        final NumberEvaluator left;
+
+        final NumberEvaluator right;
+
+        AddEvaluator(NumberEvaluator left, NumberEvaluator right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return left.evaluate(feature) + right.evaluate(feature);
+        }
+    }
+
+    static final class SubtractEvaluator extends NumberEvaluator {
+
+        final NumberEvaluator left;
+
+        final NumberEvaluator right;
+
+        SubtractEvaluator(NumberEvaluator left, NumberEvaluator right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return left.evaluate(feature) - right.evaluate(feature);
+        }
+    }
+
+    static final class MultiplyEvaluator extends NumberEvaluator {
+
+        final NumberEvaluator left;
+
+        final NumberEvaluator right;
+
+        MultiplyEvaluator(NumberEvaluator left, NumberEvaluator right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return left.evaluate(feature) * right.evaluate(feature);
+        }
+    }
+
+    static final class DivideEvaluator extends NumberEvaluator {
+
+        final NumberEvaluator left;
+
+        final NumberEvaluator right;
+
+        DivideEvaluator(NumberEvaluator left, NumberEvaluator right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(SimpleFeature feature) {
+            return left.evaluate(feature) / right.evaluate(feature);
+        }
+    }
+
+    /**
+     * Compares two numbers the way the comparison filters do once both operands are numbers
+     */
+    static final class NumberComparison extends BatchFilterEvaluator {
+
+        static final int EQUAL = 0;
+
+        static final int NOT_EQUAL = 1;
+
+        static final int LESS = 2;
+
+        static final int LESS_OR_EQUAL = 3;
+
+        static final int GREATER = 4;
+
+        static final int GREATER_OR_EQUAL = 5;
+
+        final int operator;
+
+        final NumberEvaluator left;
+
+        final NumberEvaluator right;
+
+        NumberComparison(int operator, NumberEvaluator left, NumberEvaluator right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(SimpleFeature feature) {
+            final double l = left.evaluate(feature);
+            final double r = right.evaluate(feature);
+            switch (operator) {
+            case EQUAL:
+                return l == r || Double.isNaN(l) && Double.isNaN(r);
+            case NOT_EQUAL:
+                return !(l == r || Double.isNaN(l) && Double.isNaN(r));
+            }
+            // CompareFilterImpl.compare, where NaN is less than anything
+            final int compare = l > r ? 1 : (l == r ? 0 : -1);
+            switch (operator) {
+            case LESS:
+                return compare < 0;
+            case LESS_OR_EQUAL:
+                return compare <= 0;
+            case GREATER:
+                return compare > 0;
+            default:
+                return compare >= 0;
+            }
+        }
+
+        @Override
+        public boolean isInterpreted() {
+            return false;
+        }
+    }
+}
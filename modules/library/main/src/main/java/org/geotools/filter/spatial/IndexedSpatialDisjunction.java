@@ -0,0 +1,292 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.spatial;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.filter.GeometryFilterImpl;
+import org.geotools.util.Converters;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Evaluates a large disjunction of spatial filters against literal geometries, such as a
+ * selection by many drawn areas, through a single STR packed index over the literal geometries.
+ * <p>
+ * The children of an {@link org.opengis.filter.Or} comparing the same property against literal
+ * geometries, with an operator implying the envelopes intersect (BBOX, Intersects, DWithin,
+ * Contains, Within, Overlaps, Crosses, Touches, Equals), are indexed by the envelopes of their
+ * literals, expanded by the distance for DWithin. A feature is then only tested against the
+ * filters whose envelope intersects its geometry, the filters themselves doing the exact test
+ * with their prepared literal geometry. The other children are evaluated one after the other.
+ * <p>
+ * Instances are immutable, and record the list of children they have been built from so that
+ * the owner can tell when it has to build a new one.
+ *
+ * @source $URL$
+ */
+public class IndexedSpatialDisjunction {
+
+    /** The minimum number of spatial filters on the same property worth an index */
+    public static final int MIN_SIZE = 8;
+
+    final List<?> source;
+
+    /** The children of the source list at build time, compared by identity */
+    final Object[] sourceChildren;
+
+    PropertyName property;
+
+    final List<BinarySpatialOperator> spatialFilters = new ArrayList<BinarySpatialOperator>();
+
+    final List<Filter> otherFilters = new ArrayList<Filter>();
+
+    Envelope bounds;
+
+    STRtree index;
+
+    /**
+     * Analyzes the children of a disjunction, building the index if enough of them are spatial
+     * filters on the same property
+     *
+     * @param children the children of the disjunction
+     */
+    public IndexedSpatialDisjunction(List<? extends Filter> children) {
+        this.source = children;
+        this.sourceChildren = children.toArray();
+        if (children.size() < MIN_SIZE) {
+            otherFilters.addAll(children);
+            return;
+        }
+
+        // group the candidate filters by property, and pick the most used one
+        Map<String, List<BinarySpatialOperator>> groups = new HashMap<String, List<BinarySpatialOperator>>();
+        Map<String, PropertyName> properties = new HashMap<String, PropertyName>();
+        List<BinarySpatialOperator> best = Collections.emptyList();
+        for (Filter child : children) {
+            PropertyName name = getIndexableProperty(child);
+            if (name == null) {
+                continue;
+            }
+            List<BinarySpatialOperator> group = groups.get(name.getPropertyName());
+            if (group == null) {
+                group = new ArrayList<BinarySpatialOperator>();
+                groups.put(name.getPropertyName(), group);
+                properties.put(name.getPropertyName(), name);
+            }
+            group.add((BinarySpatialOperator) child);
+            if (group.size() > best.size()) {
+                best = group;
+                property = properties.get(name.getPropertyName());
+            }
+        }
+        if (best.size() < MIN_SIZE) {
+            property = null;
+            otherFilters.addAll(children);
+            return;
+        }
+
+        Set<BinarySpatialOperator> indexed = Collections
+                .newSetFromMap(new IdentityHashMap<BinarySpatialOperator, Boolean>());
+        indexed.addAll(best);
+        index = new STRtree();
+        bounds = new Envelope();
+        for (Filter child : children) {
+            if (indexed.contains(child)) {
+                BinarySpatialOperator filter = (BinarySpatialOperator) child;
+                Envelope envelope = getEnvelope(filter);
+                spatialFilters.add(filter);
+                index.insert(envelope, filter);
+                bounds.expandToInclude(envelope);
+            } else {
+                otherFilters.add(child);
+            }
+        }
+        index.build();
+    }
+
+    /**
+     * Returns the property compared against a literal geometry by the filter, if it can be
+     * indexed, or null
+     */
+    static PropertyName getIndexableProperty(Filter filter) {
+        if (!(filter instanceof GeometryFilterImpl)
+                || !(filter instanceof BBOX || filter instanceof Intersects
+                        || filter instanceof DWithin || filter instanceof Contains
+                        || filter instanceof Within || filter instanceof Overlaps
+                        || filter instanceof Crosses || filter instanceof Touches || filter instanceof Equals)) {
+            return null;
+        }
+        BinarySpatialOperator operator = (BinarySpatialOperator) filter;
+        Expression e1 = operator.getExpression1();
+        Expression e2 = operator.getExpression2();
+        PropertyName property;
+        Literal literal;
+        if (e1 instanceof PropertyName && e2 instanceof Literal) {
+            property = (PropertyName) e1;
+            literal = (Literal) e2;
+        } else if (e2 instanceof PropertyName && e1 instanceof Literal) {
+            property = (PropertyName) e2;
+            literal = (Literal) e1;
+        } else {
+            return null;
+        }
+        Geometry geometry = Converters.convert(literal.getValue(), Geometry.class);
+        if (geometry == null || geometry.isEmpty() || property.getPropertyName() == null) {
+            return null;
+        }
+        if (filter instanceof DWithin && !(((DWithin) filter).getDistance() >= 0)) {
+            return null;
+        }
+        return property;
+    }
+
+    /**
+     * Returns the envelope a geometry has to intersect to match the filter
+     */
+    static Envelope getEnvelope(BinarySpatialOperator filter) {
+        Literal literal = (Literal) (filter.getExpression1() instanceof Literal ? filter
+                .getExpression1() : filter.getExpression2());
+        Envelope envelope = new Envelope(Converters.convert(literal.getValue(), Geometry.class)
+                .getEnvelopeInternal());
+        if (filter instanceof DWithin) {
+            envelope.expandBy(((DWithin) filter).getDistance());
+        }
+        return envelope;
+    }
+
+    /**
+     * Returns true if the instance has been built from the specified list of children, as it
+     * is now, that is, holding the very same filters in the same order
+     */
+    public boolean isBuiltFrom(List<?> children) {
+        if (children != source || children.size() != sourceChildren.length) {
+            return false;
+        }
+        int i = 0;
+        for (Object child : children) {
+            if (child != sourceChildren[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if enough spatial filters have been found to build an index
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * The property compared by the indexed filters, or null if not indexed
+     */
+    public PropertyName getProperty() {
+        return property;
+    }
+
+    /**
+     * The indexed spatial filters
+     */
+    public List<BinarySpatialOperator> getSpatialFilters() {
+        return Collections.unmodifiableList(spatialFilters);
+    }
+
+    /**
+     * The filters evaluated one by one
+     */
+    public List<Filter> getOtherFilters() {
+        return Collections.unmodifiableList(otherFilters);
+    }
+
+    /**
+     * The union of the envelopes a geometry has to intersect to match one of the indexed
+     * filters, or null if not indexed
+     */
+    public Envelope getBounds() {
+        return bounds != null ? new Envelope(bounds) : null;
+    }
+
+    /**
+     * Evaluates the disjunction
+     */
+    public boolean evaluate(Object object) {
+        for (Filter filter : otherFilters) {
+            if (filter.evaluate(object)) {
+                return true;
+            }
+        }
+        return evaluateSpatial(object);
+    }
+
+    /**
+     * Evaluates the disjunction of the indexed spatial filters only
+     */
+    @SuppressWarnings("unchecked")
+    public boolean evaluateSpatial(Object object) {
+        if (index == null) {
+            return false;
+        }
+        final Object value = property.evaluate(object);
+        if (value == null) {
+            // same as the geometry filters
+            return false;
+        }
+        if (!(value instanceof Geometry) || ((Geometry) value).isEmpty()) {
+            // multiple values, or a geometry that has no envelope
+            for (Filter filter : spatialFilters) {
+                if (filter.evaluate(object)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final Envelope envelope = ((Geometry) value).getEnvelopeInternal();
+        if (!bounds.intersects(envelope)) {
+            return false;
+        }
+        for (Filter filter : (List<Filter>) index.query(envelope)) {
+            if (filter.evaluate(object)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Unit tests for OffHeapSpatialIndexFeatureCollection.
+ *
+ * @source $URL$
+ */
+public class OffHeapSpatialIndexFeatureCollectionTest {
+
+    private static final CoordinateReferenceSystem DEFAULT_CRS = DefaultEngineeringCRS.CARTESIAN_2D;
+
+    private static final SimpleFeatureType TYPE = createType();
+
+    private static final GeometryFactory geomFactory = new GeometryFactory();
+
+    private SimpleFeatureBuilder fb;
+
+    private List<SimpleFeature> featureList;
+
+    @Before
+    public void setup() {
+        fb = new SimpleFeatureBuilder(TYPE);
+        featureList = new ArrayList<SimpleFeature>();
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            fb.add(geomFactory.createPoint(new Coordinate(random.nextDouble() * 100, random
+                    .nextDouble() * 50)));
+            fb.add(Integer.valueOf(i));
+            fb.add(i % 10 == 0 ? null : "name" + i);
+            fb.add(new Date(i * 1000L));
+            featureList.add(fb.buildFeature("foo." + i));
+        }
+    }
+
+    @Test
+    public void testFeatures() throws Exception {
+        // small pages, to have the features spread over many of them
+        OffHeapSpatialIndexFeatureCollection collection = new OffHeapSpatialIndexFeatureCollection(
+                TYPE, 4096);
+        collection.addAll(featureList);
+        assertEquals(featureList.size(), collection.size());
+        assertTrue(collection.pages.size() > 1);
+
+        Set<SimpleFeature> expected = new HashSet<SimpleFeature>(featureList);
+        SimpleFeatureIterator it = collection.features();
+        try {
+            while (it.hasNext()) {
+                assertTrue(expected.remove(it.next()));
+            }
+        } finally {
+            it.close();
+        }
+        assertTrue(expected.isEmpty());
+
+        ReferencedEnvelope bounds = collection.getBounds();
+        assertEquals(DEFAULT_CRS, bounds.getCoordinateReferenceSystem());
+        for (SimpleFeature feature : featureList) {
+            assertTrue(bounds.contains(feature.getBounds()));
+        }
+        assertTrue(collection.contains(featureList.get(100)));
+        collection.dispose();
+        assertTrue(collection.isEmpty());
+    }
+
+    @Test
+    public void testSpatialQuery() throws Exception {
+        OffHeapSpatialIndexFeatureCollection collection = new OffHeapSpatialIndexFeatureCollection(
+                TYPE);
+        collection.addAll(featureList);
+
+        Envelope bbox = new Envelope(20, 45, 10, 30);
+        Set<String> expected = new HashSet<String>();
+        for (SimpleFeature feature : featureList) {
+            if (bbox.intersects(((Point) feature.getDefaultGeometry()).getCoordinate())) {
+                expected.add(feature.getID());
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        Set<String> actual = new HashSet<String>();
+        SimpleFeatureIterator it = collection.features(bbox);
+        try {
+            while (it.hasNext()) {
+                actual.add(it.next().getID());
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(expected, actual);
+
+        try {
+            collection.add(featureList.get(0));
+            fail("The index has been built, should not be able to add features");
+        } catch (IllegalStateException e) {
+            // fine
+        }
+        collection.dispose();
+    }
+
+    @Test
+    public void testSubCollection() throws Exception {
+        OffHeapSpatialIndexFeatureCollection collection = new OffHeapSpatialIndexFeatureCollection(
+                new ListFeatureCollection(TYPE, featureList));
+        SimpleFeatureCollection sub = collection.subCollection(org.geotools.factory.CommonFactoryFinder
+                .getFilterFactory2(null).bbox("point", 20, 10, 45, 30, null));
+        int expected = 0;
+        for (SimpleFeature feature : featureList) {
+            if (new Envelope(20, 45, 10, 30).intersects(((Point) feature.getDefaultGeometry())
+                    .getCoordinate())) {
+                expected++;
+            }
+        }
+        assertEquals(expected, sub.size());
+        collection.dispose();
+    }
+
+    private static SimpleFeatureType createType() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("foo");
+        typeBuilder.add("point", Point.class, DEFAULT_CRS);
+        typeBuilder.add("id", Integer.class);
+        typeBuilder.add("name", String.class);
+        typeBuilder.add("date", Date.class);
+        return typeBuilder.buildFeatureType();
+    }
+}
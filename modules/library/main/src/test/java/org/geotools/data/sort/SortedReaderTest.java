@@ -1,10 +1,16 @@
 package org.geotools.data.sort;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -175,6 +181,59 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testFileSortParallel() throws IOException {
+        Map<String, SimpleFeature> originals = new HashMap<String, SimpleFeature>();
+        SimpleFeatureIterator fi = fc.features();
+        while (fi.hasNext()) {
+            SimpleFeature f = fi.next();
+            originals.put(f.getID(), f);
+        }
+        fi.close();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SortedFeatureReader sr = null;
+        try {
+            sr = new SortedFeatureReader(fr, peopleAsc, 20, executor);
+            MergeSortStatistics statistics = sr.getStatistics();
+            assertEquals(20, statistics.getMemoryBudget());
+            assertEquals(5, statistics.getRunSize());
+            assertEquals(fc.size(), statistics.getSpilledFeatures());
+            assertTrue(statistics.getRuns() > 1);
+            assertTrue(statistics.getSpilledBytes() > 0);
+
+            // check the attributes survived the trip to disk
+            int count = 0;
+            int prev = Integer.MIN_VALUE;
+            while (sr.hasNext()) {
+                SimpleFeature f = sr.next();
+                int curr = (Integer) f.getAttribute("PERSONS");
+                assertTrue(curr >= prev);
+                prev = curr;
+                assertEquals(originals.get(f.getID()).getAttributes(), f.getAttributes());
+                count++;
+            }
+            assertEquals(fc.size(), count);
+        } finally {
+            if (sr != null) {
+                sr.close();
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemorySortStatistics() throws IOException {
+        SortedFeatureReader sr = new SortedFeatureReader(fr, peopleAsc, 1000);
+        try {
+            assertFalse(sr.getStatistics().isSpilled());
+            assertEquals(1000, sr.getStatistics().getMemoryBudget());
+            assertEquals(0, sr.getStatistics().getSpilledFeatures());
+        } finally {
+            sr.close();
+        }
+    }
+
     @Test
     public void testIteratorSortReduce() throws IOException {
         // make it so that we are not going to hit the disk
@@ -246,6 +305,39 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testManyRuns() throws IOException {
+        // features in reverse order, so that every run has to be merged
+        final int features = 2500;
+        DefaultFeatureCollection many = new DefaultFeatureCollection("many", schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int i = 0; i < features; i++) {
+            builder.set("PERSONS", new Integer(features - i));
+            many.add(builder.buildFeature("many." + i));
+        }
+
+        // with a memory budget of two features there is a run every two features, too many to be
+        // merged at once
+        SortedFeatureReader sr = new SortedFeatureReader(new DelegateSimpleFeatureReader(
+                schema, many.features()), peopleAsc, 2);
+        try {
+            MergeSortStatistics statistics = sr.getStatistics();
+            assertEquals(features, statistics.getSpilledFeatures());
+            assertTrue(statistics.getRuns() > 1000);
+            assertTrue(statistics.getMergePasses() > 0);
+
+            int count = 0;
+            while (sr.hasNext()) {
+                SimpleFeature f = sr.next();
+                count++;
+                assertEquals(new Integer(count), f.getAttribute("PERSONS"));
+            }
+            assertEquals(features, count);
+        } finally {
+            sr.close();
+        }
+    }
+
     private void assertSortedOnDateAsc(SimpleFeatureReader fr) throws IllegalArgumentException,
             NoSuchElementException, IOException {
         Date prev = null;
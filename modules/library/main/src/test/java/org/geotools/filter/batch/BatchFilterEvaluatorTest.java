@@ -0,0 +1,214 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FilteringFeatureReader;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.collection.FilteringSimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.identity.FeatureId;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Testing {@link BatchFilterEvaluator}, checking it agrees with the filters evaluated one feature
+ * at a time.
+ *
+ * @source $URL$
+ */
+public class BatchFilterEvaluatorTest extends Assert {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    SimpleFeatureType schema;
+
+    SimpleFeature[] features;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("test",
+                "geom:Polygon,name:String,count:Integer,value:Double,date:java.util.Date");
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        Random random = new Random(0);
+        features = new SimpleFeature[1000];
+        for (int i = 0; i < features.length; i++) {
+            double x = random.nextInt(100);
+            double y = random.nextInt(100);
+            builder.add(i % 50 == 0 ? null : JTS.toGeometry(new Envelope(x, x + 5, y, y + 5)));
+            builder.add(i % 10 == 0 ? null : "name" + random.nextInt(20));
+            builder.add(i % 13 == 0 ? null : Integer.valueOf(random.nextInt(100)));
+            builder.add(random.nextDouble() * 100);
+            builder.add(new Date(random.nextInt(10) * 86400000L));
+            features[i] = builder.buildFeature("test." + i);
+        }
+    }
+
+    @Test
+    public void testComparisons() {
+        assertSameResults(FF.equals(FF.property("count"), FF.literal(42)));
+        assertSameResults(FF.equals(FF.property("count"), FF.literal("42")));
+        assertSameResults(FF.equals(FF.literal(42.0), FF.property("count")));
+        assertSameResults(FF.notEqual(FF.property("count"), FF.literal(42L)));
+        assertSameResults(FF.less(FF.property("value"), FF.literal("50")));
+        assertSameResults(FF.lessOrEqual(FF.property("count"), FF.literal(50.5)));
+        assertSameResults(FF.greater(FF.literal(30), FF.property("value")));
+        assertSameResults(FF.greaterOrEqual(FF.property("date"), FF.literal(new Date(
+                5 * 86400000L))));
+        assertSameResults(FF.equals(FF.property("name"), FF.literal("name7")));
+        assertSameResults(FF.equal(FF.property("name"), FF.literal("NAME7"), false));
+        assertSameResults(FF.greater(FF.property("name"), FF.literal("name5")));
+    }
+
+    @Test
+    public void testBetweenAndNull() {
+        assertSameResults(FF.between(FF.property("count"), FF.literal(10), FF.literal(20)));
+        assertSameResults(FF.between(FF.property("value"), FF.literal("10"), FF.literal(20)));
+        assertSameResults(FF.between(FF.property("name"), FF.literal("name1"),
+                FF.literal("name3")));
+        assertSameResults(FF.isNull(FF.property("name")));
+        assertSameResults(FF.isNull(FF.property("count")));
+    }
+
+    @Test
+    public void testSpatial() {
+        assertSameResults(FF.bbox("geom", 20, 20, 40, 40, null));
+        assertSameResults(FF.intersects(FF.property("geom"), FF.literal(JTS.toGeometry(new Envelope(
+                0, 10, 0, 100)))));
+        assertSameResults(FF.within(FF.property("geom"), FF.literal(JTS.toGeometry(new Envelope(
+                0, 50, 0, 50)))));
+        assertSameResults(FF.contains(FF.literal(JTS.toGeometry(new Envelope(0, 50, 0, 50))),
+                FF.property("geom")));
+        assertSameResults(FF.disjoint(FF.property("geom"), FF.literal(JTS.toGeometry(new Envelope(
+                0, 50, 0, 50)))));
+    }
+
+    @Test
+    public void testLogic() {
+        Filter bbox = FF.bbox("geom", 20, 20, 60, 60, null);
+        Filter count = FF.less(FF.property("count"), FF.literal(50));
+        Filter name = FF.like(FF.property("name"), "name1*");
+        assertSameResults(FF.and(bbox, count));
+        assertSameResults(FF.and(Collections.<Filter> emptyList()));
+        assertSameResults(FF.or(count, name));
+        assertSameResults(FF.or(FF.and(bbox, name), FF.not(count)));
+        assertSameResults(FF.not(FF.or(bbox, FF.isNull(FF.property("count")))));
+        assertSameResults(FF.and(Filter.INCLUDE, FF.or(Filter.EXCLUDE, count)));
+    }
+
+    @Test
+    public void testIds() {
+        Set<FeatureId> ids = new HashSet<FeatureId>();
+        ids.add(FF.featureId("test.3"));
+        ids.add(FF.featureId("test.500"));
+        ids.add(FF.featureId("other.1"));
+        assertSameResults(FF.id(ids));
+    }
+
+    @Test
+    public void testInterpreted() {
+        assertTrue(BatchFilterEvaluator.compile(FF.like(FF.property("name"), "name1*"), schema)
+                .isInterpreted());
+        assertTrue(BatchFilterEvaluator.compile(
+                FF.equals(FF.property("missing"), FF.literal(1)), schema).isInterpreted());
+        assertFalse(BatchFilterEvaluator.compile(
+                FF.and(FF.like(FF.property("name"), "name1*"),
+                        FF.equals(FF.property("count"), FF.literal(1))), schema).isInterpreted());
+    }
+
+    @Test
+    public void testOtherType() throws Exception {
+        // same attribute names, in another order: the indexes cannot be used
+        SimpleFeatureType other = DataUtilities.createType("test",
+                "value:Double,count:Integer,geom:Polygon");
+        SimpleFeature feature = SimpleFeatureBuilder.build(other, new Object[] { 1.0, 42, null },
+                "test.0");
+        BatchFilterEvaluator evaluator = BatchFilterEvaluator.compile(
+                FF.equals(FF.property("count"), FF.literal(42)), schema);
+        assertTrue(evaluator.evaluate(feature));
+    }
+
+    @Test
+    public void testFilteringReader() throws Exception {
+        Filter filter = FF.and(FF.bbox("geom", 20, 20, 60, 60, null),
+                FF.less(FF.property("count"), FF.literal(50)));
+        Set<String> expected = new HashSet<String>();
+        for (SimpleFeature feature : features) {
+            if (filter.evaluate(feature)) {
+                expected.add(feature.getID());
+            }
+        }
+
+        Set<String> actual = new HashSet<String>();
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = new FilteringFeatureReader<SimpleFeatureType, SimpleFeature>(
+                DataUtilities.reader(features), filter);
+        try {
+            while (reader.hasNext()) {
+                actual.add(reader.next().getID());
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected, actual);
+
+        actual.clear();
+        SimpleFeatureIterator it = new FilteringSimpleFeatureIterator(DataUtilities.collection(
+                features).features(), filter);
+        try {
+            while (it.hasNext()) {
+                actual.add(it.next().getID());
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(expected, actual);
+    }
+
+    void assertSameResults(Filter filter) {
+        BatchFilterEvaluator evaluator = BatchFilterEvaluator.compile(filter, schema);
+        BitSet expected = new BitSet();
+        for (int i = 0; i < features.length; i++) {
+            if (filter.evaluate(features[i])) {
+                expected.set(i);
+            }
+            assertEquals(filter + " on " + features[i], filter.evaluate(features[i]),
+                    evaluator.evaluate(features[i]));
+        }
+        assertEquals(filter.toString(), expected, evaluator.evaluate(features, features.length));
+
+        // a partial batch
+        BitSet partial = evaluator.evaluate(features, 100);
+        assertEquals(filter.toString(), expected.get(0, 100), partial);
+    }
+}
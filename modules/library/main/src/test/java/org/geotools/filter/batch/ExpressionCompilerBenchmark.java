@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Measures the evaluations per second of a thematic style like set of rules, each comparing an
+ * arithmetic expression of the attributes against a threshold, interpreted as built by the
+ * filter factory and compiled by the {@link ExpressionCompiler}.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of rules and the
+ * number of features (20 rules and 50000 features by default).
+ * </p>
+ *
+ * @source $URL$
+ */
+public class ExpressionCompilerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rules = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+
+        SimpleFeatureType schema = DataUtilities.createType("test",
+                "geom:Point,population:Integer,area:Double,households:Integer");
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        Random random = new Random(0);
+        SimpleFeature[] features = new SimpleFeature[count];
+        for (int i = 0; i < count; i++) {
+            builder.add(null);
+            builder.add(random.nextInt(100000));
+            builder.add(1 + random.nextDouble() * 100);
+            builder.add(1 + random.nextInt(10000));
+            features[i] = builder.buildFeature(null);
+        }
+
+        // density classes: population / area * (population / households) in [min, max)
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Expression value = ff.multiply(ff.divide(ff.property("population"), ff.property("area")),
+                ff.divide(ff.property("population"), ff.property("households")));
+        Filter[] interpreted = new Filter[rules];
+        Filter[] compiled = new Filter[rules];
+        for (int i = 0; i < rules; i++) {
+            interpreted[i] = ff.and(ff.greaterOrEqual(value, ff.literal(i * 1000)),
+                    ff.less(value, ff.literal((i + 1) * 1000)));
+            compiled[i] = ExpressionCompiler.compile(interpreted[i], schema);
+        }
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            benchmark("interpreted", interpreted, features);
+            benchmark("compiled", compiled, features);
+        }
+    }
+
+    static void benchmark(String name, Filter[] rules, SimpleFeature[] features) {
+        long start = System.nanoTime();
+        int matches = 0;
+        for (SimpleFeature feature : features) {
+            for (Filter rule : rules) {
+                if (rule.evaluate(feature)) {
+                    matches++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-12s %,12.0f evaluations/s (%d matches)%n", name, features.length
+                * rules.length / seconds, matches);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.batch;
+
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.DuplicatingFilterVisitor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Testing {@link ExpressionCompiler}, checking the compiled expressions and filters agree with
+ * the interpreted ones.
+ *
+ * @source $URL$
+ */
+public class ExpressionCompilerTest extends Assert {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    SimpleFeatureType schema;
+
+    SimpleFeature[] features;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("test",
+                "geom:Point,a:Integer,b:Double,c:String,d:java.lang.Long");
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        Random random = new Random(0);
+        features = new SimpleFeature[500];
+        for (int i = 0; i < features.length; i++) {
+            builder.add(null);
+            builder.add(i % 17 == 0 ? null : Integer.valueOf(random.nextInt(20) - 10));
+            builder.add(i % 23 == 0 ? Double.NaN : random.nextInt(40) / 4d);
+            builder.add(String.valueOf(random.nextInt(10)));
+            builder.add(Long.valueOf(random.nextInt(5)));
+            features[i] = builder.buildFeature("test." + i);
+        }
+    }
+
+    @Test
+    public void testArithmetic() {
+        Expression a = FF.property("a");
+        Expression b = FF.property("b");
+        assertSameValues(FF.add(a, b));
+        assertSameValues(FF.subtract(a, FF.literal(3)));
+        assertSameValues(FF.multiply(FF.literal("2.5"), b));
+        assertSameValues(FF.divide(b, a));
+        assertSameValues(FF.divide(FF.add(a, FF.property("c")), FF.subtract(b, FF.property("d"))));
+        assertSameValues(FF.add(FF.multiply(FF.literal(2), FF.literal(3)), a));
+        assertSameValues(FF.add(FF.function("abs", b), a));
+        assertSameValues(FF.add(FF.property("missing"), b));
+    }
+
+    @Test
+    public void testFolding() {
+        CompiledExpression compiled = (CompiledExpression) ExpressionCompiler.compile(FF.add(
+                FF.multiply(FF.literal(2), FF.literal(3)), FF.property("a")), schema);
+        ExpressionCompiler.AddEvaluator add = (ExpressionCompiler.AddEvaluator) compiled.evaluator;
+        assertTrue(add.left instanceof ExpressionCompiler.ConstantNumber);
+        assertTrue(add.right instanceof ExpressionCompiler.AttributeNumber);
+    }
+
+    @Test
+    public void testNotCompiled() {
+        Expression property = FF.property("a");
+        assertSame(property, ExpressionCompiler.compile(property, schema));
+        Filter like = FF.like(FF.property("c"), "1*");
+        assertSame(like, ExpressionCompiler.compile(like, schema));
+    }
+
+    @Test
+    public void testNonNumeric() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("test", "name:String");
+        SimpleFeature feature = SimpleFeatureBuilder.build(type, new Object[] { "abc" }, "test.1");
+        Expression expression = ExpressionCompiler.compile(FF.add(FF.property("name"),
+                FF.literal(1)), type);
+        try {
+            expression.evaluate(feature);
+            fail("The attribute is not a number");
+        } catch (IllegalArgumentException e) {
+            // fine, same as the interpreted expression
+        }
+    }
+
+    @Test
+    public void testComparisons() {
+        Expression sum = FF.add(FF.property("a"), FF.property("b"));
+        Expression ratio = FF.divide(FF.property("b"), FF.property("a"));
+        assertSameResults(FF.equals(sum, FF.literal(5)));
+        assertSameResults(FF.equals(FF.literal(2.5), sum));
+        assertSameResults(FF.notEqual(sum, FF.literal(5L)));
+        assertSameResults(FF.less(sum, FF.literal(3)));
+        assertSameResults(FF.lessOrEqual(ratio, FF.literal(0.5)));
+        assertSameResults(FF.greater(ratio, sum));
+        assertSameResults(FF.greaterOrEqual(FF.literal(1), ratio));
+        assertSameResults(FF.equals(ratio, ratio));
+        assertSameResults(FF.and(FF.greater(sum, FF.literal(0)), FF.less(ratio, FF.literal(1))));
+        assertSameResults(FF.or(FF.equals(FF.property("c"), FF.literal("3")),
+                FF.greater(FF.multiply(FF.property("d"), FF.literal(2)), FF.literal(5))));
+    }
+
+    @Test
+    public void testVisitors() {
+        Filter filter = FF.less(FF.add(FF.property("a"), FF.property("b")), FF.literal(3));
+        Filter compiled = ExpressionCompiler.compile(filter, schema);
+        assertTrue(compiled instanceof CompiledFilter);
+        assertEquals(filter, compiled.accept(new DuplicatingFilterVisitor(), null));
+    }
+
+    void assertSameValues(Expression expression) {
+        Expression compiled = ExpressionCompiler.compile(expression, schema);
+        assertTrue(compiled instanceof CompiledExpression);
+        for (SimpleFeature feature : features) {
+            assertEquals(expression + " on " + feature, expression.evaluate(feature),
+                    compiled.evaluate(feature));
+            assertEquals(expression.evaluate(feature, Float.class), compiled.evaluate(feature,
+                    Float.class));
+        }
+    }
+
+    void assertSameResults(Filter filter) {
+        Filter compiled = ExpressionCompiler.compile(filter, schema);
+        assertTrue(compiled instanceof CompiledFilter);
+        for (SimpleFeature feature : features) {
+            assertEquals(filter + " on " + feature, filter.evaluate(feature),
+                    compiled.evaluate(feature));
+        }
+    }
+}
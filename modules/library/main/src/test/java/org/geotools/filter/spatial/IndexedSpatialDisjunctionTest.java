@@ -0,0 +1,222 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.OrImpl;
+import org.geotools.filter.batch.BatchFilterEvaluator;
+import org.geotools.geometry.jts.JTS;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Or;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Testing {@link IndexedSpatialDisjunction}, checking it agrees with the children evaluated one
+ * after the other.
+ *
+ * @source $URL$
+ */
+public class IndexedSpatialDisjunctionTest extends Assert {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    SimpleFeatureType schema;
+
+    SimpleFeature[] features;
+
+    Random random = new Random(0);
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("test", "geom:Geometry,other:Point,count:Integer");
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        features = new SimpleFeature[1000];
+        for (int i = 0; i < features.length; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            if (i % 100 == 0) {
+                builder.add(null);
+            } else if (i % 3 == 0) {
+                builder.add(GF.createPoint(new Coordinate(x, y)));
+            } else {
+                builder.add(JTS.toGeometry(new Envelope(x, x + 10, y, y + 10)));
+            }
+            builder.add(GF.createPoint(new Coordinate(y, x)));
+            builder.add(Integer.valueOf(i));
+            features[i] = builder.buildFeature("test." + i);
+        }
+    }
+
+    @Test
+    public void testBBOX() {
+        List<Filter> children = new ArrayList<Filter>();
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            children.add(FF.bbox("geom", x, y, x + 5, y + 5, null));
+        }
+        assertSameResults(children, true);
+    }
+
+    @Test
+    public void testMixedOperators() {
+        List<Filter> children = new ArrayList<Filter>();
+        for (int i = 0; i < 300; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            Geometry area = JTS.toGeometry(new Envelope(x, x + 20, y, y + 20));
+            switch (i % 5) {
+            case 0:
+                children.add(FF.intersects(FF.property("geom"), FF.literal(area)));
+                break;
+            case 1:
+                children.add(FF.dwithin(FF.property("geom"),
+                        FF.literal(GF.createPoint(new Coordinate(x, y))), 15, "m"));
+                break;
+            case 2:
+                children.add(FF.within(FF.property("geom"), FF.literal(area)));
+                break;
+            case 3:
+                children.add(FF.contains(FF.literal(area), FF.property("geom")));
+                break;
+            default:
+                children.add(FF.touches(FF.property("geom"), FF.literal(area)));
+            }
+        }
+        // not indexed, evaluated one by one
+        children.add(FF.less(FF.property("count"), FF.literal(10)));
+        children.add(FF.disjoint(FF.property("geom"), FF.literal(JTS.toGeometry(new Envelope(
+                -100, 1100, -100, 1100)))));
+        children.add(FF.bbox("other", 0, 0, 100, 100, null));
+        assertSameResults(children, true);
+    }
+
+    @Test
+    public void testNotIndexed() {
+        List<Filter> children = new ArrayList<Filter>();
+        for (int i = 0; i < IndexedSpatialDisjunction.MIN_SIZE - 1; i++) {
+            children.add(FF.bbox("geom", i * 100, 0, i * 100 + 50, 1000, null));
+        }
+        assertSameResults(children, false);
+
+        // many filters, but not enough on the same property
+        for (int i = 0; i < 20; i++) {
+            children.add(FF.bbox("other", i * 50, 0, i * 50 + 10, 1000, null));
+            children.add(FF.bbox("other", 0, i * 50, 1000, i * 50 + 10, null));
+        }
+        IndexedSpatialDisjunction disjunction = new IndexedSpatialDisjunction(children);
+        assertTrue(disjunction.isIndexed());
+        assertEquals("other", disjunction.getProperty().getPropertyName());
+        assertEquals(IndexedSpatialDisjunction.MIN_SIZE - 1, disjunction.getOtherFilters().size());
+        assertSameResults(children, true);
+    }
+
+    @Test
+    public void testRebuild() {
+        List<Filter> children = new ArrayList<Filter>();
+        for (int i = 0; i < 20; i++) {
+            children.add(FF.bbox("geom", i * 50, 0, i * 50 + 10, 1000, null));
+        }
+        IndexedSpatialDisjunction disjunction = new IndexedSpatialDisjunction(children);
+        assertTrue(disjunction.isBuiltFrom(children));
+        assertFalse(disjunction.isBuiltFrom(new ArrayList<Filter>(children)));
+
+        // a child added after the first evaluation is taken into account
+        Or or = FF.or(children);
+        assertEquals(linear(children, features[1]), or.evaluate(features[1]));
+        ((OrImpl) or).addFilter(FF.bbox("geom", -1000, -1000, 2000, 2000,
+                null));
+        for (SimpleFeature feature : features) {
+            assertEquals(feature.getAttribute("geom") != null, or.evaluate(feature));
+        }
+    }
+
+    @Test
+    public void testRebuildOnReplacedChild() {
+        List<Filter> children = new ArrayList<Filter>();
+        for (int i = 0; i < 20; i++) {
+            children.add(FF.bbox("geom", i * 50, 0, i * 50 + 10, 1000, null));
+        }
+        // the disjunction holds on the list
+        Or or = FF.or(children);
+        for (SimpleFeature feature : features) {
+            assertEquals(linear(children, feature), or.evaluate(feature));
+        }
+
+        // replacing a child in place keeps the same list with the same size
+        IndexedSpatialDisjunction disjunction = new IndexedSpatialDisjunction(children);
+        children.set(3, FF.bbox("geom", -1000, -1000, 2000, 2000, null));
+        assertFalse(disjunction.isBuiltFrom(children));
+        for (SimpleFeature feature : features) {
+            assertEquals(feature.getAttribute("geom") != null, or.evaluate(feature));
+        }
+
+        // and so does setting new children
+        List<Filter> others = new ArrayList<Filter>(children);
+        ((OrImpl) or).setChildren(others);
+        for (SimpleFeature feature : features) {
+            assertEquals(linear(others, feature), or.evaluate(feature));
+        }
+    }
+
+    void assertSameResults(List<Filter> children, boolean indexed) {
+        IndexedSpatialDisjunction disjunction = new IndexedSpatialDisjunction(children);
+        assertEquals(indexed, disjunction.isIndexed());
+        Filter or = FF.or(children);
+        BatchFilterEvaluator evaluator = BatchFilterEvaluator.compile(or, schema);
+        int matches = 0;
+        for (SimpleFeature feature : features) {
+            boolean expected = linear(children, feature);
+            assertEquals(feature.toString(), expected, disjunction.evaluate(feature));
+            assertEquals(feature.toString(), expected, or.evaluate(feature));
+            assertEquals(feature.toString(), expected, evaluator.evaluate(feature));
+            if (expected) {
+                matches++;
+            }
+        }
+        // make sure the test is meaningful
+        assertTrue(matches > 0);
+        assertTrue(matches < features.length);
+    }
+
+    boolean linear(List<Filter> children, SimpleFeature feature) {
+        for (Filter child : children) {
+            if (child.evaluate(feature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
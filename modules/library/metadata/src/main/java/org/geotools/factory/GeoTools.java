@@ -205,6 +205,21 @@ public final class GeoTools {
         bind(RESAMPLE_TOLERANCE, Hints.RESAMPLE_TOLERANCE);
     }
 
+    /**
+     * The {@linkplain System#getProperty(String) system property} key for the default
+     * value to be assigned to the {@link Hints#CACHE_CONCURRENT CACHE_CONCURRENT} hint.
+     *
+     * Setting it to {@code "true"} makes the caches built through
+     * {@link org.geotools.util.ObjectCaches} use the concurrent soft and weak value maps.
+     *
+     * @see Hints#CACHE_CONCURRENT
+     * @see #getDefaultHints
+     */
+    public static final String CACHE_CONCURRENT = "org.geotools.cache.concurrent";
+    static {
+        bind(CACHE_CONCURRENT, Hints.CACHE_CONCURRENT);
+    }
+
     /**
      * The initial context. Will be created only when first needed.
      */
@@ -709,6 +709,13 @@ public class Hints extends RenderingHints {
      */
     public static final Key USE_JAI_IMAGEREAD = new Key(Boolean.class);
 
+    /**
+     * The {@link org.geotools.coverage.grid.io.imageio.DecodedTileCache} shared by the
+     * {@link org.opengis.coverage.grid.GridCoverageReader} instances to keep the source tiles
+     * they decode across requests. No cache is used when the hint is not set.
+     */
+    public static final Key DECODED_TILE_CACHE = new Key("org.geotools.coverage.grid.io.imageio.DecodedTileCache");
+
 
     /**
      * Overview choosing policy. The value must be one of
@@ -879,6 +886,21 @@ public class Hints extends RenderingHints {
      */
     public static final IntegerKey CACHE_LIMIT = new IntegerKey(50);
 
+    /**
+     * Whether the soft and weak value maps used as caches should be the lock striped
+     * {@link org.geotools.util.ConcurrentSoftValueHashMap} and
+     * {@link org.geotools.util.ConcurrentWeakValueHashMap} instead of the
+     * {@link org.geotools.util.SoftValueHashMap} and {@link org.geotools.util.WeakValueHashMap}
+     * synchronizing every access on a single monitor. The default value is
+     * {@link Boolean#FALSE FALSE}. Consider enabling it when many threads share the same
+     * caches, for example when rendering in parallel.
+     *
+     * @see org.geotools.util.ObjectCaches#createSoftValueMap
+     * @see org.geotools.util.ObjectCaches#createWeakValueMap
+     * @see GeoTools#CACHE_CONCURRENT
+     */
+    public static final Key CACHE_CONCURRENT = new Key(Boolean.class);
+
     /**
      * The maximum number of active {@linkplain org.opengis.referencing.AuthorityFactory authority
      * factories}. The default is the {@linkplain Runtime#availableProcessors number of available
@@ -0,0 +1,734 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import org.geotools.resources.i18n.ErrorKeys;
+import org.geotools.resources.i18n.Errors;
+import org.geotools.util.SoftValueHashMap.ValueCleaner;
+
+/**
+ * A concurrent variant of {@link SoftValueHashMap}, for caches accessed by many threads at once.
+ * <p>
+ * Like {@link SoftValueHashMap}, the most recently stored entries are retained by hard
+ * references and the older ones by {@linkplain SoftReference soft references}. The entries are
+ * held in a {@link ConcurrentHashMap}, so reading a value retained by hard reference does not
+ * lock anything. The keys are spread over a number of segments, each one with its own lock and
+ * its own list of hard references: the map modifications and the promotion of a soft value back
+ * to a hard one only lock the segment of the key. As a consequence the hard references are
+ * recycled per segment rather than globally, each segment retaining at most its share of the
+ * {@linkplain #getHardReferencesCount hard references count}.
+ * <p>
+ * This map accepts the null key, but doesn't accepts null values. The iterators of the
+ * {@linkplain #values value}, {@linkplain #keySet key} and {@linkplain #entrySet entry}
+ * collections are weakly consistent: they never throw {@link java.util.ConcurrentModificationException}
+ * and skip the values garbage collected during the iteration.
+ *
+ * @param <K> The type of keys in the map.
+ * @param <V> The type of values in the map.
+ *
+ * @see ObjectCaches#createSoftValueMap
+ *
+ * @source $URL$
+ */
+public class ConcurrentSoftValueHashMap<K,V> extends AbstractMap<K,V> implements ConcurrentMap<K,V> {
+    /**
+     * The default value for {@link #hardReferencesCount}.
+     */
+    private static final int DEFAULT_HARD_REFERENCE_COUNT = 20;
+
+    /**
+     * The default number of segments.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * Stands for the null key in {@link #hash}, which does not accept null keys.
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * The map of hard or soft references. Values are either direct reference to the objects,
+     * or wrapped in a {@code Reference} object. The null key is stored as {@link #NULL_KEY}.
+     */
+    private final ConcurrentHashMap<Object,Object> hash;
+
+    /**
+     * The segments, the number of segments is a power of two.
+     */
+    private final Segment[] segments;
+
+    /**
+     * The number of hard references to hold internally.
+     */
+    private final int hardReferencesCount;
+
+    /**
+     * The entries to be returned by {@link #entrySet()}, or {@code null} if not yet created.
+     */
+    private transient Set<Map.Entry<K,V>> entries;
+
+    /**
+     * The eventual cleaner
+     */
+    protected final ValueCleaner cleaner;
+
+    /**
+     * Creates a map with the default hard references count.
+     */
+    public ConcurrentSoftValueHashMap() {
+        this(DEFAULT_HARD_REFERENCE_COUNT);
+    }
+
+    /**
+     * Creates a map with the specified hard references count.
+     *
+     * @param hardReferencesCount The maximal number of hard references to keep.
+     */
+    public ConcurrentSoftValueHashMap(final int hardReferencesCount) {
+        this(hardReferencesCount, null);
+    }
+
+    /**
+     * Creates a map with the specified hard references count.
+     *
+     * @param hardReferencesCount The maximal number of hard references to keep.
+     * @param cleaner The cleaner invoked before a soft referenced value is disposed of, or
+     *        {@code null} if none.
+     */
+    public ConcurrentSoftValueHashMap(final int hardReferencesCount, final ValueCleaner cleaner) {
+        this(hardReferencesCount, cleaner, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a map with the specified hard references count and number of segments.
+     *
+     * @param hardReferencesCount The maximal number of hard references to keep.
+     * @param cleaner The cleaner invoked before a soft referenced value is disposed of, or
+     *        {@code null} if none.
+     * @param concurrencyLevel The estimated number of threads updating the map concurrently.
+     *        The number of segments is never larger than the hard references count, so that
+     *        each segment retains at least one hard reference.
+     */
+    public ConcurrentSoftValueHashMap(final int hardReferencesCount, final ValueCleaner cleaner,
+            final int concurrencyLevel) {
+        if (hardReferencesCount < 0) {
+            throw new IllegalArgumentException(Errors.format(ErrorKeys.ILLEGAL_ARGUMENT_$2,
+                    "hardReferencesCount", hardReferencesCount));
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException(Errors.format(ErrorKeys.ILLEGAL_ARGUMENT_$2,
+                    "concurrencyLevel", concurrencyLevel));
+        }
+        this.hardReferencesCount = hardReferencesCount;
+        this.cleaner = cleaner;
+        int count = 1;
+        while (count < concurrencyLevel && count * 2 <= hardReferencesCount) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // distribute the remainder, so that the segments hold hardReferencesCount in total
+            segments[i] = new Segment(hardReferencesCount / count
+                    + (i < hardReferencesCount % count ? 1 : 0));
+        }
+        hash = new ConcurrentHashMap<Object,Object>(16, 0.75f, count);
+    }
+
+    /**
+     * Returns the number of hard references kept in this cache
+     * @return
+     */
+    public int getHardReferencesCount() {
+        return hardReferencesCount;
+    }
+
+    /**
+     * Ensures that the specified value is non-null.
+     */
+    private static void ensureNotNull(final Object value) throws IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException(Errors.format(ErrorKeys.NULL_ARGUMENT_$1, "value"));
+        }
+    }
+
+    /**
+     * Replaces the null key by {@link #NULL_KEY}.
+     */
+    private static Object mask(final Object key) {
+        return (key != null) ? key : NULL_KEY;
+    }
+
+    /**
+     * Replaces {@link #NULL_KEY} by the null key.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K> K unmask(final Object key) {
+        return (key != NULL_KEY) ? (K) key : null;
+    }
+
+    /**
+     * Returns the segment of the specified masked key.
+     */
+    private Segment segmentFor(final Object key) {
+        // spread the hash code bits, many keys have poor low order bits
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * Performs a consistency check on this map. This method is used for tests and
+     * assertions only, and should not be invoked while the map is modified.
+     */
+    final boolean isValid() {
+        int hard = 0, size = 0;
+        for (final Map.Entry<Object,Object> entry : hash.entrySet()) {
+            if (!(entry.getValue() instanceof Reference)) {
+                assert segmentFor(entry.getKey()).hardKeys.contains(entry.getKey());
+                hard++;
+            }
+            size++;
+        }
+        int hardKeys = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                assert segment.hardKeys.size() <= segment.limit;
+                hardKeys += segment.hardKeys.size();
+            }
+        }
+        return hard == hardKeys && hard <= Math.min(size, hardReferencesCount);
+    }
+
+    /**
+     * Returns the number of entries in this map.
+     */
+    @Override
+    public int size() {
+        return hash.size();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no entry.
+     */
+    @Override
+    public boolean isEmpty() {
+        return hash.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return hash.containsKey(mask(key));
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to this value.
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        ensureNotNull(value);
+        /*
+         * We must rely on the super-class default implementation, not on ConcurrentHashMap
+         * implementation, because some references are wrapped into SoftReferences.
+         */
+        return super.containsValue(value);
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key. Returns {@code null} if
+     * the map contains no mapping for this key, or the value has been garbage collected.
+     * Values retained by hard references are returned without locking.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or {@code null} if none.
+     */
+    @Override
+    public V get(final Object key) {
+        final Object k = mask(key);
+        final Object value = hash.get(k);
+        if (value instanceof Reference) {
+            final Segment segment = segmentFor(k);
+            synchronized (segment) {
+                return resolve(segment, k);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final V v = (V) value;
+        return v;
+    }
+
+    /**
+     * Returns the current value for the specified masked key. If the value is softly
+     * referenced it is turned back into a hard reference, like {@link SoftValueHashMap#get}
+     * does, and if it has been garbage collected the entry is removed.
+     */
+    private V resolve(final Segment segment, final Object k) {
+        assert Thread.holdsLock(segment);
+        Object value = hash.get(k);
+        if (value instanceof Reference) {
+            final Reference<?,?> ref = (Reference<?,?>) value;
+            value = ref.getAndClear();
+            if (value != null) {
+                hash.put(k, value);
+                retainStrongly(segment, k);
+            } else {
+                // The value has already been garbage collected.
+                hash.remove(k, ref);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final V v = (V) value;
+        return v;
+    }
+
+    /**
+     * Declares that the value for the specified key must be retained by hard reference.
+     * If the segment already holds as many hard references as it can, then this method
+     * replaces the oldest hard reference of the segment by a soft one.
+     */
+    private void retainStrongly(final Segment segment, final Object k) {
+        assert Thread.holdsLock(segment);
+        assert !segment.hardKeys.contains(k) : k;
+        if (segment.limit == 0) {
+            wrap(segment, k);
+            return;
+        }
+        segment.hardKeys.add(k);
+        if (segment.hardKeys.size() > segment.limit) {
+            // Removes the oldest entry, the first one in insertion order
+            final Iterator<Object> it = segment.hardKeys.iterator();
+            final Object toRemove = it.next();
+            it.remove();
+            wrap(segment, toRemove);
+        }
+    }
+
+    /**
+     * Replaces the hard reference of the specified key by a soft one.
+     */
+    private void wrap(final Segment segment, final Object k) {
+        final Object value = hash.get(k);
+        assert value != null && !(value instanceof Reference) : k;
+        hash.put(k, new Reference<Object,Object>(hash, segment, k, value, cleaner));
+    }
+
+    /**
+     * Stores the specified value as the most recent hard reference of the segment, and
+     * returns the previous value of the specified masked key, if any.
+     */
+    private V store(final Segment segment, final Object k, final Object value) {
+        assert Thread.holdsLock(segment);
+        Object oldValue = hash.put(k, value);
+        if (oldValue instanceof Reference) {
+            oldValue = ((Reference<?,?>) oldValue).getAndClear();
+        } else if (oldValue != null) {
+            // Reinserted below as the most recently used
+            if (!segment.hardKeys.remove(k)) {
+                throw new AssertionError(k);
+            }
+        }
+        retainStrongly(segment, k);
+        @SuppressWarnings("unchecked")
+        final V v = (V) oldValue;
+        return v;
+    }
+
+    /**
+     * Removes the current value of the specified masked key, if any, and returns it.
+     */
+    private V removeEntry(final Segment segment, final Object k) {
+        assert Thread.holdsLock(segment);
+        Object oldValue = hash.remove(k);
+        if (oldValue instanceof Reference) {
+            oldValue = ((Reference<?,?>) oldValue).getAndClear();
+        } else if (oldValue != null) {
+            if (!segment.hardKeys.remove(k)) {
+                throw new AssertionError(k);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final V v = (V) oldValue;
+        return v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @param key Key with which the specified value is to be associated.
+     * @param value Value to be associated with the specified key. The value can't be null.
+     *
+     * @return Previous value associated with specified key, or {@code null}
+     *	       if there was no mapping for key.
+     */
+    @Override
+    public V put(final K key, final V value) {
+        ensureNotNull(value);
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            return store(segment, k, value);
+        }
+    }
+
+    /**
+     * Associates the specified value with the specified key, unless the key is already
+     * associated with a value that has not been garbage collected.
+     *
+     * @param key Key with which the specified value is to be associated.
+     * @param value Value to be associated with the specified key. The value can't be null.
+     *
+     * @return The value currently associated with the key, or {@code null} if the
+     *         specified value has been stored.
+     */
+    public V putIfAbsent(final K key, final V value) {
+        ensureNotNull(value);
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            final V current = resolve(segment, k);
+            if (current != null) {
+                return current;
+            }
+            store(segment, k, value);
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the value of the specified key, only if the key is currently mapped.
+     *
+     * @return Previous value associated with specified key, or {@code null}
+     *	       if there was no mapping for key.
+     */
+    public V replace(final K key, final V value) {
+        ensureNotNull(value);
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            if (resolve(segment, k) == null) {
+                return null;
+            }
+            return store(segment, k, value);
+        }
+    }
+
+    /**
+     * Replaces the value of the specified key, only if the key is currently mapped
+     * to the specified old value.
+     *
+     * @return {@code true} if the value has been replaced.
+     */
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        ensureNotNull(oldValue);
+        ensureNotNull(newValue);
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            if (!oldValue.equals(resolve(segment, k))) {
+                return false;
+            }
+            store(segment, k, newValue);
+            return true;
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param map Mappings to be stored in this map.
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key Key whose mapping is to be removed from the map.
+     * @return previous value associated with specified key, or {@code null}
+     *	       if there was no entry for key.
+     */
+    @Override
+    public V remove(final Object key) {
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            return removeEntry(segment, k);
+        }
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently mapped to the
+     * specified value.
+     *
+     * @return {@code true} if the entry has been removed.
+     */
+    public boolean remove(final Object key, final Object value) {
+        if (value == null) {
+            return false;
+        }
+        final Object k = mask(key);
+        final Segment segment = segmentFor(k);
+        synchronized (segment) {
+            if (!value.equals(resolve(segment, k))) {
+                return false;
+            }
+            removeEntry(segment, k);
+            return true;
+        }
+    }
+
+    /**
+     * Removes all mappings from this map. Entries added concurrently may be retained.
+     */
+    @Override
+    public void clear() {
+        for (final Object k : hash.keySet()) {
+            final Segment segment = segmentFor(k);
+            synchronized (segment) {
+                removeEntry(segment, k);
+            }
+        }
+    }
+
+    /**
+     * Returns a set view of the mappings contained in this map.
+     */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        if (entries == null) {
+            entries = new Entries();
+        }
+        return entries;
+    }
+
+    /**
+     * The lock and the hard referenced keys of a segment.
+     */
+    private static final class Segment {
+        /**
+         * The keys of the values retained by hard references, oldest first.
+         */
+        final LinkedHashSet<Object> hardKeys = new LinkedHashSet<Object>();
+
+        /**
+         * The maximal number of hard references in this segment.
+         */
+        final int limit;
+
+        Segment(final int limit) {
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Implementation of the entries set to be returned by {@link #entrySet()}.
+     */
+    private final class Entries extends AbstractSet<Map.Entry<K,V>> {
+        /**
+         * Returns an iterator over the elements contained in this collection.
+         */
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iter(hash.entrySet().iterator());
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         */
+        public int size() {
+            return ConcurrentSoftValueHashMap.this.size();
+        }
+
+        /**
+         * Removes all of the elements from this collection.
+         */
+        @Override
+        public void clear() {
+            ConcurrentSoftValueHashMap.this.clear();
+        }
+    }
+
+    /**
+     * The iterator to be returned by {@link Entries}, skipping the values garbage collected.
+     */
+    private final class Iter implements Iterator<Map.Entry<K,V>> {
+        /**
+         * The iterator over the {@link #hash} entries.
+         */
+        private final Iterator<Map.Entry<Object,Object>> iterator;
+
+        /**
+         * The next entry to be returned by the {@link #next} method, or {@code null}
+         * if not yet computed of if the iteration is finished.
+         */
+        private Map.Entry<K,V> entry;
+
+        /**
+         * The key of the last entry returned by {@link #next}, for {@link #remove}.
+         */
+        private Object last;
+
+        Iter(final Iterator<Map.Entry<Object,Object>> iterator) {
+            this.iterator = iterator;
+        }
+
+        /**
+         * Set {@link #entry} to the next entry to iterate. Returns {@code true} if
+         * an entry has been found, or {@code false} if the iteration is finished.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean findNext() {
+            while (iterator.hasNext()) {
+                final Map.Entry<Object,Object> candidate = iterator.next();
+                Object value = candidate.getValue();
+                if (value instanceof Reference) {
+                    value = ((Reference<?,?>) value).get();
+                }
+                if (value != null) {
+                    entry = new MapEntry<K,V>(ConcurrentSoftValueHashMap.<K>unmask(candidate.getKey()), (V) value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if this iterator can return more value.
+         */
+        public boolean hasNext() {
+            return entry != null || findNext();
+        }
+
+        /**
+         * Returns the next value. If some value were garbage collected after the
+         * iterator was created, they will not be returned.
+         */
+        public Map.Entry<K,V> next() {
+            if (entry == null && !findNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K,V> next = entry;
+            entry = null; // Flags that a new entry will need to be lazily fetched.
+            last = mask(next.getKey());
+            return next;
+        }
+
+        /**
+         * Removes the last entry.
+         */
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentSoftValueHashMap.this.remove(unmask(last));
+            last = null;
+        }
+    }
+
+    /**
+     * A soft reference to a map entry. Soft references are created only for the entries
+     * exceeding the hard references count of their segment.
+     */
+    private static final class Reference<K,V> extends SoftReference<V> {
+        /**
+         * A reference to the {@link ConcurrentSoftValueHashMap#hash} entries.
+         */
+        private final ConcurrentHashMap<K,Object> hash;
+
+        /**
+         * The segment of the key, whose lock guards the entry.
+         */
+        private final Segment segment;
+
+        /**
+         * The masked key for the entry to be removed when the soft reference is cleared.
+         */
+        private final K key;
+
+        /**
+         * The eventual value cleaner
+         */
+        private final ValueCleaner cleaner;
+
+        /**
+         * Creates a soft reference for the specified key-value pair.
+         */
+        Reference(final ConcurrentHashMap<K,Object> hash, final Segment segment, final K key,
+                final V value, final ValueCleaner cleaner) {
+            super(value, WeakCollectionCleaner.DEFAULT.referenceQueue);
+            this.hash = hash;
+            this.segment = segment;
+            this.key = key;
+            this.cleaner = cleaner;
+        }
+
+        /**
+         * Gets and clear this reference object, without enqueuing it nor removing
+         * it from the hash map.
+         */
+        final Object getAndClear() {
+            assert Thread.holdsLock(segment);
+            final Object value = get();
+            super.clear();
+            return value;
+        }
+
+        /**
+         * Removes the entries from the backing hash map, unless a new value has been
+         * set for the key in the meantime. This method need to override the
+         * {@link SoftReference#clear} method because it is invoked by
+         * {@link WeakCollectionCleaner}.
+         */
+        @Override
+        public void clear() {
+            if (cleaner != null) {
+                final Object value = get();
+                if (value != null) {
+                    try {
+                        cleaner.clean(unmask(key), value);
+                    } catch (Throwable t) {
+                        // never let a bad implementation break soft reference cleaning
+                        SoftValueHashMap.LOGGER.log(Level.SEVERE,
+                                "Exception occurred while cleaning soft referenced object", t);
+                    }
+                }
+            }
+            super.clear();
+            synchronized (segment) {
+                hash.remove(key, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent variant of {@link WeakValueHashMap}. An entry is automatically removed when
+ * its value is no longer in ordinary use.
+ * <p>
+ * The weak references are held in a lock striped {@link ConcurrentHashMap}, so reading the
+ * map never locks and concurrent updates only contend when they hit the same segment. Like
+ * {@link WeakValueHashMap}, this map does not accept null keys nor null values. Its
+ * collection views are supported, and their iterators are weakly consistent: they never
+ * throw {@link java.util.ConcurrentModificationException} and skip the values garbage
+ * collected during the iteration.
+ *
+ * @param <K> The class of key elements.
+ * @param <V> The class of value elements.
+ *
+ * @see ObjectCaches#createWeakValueMap
+ *
+ * @source $URL$
+ */
+public class ConcurrentWeakValueHashMap<K,V> extends AbstractMap<K,V> implements ConcurrentMap<K,V> {
+    /**
+     * The weak references to the values.
+     */
+    private final ConcurrentHashMap<K,Reference<K,V>> hash;
+
+    /**
+     * The entries to be returned by {@link #entrySet()}, or {@code null} if not yet created.
+     */
+    private transient Set<Map.Entry<K,V>> entries;
+
+    /**
+     * Creates a {@code ConcurrentWeakValueHashMap}.
+     */
+    public ConcurrentWeakValueHashMap() {
+        hash = new ConcurrentHashMap<K,Reference<K,V>>();
+    }
+
+    /**
+     * Creates a {@code ConcurrentWeakValueHashMap} of the requested size and concurrency level.
+     *
+     * @param initialSize The initial size.
+     * @param concurrencyLevel The estimated number of threads updating the map concurrently.
+     */
+    public ConcurrentWeakValueHashMap(final int initialSize, final int concurrencyLevel) {
+        hash = new ConcurrentHashMap<K,Reference<K,V>>(initialSize, 0.75f, concurrencyLevel);
+    }
+
+    /**
+     * Creates a new {@code ConcurrentWeakValueHashMap} populated with the contents of the
+     * provided map.
+     *
+     * @param map Initial contents of the {@code ConcurrentWeakValueHashMap}.
+     */
+    public ConcurrentWeakValueHashMap(final Map<K,V> map) {
+        this();
+        putAll(map);
+    }
+
+    /**
+     * Ensures that the specified key or value is non-null, as in {@link WeakValueHashMap}.
+     */
+    private static void ensureNotNull(final Object object, final String name) {
+        if (object == null) {
+            throw new NullPointerException("Null " + name + " not allowed");
+        }
+    }
+
+    /**
+     * Returns the referent of the specified reference, or {@code null} if none.
+     */
+    private static <V> V get(final Reference<?,V> ref) {
+        return (ref != null) ? ref.get() : null;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     */
+    @Override
+    public int size() {
+        return hash.size();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no entry.
+     */
+    @Override
+    public boolean isEmpty() {
+        return hash.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key The key to look for.
+     * @return {@code true} if the given key is still referenced.
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key. Returns
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @param  key Key whose associated value is to be returned.
+     * @return The value to which this map maps the specified key.
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    @Override
+    public V get(final Object key) {
+        ensureNotNull(key, "key");
+        return get(hash.get(key));
+    }
+
+    /**
+     * Associates a value with a key in this map.
+     *
+     * @param  key   Key with which the specified value is to be associated.
+     * @param  value Value to be associated with the specified key.
+     * @return Previous value associated with specified key, or {@code null}
+     *         if there was no mapping for key.
+     */
+    @Override
+    public V put(final K key, final V value) {
+        ensureNotNull(key, "key");
+        ensureNotNull(value, "value");
+        final Reference<K,V> old = hash.put(key, new Reference<K,V>(hash, key, value));
+        if (old != null) {
+            return old.getAndClear();
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key, unless the key is already
+     * associated with a value that has not been garbage collected.
+     *
+     * @return The value currently associated with the key, or {@code null} if the
+     *         specified value has been stored.
+     */
+    public V putIfAbsent(final K key, final V value) {
+        ensureNotNull(key, "key");
+        ensureNotNull(value, "value");
+        final Reference<K,V> ref = new Reference<K,V>(hash, key, value);
+        while (true) {
+            final Reference<K,V> old = hash.putIfAbsent(key, ref);
+            if (old == null) {
+                return null;
+            }
+            final V current = old.get();
+            if (current != null) {
+                ref.getAndClear();
+                return current;
+            }
+            // garbage collected but not yet removed, replace it
+            if (hash.replace(key, old, ref)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Replaces the value of the specified key, only if the key is currently mapped.
+     *
+     * @return Previous value associated with specified key, or {@code null}
+     *         if there was no mapping for key.
+     */
+    public V replace(final K key, final V value) {
+        ensureNotNull(key, "key");
+        ensureNotNull(value, "value");
+        final Reference<K,V> ref = new Reference<K,V>(hash, key, value);
+        while (true) {
+            final Reference<K,V> old = hash.get(key);
+            final V current = get(old);
+            if (current == null) {
+                ref.getAndClear();
+                return null;
+            }
+            if (hash.replace(key, old, ref)) {
+                old.getAndClear();
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Replaces the value of the specified key, only if the key is currently mapped
+     * to the specified old value.
+     *
+     * @return {@code true} if the value has been replaced.
+     */
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        ensureNotNull(key, "key");
+        ensureNotNull(oldValue, "value");
+        ensureNotNull(newValue, "value");
+        final Reference<K,V> old = hash.get(key);
+        if (!oldValue.equals(get(old))) {
+            return false;
+        }
+        final Reference<K,V> ref = new Reference<K,V>(hash, key, newValue);
+        if (hash.replace(key, old, ref)) {
+            old.getAndClear();
+            return true;
+        }
+        ref.getAndClear();
+        return false;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key Key whose mapping is to be removed from the map.
+     * @return previous value associated with specified key, or {@code null}
+     *         if there was no entry for key.
+     */
+    @Override
+    public V remove(final Object key) {
+        ensureNotNull(key, "key");
+        final Reference<K,V> old = hash.remove(key);
+        return (old != null) ? old.getAndClear() : null;
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently mapped to the
+     * specified value.
+     *
+     * @return {@code true} if the entry has been removed.
+     */
+    public boolean remove(final Object key, final Object value) {
+        ensureNotNull(key, "key");
+        if (value == null) {
+            return false;
+        }
+        final Reference<K,V> old = hash.get(key);
+        if (value.equals(get(old)) && hash.remove(key, old)) {
+            old.getAndClear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all mappings from this map.
+     */
+    @Override
+    public void clear() {
+        for (final Iterator<Reference<K,V>> it = hash.values().iterator(); it.hasNext();) {
+            final Reference<K,V> ref = it.next();
+            it.remove();
+            ref.getAndClear();
+        }
+    }
+
+    /**
+     * Returns a set view of the mappings contained in this map.
+     */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        if (entries == null) {
+            entries = new Entries();
+        }
+        return entries;
+    }
+
+    /**
+     * Implementation of the entries set to be returned by {@link #entrySet()}.
+     */
+    private final class Entries extends AbstractSet<Map.Entry<K,V>> {
+        /**
+         * Returns an iterator over the elements contained in this collection.
+         */
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iter();
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         */
+        public int size() {
+            return ConcurrentWeakValueHashMap.this.size();
+        }
+
+        /**
+         * Removes all of the elements from this collection.
+         */
+        @Override
+        public void clear() {
+            ConcurrentWeakValueHashMap.this.clear();
+        }
+    }
+
+    /**
+     * The iterator to be returned by {@link Entries}, skipping the values garbage collected.
+     */
+    private final class Iter implements Iterator<Map.Entry<K,V>> {
+        /**
+         * The iterator over the {@link #hash} entries.
+         */
+        private final Iterator<Map.Entry<K,Reference<K,V>>> iterator = hash.entrySet().iterator();
+
+        /**
+         * The next entry to be returned by the {@link #next} method, or {@code null}
+         * if not yet computed of if the iteration is finished.
+         */
+        private Map.Entry<K,V> entry;
+
+        /**
+         * The key of the last entry returned by {@link #next}, for {@link #remove}.
+         */
+        private K last;
+
+        /**
+         * Set {@link #entry} to the next entry to iterate. Returns {@code true} if
+         * an entry has been found, or {@code false} if the iteration is finished.
+         */
+        private boolean findNext() {
+            while (iterator.hasNext()) {
+                final Map.Entry<K,Reference<K,V>> candidate = iterator.next();
+                final V value = candidate.getValue().get();
+                if (value != null) {
+                    entry = new MapEntry<K,V>(candidate.getKey(), value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if this iterator can return more value.
+         */
+        public boolean hasNext() {
+            return entry != null || findNext();
+        }
+
+        /**
+         * Returns the next value. If some value were garbage collected after the
+         * iterator was created, they will not be returned.
+         */
+        public Map.Entry<K,V> next() {
+            if (entry == null && !findNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K,V> next = entry;
+            entry = null; // Flags that a new entry will need to be lazily fetched.
+            last = next.getKey();
+            return next;
+        }
+
+        /**
+         * Removes the last entry.
+         */
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentWeakValueHashMap.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * A weak reference to a value, removing its entry from the map when garbage collected.
+     */
+    private static final class Reference<K,V> extends WeakReference<V> {
+        /**
+         * A reference to the {@link ConcurrentWeakValueHashMap#hash} entries.
+         */
+        private final ConcurrentHashMap<K,Reference<K,V>> hash;
+
+        /**
+         * The key for the entry to be removed when the weak reference is cleared.
+         */
+        private final K key;
+
+        /**
+         * Creates a weak reference for the specified key-value pair.
+         */
+        Reference(final ConcurrentHashMap<K,Reference<K,V>> hash, final K key, final V value) {
+            super(value, WeakCollectionCleaner.DEFAULT.referenceQueue);
+            this.hash = hash;
+            this.key = key;
+        }
+
+        /**
+         * Gets and clear this reference object, without enqueuing it nor removing
+         * it from the hash map.
+         */
+        final V getAndClear() {
+            final V value = get();
+            super.clear();
+            return value;
+        }
+
+        /**
+         * Removes the entry from the backing hash map, unless a new value has been set
+         * for the key in the meantime. This method need to override the
+         * {@link WeakReference#clear} method because it is invoked by
+         * {@link WeakCollectionCleaner}.
+         */
+        @Override
+        public void clear() {
+            super.clear();
+            hash.remove(key, this);
+        }
+    }
+}
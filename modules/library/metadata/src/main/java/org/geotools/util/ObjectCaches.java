@@ -16,6 +16,7 @@
  */
 package org.geotools.util;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.geotools.factory.FactoryRegistryException;
@@ -34,6 +35,7 @@ import org.opengis.util.GenericName;
  *   <li>Access to an implementation of "weak", "all" and "none" implementations of {@link ObjectCache}.</li>
  *   <li>The ability to turn a "code" into a good "key" for use with an ObjectCache.</li>
  *   <li>A Pair data object (think of C STRUCT) for use as a key when storing a value against two objects.</li>
+ *   <li>Soft and weak value maps, concurrent or not depending on {@link Hints#CACHE_CONCURRENT}.</li>
  * </ul>
  *
  * @since 2.5
@@ -208,6 +210,46 @@ public final class ObjectCaches {
         }
     }
 
+    /**
+     * Returns {@code true} if the provided hints, or the default ones if {@code null},
+     * ask for the concurrent maps.
+     */
+    private static boolean isConcurrent(Hints hints) {
+        if (hints == null) hints = GeoTools.getDefaultHints();
+        return Boolean.TRUE.equals(hints.get(Hints.CACHE_CONCURRENT));
+    }
+
+    /**
+     * Creates a map holding its values by soft references, except for the most recent ones.
+     * The map is a {@link ConcurrentSoftValueHashMap} if {@link Hints#CACHE_CONCURRENT} is set,
+     * a {@link SoftValueHashMap} otherwise.
+     *
+     * @param hints The hints, or {@code null} for the default ones
+     * @param hardReferencesCount The maximal number of hard references to keep
+     * @return A new thread safe soft value map
+     */
+    public static <K, V> Map<K, V> createSoftValueMap(Hints hints, int hardReferencesCount) {
+        if (isConcurrent(hints)) {
+            return new ConcurrentSoftValueHashMap<K, V>(hardReferencesCount);
+        }
+        return new SoftValueHashMap<K, V>(hardReferencesCount);
+    }
+
+    /**
+     * Creates a map holding its values by weak references. The map is a
+     * {@link ConcurrentWeakValueHashMap} if {@link Hints#CACHE_CONCURRENT} is set,
+     * a {@link WeakValueHashMap} otherwise.
+     *
+     * @param hints The hints, or {@code null} for the default ones
+     * @return A new thread safe weak value map
+     */
+    public static <K, V> Map<K, V> createWeakValueMap(Hints hints) {
+        if (isConcurrent(hints)) {
+            return new ConcurrentWeakValueHashMap<K, V>();
+        }
+        return new WeakValueHashMap<K, V>();
+    }
+
     /**
      * Produce a good key based on the privided citaiton and code.
      * You can think of the citation as being "here" and the code being the "what".
@@ -0,0 +1,218 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geotools.factory.Hints;
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentSoftValueHashMap}.
+ *
+ * @source $URL$
+ */
+public class ConcurrentSoftValueHashMapTest {
+    /**
+     * The size of the test sets to be created.
+     */
+    private static final int SAMPLE_SIZE = 200;
+
+    /**
+     * With enough hard references the map should behave like a standard {@link Map}.
+     */
+    @Test
+    public void testStrongReferences() {
+        final Random random = new Random(0);
+        for (int pass = 0; pass < 4; pass++) {
+            final ConcurrentSoftValueHashMap<Integer, Integer> softMap =
+                    new ConcurrentSoftValueHashMap<Integer, Integer>(SAMPLE_SIZE);
+            final HashMap<Integer, Integer> strongMap = new HashMap<Integer, Integer>();
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                final Integer key = random.nextInt(SAMPLE_SIZE);
+                final Integer value = random.nextInt(SAMPLE_SIZE);
+                assertEquals("containsKey:", strongMap.containsKey(key), softMap.containsKey(key));
+                assertEquals("containsValue:", strongMap.containsValue(value),
+                        softMap.containsValue(value));
+                assertSame("get:", strongMap.get(key), softMap.get(key));
+                if (random.nextBoolean()) {
+                    assertSame("put:", strongMap.put(key, value), softMap.put(key, value));
+                } else {
+                    assertSame("remove:", strongMap.remove(key), softMap.remove(key));
+                }
+                assertEquals("equals:", strongMap, softMap);
+            }
+            assertTrue(softMap.isValid());
+        }
+    }
+
+    /**
+     * Only the configured number of hard references are kept, the older entries are softly
+     * referenced and turned back into hard ones when accessed.
+     */
+    @Test
+    public void testHardReferencesCount() {
+        final ConcurrentSoftValueHashMap<Integer, Object> map =
+                new ConcurrentSoftValueHashMap<Integer, Object>(8, null, 4);
+        assertEquals(8, map.getHardReferencesCount());
+        final List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            final Object value = new Object();
+            values.add(value);
+            map.put(i, value);
+            assertTrue(map.isValid());
+        }
+        // the values are strongly referenced by the list, none can disappear
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertSame(values.get(i), map.get(i));
+            assertTrue(map.isValid());
+        }
+
+        // no hard references at all
+        final ConcurrentSoftValueHashMap<Integer, Object> soft =
+                new ConcurrentSoftValueHashMap<Integer, Object>(0);
+        soft.put(1, values.get(1));
+        assertSame(values.get(1), soft.get(1));
+        assertTrue(soft.isValid());
+    }
+
+    @Test
+    public void testNullKeyAndValue() {
+        final ConcurrentSoftValueHashMap<String, String> map =
+                new ConcurrentSoftValueHashMap<String, String>();
+        assertNull(map.put(null, "a"));
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey(null));
+        assertEquals(1, map.entrySet().size());
+        assertNull(map.entrySet().iterator().next().getKey());
+        assertEquals("a", map.remove(null));
+        assertTrue(map.isEmpty());
+        try {
+            map.put("b", null);
+            fail("Null values are not allowed");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentMapOperations() {
+        final ConcurrentSoftValueHashMap<String, String> map =
+                new ConcurrentSoftValueHashMap<String, String>(2);
+        assertNull(map.putIfAbsent("a", "1"));
+        assertEquals("1", map.putIfAbsent("a", "2"));
+        assertNull(map.replace("b", "1"));
+        assertFalse(map.containsKey("b"));
+        assertEquals("1", map.replace("a", "3"));
+        assertFalse(map.replace("a", "1", "4"));
+        assertTrue(map.replace("a", "3", "4"));
+        assertFalse(map.remove("a", "3"));
+        assertTrue(map.remove("a", "4"));
+        assertTrue(map.isEmpty());
+
+        // the same through soft references
+        for (int i = 0; i < 10; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        assertEquals("v0", map.putIfAbsent("k0", "x"));
+        assertTrue(map.replace("k1", "v1", "x"));
+        assertTrue(map.remove("k2", "v2"));
+        assertTrue(map.isValid());
+
+        final Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().equals("k3")) {
+                it.remove();
+            }
+        }
+        assertFalse(map.containsKey("k3"));
+        assertEquals(8, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertTrue(map.isValid());
+    }
+
+    /**
+     * Hammers the map from several threads, each one owning a range of keys so that the
+     * final content can be checked.
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final ConcurrentSoftValueHashMap<Integer, Integer> map =
+                new ConcurrentSoftValueHashMap<Integer, Integer>(64);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Map<Integer, Integer>>> futures =
+                    new ArrayList<Future<Map<Integer, Integer>>>();
+            for (int t = 0; t < threads; t++) {
+                final int base = t * 1000;
+                futures.add(executor.submit(new Callable<Map<Integer, Integer>>() {
+                    public Map<Integer, Integer> call() {
+                        final Random random = new Random(base);
+                        final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+                        for (int i = 0; i < 20000; i++) {
+                            final Integer key = base + random.nextInt(100);
+                            final Integer value = random.nextInt(1000);
+                            switch (random.nextInt(4)) {
+                                case 0: map.remove(key); expected.remove(key); break;
+                                case 1: map.get(key + 500); break;
+                                default: map.put(key, value); expected.put(key, value); break;
+                            }
+                            assertEquals(expected.get(key), map.get(key));
+                        }
+                        return expected;
+                    }
+                }));
+            }
+            int size = 0;
+            for (final Future<Map<Integer, Integer>> future : futures) {
+                for (final Map.Entry<Integer, Integer> entry : future.get().entrySet()) {
+                    assertEquals(entry.getValue(), map.get(entry.getKey()));
+                    size++;
+                }
+            }
+            assertEquals(size, map.size());
+            assertTrue(map.isValid());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testObjectCaches() {
+        assertTrue(ObjectCaches.createSoftValueMap(null, 10) instanceof SoftValueHashMap);
+        assertTrue(ObjectCaches.createWeakValueMap(null) instanceof WeakValueHashMap);
+        final Hints hints = new Hints(Hints.CACHE_CONCURRENT, Boolean.TRUE);
+        final Map<String, String> soft = ObjectCaches.createSoftValueMap(hints, 10);
+        assertTrue(soft instanceof ConcurrentSoftValueHashMap);
+        assertEquals(10, ((ConcurrentSoftValueHashMap<String, String>) soft).getHardReferencesCount());
+        assertTrue(ObjectCaches.createWeakValueMap(hints) instanceof ConcurrentWeakValueHashMap);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentWeakValueHashMap}. A standard {@link HashMap} object is used for
+ * comparison purpose.
+ *
+ * @source $URL$
+ */
+public class ConcurrentWeakValueHashMapTest {
+    /**
+     * The size of the test sets to be created.
+     */
+    private static final int SAMPLE_SIZE = 500;
+
+    /**
+     * Using strong references the map should behave like a standard {@link Map}.
+     */
+    @Test
+    public void testStrongReferences() {
+        final Random random = new Random(0);
+        for (int pass = 0; pass < 4; pass++) {
+            final ConcurrentWeakValueHashMap<Integer, Integer> weakMap =
+                    new ConcurrentWeakValueHashMap<Integer, Integer>();
+            final HashMap<Integer, Integer> strongMap = new HashMap<Integer, Integer>();
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                final Integer key = random.nextInt(SAMPLE_SIZE);
+                final Integer value = random.nextInt(SAMPLE_SIZE);
+                assertEquals("containsKey:", strongMap.containsKey(key), weakMap.containsKey(key));
+                assertEquals("containsValue:", strongMap.containsValue(value),
+                        weakMap.containsValue(value));
+                assertSame("get:", strongMap.get(key), weakMap.get(key));
+                if (random.nextBoolean()) {
+                    assertSame("put:", strongMap.put(key, value), weakMap.put(key, value));
+                } else {
+                    assertSame("remove:", strongMap.remove(key), weakMap.remove(key));
+                }
+                assertEquals("equals:", strongMap, weakMap);
+                assertTrue("containsAll:", weakMap.entrySet().containsAll(strongMap.entrySet()));
+            }
+        }
+    }
+
+    /**
+     * The entries whose values are no longer referenced elsewhere should go away.
+     */
+    @Test
+    public void testWeakReferences() throws InterruptedException {
+        final Random random = new Random(0);
+        final ConcurrentWeakValueHashMap<Integer, Integer> weakMap =
+                new ConcurrentWeakValueHashMap<Integer, Integer>();
+        final HashMap<Integer, Integer> strongMap = new HashMap<Integer, Integer>();
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            // We really want new instances here.
+            final Integer key = new Integer(random.nextInt(SAMPLE_SIZE));
+            final Integer value = new Integer(random.nextInt(SAMPLE_SIZE));
+            weakMap.put(key, value);
+            if (random.nextBoolean()) {
+                strongMap.put(key, value);
+            } else {
+                strongMap.remove(key);
+            }
+        }
+        // Do our best to lets GC finish its work.
+        for (int i = 0; i < 20 && weakMap.size() != strongMap.size(); i++) {
+            Thread.sleep(50);
+            System.gc();
+        }
+        assertEquals(strongMap, weakMap);
+        assertEquals(strongMap.size(), weakMap.size());
+    }
+
+    @Test
+    public void testConcurrentMapOperations() {
+        final ConcurrentWeakValueHashMap<String, String> map =
+                new ConcurrentWeakValueHashMap<String, String>();
+        assertNull(map.putIfAbsent("a", "1"));
+        assertEquals("1", map.putIfAbsent("a", "2"));
+        assertNull(map.replace("b", "1"));
+        assertFalse(map.containsKey("b"));
+        assertEquals("1", map.replace("a", "3"));
+        assertFalse(map.replace("a", "1", "4"));
+        assertTrue(map.replace("a", "3", "4"));
+        assertFalse(map.remove("a", "3"));
+        assertTrue(map.remove("a", "4"));
+        assertTrue(map.isEmpty());
+
+        map.put("a", "1");
+        map.put("b", "2");
+        final Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().equals("a")) {
+                it.remove();
+            }
+        }
+        assertEquals(1, map.size());
+        assertEquals("2", map.get("b"));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() {
+        new ConcurrentWeakValueHashMap<String, String>().put(null, "a");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        new ConcurrentWeakValueHashMap<String, String>().put("a", null);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the operations per second the soft and weak value maps sustain when hammered by
+ * many threads, the way a cache shared by parallel renderers is, comparing the synchronized
+ * maps against their concurrent variants. Most operations are lookups of a small hot set of
+ * keys, a few are updates.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of threads
+ * and the number of operations per thread.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class ValueHashMapBenchmark {
+
+    static final int KEYS = 256;
+
+    static final int HARD_REFERENCES = 64;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        // the values must be strongly referenced for the weak maps to keep them
+        Integer[] values = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            values[i] = new Integer(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+            for (int i = 0; i < 5; i++) {
+                benchmark("SoftValueHashMap", new SoftValueHashMap<Integer, Integer>(
+                        HARD_REFERENCES), values, executor, threads, operations);
+                benchmark("ConcurrentSoftValueHashMap",
+                        new ConcurrentSoftValueHashMap<Integer, Integer>(HARD_REFERENCES), values,
+                        executor, threads, operations);
+                benchmark("WeakValueHashMap", new WeakValueHashMap<Integer, Integer>(), values,
+                        executor, threads, operations);
+                benchmark("ConcurrentWeakValueHashMap",
+                        new ConcurrentWeakValueHashMap<Integer, Integer>(), values, executor,
+                        threads, operations);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static void benchmark(String name, final Map<Integer, Integer> map, final Integer[] values,
+            ExecutorService executor, int threads, final int operations) throws Exception {
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        long t1 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            futures.add(executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    Random random = new Random(seed);
+                    int hits = 0;
+                    for (int i = 0; i < operations; i++) {
+                        // skew the lookups towards the first keys, like a cache hot set
+                        int key = random.nextInt(1 + random.nextInt(KEYS));
+                        if (random.nextInt(100) == 0) {
+                            map.put(key, values[key]);
+                        } else if (map.get(key) != null) {
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }
+            }));
+        }
+        long hits = 0;
+        for (Future<Integer> future : futures) {
+            hits += future.get();
+        }
+        long t2 = System.nanoTime();
+
+        long total = (long) threads * operations;
+        System.out.println(name + ": " + Math.round(total / ((t2 - t1) / 1e9)) + " ops/s ("
+                + threads + " threads, " + Math.round(hits * 100.0 / total) + "% hits)");
+    }
+}
@@ -17,6 +17,7 @@
 package org.geotools.referencing.operation;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -28,7 +29,7 @@ import org.opengis.referencing.operation.OperationNotFoundException;
 import org.geotools.factory.Hints;
 import org.geotools.factory.BufferedFactory;
 import org.geotools.util.Utilities;
-import org.geotools.util.SoftValueHashMap;
+import org.geotools.util.ObjectCaches;
 import org.geotools.referencing.ReferencingFactoryFinder;
 
 
@@ -125,10 +126,11 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
     /**
      * The pool of cached transformations. This map can not be static, because the values may
      * be different for the same ({@code sourceCRS}, {@code targetCRS}) pair dependending of
-     * hint values like {@link Hints#LENIENT_DATUM_SHIFT}.
+     * hint values like {@link Hints#LENIENT_DATUM_SHIFT}. The map is thread safe, concurrent
+     * if {@link Hints#CACHE_CONCURRENT} is set.
      */
     private final Map<CRSPair, CoordinateOperation> pool =
-            new SoftValueHashMap<CRSPair, CoordinateOperation>();
+            ObjectCaches.createSoftValueMap(null, 20);
 
     /**
      * Creates a buffered factory wrapping the {@linkplain AuthorityBackedFactory default one}.
@@ -249,12 +251,33 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
         ensureNonNull("sourceCRS", sourceCRS);
         ensureNonNull("targetCRS", targetCRS);
         final CRSPair key = new CRSPair(sourceCRS, targetCRS);
-        CoordinateOperation op;
-        synchronized (hints) { // This lock is indirectly required by getBackingFactory().
-            op = pool.get(key);
-            if (op == null) {
-                op = getBackingFactory().createOperation(sourceCRS, targetCRS);
-                pool.put(key, op);
+        CoordinateOperation op = pool.get(key);
+        if (op == null) {
+            /*
+             * Only the backing factory lookup needs the lock, the backing factories are thread
+             * safe: cache misses for different pairs are computed in parallel. If two threads
+             * compute the same pair, the first operation cached is the one returned to both.
+             */
+            final CoordinateOperationFactory backing;
+            synchronized (hints) { // This lock is indirectly required by getBackingFactory().
+                backing = getBackingFactory();
+            }
+            op = backing.createOperation(sourceCRS, targetCRS);
+            if (pool instanceof ConcurrentMap) {
+                final CoordinateOperation previous =
+                        ((ConcurrentMap<CRSPair, CoordinateOperation>) pool).putIfAbsent(key, op);
+                if (previous != null) {
+                    op = previous;
+                }
+            } else {
+                synchronized (pool) {
+                    final CoordinateOperation previous = pool.get(key);
+                    if (previous != null) {
+                        op = previous;
+                    } else {
+                        pool.put(key, op);
+                    }
+                }
             }
         }
         return op;
@@ -267,6 +267,106 @@ public class AlbersEqualArea extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates using
+     * the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double n = this.n, c = this.c, rho0 = this.rho0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double x = ordinates[i] * n;
+            final double sinphi = sin(ordinates[i+1]);
+            double rho;
+            if (isSpherical) {
+                rho = c - n*2 * sinphi;
+            } else {
+                rho = c - n * qsfn(sinphi);
+            }
+            if (rho < 0.0) {
+                if (rho > -EPSILON) {
+                    rho = 0.0;
+                } else {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(ErrorKeys.TOLERANCE_ERROR);
+                    }
+                    continue;
+                }
+            }
+            rho = sqrt(rho) / n;
+            ordinates[i+1] = rho0 - rho * cos(x);
+            ordinates[i  ] =        rho * sin(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates using the same
+     * equations than {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        final double n = this.n, c = this.c, rho0 = this.rho0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            double x = ordinates[i];
+            double y = rho0 - ordinates[i+1];
+            double rho = hypot(x, y);
+            if (rho > EPSILON) {
+                if (n < 0.0) {
+                    rho = -rho;
+                    x   = -x;
+                    y   = -y;
+                }
+                x = atan2(x, y) / n;
+                y = rho * n;
+                if (isSpherical) {
+                    y = (c - y * y) / (n*2);
+                    if (abs(y) <= 1.0){
+                        y = asin(y);
+                    }
+                    else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                } else {
+                    y = (c - y*y) / n;
+                    if (abs(ec - abs(y)) > EPSILON) {
+                        try {
+                            y = phi1(y);
+                        } catch (ProjectionException exception) {
+                            ordinates[i] = ordinates[i+1] = Double.NaN;
+                            if (firstException == null) {
+                                firstException = exception;
+                            }
+                            continue;
+                        }
+                    } else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                }
+            } else {
+                x = 0.0;
+                y = n > 0.0 ? PI/2.0 : - PI/2.0;
+            }
+            ordinates[i  ] = x;
+            ordinates[i+1] = y;
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Iteratively solves equation (3-16) from Snyder.
      *
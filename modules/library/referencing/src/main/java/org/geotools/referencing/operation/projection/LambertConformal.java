@@ -280,6 +280,90 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates using
+     * the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double n = this.n, F = this.F, rho0 = this.rho0;
+        final double shift = belgium ? BELGE_A : 0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double y = ordinates[i+1];
+            final double rho;
+            if (abs(abs(y) - PI/2) < EPSILON) {
+                if (y*n <= 0) {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI/4 + 0.5*y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            final double x = ordinates[i] * n - shift;
+            ordinates[i+1] = rho0 - rho * cos(x);
+            ordinates[i  ] =        rho * sin(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates using the same
+     * equations than {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        final double n = this.n, F = this.F, rho0 = this.rho0;
+        final double shift = belgium ? BELGE_A : 0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            double x = ordinates[i];
+            double y = rho0 - ordinates[i+1];
+            double rho = hypot(x, y);  // Zero when the latitude is 90 degrees.
+            if (rho > EPSILON) {
+                if (n < 0) {
+                    rho = -rho;
+                    x = -x;
+                    y = -y;
+                }
+                ordinates[i] = (atan2(x, y) + shift) / n;
+                if (isSpherical) {
+                    ordinates[i+1] = 2.0 * atan(pow(F/rho, 1.0/n)) - PI/2;
+                } else {
+                    try {
+                        ordinates[i+1] = cphi2(pow(rho/F, 1.0/n));
+                    } catch (ProjectionException exception) {
+                        ordinates[i] = ordinates[i+1] = Double.NaN;
+                        if (firstException == null) {
+                            firstException = exception;
+                        }
+                    }
+                }
+            } else {
+                ordinates[i  ] = 0.0;
+                ordinates[i+1] = n < 0 ? -(PI/2) : (PI/2);
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Returns a hash value for this projection.
      */
@@ -845,6 +845,91 @@ public abstract class MapProjection extends AbstractMathTransform
     protected abstract Point2D transformNormalized(double lambda, double phi, final Point2D ptDst)
             throws ProjectionException;
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates (units
+     * in radians) into linear distances on a unit sphere or ellipse. This is the array flavour of
+     * <code>{@link #transformNormalized(double,double,Point2D) transformNormalized}(lambda, phi,
+     * ptDst)</code>, invoked by {@link #transform(double[],int,double[],int,int)} once the
+     * {@link #centralMeridian} has been removed from every longitude, and before the results are
+     * scaled by {@link #globalScale} and moved by the {@link #falseEasting} and
+     * {@link #falseNorthing}.
+     * <p>
+     * The default implementation delegates to the point method one coordinate at a time.
+     * Subclasses can override it with a loop working directly on the array, without any
+     * {@link Point2D} or virtual call per point, as long as the results are the same.
+     * Coordinates that can't be transformed must be set to {@link Double#NaN}, and the
+     * transformation must go on with the remaining ones.
+     *
+     * @param ordinates The (<var>&lambda;</var>,<var>&phi;</var>) pairs, replaced by the
+     *                  projected ones.
+     * @param offset    The index of the first ordinate.
+     * @param numPts    The number of points to transform.
+     * @throws ProjectionException if at least one point can't be transformed. If more than one
+     *         point can't be transformed, then this exception may be about an arbitrary point.
+     *
+     * @since 11.0
+     */
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        transformNormalizedPointwise(ordinates, offset, numPts, false);
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates, as linear
+     * distances on a unit sphere or ellipse, into (<var>&lambda;</var>,<var>&phi;</var>)
+     * coordinates in radians. This is the array flavour of
+     * <code>{@link #inverseTransformNormalized(double,double,Point2D) inverseTransformNormalized}(x,
+     * y, ptDst)</code>, see {@link #transformNormalized(double[],int,int)} for the contract.
+     *
+     * @param ordinates The (<var>x</var>,<var>y</var>) pairs, replaced by the geographic ones.
+     * @param offset    The index of the first ordinate.
+     * @param numPts    The number of points to transform.
+     * @throws ProjectionException if at least one point can't be transformed.
+     *
+     * @since 11.0
+     */
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        transformNormalizedPointwise(ordinates, offset, numPts, true);
+    }
+
+    /**
+     * Transforms in place an array of normalized coordinates by invoking the point methods
+     * one coordinate at a time. Subclasses overriding the point methods of a class having
+     * array kernels can use this method in order to keep the two flavours consistent.
+     */
+    final void transformNormalizedPointwise(final double[] ordinates, final int offset,
+                                            final int numPts, final boolean inverse)
+            throws ProjectionException
+    {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            try {
+                if (inverse) {
+                    inverseTransformNormalized(ordinates[i], ordinates[i+1], point);
+                } else {
+                    transformNormalized(ordinates[i], ordinates[i+1], point);
+                }
+                ordinates[i  ] = point.x;
+                ordinates[i+1] = point.y;
+            } catch (ProjectionException exception) {
+                ordinates[i  ] = Double.NaN;
+                ordinates[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
      * <p>
@@ -900,44 +985,50 @@ public abstract class MapProjection extends AbstractMathTransform
      *         have value {@link Double#NaN}. If more than one point can't be transformed, then this
      *         exception may be about an arbitrary point.
      */
-    public final void transform(final double[] srcPts, int srcOff,
-                                final double[] dstPts, int dstOff, int numPts)
+    public final void transform(final double[] srcPts, final int srcOff,
+                                final double[] dstPts, final int dstOff, final int numPts)
             throws ProjectionException
     {
+        if (numPts <= 0) {
+            return;
+        }
         /*
-         * Vérifie s'il faudra parcourir le tableau en sens inverse.
-         * Ce sera le cas si les tableaux source et destination se
-         * chevauchent et que la destination est après la source.
+         * Works in place in the destination array, which takes care of overlapping arrays.
+         * The normalization is the same than the one performed by transform(Point2D, Point2D)
+         * on each point, but the projection itself is performed in a single call to the array
+         * kernel.
          */
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
-        }
-        final Point2D.Double point = new Point2D.Double();
-        ProjectionException firstException = null;
-        while (--numPts >= 0) {
-            try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
-            } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
-                if (firstException == null) {
-                    firstException = exception;
-                }
-            }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+        double[] source = null;
+        assert (source = copyForAssertions(srcPts, srcOff, numPts)) != null;
+        System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2*numPts);
+        final int end = dstOff + 2*numPts;
+        boolean verify = verifyCoordinateRanges();
+        for (int i=dstOff; i<end; i+=2) {
+            final double x = dstPts[i];
+            final double y = dstPts[i+1];
+            if (verify && verifyGeographicRanges(this, x, y)) {
+                warningLogged();
+                verify = false;
             }
+            dstPts[i  ] = centralMeridian != 0 ?
+                          rollLongitude(toRadians(x) - centralMeridian) : toRadians(x);
+            dstPts[i+1] = toRadians(y);
         }
-        if (firstException != null) {
-            throw firstException;
+        ProjectionException failure = null;
+        try {
+            transformNormalized(dstPts, dstOff, numPts);
+        } catch (ProjectionException exception) {
+            failure = exception;
+        }
+        for (int i=dstOff; i<end; i+=2) {
+            dstPts[i  ] = globalScale*dstPts[i  ] + falseEasting;
+            dstPts[i+1] = globalScale*dstPts[i+1] + falseNorthing;
+        }
+        if (source != null && invertible) {
+            failure = checkReciprocal(source, dstPts, dstOff, numPts, true, failure);
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
@@ -951,40 +1042,67 @@ public abstract class MapProjection extends AbstractMathTransform
      *         exception may be about an arbitrary point.
      */
     @Override
-    public final void transform(final float[] srcPts, int srcOff,
-                                final float[] dstPts, int dstOff, int numPts)
+    public final void transform(final float[] srcPts, final int srcOff,
+                                final float[] dstPts, final int dstOff, final int numPts)
             throws ProjectionException
     {
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
+        if (numPts <= 0) {
+            return;
         }
-        final Point2D.Double point = new Point2D.Double();
-        ProjectionException firstException = null;
-        while (--numPts >= 0) {
+        final double[] buffer = new double[2*numPts];
+        for (int i=0; i<buffer.length; i++) {
+            buffer[i] = srcPts[srcOff + i];
+        }
+        try {
+            transform(buffer, 0, buffer, 0, numPts);
+        } finally {
+            for (int i=0; i<buffer.length; i++) {
+                dstPts[dstOff + i] = (float) buffer[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the source points, for {@link #checkReciprocal} in assertions.
+     */
+    private static double[] copyForAssertions(final double[] srcPts, final int srcOff,
+                                              final int numPts)
+    {
+        final double[] copy = new double[2*numPts];
+        System.arraycopy(srcPts, srcOff, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Performs on every transformed point the same {@link #checkReciprocal} check than the one
+     * made in assertions by the point transforms, setting the failing points to {@link Double#NaN}
+     * like the point by point loop used to do.
+     *
+     * @return The first exception, either the given one or the first check failure.
+     */
+    private ProjectionException checkReciprocal(final double[] source, final double[] target,
+                                                final int offset, final int numPts,
+                                                final boolean inverse,
+                                                ProjectionException failure)
+    {
+        final Point2D.Double src = new Point2D.Double();
+        final Point2D.Double dst = new Point2D.Double();
+        for (int i=0; i<2*numPts; i+=2) {
+            final int j = offset + i;
+            src.x = source[i];
+            src.y = source[i+1];
+            dst.x = target[j];
+            dst.y = target[j+1];
             try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = (float) point.x;
-                dstPts[dstOff++] = (float) point.y;
+                checkReciprocal(dst, src, inverse);
             } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Float.NaN;
-                dstPts[dstOff++] = Float.NaN;
-                if (firstException == null) {
-                    firstException = exception;
+                target[j] = target[j+1] = Double.NaN;
+                if (failure == null) {
+                    failure = exception;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
-            }
-        }
-        if (firstException != null) {
-            throw firstException;
         }
+        return failure;
     }
 
     /**
@@ -1067,44 +1185,44 @@ public abstract class MapProjection extends AbstractMathTransform
          *         than one point can't be transformed, then this exception may be about
          *         an arbitrary point.
          */
-        public final void transform(final double[] src,  int srcOffset,
-                                    final double[] dest, int dstOffset, int numPts)
-                throws TransformException
+        public final void transform(final double[] src,  final int srcOffset,
+                                    final double[] dest, final int dstOffset, final int numPts)
+                throws ProjectionException
         {
-            /*
-             * Vérifie s'il faudra parcourir le tableau en sens inverse.
-             * Ce sera le cas si les tableaux source et destination se
-             * chevauchent et que la destination est après la source.
-             */
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
+            if (numPts <= 0) {
+                return;
             }
-            final Point2D.Double point = new Point2D.Double();
-            ProjectionException firstException = null;
-            while (--numPts>=0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
-                } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
-                    }
-                }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
+            double[] source = null;
+            assert (source = copyForAssertions(src, srcOffset, numPts)) != null;
+            System.arraycopy(src, srcOffset, dest, dstOffset, 2*numPts);
+            final int end = dstOffset + 2*numPts;
+            for (int i=dstOffset; i<end; i+=2) {
+                dest[i  ] = (dest[i  ] - falseEasting ) / globalScale;
+                dest[i+1] = (dest[i+1] - falseNorthing) / globalScale;
+            }
+            ProjectionException failure = null;
+            try {
+                inverseTransformNormalized(dest, dstOffset, numPts);
+            } catch (ProjectionException exception) {
+                failure = exception;
+            }
+            boolean verify = verifyCoordinateRanges();
+            for (int i=dstOffset; i<end; i+=2) {
+                final double x = toDegrees(centralMeridian != 0 ?
+                                 rollLongitude(dest[i] + centralMeridian) : dest[i]);
+                final double y = toDegrees(dest[i+1]);
+                dest[i  ] = x;
+                dest[i+1] = y;
+                if (verify && verifyGeographicRanges(this, x, y)) {
+                    warningLogged();
+                    verify = false;
                 }
             }
-            if (firstException != null) {
-                throw firstException;
+            if (source != null) {
+                failure = checkReciprocal(source, dest, dstOffset, numPts, false, failure);
+            }
+            if (failure != null) {
+                throw failure;
             }
         }
 
@@ -1119,39 +1237,23 @@ public abstract class MapProjection extends AbstractMathTransform
          *         an arbitrary point.
          */
         @Override
-        public final void transform(final float[] src,  int srcOffset,
-                                    final float[] dest, int dstOffset, int numPts)
+        public final void transform(final float[] src,  final int srcOffset,
+                                    final float[] dest, final int dstOffset, final int numPts)
                 throws ProjectionException
         {
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
+            if (numPts <= 0) {
+                return;
             }
-            final Point2D.Double point = new Point2D.Double();
-            ProjectionException firstException = null;
-            while (--numPts>=0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = (float) point.x;
-                    dest[dstOffset++] = (float) point.y;
-                } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Float.NaN;
-                    dest[dstOffset++] = Float.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
-                    }
-                }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
-                }
+            final double[] buffer = new double[2*numPts];
+            for (int i=0; i<buffer.length; i++) {
+                buffer[i] = src[srcOffset + i];
             }
-            if (firstException!=null) {
-                throw firstException;
+            try {
+                transform(buffer, 0, buffer, 0, numPts);
+            } finally {
+                for (int i=0; i<buffer.length; i++) {
+                    dest[dstOffset + i] = (float) buffer[i];
+                }
             }
         }
 
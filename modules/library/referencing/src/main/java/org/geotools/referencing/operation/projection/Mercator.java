@@ -171,6 +171,58 @@ public abstract class Mercator extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates using
+     * the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset+1; i<end; i+=2) {
+            final double y = ordinates[i];
+            if (abs(y) > (PI/2 - EPSILON)) {
+                ordinates[i-1] = ordinates[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = new ProjectionException(y);
+                }
+                continue;
+            }
+            ordinates[i] = -log(tsfn(y, sin(y)));
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates using the same
+     * equations than {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset+1; i<end; i+=2) {
+            try {
+                ordinates[i] = cphi2(exp(-ordinates[i]));
+            } catch (ProjectionException exception) {
+                ordinates[i-1] = ordinates[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
 
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
@@ -241,6 +293,46 @@ public abstract class Mercator extends MapProjection {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void transformNormalized(final double[] ordinates, final int offset,
+                                           final int numPts)
+                throws ProjectionException
+        {
+            ProjectionException firstException = null;
+            final int end = offset + 2*numPts;
+            for (int i=offset+1; i<end; i+=2) {
+                final double y = ordinates[i];
+                if (abs(y) > (PI/2 - EPSILON)) {
+                    ordinates[i-1] = ordinates[i] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                ordinates[i] = log(tan(PI/4 + 0.5*y));
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            final int end = offset + 2*numPts;
+            for (int i=offset+1; i<end; i+=2) {
+                ordinates[i] = PI/2 - 2.0*atan(exp(-ordinates[i]));
+            }
+        }
     }
 
 
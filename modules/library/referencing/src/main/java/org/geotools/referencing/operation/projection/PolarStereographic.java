@@ -236,6 +236,77 @@ public class PolarStereographic extends Stereographic {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates using
+     * the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double k0 = this.k0;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double x = ordinates[i];
+            final double y = ordinates[i+1];
+            final double sinlat = sin(y);
+            if (southPole) {
+                final double rho = k0 * tsfn(-y, -sinlat);
+                ordinates[i  ] = rho * sin(x);
+                ordinates[i+1] = rho * cos(x);
+            } else {
+                final double rho = k0 * tsfn(y, sinlat);
+                ordinates[i  ] =  rho * sin(x);
+                ordinates[i+1] = -rho * cos(x);
+            }
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates using the same
+     * equations than {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        final double k0 = this.k0;
+        final double halfe = excentricity/2.0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double x = ordinates[i];
+            double y = ordinates[i+1];
+            final double rho = hypot(x, y);
+            if (southPole) {
+                y = -y;
+            }
+            final double t = rho/k0;
+            double phi0 = 0;
+            for (int j=MAXIMUM_ITERATIONS;;) {
+                final double esinphi = excentricity * sin(phi0);
+                final double phi = (PI/2) - 2.0*atan(t*pow((1-esinphi)/(1+esinphi), halfe));
+                if (abs(phi-phi0) < ITERATION_TOLERANCE) {
+                    ordinates[i  ] = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                    ordinates[i+1] = (southPole) ? -phi : phi;
+                    break;
+                }
+                phi0 = phi;
+                if (--j < 0) {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+                    }
+                    break;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -397,6 +468,70 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void transformNormalized(final double[] ordinates, final int offset,
+                                           final int numPts)
+                throws ProjectionException
+        {
+            final double k0 = this.k0;
+            ProjectionException firstException = null;
+            final int end = offset + 2*numPts;
+            for (int i=offset; i<end; i+=2) {
+                final double x = ordinates[i];
+                final double y = ordinates[i+1];
+                final double sinlat = sin(y);
+                if (abs(1 + (southPole ? -sinlat : sinlat)) < EPSILON) {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(ErrorKeys.VALUE_TEND_TOWARD_INFINITY);
+                    }
+                    continue;
+                }
+                if (southPole) {
+                    final double f = k0 * cos(y) / (1-sinlat); // (21-12)
+                    ordinates[i  ] = f * sin(x);
+                    ordinates[i+1] = f * cos(x);
+                } else {
+                    final double f = k0 * cos(y) / (1+sinlat); // (21-8)
+                    ordinates[i  ] =  f * sin(x);
+                    ordinates[i+1] = -f * cos(x);
+                }
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            final double k0 = this.k0;
+            final int end = offset + 2*numPts;
+            for (int i=offset; i<end; i+=2) {
+                final double x = ordinates[i];
+                double y = ordinates[i+1];
+                final double rho = hypot(x, y);
+                if (!southPole) {
+                    y = -y;
+                }
+                ordinates[i] = (abs(x)<EPSILON && abs(y)<EPSILON) ? 0.0 : atan2(x, y);
+                if (abs(rho) < EPSILON) {
+                    ordinates[i+1] = latitudeOfOrigin;
+                } else {
+                    final double cosc = cos(2.0 * atan(rho/k0));
+                    ordinates[i+1] = (southPole) ? asin(-cosc) : asin(cosc);
+                }
+            }
+        }
     }
 
     /**
@@ -511,6 +646,36 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place an array of coordinates using the series equations.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            final double k0 = this.k0;
+            final double A = this.A, B = this.B, C = this.C, D = this.D;
+            final double root = sqrt(pow(1+excentricity, 1+excentricity)*
+                                     pow(1-excentricity, 1-excentricity));
+            final int end = offset + 2*numPts;
+            for (int i=offset; i<end; i+=2) {
+                final double x = ordinates[i];
+                double y = ordinates[i+1];
+                final double rho = hypot(x, y);
+                if (southPole) {
+                    y = -y;
+                }
+                final double chi = PI/2 - 2*atan((rho/k0) * root / 2);
+                ordinates[i] = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+
+                final double sin2chi = sin(2.0 * chi);
+                final double cos2chi = cos(2.0 * chi);
+                y = chi + sin2chi*(A + cos2chi*(B + cos2chi*(C + D*cos2chi)));
+                ordinates[i+1] = (southPole) ? -y : y;
+            }
+        }
     }
 
 
@@ -248,6 +248,101 @@ public class TransverseMercator extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates using
+     * the same equations than {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double es  = excentricitySquared;
+        final double esp = this.esp;
+        final double ml0 = this.ml0;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double x = ordinates[i];
+            final double y = ordinates[i+1];
+            final double sinphi = sin(y);
+            final double cosphi = cos(y);
+
+            double t = (abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
+            t *= t;
+            double al = cosphi*x;
+            final double als = al*al;
+            al /= sqrt(1.0 - es * sinphi*sinphi);
+            final double n = esp * cosphi*cosphi;
+
+            ordinates[i+1] = (mlfn(y, sinphi, cosphi) - ml0 +
+                sinphi * al * x *
+                FC2 * ( 1.0 +
+                FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
+                FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
+                FC8 * als * (1385.0 + t * ( t*(543.0 - t) - 3111.0))))));
+
+            ordinates[i] = al*(FC1 + FC3 * als*(1.0 - t + n +
+                FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
+                FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0 )))));
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates using the same
+     * equations than {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                              final int numPts)
+            throws ProjectionException
+    {
+        final double es  = excentricitySquared;
+        final double esp = this.esp;
+        final double ml0 = this.ml0;
+        ProjectionException firstException = null;
+        final int end = offset + 2*numPts;
+        for (int i=offset; i<end; i+=2) {
+            final double x = ordinates[i];
+            final double y = ordinates[i+1];
+            final double phi;
+            try {
+                phi = inv_mlfn(ml0 + y);
+            } catch (ProjectionException exception) {
+                ordinates[i] = ordinates[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+                continue;
+            }
+            if (abs(phi) >= PI/2) {
+                ordinates[i  ] = 0.0;
+                ordinates[i+1] = y<0.0 ? -(PI/2) : (PI/2);
+            } else {
+                final double sinphi = sin(phi);
+                final double cosphi = cos(phi);
+                double t = (abs(cosphi) > EPSILON) ? sinphi/cosphi : 0.0;
+                final double n = esp * cosphi*cosphi;
+                double con = 1.0 - es * sinphi*sinphi;
+                final double d = x * sqrt(con);
+                con *= t;
+                t *= t;
+                final double ds = d*d;
+
+                ordinates[i+1] = phi - (con*ds / (1.0 - es)) *
+                    FC2 * (1.0 - ds *
+                    FC4 * (5.0 + t*(3.0 - 9.0*n) + n*(1.0 - 4*n) - ds *
+                    FC6 * (61.0 + t*(90.0 - 252.0*n + 45.0*t) + 46.0*n - ds *
+                    FC8 * (1385.0 + t*(3633.0 + t*(4095.0 + 1574.0*t))))));
+
+                ordinates[i] = d*(FC1 - ds * FC3 * (1.0 + 2.0*t + n -
+                    ds*FC5*(5.0 + t*(28.0 + 24* t + 8.0*n) + 6.0*n -
+                    ds*FC7*(61.0 + t*(662.0 + t*(1320.0 + 720.0*t))))))/cosphi;
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -349,6 +444,57 @@ public class TransverseMercator extends MapProjection {
             return new Point2D.Double(x,y);
         }
 
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void transformNormalized(final double[] ordinates, final int offset,
+                                           final int numPts)
+                throws ProjectionException
+        {
+            final double latitudeOfOrigin = this.latitudeOfOrigin;
+            ProjectionException firstException = null;
+            final int end = offset + 2*numPts;
+            for (int i=offset; i<end; i+=2) {
+                final double x = ordinates[i];
+                final double y = ordinates[i+1];
+                final double b = cos(y) * sin(x);
+                if (abs(abs(b) - 1.0) <= EPSILON) {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(ErrorKeys.VALUE_TEND_TOWARD_INFINITY);
+                    }
+                    continue;
+                }
+                ordinates[i+1] = atan2(tan(y), cos(x)) - latitudeOfOrigin;   /* Snyder 8-3 */
+                ordinates[i  ] = 0.5 * log((1.0+b) / (1.0-b));               /* Snyder 8-1 */
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Transforms in place an array of coordinates using the spherical equations.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            final double latitudeOfOrigin = this.latitudeOfOrigin;
+            final int end = offset + 2*numPts;
+            for (int i=offset; i<end; i+=2) {
+                final double x = ordinates[i];
+                final double y = ordinates[i+1];
+                final double sinhX = sinh(x);
+                final double cosD = cos(latitudeOfOrigin + y);
+                final double phi = asin(sqrt((1.0 - cosD*cosD) / (1.0 + sinhX*sinhX)));
+                ordinates[i+1] = ((y + latitudeOfOrigin)<0.0) ? -phi : phi;
+                ordinates[i  ] = (abs(sinhX) <= EPSILON  &&  abs(cosD) <= EPSILON) ? 0.0 : atan2(sinhX,cosD);
+            }
+        }
+
         /**
          * Maximal error tolerated for assertions in the spherical case. When assertions
          * are enabled, every projection using spherical formulas is followed by a projection
@@ -0,0 +1,540 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.util.Utilities;
+import org.geotools.util.logging.Logging;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Approximates a two dimensional {@link MathTransform2D} with a bilinear interpolation over a
+ * regular grid covering a rectangular domain, much like {@link WarpBuilder} does for rasters.
+ * It is meant to speed up transforms whose result only needs to be accurate up to a known
+ * tolerance, such as a full chain from a data CRS to the screen when rendering, where sub-pixel
+ * accuracy is all that is needed: each point costs a grid lookup and a few multiplications,
+ * regardless of how long and expensive the approximated chain is.
+ * <p>
+ * The error of a bilinear interpolation over a cell of size h by k is bounded by
+ * {@code h^2/8 max|fxx| + k^2/8 max|fyy|} for each target ordinate. The second derivatives
+ * are estimated from the second differences of the transform over a lattice of points of each
+ * cell, and doubled to account for their variation between the lattice points. The grid
+ * resolution is picked by recursively splitting the domain, along the axis whose second
+ * derivatives dominate, until the bound of every cell is within the tolerance, and the bound
+ * is then checked again on every cell of the resulting regular grid, refining it if needed.
+ * When no grid small enough can honor the tolerance, {@link #create} returns the original
+ * transform. The tolerance is thus a bound of the error, not just a sampled one, for any
+ * transform whose second derivatives do not change by more than a factor of two between
+ * neighbouring lattice points, which holds for map projections away from their singularities.
+ * <p>
+ * The points falling outside of the domain, or in cells whose corners cannot be transformed,
+ * are transformed with the exact transform. The {@linkplain #inverse inverse} and the
+ * {@linkplain #derivative derivatives} are the exact ones as well.
+ *
+ * @source $URL$
+ */
+public class ApproximatedTransform2D extends AbstractMathTransform implements MathTransform2D,
+        Serializable {
+    private static final long serialVersionUID = -2871226520472046553L;
+
+    static final Logger LOGGER = Logging.getLogger(ApproximatedTransform2D.class);
+
+    /**
+     * The maximum sum of the row and column subdivision depths, the grid will not have more
+     * than 2^MAX_DEPTH cells
+     */
+    static final int MAX_DEPTH = 14;
+
+    /**
+     * The number of intervals sampled along each side of a cell to estimate its second
+     * derivatives
+     */
+    static final int SAMPLES = 4;
+
+    /**
+     * The factor applied to the second differences to bound the second derivatives anywhere in
+     * the cell
+     */
+    static final double SAFETY = 2;
+
+    /**
+     * Turns the largest second difference of a cell lattice into a bound of the interpolation
+     * error: the derivative is the difference divided by (h/SAMPLES)^2, and the error is bounded
+     * by h^2/8 times the derivative
+     */
+    static final double ERROR_FACTOR = SAFETY * SAMPLES * SAMPLES / 8;
+
+    /**
+     * The exact transform
+     */
+    private final MathTransform2D transform;
+
+    /**
+     * The maximum distance tolerated between the exact and the approximated points
+     */
+    private final double tolerance;
+
+    /**
+     * The lower left corner of the domain
+     */
+    private final double minX, minY;
+
+    /**
+     * The size of the grid cells
+     */
+    private final double cellWidth, cellHeight;
+
+    /**
+     * The number of grid cells along each axis
+     */
+    private final int cols, rows;
+
+    /**
+     * The transformed grid nodes, row by row, as x,y pairs. The nodes that could not be
+     * transformed are NaN
+     */
+    private final double[] nodes;
+
+    /**
+     * Builds a transform approximating {@code transform} over the specified domain, if the
+     * tolerance can be honored with a reasonably sized grid.
+     *
+     * @param transform The transform to be approximated
+     * @param domain The area, in source coordinates, over which the transform will be
+     *        approximated
+     * @param tolerance The maximum distance, in target units, between the exact and the
+     *        approximated points
+     * @return An {@link ApproximatedTransform2D}, or {@code transform} itself if the
+     *         approximation would be slower or could not honor the tolerance
+     * @throws TransformException
+     */
+    public static MathTransform2D create(MathTransform2D transform, Rectangle2D domain,
+            double tolerance) throws TransformException {
+        if (transform instanceof LinearTransform || transform instanceof ApproximatedTransform2D
+                || !(tolerance > 0) || domain.isEmpty()) {
+            return transform;
+        }
+        final double minX = domain.getMinX();
+        final double minY = domain.getMinY();
+        final double width = domain.getWidth();
+        final double height = domain.getHeight();
+        if (Double.isInfinite(width) || Double.isInfinite(height) || Double.isNaN(width)
+                || Double.isNaN(height)) {
+            return transform;
+        }
+
+        final GridSearch search = new GridSearch(transform, tolerance);
+        int[] depths;
+        try {
+            depths = search.computeDepths(minX, minX + width, minY, minY + height, 0, 0);
+        } catch (ExcessiveDepthException e) {
+            LOGGER.log(Level.FINE, "Cannot approximate the transform: {0}", e.getMessage());
+            return transform;
+        }
+
+        while (true) {
+            final ApproximatedTransform2D approximation = new ApproximatedTransform2D(transform,
+                    tolerance, minX, minY, width, height, 1 << depths[1], 1 << depths[0]);
+            final int errors = approximation.checkTolerance();
+            if (errors == 0) {
+                LOGGER.log(Level.FINE, "Approximating the transform with a {0} x {1} grid",
+                        new Object[] { approximation.rows, approximation.cols });
+                return approximation;
+            }
+            if ((errors & GridSearch.SPLIT_ROWS) != 0) {
+                depths[0]++;
+            }
+            if ((errors & GridSearch.SPLIT_COLUMNS) != 0) {
+                depths[1]++;
+            }
+            if (depths[0] + depths[1] > MAX_DEPTH) {
+                LOGGER.log(Level.FINE, "Cannot approximate the transform within the tolerance");
+                return transform;
+            }
+        }
+    }
+
+    ApproximatedTransform2D(MathTransform2D transform, double tolerance, double minX,
+            double minY, double width, double height, int cols, int rows) {
+        this.transform = transform;
+        this.tolerance = tolerance;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = width / cols;
+        this.cellHeight = height / rows;
+        this.cols = cols;
+        this.rows = rows;
+
+        nodes = new double[(cols + 1) * (rows + 1) * 2];
+        int idx = 0;
+        for (int r = 0; r <= rows; r++) {
+            // compute the last node from the max, to avoid rounding errors shrinking the domain
+            final double y = (r == rows) ? minY + height : minY + r * cellHeight;
+            for (int c = 0; c <= cols; c++) {
+                nodes[idx++] = (c == cols) ? minX + width : minX + c * cellWidth;
+                nodes[idx++] = y;
+            }
+        }
+        transformLenient(transform, nodes, nodes.length / 2);
+    }
+
+    /**
+     * Transforms the points in place, setting to NaN the ones that cannot be transformed
+     * instead of failing
+     */
+    static void transformLenient(MathTransform2D transform, double[] points, int numPts) {
+        final double[] source = points.clone();
+        try {
+            transform.transform(source, 0, points, 0, numPts);
+        } catch (TransformException e) {
+            // go point by point to find out which ones cannot be transformed
+            for (int i = 0; i < numPts * 2; i += 2) {
+                try {
+                    transform.transform(source, i, points, i, 1);
+                } catch (TransformException pointFailure) {
+                    points[i] = Double.NaN;
+                    points[i + 1] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounds the interpolation error of each cell from the second differences over its lattice,
+     * one row of cells at a time.
+     *
+     * @return 0 if every cell is within the tolerance, otherwise the
+     *         {@link GridSearch#SPLIT_COLUMNS} and {@link GridSearch#SPLIT_ROWS} flags telling
+     *         along which axis the cells failing it should be split
+     */
+    int checkTolerance() {
+        final int rowStride = (cols * SAMPLES + 1) * 2;
+        final double[] lattice = new double[rowStride * (SAMPLES + 1)];
+        int errors = 0;
+        for (int r = 0; r < rows; r++) {
+            int idx = 0;
+            for (int j = 0; j <= SAMPLES; j++) {
+                final double y = minY + (r + (double) j / SAMPLES) * cellHeight;
+                for (int i = 0; i <= cols * SAMPLES; i++) {
+                    lattice[idx++] = minX + ((double) i / SAMPLES) * cellWidth;
+                    lattice[idx++] = y;
+                }
+            }
+            transformLenient(transform, lattice, lattice.length / 2);
+            for (int c = 0; c < cols; c++) {
+                // cells with corners that cannot be transformed use the exact transform
+                final int i00 = (r * (cols + 1) + c) * 2;
+                final int i01 = i00 + (cols + 1) * 2;
+                if (Double.isNaN(nodes[i00] + nodes[i00 + 1] + nodes[i00 + 2] + nodes[i00 + 3]
+                        + nodes[i01] + nodes[i01 + 1] + nodes[i01 + 2] + nodes[i01 + 3])) {
+                    continue;
+                }
+                errors |= checkCell(lattice, c * SAMPLES * 2, rowStride, tolerance);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Bounds the interpolation error of a cell from the second differences of the transformed
+     * lattice of its {@link #SAMPLES}+1 by {@link #SAMPLES}+1 points.
+     *
+     * @param lattice the transformed lattice points, as x,y pairs
+     * @param offset the position of the first point of the cell
+     * @param rowStride the distance between two rows of the lattice
+     * @param tolerance the maximum error
+     * @return 0 if the error bound is within the tolerance, otherwise the
+     *         {@link GridSearch#SPLIT_COLUMNS} flag if the second derivatives along x call for
+     *         more columns, the {@link GridSearch#SPLIT_ROWS} one if the derivatives along y call
+     *         for more rows. Points that could not be transformed call for both.
+     */
+    static int checkCell(double[] lattice, int offset, int rowStride, double tolerance) {
+        // largest second differences along x and y, for each target ordinate
+        double xxX = 0, xxY = 0, yyX = 0, yyY = 0;
+        for (int j = 0; j <= SAMPLES; j++) {
+            for (int i = 0; i <= SAMPLES; i++) {
+                final int p = offset + j * rowStride + i * 2;
+                if (i > 0 && i < SAMPLES) {
+                    xxX = Math.max(xxX, Math.abs(lattice[p - 2] - 2 * lattice[p] + lattice[p + 2]));
+                    xxY = Math.max(xxY, Math.abs(lattice[p - 1] - 2 * lattice[p + 1] + lattice[p + 3]));
+                }
+                if (j > 0 && j < SAMPLES) {
+                    final int q = p - rowStride;
+                    final int n = p + rowStride;
+                    yyX = Math.max(yyX, Math.abs(lattice[q] - 2 * lattice[p] + lattice[n]));
+                    yyY = Math.max(yyY, Math.abs(lattice[q + 1] - 2 * lattice[p + 1] + lattice[n + 1]));
+                }
+            }
+        }
+        if (Double.isNaN(xxX + xxY + yyX + yyY)) {
+            return GridSearch.SPLIT_COLUMNS | GridSearch.SPLIT_ROWS;
+        }
+        final double errorX = ERROR_FACTOR * (xxX + yyX);
+        final double errorY = ERROR_FACTOR * (xxY + yyY);
+        if (errorX * errorX + errorY * errorY <= tolerance * tolerance) {
+            return 0;
+        }
+        // split along the axis, or axes, whose second derivatives dominate the error
+        final double alongX = xxX * xxX + xxY * xxY;
+        final double alongY = yyX * yyX + yyY * yyY;
+        int errors = 0;
+        if (4 * alongX >= alongY) {
+            errors |= GridSearch.SPLIT_COLUMNS;
+        }
+        if (4 * alongY >= alongX) {
+            errors |= GridSearch.SPLIT_ROWS;
+        }
+        return errors;
+    }
+
+    /**
+     * Interpolates the specified point, returning false if the point is outside of the grid or
+     * in a cell with corners that could not be transformed
+     */
+    final boolean interpolate(final double x, final double y, final double[] dstPts,
+            final int dstOff) {
+        final double fx = (x - minX) / cellWidth;
+        final double fy = (y - minY) / cellHeight;
+        // also false for NaN
+        if (!(fx >= 0 && fx <= cols && fy >= 0 && fy <= rows)) {
+            return false;
+        }
+        int c = (int) fx;
+        int r = (int) fy;
+        if (c == cols) {
+            c--;
+        }
+        if (r == rows) {
+            r--;
+        }
+        final double u = fx - c;
+        final double v = fy - r;
+        final int i00 = (r * (cols + 1) + c) * 2;
+        final int i01 = i00 + (cols + 1) * 2;
+        final double x0 = nodes[i00] + u * (nodes[i00 + 2] - nodes[i00]);
+        final double y0 = nodes[i00 + 1] + u * (nodes[i00 + 3] - nodes[i00 + 1]);
+        final double x1 = nodes[i01] + u * (nodes[i01 + 2] - nodes[i01]);
+        final double y1 = nodes[i01 + 1] + u * (nodes[i01 + 3] - nodes[i01 + 1]);
+        final double tx = x0 + v * (x1 - x0);
+        final double ty = y0 + v * (y1 - y0);
+        if (Double.isNaN(tx) || Double.isNaN(ty)) {
+            return false;
+        }
+        dstPts[dstOff] = tx;
+        dstPts[dstOff + 1] = ty;
+        return true;
+    }
+
+    /**
+     * Returns the exact transform being approximated
+     */
+    public MathTransform2D getExactTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the maximum distance between the exact and the approximated points
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Returns the domain the approximation is valid in
+     */
+    public Rectangle2D getDomain() {
+        return new Rectangle2D.Double(minX, minY, cellWidth * cols, cellHeight * rows);
+    }
+
+    @Override
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    @Override
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, interpolating the ones falling in
+     * the grid and delegating the others to the exact transform.
+     */
+    public void transform(final double[] srcPts, final int srcOff, final double[] dstPts,
+            final int dstOff, final int numPts) throws TransformException {
+        if (numPts <= 0) {
+            return;
+        }
+        // works in place in the destination array, which takes care of overlapping arrays
+        System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2 * numPts);
+        final int end = dstOff + 2 * numPts;
+        TransformException failure = null;
+        for (int i = dstOff; i < end; i += 2) {
+            if (!interpolate(dstPts[i], dstPts[i + 1], dstPts, i)) {
+                try {
+                    transform.transform(dstPts, i, dstPts, i, 1);
+                } catch (TransformException e) {
+                    dstPts[i] = Double.NaN;
+                    dstPts[i + 1] = Double.NaN;
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets the derivative of the exact transform at a point.
+     */
+    @Override
+    public Matrix derivative(final Point2D point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /**
+     * Returns the inverse of the exact transform, the inverse is not approximated.
+     */
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        return transform.inverse();
+    }
+
+    @Override
+    public int hashCode() {
+        return transform.hashCode() ^ (int) Double.doubleToLongBits(tolerance) + 31 * cols + rows;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (object != null && object.getClass().equals(getClass())) {
+            final ApproximatedTransform2D that = (ApproximatedTransform2D) object;
+            return Utilities.equals(transform, that.transform) && tolerance == that.tolerance
+                    && minX == that.minX && minY == that.minY && cellWidth == that.cellWidth
+                    && cellHeight == that.cellHeight && cols == that.cols && rows == that.rows;
+        }
+        return false;
+    }
+
+    /**
+     * Recursively slices the domain to find the number of subdivisions along each axis
+     * that make the bilinear interpolation honor the tolerance.
+     */
+    static final class GridSearch {
+        final MathTransform2D transform;
+
+        final double tolerance;
+
+        /**
+         * The sampling lattice of a cell, as x,y pairs
+         */
+        final double[] points = new double[(SAMPLES + 1) * (SAMPLES + 1) * 2];
+
+        GridSearch(MathTransform2D transform, double tolerance) {
+            this.transform = transform;
+            this.tolerance = tolerance;
+        }
+
+        /**
+         * Returns the row and column depths needed for the specified cell and its children
+         */
+        int[] computeDepths(double minx, double maxx, double miny, double maxy, int rowDepth,
+                int colDepth) throws ExcessiveDepthException {
+            if (rowDepth + colDepth > MAX_DEPTH) {
+                throw new ExcessiveDepthException("Approximation grid getting too large");
+            }
+            final int errors = sample(minx, maxx, miny, maxy);
+            final double midx = (minx + maxx) / 2;
+            final double midy = (miny + maxy) / 2;
+            if (errors == (SPLIT_COLUMNS | SPLIT_ROWS)) {
+                // quad split
+                rowDepth++;
+                colDepth++;
+                int[] d1 = computeDepths(minx, midx, miny, midy, rowDepth, colDepth);
+                int[] d2 = computeDepths(minx, midx, midy, maxy, rowDepth, colDepth);
+                int[] d3 = computeDepths(midx, maxx, miny, midy, rowDepth, colDepth);
+                int[] d4 = computeDepths(midx, maxx, midy, maxy, rowDepth, colDepth);
+                return new int[] { Math.max(Math.max(d1[0], d2[0]), Math.max(d3[0], d4[0])),
+                        Math.max(Math.max(d1[1], d2[1]), Math.max(d3[1], d4[1])) };
+            } else if (errors == SPLIT_COLUMNS) {
+                colDepth++;
+                int[] d1 = computeDepths(minx, midx, miny, maxy, rowDepth, colDepth);
+                int[] d2 = computeDepths(midx, maxx, miny, maxy, rowDepth, colDepth);
+                return new int[] { Math.max(d1[0], d2[0]), Math.max(d1[1], d2[1]) };
+            } else if (errors == SPLIT_ROWS) {
+                rowDepth++;
+                int[] d1 = computeDepths(minx, maxx, miny, midy, rowDepth, colDepth);
+                int[] d2 = computeDepths(minx, maxx, midy, maxy, rowDepth, colDepth);
+                return new int[] { Math.max(d1[0], d2[0]), Math.max(d1[1], d2[1]) };
+            }
+            return new int[] { rowDepth, colDepth };
+        }
+
+        static final int SPLIT_COLUMNS = 1;
+
+        static final int SPLIT_ROWS = 2;
+
+        /**
+         * Bounds the interpolation error of the cell from the second differences of the exact
+         * transform over a lattice of points of the cell, see {@link #checkCell}.
+         */
+        int sample(double minx, double maxx, double miny, double maxy) {
+            int idx = 0;
+            for (int j = 0; j <= SAMPLES; j++) {
+                final double y = miny + (maxy - miny) * j / SAMPLES;
+                for (int i = 0; i <= SAMPLES; i++) {
+                    points[idx++] = minx + (maxx - minx) * i / SAMPLES;
+                    points[idx++] = y;
+                }
+            }
+            transformLenient(transform, points, points.length / 2);
+
+            final int last = SAMPLES * (SAMPLES + 1) * 2;
+            if (Double.isNaN(points[0] + points[1] + points[SAMPLES * 2]
+                    + points[SAMPLES * 2 + 1] + points[last] + points[last + 1]
+                    + points[last + SAMPLES * 2] + points[last + SAMPLES * 2 + 1])) {
+                // cannot be interpolated, the exact transform will be used in this cell
+                return 0;
+            }
+            return checkCell(points, 0, (SAMPLES + 1) * 2, tolerance);
+        }
+    }
+
+    /**
+     * Convenience exception to bail out when the grid search gets too deep
+     */
+    static final class ExcessiveDepthException extends RuntimeException {
+        private static final long serialVersionUID = 7207412342012532394L;
+
+        public ExcessiveDepthException(String message) {
+            super(message);
+        }
+    }
+}
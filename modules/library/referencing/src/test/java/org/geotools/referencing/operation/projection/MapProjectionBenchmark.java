@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MAJOR;
+import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MINOR;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.MathTransformFactory;
+
+/**
+ * Measures the points per second the most common map projections can transform, one
+ * {@link Point2D} at a time and with a single call on a coordinate array, in both directions.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of points.
+ * Run it with assertions disabled, otherwise every point is checked against its reciprocal.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class MapProjectionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        MapProjection[] projections = new MapProjection[] {
+                create(mtFactory, "Transverse_Mercator", false, "central_meridian", 9,
+                        "scale_factor", 0.9996, "false_easting", 500000),
+                create(mtFactory, "Mercator_1SP", true),
+                create(mtFactory, "Mercator_1SP", false),
+                create(mtFactory, "Lambert_Conformal_Conic_2SP", false, "standard_parallel_1", 44,
+                        "standard_parallel_2", 49, "latitude_of_origin", 46.5,
+                        "central_meridian", 3),
+                create(mtFactory, "Albers_Conic_Equal_Area", false, "standard_parallel_1", 29.5,
+                        "standard_parallel_2", 45.5, "latitude_of_origin", 23,
+                        "central_meridian", 9),
+                create(mtFactory, "Polar_Stereographic", false, "latitude_of_origin", 90,
+                        "central_meridian", 9) };
+
+        // points within a few degrees of the central meridian, in the northern hemisphere
+        Random random = new Random(0);
+        double[] geographic = new double[count * 2];
+        for (int i = 0; i < geographic.length; i += 2) {
+            geographic[i] = 4 + random.nextDouble() * 10;
+            geographic[i + 1] = 40 + random.nextDouble() * 30;
+        }
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            for (MapProjection projection : projections) {
+                benchmark(projection, geographic);
+            }
+        }
+    }
+
+    static MapProjection create(MathTransformFactory mtFactory, String name, boolean spherical,
+            Object... values) throws Exception {
+        ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter(SEMI_MAJOR.getName().getCode()).setValue(6378137.0);
+        parameters.parameter(SEMI_MINOR.getName().getCode()).setValue(
+                spherical ? 6378137.0 : 6356752.314245179);
+        for (int i = 0; i < values.length; i += 2) {
+            parameters.parameter((String) values[i]).setValue(
+                    ((Number) values[i + 1]).doubleValue());
+        }
+        return (MapProjection) mtFactory.createParameterizedTransform(parameters);
+    }
+
+    static void benchmark(MapProjection projection, double[] geographic) throws Exception {
+        int count = geographic.length / 2;
+        String name = projection.getClass().getName();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        MathTransform2D inverse = projection.inverse();
+        double[] projected = new double[geographic.length];
+        double[] back = new double[geographic.length];
+
+        long t1 = System.nanoTime();
+        Point2D.Double point = new Point2D.Double();
+        for (int i = 0; i < geographic.length; i += 2) {
+            point.x = geographic[i];
+            point.y = geographic[i + 1];
+            projection.transform(point, point);
+            projected[i] = point.x;
+            projected[i + 1] = point.y;
+        }
+        long t2 = System.nanoTime();
+        projection.transform(geographic, 0, projected, 0, count);
+        long t3 = System.nanoTime();
+        for (int i = 0; i < projected.length; i += 2) {
+            point.x = projected[i];
+            point.y = projected[i + 1];
+            inverse.transform(point, point);
+            back[i] = point.x;
+            back[i + 1] = point.y;
+        }
+        long t4 = System.nanoTime();
+        inverse.transform(projected, 0, back, 0, count);
+        long t5 = System.nanoTime();
+
+        System.out.println(name + " forward: " + rate(count, t2 - t1) + " points/s by point, "
+                + rate(count, t3 - t2) + " points/s by array; inverse: " + rate(count, t4 - t3)
+                + " points/s by point, " + rate(count, t5 - t4) + " points/s by array");
+    }
+
+    static long rate(int count, long nanos) {
+        return Math.round(count / (nanos / 1e9));
+    }
+}
@@ -19,6 +19,8 @@ package org.geotools.referencing.operation.projection;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MAJOR;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MINOR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.geom.Point2D;
 
@@ -26,7 +28,9 @@ import org.geotools.referencing.ReferencingFactoryFinder;
 import org.junit.Test;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.MathTransformFactory;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
 import org.opengis.referencing.operation.TransformException;
 
 
@@ -127,4 +131,139 @@ public final class MapProjectionTest {
     	Point2D target2 = new Point2D.Double(src.getX(), src.getY()+0.000000000001);
     	assertEquals(1.1117412E-7, mt.orthodromicDistance(src, target2), 1E-12);
     }
+
+    /**
+     * Creates a projection from its OGC name, the extra parameters given as name/value pairs.
+     */
+    private static MapProjection createProjection(String name, boolean spherical,
+            Object... values) throws FactoryException {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        final ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter(SEMI_MAJOR.getName().getCode()).setValue(6378137.0);
+        parameters.parameter(SEMI_MINOR.getName().getCode()).setValue(
+                spherical ? 6378137.0 : 6356752.314245179);
+        for (int i = 0; i < values.length; i += 2) {
+            parameters.parameter((String) values[i]).setValue(((Number) values[i + 1]).doubleValue());
+        }
+        return (MapProjection) mtFactory.createParameterizedTransform(parameters);
+    }
+
+    /**
+     * Tests that the array kernels give the same results than the point by point transformations,
+     * including the points that can't be transformed.
+     */
+    @Test
+    public void testArrayTransforms() throws FactoryException {
+        for (boolean spherical : new boolean[] {false, true}) {
+            assertArrayTransforms(createProjection("Transverse_Mercator", spherical,
+                    "central_meridian", 9, "scale_factor", 0.9996, "false_easting", 500000),
+                    0, 18, -80, 80);
+            assertArrayTransforms(createProjection("Mercator_1SP", spherical),
+                    -180, 180, -85, 85);
+            assertArrayTransforms(createProjection("Mercator_2SP", spherical,
+                    "standard_parallel_1", 30, "central_meridian", 20), -90, 90, -90, 90);
+            assertArrayTransforms(createProjection("Lambert_Conformal_Conic_2SP", spherical,
+                    "standard_parallel_1", 44, "standard_parallel_2", 49,
+                    "latitude_of_origin", 46.5, "central_meridian", 3, "false_easting", 700000,
+                    "false_northing", 6600000), -10, 15, 35, 90);
+            assertArrayTransforms(createProjection("Albers_Conic_Equal_Area", spherical,
+                    "standard_parallel_1", 29.5, "standard_parallel_2", 45.5,
+                    "latitude_of_origin", 23, "central_meridian", -96), -130, -60, 20, 90);
+            assertArrayTransforms(createProjection("Polar_Stereographic", spherical,
+                    "latitude_of_origin", 90, "central_meridian", -45), -180, 180, 40, 90);
+            assertArrayTransforms(createProjection("Stereographic_South_Pole", spherical,
+                    "standard_parallel_1", -71), -180, 180, -90, -40);
+        }
+    }
+
+    private static void assertArrayTransforms(MapProjection mt, double minX, double maxX,
+            double minY, double maxY) throws FactoryException {
+        final int steps = 20;
+        final double[] geographic = new double[2 * (steps + 1) * (steps + 1)];
+        int k = 0;
+        for (int i = 0; i <= steps; i++) {
+            for (int j = 0; j <= steps; j++) {
+                geographic[k++] = minX + (maxX - minX) * i / steps;
+                geographic[k++] = minY + (maxY - minY) * j / steps;
+            }
+        }
+        final int numPts = geographic.length / 2;
+        final String name = mt.getClass().getName();
+
+        // forward, point by point and in a single call
+        final double[] expected = new double[geographic.length];
+        boolean failures = false;
+        for (int i = 0; i < geographic.length; i += 2) {
+            try {
+                Point2D p = mt.transform(new Point2D.Double(geographic[i], geographic[i + 1]), null);
+                expected[i] = p.getX();
+                expected[i + 1] = p.getY();
+            } catch (TransformException e) {
+                expected[i] = expected[i + 1] = Double.NaN;
+                failures = true;
+            }
+        }
+        final double[] actual = new double[geographic.length + 2];
+        try {
+            mt.transform(geographic, 0, actual, 1, numPts);
+            assertTrue(name, !failures);
+        } catch (TransformException e) {
+            assertTrue(name, failures);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(name, expected[i], actual[i + 1], 1E-9);
+        }
+
+        // inverse, on the points that could be projected
+        final MathTransform2D inverse;
+        try {
+            inverse = mt.inverse();
+        } catch (NoninvertibleTransformException e) {
+            throw new FactoryException(e);
+        }
+        final double[] projected = new double[expected.length];
+        int count = 0;
+        for (int i = 0; i < expected.length; i += 2) {
+            if (!Double.isNaN(expected[i])) {
+                projected[count++] = expected[i];
+                projected[count++] = expected[i + 1];
+            }
+        }
+        final double[] back = new double[count];
+        failures = false;
+        for (int i = 0; i < count; i += 2) {
+            try {
+                Point2D p = inverse.transform(new Point2D.Double(projected[i], projected[i + 1]), null);
+                back[i] = p.getX();
+                back[i + 1] = p.getY();
+            } catch (TransformException e) {
+                back[i] = back[i + 1] = Double.NaN;
+                failures = true;
+            }
+        }
+        // in place, overlapping
+        System.arraycopy(projected, 0, actual, 1, count);
+        try {
+            inverse.transform(actual, 1, actual, 0, count / 2);
+            assertTrue(name, !failures);
+        } catch (TransformException e) {
+            assertTrue(name, failures);
+        }
+        for (int i = 0; i < back.length; i++) {
+            assertEquals(name, back[i], actual[i], 1E-9);
+        }
+
+        // the float flavour goes through the same code
+        final float[] floats = new float[geographic.length];
+        for (int i = 0; i < geographic.length; i++) {
+            floats[i] = (float) geographic[i];
+        }
+        try {
+            mt.transform(floats, 0, floats, 0, numPts);
+        } catch (TransformException e) {
+            assertNotNull(e);
+        }
+        assertEquals(name, (float) expected[expected.length / 2], floats[floats.length / 2],
+                Math.abs(expected[expected.length / 2]) * 1E-6);
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.operation.MathTransform2D;
+
+/**
+ * Measures the points per second transformed from WGS84 to the screen through a few common
+ * projections, with the exact transform chain and with its {@link ApproximatedTransform2D},
+ * along with the time needed to build the approximation.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of points
+ * and the tolerance in pixels.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class ApproximatedTransform2DBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 0.25;
+
+        ApproximatedTransform2DTest test = new ApproximatedTransform2DTest();
+        String[] codes = new String[] { "EPSG:32632", "EPSG:3857", "EPSG:3035" };
+        Rectangle2D[] areas = new Rectangle2D[] { new Rectangle2D.Double(5, 40, 10, 10),
+                new Rectangle2D.Double(-180, -70, 360, 140),
+                new Rectangle2D.Double(-10, 35, 40, 35) };
+        Rectangle screen = new Rectangle(1024, 768);
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < codes.length; j++) {
+                MathTransform2D mt = test.toScreen(CRS.decode(codes[j], true), areas[j], screen);
+                benchmark(codes[j], mt, areas[j], tolerance, count);
+            }
+        }
+    }
+
+    static void benchmark(String name, MathTransform2D mt, Rectangle2D area, double tolerance,
+            int count) throws Exception {
+        Random random = new Random(0);
+        double[] points = new double[count * 2];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = area.getMinX() + random.nextDouble() * area.getWidth();
+            points[i + 1] = area.getMinY() + random.nextDouble() * area.getHeight();
+        }
+        double[] result = new double[points.length];
+
+        long t1 = System.nanoTime();
+        MathTransform2D approximated = ApproximatedTransform2D.create(mt, area, tolerance);
+        long t2 = System.nanoTime();
+        mt.transform(points, 0, result, 0, count);
+        long t3 = System.nanoTime();
+        approximated.transform(points, 0, result, 0, count);
+        long t4 = System.nanoTime();
+
+        System.out.println(name + ": exact " + rate(count, t3 - t2) + " points/s, approximated "
+                + rate(count, t4 - t3) + " points/s, grid built in "
+                + Math.round((t2 - t1) / 1e6) + "ms");
+    }
+
+    static long rate(int count, long nanos) {
+        return Math.round(count / (nanos / 1e9));
+    }
+}
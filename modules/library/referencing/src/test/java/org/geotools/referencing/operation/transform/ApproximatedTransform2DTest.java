@@ -0,0 +1,207 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import static org.junit.Assert.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.matrix.XAffineTransform;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform2D;
+
+/**
+ * Tests {@link ApproximatedTransform2D}.
+ *
+ * @source $URL$
+ */
+public class ApproximatedTransform2DTest {
+
+    /**
+     * Builds a transform from WGS84 to the screen through the specified CRS, the way the
+     * renderer does
+     */
+    MathTransform2D toScreen(CoordinateReferenceSystem crs, Rectangle2D area, Rectangle screen)
+            throws Exception {
+        MathTransform2D mt = (MathTransform2D) CRS.findMathTransform(DefaultGeographicCRS.WGS84,
+                crs, true);
+        GeneralEnvelope projected = CRS.transform(mt, new GeneralEnvelope(area));
+        AffineTransform worldToScreen = new AffineTransform(screen.width / projected.getSpan(0),
+                0, 0, -screen.height / projected.getSpan(1), 0, 0);
+        worldToScreen.translate(-projected.getMinimum(0), -projected.getMaximum(1));
+        return (MathTransform2D) ConcatenatedTransform.create(mt, new AffineTransform2D(
+                worldToScreen));
+    }
+
+    void assertApproximation(MathTransform2D exact, Rectangle2D domain, double tolerance)
+            throws Exception {
+        MathTransform2D approximated = ApproximatedTransform2D.create(exact, domain, tolerance);
+        assertTrue(approximated instanceof ApproximatedTransform2D);
+        assertSame(exact, ((ApproximatedTransform2D) approximated).getExactTransform());
+
+        Random random = new Random(0);
+        int count = 20000;
+        double[] points = new double[count * 2];
+        for (int i = 0; i < points.length; i += 2) {
+            // some points outside the domain as well
+            points[i] = domain.getMinX() + (random.nextDouble() * 1.2 - 0.1) * domain.getWidth();
+            points[i + 1] = domain.getMinY() + (random.nextDouble() * 1.2 - 0.1)
+                    * domain.getHeight();
+        }
+        double[] expected = new double[points.length];
+        exact.transform(points, 0, expected, 0, count);
+        double[] actual = new double[points.length];
+        approximated.transform(points, 0, actual, 0, count);
+        for (int i = 0; i < points.length; i += 2) {
+            double distance = Math.hypot(expected[i] - actual[i], expected[i + 1] - actual[i + 1]);
+            assertTrue("Error " + distance + " at " + points[i] + "," + points[i + 1],
+                    distance <= tolerance);
+            if (!domain.contains(points[i], points[i + 1])) {
+                assertEquals(expected[i], actual[i], 0d);
+                assertEquals(expected[i + 1], actual[i + 1], 0d);
+            }
+        }
+
+        // in place, with overlapping arrays
+        double[] shifted = new double[points.length + 2];
+        System.arraycopy(points, 0, shifted, 0, points.length);
+        approximated.transform(shifted, 0, shifted, 2, count);
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(actual[i], shifted[i + 2], 0d);
+        }
+    }
+
+    @Test
+    public void testTransverseMercator() throws Exception {
+        Rectangle2D area = new Rectangle2D.Double(5, 40, 10, 10);
+        MathTransform2D mt = toScreen(CRS.decode("EPSG:32632", true), area, new Rectangle(1024,
+                768));
+        assertApproximation(mt, area, 0.25);
+    }
+
+    @Test
+    public void testMercatorWorld() throws Exception {
+        Rectangle2D area = new Rectangle2D.Double(-180, -70, 360, 140);
+        MathTransform2D mt = toScreen(CRS.decode("EPSG:3857", true), area, new Rectangle(2048,
+                2048));
+        assertApproximation(mt, area, 0.25);
+    }
+
+    @Test
+    public void testLambertContinental() throws Exception {
+        Rectangle2D area = new Rectangle2D.Double(-10, 35, 40, 35);
+        MathTransform2D mt = toScreen(CRS.decode("EPSG:3035", true), area, new Rectangle(1024,
+                1024));
+        assertApproximation(mt, area, 0.5);
+        assertApproximation(mt, area, 0.05);
+    }
+
+    /**
+     * A transform with a wavy distortion, whose largest interpolation errors are not at the
+     * centers or edge midpoints of the grid cells
+     */
+    static final class WavyTransform extends AbstractMathTransform implements MathTransform2D {
+
+        @Override
+        public int getSourceDimensions() {
+            return 2;
+        }
+
+        @Override
+        public int getTargetDimensions() {
+            return 2;
+        }
+
+        public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff,
+                int numPts) {
+            double[] source = new double[numPts * 2];
+            System.arraycopy(srcPts, srcOff, source, 0, source.length);
+            for (int i = 0; i < source.length; i += 2) {
+                double x = source[i];
+                double y = source[i + 1];
+                dstPts[dstOff + i] = x + 3 * Math.sin(x / 37) * Math.cos(y / 53);
+                dstPts[dstOff + i + 1] = y + 2 * Math.sin((x + y) / 41);
+            }
+        }
+    }
+
+    @Test
+    public void testErrorBound() throws Exception {
+        MathTransform2D exact = new WavyTransform();
+        Rectangle2D domain = new Rectangle2D.Double(0, 0, 1024, 768);
+        for (double tolerance : new double[] { 0.25, 0.05 }) {
+            MathTransform2D approximated = ApproximatedTransform2D.create(exact, domain,
+                    tolerance);
+            assertTrue(approximated instanceof ApproximatedTransform2D);
+
+            // every quarter of pixel, not just the sample points of the cells
+            int cols = 4 * 1024 + 1;
+            double[] points = new double[cols * 2];
+            double[] expected = new double[points.length];
+            double[] actual = new double[points.length];
+            for (int r = 0; r <= 4 * 768; r++) {
+                for (int c = 0; c < cols; c++) {
+                    points[c * 2] = c / 4d;
+                    points[c * 2 + 1] = r / 4d;
+                }
+                exact.transform(points, 0, expected, 0, cols);
+                approximated.transform(points, 0, actual, 0, cols);
+                for (int i = 0; i < points.length; i += 2) {
+                    double distance = Math.hypot(expected[i] - actual[i], expected[i + 1]
+                            - actual[i + 1]);
+                    assertTrue("Error " + distance + " at " + points[i] + "," + points[i + 1],
+                            distance <= tolerance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNotApproximated() throws Exception {
+        Rectangle2D area = new Rectangle2D.Double(5, 40, 10, 10);
+        // affine transforms are returned as is
+        MathTransform2D affine = new AffineTransform2D(AffineTransform.getScaleInstance(2, 3));
+        assertSame(affine, ApproximatedTransform2D.create(affine, area, 0.25));
+
+        MathTransform2D mt = toScreen(CRS.decode("EPSG:32632", true), area, new Rectangle(1024,
+                768));
+        // no tolerance, or one too small to be honored with a reasonable grid
+        assertSame(mt, ApproximatedTransform2D.create(mt, area, 0));
+        assertSame(mt, ApproximatedTransform2D.create(mt, area, 1e-9));
+        // an empty domain
+        assertSame(mt, ApproximatedTransform2D.create(mt, new Rectangle2D.Double(5, 40, 0, 10),
+                0.25));
+    }
+
+    @Test
+    public void testInverseIsExact() throws Exception {
+        Rectangle2D area = new Rectangle2D.Double(5, 40, 10, 10);
+        MathTransform2D mt = toScreen(CRS.decode("EPSG:32632", true), area, new Rectangle(1024,
+                768));
+        MathTransform2D approximated = ApproximatedTransform2D.create(mt, area, 0.25);
+        assertEquals(mt.inverse(), approximated.inverse());
+        assertEquals(approximated, ApproximatedTransform2D.create(mt, area, 0.25));
+        assertFalse(approximated.equals(ApproximatedTransform2D.create(mt, area, 0.5)));
+    }
+}
@@ -17,15 +17,17 @@
 package org.geotools.renderer.label;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
-import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
-
 /**
  * Stores label items and helps in finding the interferering ones, either by
  * pure overlap or within a certain distance from the specified bounds
+ * <p>
+ * The labels are in screen space and roughly of the same size, so a uniform grid is used as the
+ * index: each label bounds is stored once in a flat array, and its id is added to the grid cells
+ * it touches. Looking for conflicts does not allocate any object. Bounds covering a very large
+ * number of cells, such as big reserved areas, are kept in a separate list checked linearly.
  * 
  * @author Andrea Aime
  * 
@@ -36,7 +38,69 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /**
+     * The default size of a grid cell, in pixels
+     */
+    static final double DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Bounds spanning more cells than this are not gridded
+     */
+    static final int MAX_CELLS_PER_ITEM = 256;
+
+    /**
+     * The grid extent, in cells on each side of the origin. Cells are clamped to it, so that
+     * iterating up to the last cell does not overflow
+     */
+    static final int MAX_CELL = 1 << 30;
+
+    final double cellSize;
+
+    /**
+     * The bounds of the items, as minx, miny, maxx, maxy quadruplets
+     */
+    double[] bounds = new double[64];
+
+    /**
+     * The items, kept around as it helps in debugging
+     */
+    LabelCacheItem[] items = new LabelCacheItem[16];
+
+    int count;
+
+    /**
+     * The ids of the items too large to be gridded
+     */
+    int[] large = new int[4];
+
+    int largeCount;
+
+    /**
+     * Open addressing hash table from the cell key to the list of item ids in the cell, the
+     * first element of each list is its size
+     */
+    long[] cellKeys = new long[64];
+
+    int[][] cellItems = new int[64][];
+
+    int cellCount;
+
+    public LabelIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds an index with the specified grid cell size, which should be in the same order of
+     * magnitude as the label bounds
+     * 
+     * @param cellSize
+     */
+    public LabelIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -47,22 +111,54 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
         if (distance < 0)
             return false;
 
-        Envelope e = toEnvelope(bounds);
-        e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0)
-            return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext();) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
+        double minX = bounds.getMinX() - distance;
+        double minY = bounds.getMinY() - distance;
+        double maxX = bounds.getMaxX() + distance;
+        double maxY = bounds.getMaxY() + distance;
+
+        for (int i = 0; i < largeCount; i++) {
+            if (intersects(large[i], minX, minY, maxX, maxY)) {
                 return true;
             }
         }
+        if (cellCount == 0) {
+            return false;
+        }
+
+        int minCol = cell(minX);
+        int maxCol = cell(maxX);
+        int minRow = cell(minY);
+        int maxRow = cell(maxY);
+        long cells = ((long) maxCol - minCol + 1) * ((long) maxRow - minRow + 1);
+        if (cells > cellCount) {
+            // cheaper to scan all the non empty cells
+            for (int[] ids : cellItems) {
+                if (ids != null) {
+                    for (int i = 1; i <= ids[0]; i++) {
+                        if (intersects(ids[i], minX, minY, maxX, maxY)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+        for (int col = minCol; col <= maxCol; col++) {
+            for (int row = minRow; row <= maxRow; row++) {
+                int[] ids = cellItems(key(col, row));
+                if (ids != null) {
+                    for (int i = 1; i <= ids[0]; i++) {
+                        if (intersects(ids[i], minX, minY, maxX, maxY)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
         return false;
     }
 
@@ -73,51 +169,138 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
-        Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        double minX = bounds.getMinX();
+        double minY = bounds.getMinY();
+        double maxX = bounds.getMaxX();
+        double maxY = bounds.getMaxY();
+
+        // store the bounds
+        int id = count;
+        if (id == items.length) {
+            items = Arrays.copyOf(items, id * 2);
+            this.bounds = Arrays.copyOf(this.bounds, id * 8);
+        }
+        int offset = id * 4;
+        this.bounds[offset] = minX;
+        this.bounds[offset + 1] = minY;
+        this.bounds[offset + 2] = maxX;
+        this.bounds[offset + 3] = maxY;
+        items[id] = item;
+        count++;
+
+        // grid it, unless too large
+        int minCol = cell(minX);
+        int maxCol = cell(maxX);
+        int minRow = cell(minY);
+        int maxRow = cell(maxY);
+        long cells = ((long) maxCol - minCol + 1) * ((long) maxRow - minRow + 1);
+        if (cells > MAX_CELLS_PER_ITEM || !isFinite(minX) || !isFinite(minY) || !isFinite(maxX)
+                || !isFinite(maxY)) {
+            if (largeCount == large.length) {
+                large = Arrays.copyOf(large, largeCount * 2);
+            }
+            large[largeCount++] = id;
+        } else {
+            for (int col = minCol; col <= maxCol; col++) {
+                for (int row = minRow; row <= maxRow; row++) {
+                    addToCell(key(col, row), id);
+                }
+            }
+        }
     }
 
     /**
-     * Turns the specified Java2D rectangle into a JTS envelope
+     * Reserve the area indicated by these Geometry.
      * 
-     * @param bounds
-     * @return
+     * @param reserved
      */
-    private Envelope toEnvelope(Rectangle2D bounds) {
-        return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
+    public void reserveArea(List<Rectangle2D> reserved) {
+        for( Rectangle2D area : reserved ){
+            addLabel(null, area);
+        }
     }
 
-    /**
-     * Simple structure stored into the quadtree (keeping the item around helps
-     * in debugging)
-     * 
-     * @author Andrea Aime
-     * 
-     */
-    static class InterferenceItem {
-        Envelope env;
+    final boolean intersects(int id, double minX, double minY, double maxX, double maxY) {
+        int offset = id * 4;
+        return !(bounds[offset] > maxX || bounds[offset + 2] < minX || bounds[offset + 1] > maxY
+                || bounds[offset + 3] < minY);
+    }
+
+    final int cell(double ordinate) {
+        double cell = Math.floor(ordinate / cellSize);
+        // clamp to the grid extent, also takes care of infinities
+        if (cell < -MAX_CELL) {
+            return -MAX_CELL;
+        } else if (cell > MAX_CELL) {
+            return MAX_CELL;
+        }
+        return (int) cell;
+    }
+
+    static final boolean isFinite(double ordinate) {
+        return !Double.isNaN(ordinate) && !Double.isInfinite(ordinate);
+    }
 
-        LabelCacheItem item;
+    static final long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xFFFFFFFFL);
+    }
 
-        public InterferenceItem(Envelope env, LabelCacheItem item) {
-            super();
-            this.env = env;
-            this.item = item;
+    static final int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    int[] cellItems(long key) {
+        int mask = cellKeys.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            int[] ids = cellItems[slot];
+            if (ids == null) {
+                return null;
+            } else if (cellKeys[slot] == key) {
+                return ids;
+            }
         }
+    }
 
+    void addToCell(long key, int id) {
+        int mask = cellKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (cellItems[slot] != null && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int[] ids = cellItems[slot];
+        if (ids == null) {
+            ids = new int[4];
+            cellKeys[slot] = key;
+            cellItems[slot] = ids;
+            cellCount++;
+        } else if (ids[0] + 1 == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            cellItems[slot] = ids;
+        }
+        ids[++ids[0]] = id;
+
+        // keep the load factor below 0.5
+        if (cellCount * 2 > cellKeys.length) {
+            rehash();
+        }
     }
 
-    /**
-     * Reserve the area indicated by these Geometry.
-     * 
-     * @param reserved
-     */
-    public void reserveArea(List<Rectangle2D> reserved) {
-        for( Rectangle2D area : reserved ){
-            Envelope env = toEnvelope(area);
-            
-            InterferenceItem item = new InterferenceItem(env,null);            
-            index.insert( env, item );
+    void rehash() {
+        long[] oldKeys = cellKeys;
+        int[][] oldItems = cellItems;
+        cellKeys = new long[oldKeys.length * 2];
+        cellItems = new int[oldKeys.length * 2][];
+        int mask = cellKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldItems[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (cellItems[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                cellKeys[slot] = oldKeys[i];
+                cellItems[slot] = oldItems[i];
+            }
         }
     }
 }
@@ -17,6 +17,7 @@
 package org.geotools.renderer.lite;
 
 import java.awt.AlphaComposite;
+import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
@@ -26,6 +27,7 @@ import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -34,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -41,10 +44,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -95,8 +102,10 @@ import org.geotools.map.StyleLayer;
 import org.geotools.parameter.Parameter;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.LinearTransform;
 import org.geotools.referencing.operation.matrix.XAffineTransform;
 import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ApproximatedTransform2D;
 import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.geotools.referencing.operation.transform.ProjectiveTransform;
 import org.geotools.renderer.GTRenderer;
@@ -350,6 +359,18 @@ public class StreamingRenderer implements GTRenderer {
      */
     public static final String OPTIMIZE_FTS_RENDERING_KEY = "optimizeFTSRendering";
 
+    /**
+     * Boolean flag enabling parallel rendering of the layers in a single paint call.
+     * <p>When enabled, and a thread pool has been provided via {@link #setThreadPool(ExecutorService)},
+     * each layer is fetched, transformed and rasterized by a separate task into its own
+     * memory back buffer (each as big as the image being rendered), and the back buffers are
+     * composited onto the target graphics in z-order once all the layers are done.
+     * Labels are still collected in the shared label cache and painted at the end.</p>
+     * <p>Disabled by default. It is ignored when the transforms are concatenated 
+     * (see {@link #setConcatTransforms(boolean)}) since the back buffers are in screen space</p>
+     */
+    public static final String PARALLEL_LAYER_RENDERING_KEY = "parallelLayerRendering";
+
 
     /**
      * Enables advanced reprojection handling. Geometries will be sliced to fit into the
@@ -364,6 +385,20 @@ public class StreamingRenderer implements GTRenderer {
      */
     public static final String CONTINUOUS_MAP_WRAPPING = "continuousMapWrapping";
 
+    /**
+     * The error, in pixels, tolerated when reprojecting vector geometries.
+     * <p>When positive, the transformation from the data CRS to the screen is replaced by a
+     * bilinear interpolation over a grid covering the area being painted (see
+     * {@link ApproximatedTransform2D}), which is much faster than going through the full
+     * reprojection chain for each vertex. The grid is refined until the interpolation error
+     * bound of each cell, derived from the second derivatives of the transformation, is within
+     * the tolerance. Defaults to a tenth of pixel, zero disables the approximation. Not used when
+     * advanced projection handling is enabled, since the geometries are processed in the map CRS
+     * in that case.</p>
+     */
+    public static final String TRANSFORM_APPROXIMATION_TOLERANCE_KEY = "transformApproximationTolerance";
+    private double transformApproximationToleranceDEFAULT = 0.1;
+
     /**
      * Boolean flag indicating whether vector rendering should be preferred when
      * painting graphic fills. See {@link SLDStyleFactory#isVectorRenderingEnabled()}
@@ -412,6 +447,11 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /**
+     * The renderers painting single layers when parallel layer rendering is enabled
+     */
+    private List<StreamingRenderer> layerRenderers = new CopyOnWriteArrayList<StreamingRenderer>();
+
     /**
      * The meta buffer for the current layer
      */
@@ -521,6 +561,15 @@ public class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
+        // stop the renderers working on single layers, if any
+        for (StreamingRenderer layerRenderer : layerRenderers) {
+            layerRenderer.stopRendering();
+        }
+        // the renderer might have not started painting yet
+        if (requests == null) {
+            labelCache.stop();
+            return;
+        }
         // un-block the queue in case it was filled with requests and the main
         // thread got blocked on it
         requests.clear();
@@ -772,16 +821,21 @@ public class StreamingRenderer implements GTRenderer {
                     mapExtent.getCoordinateReferenceSystem()); 
         }
 
-        // Setup the secondary painting thread
+        // Setup the secondary painting thread. When painting layers in parallel each layer
+        // gets its own renderer and painting thread, the pool is reserved to the layer tasks
+        final boolean parallelLayers = isParallelLayerRenderingEnabled();
         requests = getRequestsQueue();
         painterThread = new PainterThread(requests);
         ExecutorService localThreadPool = threadPool;
         boolean localPool = false;
-        if(localThreadPool == null) {
-            localThreadPool = Executors.newSingleThreadExecutor();
-            localPool = true;
+        Future painterFuture = null;
+        if(!parallelLayers) {
+            if(localThreadPool == null) {
+                localThreadPool = Executors.newSingleThreadExecutor();
+                localPool = true;
+            }
+            painterFuture = localThreadPool.submit(painterThread);
         }
-        Future painterFuture = localThreadPool.submit(painterThread);
         try {
             if(mapContent == null) {
                 throw new IllegalStateException("Cannot call paint, you did not set a MapContent in this renderer");
@@ -797,48 +851,52 @@ public class StreamingRenderer implements GTRenderer {
             if(labelCache instanceof LabelCacheImpl) {
                 ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
             }
-            final int layersNumber = mapContent.layers().size();
-            for (int i = 0; i < layersNumber; i++) // DJB: for each layer (ie. one
-            {
-                Layer layer = mapContent.layers().get(i);
+            if(parallelLayers) {
+                paintLayersInParallel(graphics);
+            } else {
+                final int layersNumber = mapContent.layers().size();
+                for (int i = 0; i < layersNumber; i++) // DJB: for each layer (ie. one
+                {
+                    Layer layer = mapContent.layers().get(i);
     
-                if (!layer.isVisible()) {
-                    // Only render layer when layer is visible
-                    continue;
-                }
+                    if (!layer.isVisible()) {
+                        // Only render layer when layer is visible
+                        continue;
+                    }
     
-                if (renderingStopRequested) {
-                    return;
-                }
-                labelCache.startLayer(i+"");
-                
-                if (layer instanceof DirectLayer) {
-                    RenderingRequest request = new RenderDirectLayerRequest(
-                            graphics, (DirectLayer) layer);
-                    try {
-                        requests.put(request);
-                    } catch (InterruptedException e) {
-                        fireErrorEvent(e);
+                    if (renderingStopRequested) {
+                        return;
                     }
+                    labelCache.startLayer(i+"");
+                
+                    if (layer instanceof DirectLayer) {
+                        RenderingRequest request = new RenderDirectLayerRequest(
+                                graphics, (DirectLayer) layer);
+                        try {
+                            requests.put(request);
+                        } catch (InterruptedException e) {
+                            fireErrorEvent(e);
+                        }
                     
-                } else {
-                    MapLayer currLayer = new MapLayer(layer);
-                    try {
-
-                        // extract the feature type stylers from the style object
-                        // and process them
-                        processStylers(graphics, currLayer, worldToScreenTransform,
-                                destinationCrs, mapExtent, screenSize, i + "");
-                    } catch (Throwable t) {
-                        fireErrorEvent(t);
+                    } else {
+                        MapLayer currLayer = new MapLayer(layer);
+                        try {
+
+                            // extract the feature type stylers from the style object
+                            // and process them
+                            processStylers(graphics, currLayer, worldToScreenTransform,
+                                    destinationCrs, mapExtent, screenSize, i + "");
+                        } catch (Throwable t) {
+                            fireErrorEvent(t);
+                        }
                     }
-                }
     
-                labelCache.endLayer(i+"", graphics, screenSize);
+                    labelCache.endLayer(i+"", graphics, screenSize);
+                }
             }
         } finally {
             try {
-                if(!renderingStopRequested) {
+                if(!renderingStopRequested && painterFuture != null) {
                     requests.put(new EndRequest());
                     painterFuture.get();
                 }
@@ -872,6 +930,94 @@ public class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Paints the visible layers of the map content in parallel, each one in its own back buffer,
+     * using the thread pool set via {@link #setThreadPool(ExecutorService)}, and then composites
+     * the back buffers on the target graphics following the layer order
+     * 
+     * @param graphics the graphics the layers are eventually composited onto
+     */
+    private void paintLayersInParallel(Graphics2D graphics) {
+        // the layer renderers are going to put labels in the cache concurrently
+        final LabelCache sharedLabelCache;
+        if (labelCache instanceof SynchronizedLabelCache) {
+            sharedLabelCache = labelCache;
+        } else {
+            sharedLabelCache = new SynchronizedLabelCache(labelCache);
+        }
+
+        // start all the layers in the label cache before any task gets to put labels in it 
+        final List<Layer> layers = mapContent.layers();
+        final int layersNumber = layers.size();
+        List<String> layerIds = new ArrayList<String>(layersNumber);
+        List<DelayedBackbufferGraphic> buffers = new ArrayList<DelayedBackbufferGraphic>(layersNumber);
+        List<Future<?>> futures = new ArrayList<Future<?>>(layersNumber);
+        for (int i = 0; i < layersNumber; i++) {
+            Layer layer = layers.get(i);
+            if (!layer.isVisible()) {
+                // Only render layer when layer is visible
+                continue;
+            }
+            String layerId = i + "";
+            sharedLabelCache.startLayer(layerId);
+            layerIds.add(layerId);
+        }
+
+        // submit the layer tasks
+        List<LayerRenderingTask> tasks = new ArrayList<LayerRenderingTask>(layerIds.size());
+        int idx = 0;
+        for (int i = 0; i < layersNumber; i++) {
+            Layer layer = layers.get(i);
+            if (!layer.isVisible()) {
+                continue;
+            }
+            String layerId = layerIds.get(idx++);
+            DelayedBackbufferGraphic buffer = new DelayedBackbufferGraphic(graphics, screenSize);
+            LayerRenderingTask task = new LayerRenderingTask(layer, layerId, buffer,
+                    sharedLabelCache);
+            tasks.add(task);
+            futures.add(threadPool.submit(task));
+        }
+
+        // compose the back buffers back in z-order as they become available
+        Composite composite = graphics.getComposite();
+        boolean interrupted = false;
+        try {
+            graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER));
+            for (int i = 0; i < futures.size(); i++) {
+                Future<?> future = futures.get(i);
+                LayerRenderingTask task = tasks.get(i);
+                try {
+                    if (renderingStopRequested || interrupted) {
+                        task.cancel(future);
+                    } else {
+                        future.get();
+                        if (task.buffer.image != null) {
+                            graphics.drawImage(task.buffer.image, 0, 0, null);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // stop the other layers too, the interrupt is restored once they are done
+                    interrupted = true;
+                    fireErrorEvent(e);
+                    stopRendering();
+                    task.cancel(future);
+                } catch (ExecutionException e) {
+                    fireErrorEvent(e.getCause());
+                } finally {
+                    // the task is not running anymore, it's safe to release its buffer
+                    task.buffer.dispose();
+                }
+                sharedLabelCache.endLayer(task.layerId, graphics, screenSize);
+            }
+        } finally {
+            graphics.setComposite(composite);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1410,6 +1556,16 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if the layers should be painted in parallel, or not.
+     * See {@link #PARALLEL_LAYER_RENDERING_KEY} description for a full explanation.
+     */
+    private boolean isParallelLayerRenderingEnabled() {
+        if (rendererHints == null || threadPool == null || concatTransforms)
+            return false;
+        return Boolean.TRUE.equals(rendererHints.get(PARALLEL_LAYER_RENDERING_KEY));
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      * @return
@@ -2987,6 +3143,44 @@ public class StreamingRenderer implements GTRenderer {
         return result.intValue();
     }
 
+    /**
+     * Returns the maximum error, in pixels, tolerated when reprojecting vector geometries.
+     * See {@link #TRANSFORM_APPROXIMATION_TOLERANCE_KEY} description for a full explanation.
+     */
+    private double getTransformApproximationTolerance() {
+        if (rendererHints == null)
+            return transformApproximationToleranceDEFAULT;
+        Number result = (Number) rendererHints.get(TRANSFORM_APPROXIMATION_TOLERANCE_KEY);
+        if (result == null)
+            return transformApproximationToleranceDEFAULT;
+        return result.doubleValue();
+    }
+
+    /**
+     * Approximates the transform going from the data to the screen over the area being painted,
+     * if allowed by the {@link #TRANSFORM_APPROXIMATION_TOLERANCE_KEY}. Returns the transform
+     * itself if it is affine, or if the approximation cannot be built.
+     */
+    private MathTransform approximateTransform(MathTransform fullTransform) {
+        final double tolerance = getTransformApproximationTolerance();
+        if (tolerance <= 0 || fullTransform instanceof LinearTransform
+                || !(fullTransform instanceof MathTransform2D)) {
+            return fullTransform;
+        }
+        try {
+            // the area being painted, in the data CRS. The points outside of it, such as the
+            // ones of the geometries crossing the border, will use the exact transform
+            final MathTransform2D mt = (MathTransform2D) fullTransform;
+            final Rectangle2D domain = CRS.transform(mt.inverse(),
+                    new GeneralEnvelope((Rectangle2D) screenSize)).toRectangle2D();
+            return ApproximatedTransform2D.create(mt, domain, tolerance);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not approximate the rendering transformation, "
+                    + "using the exact one", e);
+            return fullTransform;
+        }
+    }
+
     /**
      * <p>
      * Returns scale computation algorithm to be used. 
@@ -3206,6 +3400,7 @@ public class StreamingRenderer implements GTRenderer {
         private List shapes = new ArrayList();
         private boolean clone;
         private IdentityHashMap decimators = new IdentityHashMap();
+        private IdentityHashMap approximatedTransforms = new IdentityHashMap(); // by data CRS
         private ScreenMap screenMap;
 
 
@@ -3272,6 +3467,15 @@ public class StreamingRenderer implements GTRenderer {
                         sa.rxform = projectionHandler.getRenderingTransform(sa.crsxform);
                     } else {
                         sa.rxform = sa.crsxform;
+                        if (crsTransform != null && fullTransform != null) {
+                            // the symbolizers of a layer usually share the same data CRS
+                            MathTransform approximated = (MathTransform) approximatedTransforms.get(sa.crs);
+                            if (approximated == null) {
+                                approximated = approximateTransform(fullTransform);
+                                approximatedTransforms.put(sa.crs, approximated);
+                            }
+                            sa.xform = approximated;
+                        }
                     }
     
                     symbolizerAssociationHT.put(symbolizer, sa);
@@ -3426,6 +3630,186 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
     
+    /**
+     * Paints a single layer into its own back buffer, using a separate renderer configured
+     * like this one, as part of a parallel paint
+     */
+    class LayerRenderingTask implements Callable<Void> {
+        Layer layer;
+
+        String layerId;
+
+        DelayedBackbufferGraphic buffer;
+
+        LabelCache sharedLabelCache;
+
+        /** Set by whoever gets first between the task starting and the task being cancelled */
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        /** Released once a started task is done with the buffer and the label cache */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        public LayerRenderingTask(Layer layer, String layerId, DelayedBackbufferGraphic buffer,
+                LabelCache sharedLabelCache) {
+            this.layer = layer;
+            this.layerId = layerId;
+            this.buffer = buffer;
+            this.sharedLabelCache = sharedLabelCache;
+        }
+
+        /**
+         * Cancels the task and waits for it to stop using its buffer and the shared label cache,
+         * if it had already started
+         */
+        void cancel(Future<?> future) {
+            if (claimed.compareAndSet(false, true)) {
+                // never started, and now it never will
+                future.cancel(false);
+                return;
+            }
+            future.cancel(true);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public Void call() throws Exception {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                paintLayer();
+            } finally {
+                done.countDown();
+            }
+            return null;
+        }
+
+        private void paintLayer() throws Exception {
+            if (renderingStopRequested) {
+                return;
+            }
+            buffer.init();
+            
+            if (layer instanceof DirectLayer) {
+                ((DirectLayer) layer).draw(buffer, mapContent, mapContent.getViewport());
+                return;
+            }
+
+            // setup a renderer that will behave like this one, but will paint just one layer
+            // and use its own painting thread
+            StreamingRenderer renderer = new StreamingRenderer();
+            Map hints = new HashMap();
+            if (rendererHints != null) {
+                hints.putAll(rendererHints);
+            }
+            hints.remove(PARALLEL_LAYER_RENDERING_KEY);
+            hints.put(LABEL_CACHE_KEY, new LayerLabelCache(sharedLabelCache, layerId));
+            renderer.setRendererHints(hints);
+            if (java2dHints != null) {
+                renderer.setJava2DHints(java2dHints);
+            }
+            renderer.setGeneralizationDistance(generalizationDistance);
+            renderer.setInteractive(interactive);
+            renderer.addRenderListener(new RenderListener() {
+
+                public void featureRenderer(SimpleFeature feature) {
+                    fireFeatureRenderedEvent(feature);
+                }
+
+                public void errorOccurred(Exception e) {
+                    fireErrorEvent(e);
+                }
+            });
+            
+            // the layer is just borrowed, the content must not be disposed
+            MapContent content = new MapContent();
+            content.addLayer(layer);
+            renderer.setMapContent(content);
+            layerRenderers.add(renderer);
+            try {
+                renderer.paint(buffer, screenSize, originalMapExtent, worldToScreenTransform);
+            } finally {
+                layerRenderers.remove(renderer);
+                content.removeLayer(layer);
+            }
+        }
+    }
+
+    /**
+     * A label cache used by the renderers painting single layers in parallel, forwards the labels
+     * to the main label cache under the layer id assigned by the main renderer, while leaving the
+     * main renderer in charge of the label cache lifecycle
+     */
+    static class LayerLabelCache implements LabelCache {
+        LabelCache delegate;
+
+        String layerId;
+
+        public LayerLabelCache(LabelCache delegate, String layerId) {
+            this.delegate = delegate;
+            this.layerId = layerId;
+        }
+
+        public void start() {
+            // the main renderer handles this
+        }
+
+        public void startLayer(String layerId) {
+            // the main renderer handles this
+        }
+
+        public void put(String layerId, TextSymbolizer symbolizer, Feature feature,
+                LiteShape2 shape, NumberRange<Double> scaleRange) {
+            delegate.put(this.layerId, symbolizer, feature, shape, scaleRange);
+        }
+
+        public void put(Rectangle2D area) {
+            delegate.put(area);
+        }
+
+        public void endLayer(String layerId, Graphics2D graphics, Rectangle displayArea) {
+            // the main renderer handles this once the layer back buffer has been composited
+        }
+
+        public void end(Graphics2D graphics, Rectangle displayArea) {
+            // the main renderer handles this
+        }
+
+        public void stop() {
+            // the main renderer handles this
+        }
+
+        public void clear() {
+            // the main renderer handles this
+        }
+
+        public void clear(String layerId) {
+            delegate.clear(this.layerId);
+        }
+
+        public void disableLayer(String layerId) {
+            delegate.disableLayer(this.layerId);
+        }
+
+        public void enableLayer(String layerId) {
+            delegate.enableLayer(this.layerId);
+        }
+
+        public List orderedLabels() {
+            return delegate.orderedLabels();
+        }
+    }
+
     /**
      * A request sent to the painting thread 
      * @author aaime
@@ -0,0 +1,195 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.styling.Font;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
+
+/**
+ * Measures the labels per second {@link LabelCacheImpl} can place for dense point, line and
+ * polygon layers, and compares the grid based {@link LabelIndex} against the JTS quadtree it
+ * replaced on the conflict checks alone.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of labels per
+ * layer.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class LabelCacheImplBenchmark {
+
+    static final int WIDTH = 1024;
+
+    static final int HEIGHT = 768;
+
+    static final String LAYER_ID = "benchmark";
+
+    static final NumberRange<Double> ALL_SCALES = new NumberRange<Double>(Double.class,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        StyleBuilder sb = new StyleBuilder();
+        TextSymbolizer pointSymbolizer = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        TextSymbolizer lineSymbolizer = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        lineSymbolizer.setLabelPlacement(sb.createLinePlacement(0));
+        TextSymbolizer polygonSymbolizer = sb.createTextSymbolizer(Color.BLACK, (Font) null,
+                "name");
+
+        List<SimpleFeature> points = buildFeatures(count, 0);
+        List<SimpleFeature> lines = buildFeatures(count, 1);
+        List<SimpleFeature> polygons = buildFeatures(count, 2);
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            benchmarkLabelCache("Points", points, pointSymbolizer);
+            benchmarkLabelCache("Lines", lines, lineSymbolizer);
+            benchmarkLabelCache("Polygons", polygons, polygonSymbolizer);
+            benchmarkIndexes(count * 10);
+        }
+    }
+
+    static List<SimpleFeature> buildFeatures(int count, int kind) {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("labels");
+        tb.add("name", String.class);
+        tb.add("geom", Geometry.class);
+        SimpleFeatureType schema = tb.buildFeatureType();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(0);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            Geometry geometry;
+            if (kind == 0) {
+                geometry = gf.createPoint(new Coordinate(x, y));
+            } else if (kind == 1) {
+                geometry = gf.createLineString(new Coordinate[] { new Coordinate(x, y),
+                        new Coordinate(x + 60, y + 20), new Coordinate(x + 120, y + 10) });
+            } else {
+                geometry = gf.toGeometry(new Envelope(x, x + 80, y, y + 50));
+            }
+            fb.add("label" + i);
+            fb.add(geometry);
+            features.add(fb.buildFeature(null));
+        }
+        return features;
+    }
+
+    static void benchmarkLabelCache(String name, List<SimpleFeature> features,
+            TextSymbolizer symbolizer) throws Exception {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        Rectangle displayArea = new Rectangle(WIDTH, HEIGHT);
+
+        long t1 = System.nanoTime();
+        LabelCacheImpl cache = new LabelCacheImpl();
+        cache.start();
+        cache.startLayer(LAYER_ID);
+        for (SimpleFeature feature : features) {
+            LiteShape2 shape = new LiteShape2((Geometry) feature.getDefaultGeometry(), null, null,
+                    false);
+            cache.put(LAYER_ID, symbolizer, feature, shape, ALL_SCALES);
+        }
+        cache.endLayer(LAYER_ID, graphics, displayArea);
+        cache.end(graphics, displayArea);
+        long t2 = System.nanoTime();
+        graphics.dispose();
+
+        double seconds = (t2 - t1) / 1e9;
+        System.out.println(name + ": " + Math.round(features.size() / seconds)
+                + " labels/s (" + features.size() + " labels in " + Math.round(seconds * 1000)
+                + "ms)");
+    }
+
+    static void benchmarkIndexes(int count) {
+        Random random = new Random(0);
+        Rectangle2D[] candidates = new Rectangle2D[count];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = new Rectangle2D.Double(random.nextDouble() * WIDTH,
+                    random.nextDouble() * HEIGHT, 20 + random.nextDouble() * 60, 12);
+        }
+
+        // the quadtree based approach used before the grid index
+        long t1 = System.nanoTime();
+        Quadtree quadtree = new Quadtree();
+        int placed = 0;
+        for (Rectangle2D candidate : candidates) {
+            Envelope e = new Envelope(candidate.getMinX(), candidate.getMaxX(),
+                    candidate.getMinY(), candidate.getMaxY());
+            e.expandBy(2);
+            boolean conflict = false;
+            for (Object o : quadtree.query(e)) {
+                if (((Envelope) o).intersects(e)) {
+                    conflict = true;
+                    break;
+                }
+            }
+            if (!conflict) {
+                Envelope bounds = new Envelope(candidate.getMinX(), candidate.getMaxX(),
+                        candidate.getMinY(), candidate.getMaxY());
+                quadtree.insert(bounds, bounds);
+                placed++;
+            }
+        }
+        long t2 = System.nanoTime();
+        System.out.println("Quadtree conflict checks: " + Math.round(count / ((t2 - t1) / 1e9))
+                + " candidates/s (" + placed + " placed)");
+
+        t1 = System.nanoTime();
+        LabelIndex index = new LabelIndex();
+        placed = 0;
+        for (Rectangle2D candidate : candidates) {
+            if (!index.labelsWithinDistance(candidate, 2)) {
+                index.addLabel(null, candidate);
+                placed++;
+            }
+        }
+        t2 = System.nanoTime();
+        System.out.println("Grid conflict checks: " + Math.round(count / ((t2 - t1) / 1e9))
+                + " candidates/s (" + placed + " placed)");
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.*;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testOverlapAndDistance() {
+        LabelIndex index = new LabelIndex();
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(0, 0, 10, 10), 0));
+
+        index.addLabel(null, new Rectangle2D.Double(100, 100, 50, 10));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(140, 105, 20, 20), 0));
+        // touching counts as a conflict
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(150, 100, 20, 20), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(155, 100, 20, 20), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(155, 100, 20, 20), 5));
+        // a negative distance disables the check
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(140, 105, 20, 20), -1));
+    }
+
+    @Test
+    public void testReservedAreas() {
+        LabelIndex index = new LabelIndex(16);
+        List<Rectangle2D> reserved = new ArrayList<Rectangle2D>();
+        // large enough not to be gridded
+        reserved.add(new Rectangle2D.Double(-1000, -1000, 2000, 2000));
+        index.reserveArea(reserved);
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(500, 500, 10, 10), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(1500, 500, 10, 10), 0));
+
+        index.reserveArea(Collections.<Rectangle2D> singletonList(new Rectangle2D.Double(2000,
+                2000, 10, 10)));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(2005, 2005, 100, 100), 0));
+    }
+
+    @Test(timeout = 10000)
+    public void testHugeAndInfiniteBounds() {
+        LabelIndex index = new LabelIndex();
+        index.addLabel(null, new Rectangle2D.Double(0, 0, 10, 10));
+        // would be clamped to the last integer cell, not to the grid extent
+        index.addLabel(null, new Rectangle2D.Double(1e300, 1e300, 10, 10));
+        index.addLabel(null, new Rectangle2D.Double(-1e300, -1e300, 10, 10));
+        index.addLabel(null, new Rectangle2D.Double(5000, Double.NEGATIVE_INFINITY, 10,
+                Double.POSITIVE_INFINITY));
+
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(1e300, 1e300, 10, 10), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(5005, 100, 10, 10), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(1000, 1000, 10, 10), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(Double.MAX_VALUE,
+                Double.MAX_VALUE, 10, 10), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-5, -5, 10, 10), 0));
+    }
+
+    @Test
+    public void testAgainstBruteForce() {
+        Random random = new Random(7);
+        LabelIndex index = new LabelIndex();
+        List<Rectangle2D> labels = new ArrayList<Rectangle2D>();
+        for (int i = 0; i < 3000; i++) {
+            Rectangle2D candidate = new Rectangle2D.Double(random.nextDouble() * 2000 - 200,
+                    random.nextDouble() * 1500 - 200, 10 + random.nextDouble() * 120,
+                    8 + random.nextDouble() * 20);
+            double distance = random.nextInt(4) * 3;
+
+            boolean expected = false;
+            for (Rectangle2D label : labels) {
+                if (!(label.getMinX() > candidate.getMaxX() + distance
+                        || label.getMaxX() < candidate.getMinX() - distance
+                        || label.getMinY() > candidate.getMaxY() + distance || label.getMaxY() < candidate
+                        .getMinY() - distance)) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, index.labelsWithinDistance(candidate, distance));
+
+            if (!expected) {
+                index.addLabel(null, candidate);
+                labels.add(candidate);
+            }
+        }
+        assertTrue(labels.size() > 100);
+
+        // a query covering the whole area
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-1e6, -1e6, 2e6, 2e6), 0));
+    }
+
+}
@@ -2,10 +2,18 @@ package org.geotools.renderer.lite;
 
 import static org.junit.Assert.*;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
@@ -65,4 +73,87 @@ public class MultiLayerTest {
 		assertEquals(0, pixel[2]);
 		assertEquals(255, pixel[3]);
 	}
+
+	@Test
+	public void testParallelLayersZOrder() throws Exception {
+		File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+		PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+		SimpleFeatureSource fs = ds.getFeatureSource("buildings");
+		ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+
+		StyleBuilder sb = new StyleBuilder();
+		Style pst = sb.createStyle(sb.createPolygonSymbolizer(null, sb.createFill(Color.BLUE)));
+
+		BufferedImage bi = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics g = bi.getGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 300, 300);
+		g.dispose();
+		GridCoverage2D coverage = new GridCoverageFactory().create("test_red", bi, bounds);
+		Style rst = sb.createStyle(sb.createRasterSymbolizer());
+
+		// raster first, the polygons must be painted on top of it
+		MapContent mc = new MapContent();
+		mc.addLayer(new GridCoverageLayer(coverage, rst));
+		mc.addLayer(new FeatureLayer(fs, pst));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			StreamingRenderer renderer = new StreamingRenderer();
+			renderer.setMapContent(mc);
+			renderer.setThreadPool(pool);
+			Map hints = new HashMap();
+			hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, Boolean.TRUE);
+			renderer.setRendererHints(hints);
+			BufferedImage parallel = RendererBaseTest.renderImage(renderer, bounds, null);
+
+			StreamingRenderer sequentialRenderer = new StreamingRenderer();
+			sequentialRenderer.setMapContent(mc);
+			BufferedImage sequential = RendererBaseTest.renderImage(sequentialRenderer, bounds, null);
+
+			for (int x = 0; x < sequential.getWidth(); x++) {
+				for (int y = 0; y < sequential.getHeight(); y++) {
+					assertEquals(sequential.getRGB(x, y), parallel.getRGB(x, y));
+				}
+			}
+		} finally {
+			pool.shutdown();
+			mc.dispose();
+		}
+	}
+
+	@Test
+	public void testParallelLayersRestoreComposite() throws Exception {
+		File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+		PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+		SimpleFeatureSource fs = ds.getFeatureSource("buildings");
+		ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+
+		StyleBuilder sb = new StyleBuilder();
+		Style pst = sb.createStyle(sb.createPolygonSymbolizer(null, sb.createFill(Color.BLUE)));
+		MapContent mc = new MapContent();
+		mc.addLayer(new FeatureLayer(fs, pst));
+		mc.addLayer(new FeatureLayer(fs, pst));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			StreamingRenderer renderer = new StreamingRenderer();
+			renderer.setMapContent(mc);
+			renderer.setThreadPool(pool);
+			Map hints = new HashMap();
+			hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, Boolean.TRUE);
+			renderer.setRendererHints(hints);
+
+			BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+			Graphics2D graphics = image.createGraphics();
+			Composite composite = AlphaComposite.getInstance(AlphaComposite.SRC_ATOP, 0.5f);
+			graphics.setComposite(composite);
+			renderer.paint(graphics, new Rectangle(300, 300), bounds);
+			assertEquals(composite, graphics.getComposite());
+			graphics.dispose();
+		} finally {
+			pool.shutdown();
+			mc.dispose();
+		}
+	}
 }
@@ -128,4 +128,78 @@ public class ReprojectionTest extends TestCase {
         // projected but the renderer itself should not throw exceptions
         assertEquals(1, errors);
     }
+
+    public void testApproximatedTransform() throws Exception {
+        // a graticule over europe, reprojected to the lambert azimuthal equal area
+        DefaultFeatureCollection fc = new DefaultFeatureCollection();
+        for (int lon = -10; lon <= 30; lon += 2) {
+            fc.add(createLine(lon, 35, lon, 65));
+        }
+        for (int lat = 35; lat <= 65; lat += 2) {
+            fc.add(createLine(-10, lat, 30, lat));
+        }
+        MapContext mapContext = new DefaultMapContext(DefaultGeographicCRS.WGS84);
+        mapContext.addLayer(fc, createLineStyle());
+
+        CoordinateReferenceSystem laea = CRS.decode("EPSG:3035");
+        ReferencedEnvelope bounds = new ReferencedEnvelope(new Envelope(-10, 30, 35, 65),
+                DefaultGeographicCRS.WGS84).transform(laea, true);
+
+        BufferedImage exact = renderLines(mapContext, bounds, 0d);
+        BufferedImage approximated = renderLines(mapContext, bounds, 0.25);
+
+        // the error is below a pixel, so every painted pixel should be next to one painted
+        // using the exact transform
+        assertPixelsNear(exact, approximated);
+        assertPixelsNear(approximated, exact);
+
+        // the approximation is enabled by default, with a tenth of pixel
+        BufferedImage byDefault = renderLines(mapContext, bounds, null);
+        BufferedImage tenth = renderLines(mapContext, bounds, 0.1);
+        for (int x = 0; x < tenth.getWidth(); x++) {
+            for (int y = 0; y < tenth.getHeight(); y++) {
+                assertEquals(tenth.getRGB(x, y), byDefault.getRGB(x, y));
+            }
+        }
+        assertPixelsNear(exact, byDefault);
+        assertPixelsNear(byDefault, exact);
+        mapContext.dispose();
+    }
+
+    private BufferedImage renderLines(MapContext mapContext, ReferencedEnvelope bounds,
+            Double tolerance) {
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+        StreamingRenderer sr = new StreamingRenderer();
+        sr.setContext(mapContext);
+        if (tolerance != null) {
+            sr.setRendererHints(Collections.singletonMap(
+                    StreamingRenderer.TRANSFORM_APPROXIMATION_TOLERANCE_KEY, tolerance));
+        }
+        Graphics2D graphics = image.createGraphics();
+        sr.paint(graphics, new Rectangle(300, 300), bounds);
+        graphics.dispose();
+        return image;
+    }
+
+    private void assertPixelsNear(BufferedImage expected, BufferedImage actual) {
+        int painted = 0;
+        for (int x = 0; x < actual.getWidth(); x++) {
+            for (int y = 0; y < actual.getHeight(); y++) {
+                if (actual.getRGB(x, y) == 0) {
+                    continue;
+                }
+                painted++;
+                boolean found = false;
+                for (int i = Math.max(0, x - 1); i <= Math.min(x + 1, expected.getWidth() - 1)
+                        && !found; i++) {
+                    for (int j = Math.max(0, y - 1); j <= Math.min(y + 1,
+                            expected.getHeight() - 1) && !found; j++) {
+                        found = expected.getRGB(i, j) != 0;
+                    }
+                }
+                assertTrue("No painted pixel near " + x + ", " + y, found);
+            }
+        }
+        assertTrue(painted > 0);
+    }
 }
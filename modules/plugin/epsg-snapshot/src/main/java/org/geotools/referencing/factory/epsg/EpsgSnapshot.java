@@ -0,0 +1,413 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.DerivedCRS;
+import org.opengis.referencing.crs.EngineeringCRS;
+import org.opengis.referencing.crs.GeocentricCRS;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ImageCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.crs.TemporalCRS;
+import org.opengis.referencing.crs.VerticalCRS;
+
+/**
+ * Reads and writes the binary snapshot of the EPSG coordinate reference systems used by
+ * {@link SnapshotEpsgFactory}.
+ * <p>
+ * The snapshot is a single big endian file made of a header followed by fixed size tables
+ * indexed by record number, sorted on the EPSG code so that a code is located with a binary
+ * search, and finally by the UTF-8 text of the records:
+ * <ul>
+ * <li>the header: magic number, format version, EPSG database version, record count, padded
+ * to a multiple of 8 bytes;</li>
+ * <li>the geographic bounding box of the domain of validity (west, east, south, north), as
+ * four doubles per record, {@code NaN} if unknown;</li>
+ * <li>the EPSG codes, as ints;</li>
+ * <li>the record number of the base record, as ints, -1 if none;</li>
+ * <li>the position in the record text where the base record text is to be inserted, as ints;</li>
+ * <li>the start of each record text, as ints, plus the end of the last one;</li>
+ * <li>the kind of each record, as bytes, an index in {@link #TYPES}.</li>
+ * </ul>
+ * Each record holds the Well Known Text of a coordinate reference system. Most of the EPSG
+ * systems are built on top of others (a projected CRS contains its base geographic CRS, a
+ * compound CRS its components), so when the text of another record appears verbatim in a
+ * record, it is cut out and referenced by record number instead. This keeps the file small
+ * enough to be read in full, or memory mapped, at startup.
+ * <p>
+ * Instances are immutable and can be shared among threads.
+ *
+ * @source $URL$
+ */
+final class EpsgSnapshot {
+
+    /**
+     * The magic number at the beginning of the file, "EPSG" in ASCII
+     */
+    static final int MAGIC = 0x45505347;
+
+    /**
+     * The version of the file layout
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * The kinds of records, the most specific types must come first
+     */
+    static final Class<?>[] TYPES = new Class<?>[] { GeographicCRS.class, ProjectedCRS.class,
+            GeocentricCRS.class, VerticalCRS.class, CompoundCRS.class, EngineeringCRS.class,
+            TemporalCRS.class, DerivedCRS.class, ImageCRS.class, CoordinateReferenceSystem.class };
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Matches the EPSG codes mentioned in a WKT, used to find the candidate base records
+     */
+    static final Pattern AUTHORITY = Pattern.compile("AUTHORITY\\[\"EPSG\",\\s*\"(\\d+)\"\\]");
+
+    /**
+     * The EPSG database version the snapshot has been built from
+     */
+    final String version;
+
+    /**
+     * The number of records
+     */
+    final int count;
+
+    private final DoubleBuffer bounds;
+
+    private final IntBuffer codes;
+
+    private final IntBuffer bases;
+
+    private final IntBuffer insertions;
+
+    private final IntBuffer offsets;
+
+    private final ByteBuffer kinds;
+
+    private final ByteBuffer text;
+
+    /**
+     * Reads the snapshot at the specified location. Files are memory mapped, any other resource
+     * (such as a jar entry) is read in memory.
+     * 
+     * @param url the location of the snapshot
+     * @return the snapshot, ready to be queried
+     * @throws IOException if the snapshot cannot be read or is not a valid one
+     */
+    static EpsgSnapshot open(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                file = new File(url.getPath());
+            }
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                return new EpsgSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size()));
+            } finally {
+                // the mapping stays valid after the channel is closed
+                raf.close();
+            }
+        }
+
+        InputStream in = url.openStream();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 * 1024);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new EpsgSnapshot(ByteBuffer.wrap(bytes.toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses the header of the snapshot and sets up the views on its tables
+     * 
+     * @param buffer
+     * @throws IOException if the contents are not a valid snapshot
+     */
+    EpsgSnapshot(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an EPSG snapshot");
+            }
+            int formatVersion = buffer.getInt(4);
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported EPSG snapshot format version " + formatVersion);
+            }
+            int versionLength = buffer.getInt(8);
+            byte[] versionBytes = new byte[versionLength];
+            ByteBuffer b = buffer.duplicate();
+            b.position(12);
+            b.get(versionBytes);
+            version = new String(versionBytes, UTF8);
+            count = b.getInt();
+
+            int position = headerLength(versionLength);
+            bounds = slice(buffer, position, count * 32).asDoubleBuffer();
+            position += count * 32;
+            codes = slice(buffer, position, count * 4).asIntBuffer();
+            position += count * 4;
+            bases = slice(buffer, position, count * 4).asIntBuffer();
+            position += count * 4;
+            insertions = slice(buffer, position, count * 4).asIntBuffer();
+            position += count * 4;
+            offsets = slice(buffer, position, (count + 1) * 4).asIntBuffer();
+            position += (count + 1) * 4;
+            kinds = slice(buffer, position, count);
+            position += count;
+            text = slice(buffer, position, buffer.limit() - position);
+            if (offsets.get(count) > text.limit()) {
+                throw new IOException("Truncated EPSG snapshot");
+            }
+        } catch (RuntimeException e) {
+            // buffer under/overflows and illegal positions
+            throw (IOException) new IOException("Invalid EPSG snapshot").initCause(e);
+        }
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(position);
+        b.limit(position + length);
+        return b.slice();
+    }
+
+    static int headerLength(int versionLength) {
+        int length = 16 + versionLength;
+        return (length + 7) & ~7;
+    }
+
+    /**
+     * Returns the record number of the specified EPSG code, or a negative value if not found
+     * 
+     * @param code the EPSG code
+     * @return the record number, or <code>-(insertion point) - 1</code> if not found
+     */
+    int indexOf(int code) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midCode = codes.get(mid);
+            if (midCode < code) {
+                low = mid + 1;
+            } else if (midCode > code) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    int getCode(int index) {
+        return codes.get(index);
+    }
+
+    Class<?> getType(int index) {
+        return TYPES[kinds.get(index)];
+    }
+
+    /**
+     * Returns the domain of validity of the record as west, east, south, north, or null if
+     * unknown
+     * 
+     * @param index the record number
+     * @return the west, east, south and north bounds in degrees, or null
+     */
+    double[] getBounds(int index) {
+        double[] result = new double[4];
+        for (int i = 0; i < 4; i++) {
+            result[i] = bounds.get(index * 4 + i);
+        }
+        return Double.isNaN(result[0]) ? null : result;
+    }
+
+    /**
+     * Returns the full text of the record, with the base records put back in place
+     * 
+     * @param index the record number
+     * @return the WKT of the object
+     */
+    String getText(int index) {
+        StringBuilder sb = new StringBuilder(512);
+        appendText(index, sb);
+        return sb.toString();
+    }
+
+    private void appendText(int index, StringBuilder sb) {
+        int start = offsets.get(index);
+        int end = offsets.get(index + 1);
+        int base = bases.get(index);
+        if (base < 0) {
+            sb.append(decode(start, end));
+        } else {
+            int insertion = start + insertions.get(index);
+            sb.append(decode(start, insertion));
+            appendText(base, sb);
+            sb.append(decode(insertion, end));
+        }
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer b = text.duplicate();
+        b.position(start);
+        b.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Returns the index in {@link #TYPES} of the most specific type the object implements
+     * 
+     * @param object the object to be stored in the snapshot
+     * @return the type index
+     * @throws IllegalArgumentException if the object implements none of them
+     */
+    static byte kindOf(Object object) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].isInstance(object)) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported object type " + object.getClass());
+    }
+
+    /**
+     * Writes a snapshot. The codes must be sorted in ascending order.
+     * 
+     * @param out the destination, will not be closed
+     * @param version the EPSG database version
+     * @param codes the EPSG codes
+     * @param kinds the index of the type of each record in {@link #TYPES}
+     * @param texts the Well Known Text of each record
+     * @param bounds west, east, south, north for each record, NaN if unknown
+     * @throws IOException
+     */
+    static void write(OutputStream out, String version, int[] codes, byte[] kinds,
+            String[] texts, double[] bounds) throws IOException {
+        int count = codes.length;
+        Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && codes[i] <= codes[i - 1]) {
+                throw new IllegalArgumentException("The codes are not sorted at " + codes[i]);
+            }
+            indexes.put(codes[i], i);
+        }
+
+        // pick for each record the longest other record its text contains verbatim. The base
+        // text is strictly shorter than the record one, so there can be no reference cycles
+        int[] bases = new int[count];
+        int[] insertions = new int[count];
+        byte[][] encoded = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            String text = texts[i];
+            int base = -1;
+            int insertion = -1;
+            Matcher matcher = AUTHORITY.matcher(text);
+            while (matcher.find()) {
+                Integer candidate = indexes.get(Integer.valueOf(matcher.group(1)));
+                if (candidate == null || candidate == i
+                        || (base >= 0 && texts[candidate].length() <= texts[base].length())) {
+                    continue;
+                }
+                int position = text.indexOf(texts[candidate]);
+                if (position >= 0 && texts[candidate].length() < text.length()) {
+                    base = candidate;
+                    insertion = position;
+                }
+            }
+            bases[i] = base;
+            if (base < 0) {
+                encoded[i] = text.getBytes(UTF8);
+            } else {
+                byte[] prefix = text.substring(0, insertion).getBytes(UTF8);
+                byte[] suffix = text.substring(insertion + texts[base].length()).getBytes(UTF8);
+                encoded[i] = new byte[prefix.length + suffix.length];
+                System.arraycopy(prefix, 0, encoded[i], 0, prefix.length);
+                System.arraycopy(suffix, 0, encoded[i], prefix.length, suffix.length);
+                insertions[i] = prefix.length;
+            }
+        }
+
+        DataOutputStream dos = new DataOutputStream(out);
+        byte[] versionBytes = version.getBytes(UTF8);
+        dos.writeInt(MAGIC);
+        dos.writeInt(FORMAT_VERSION);
+        dos.writeInt(versionBytes.length);
+        dos.write(versionBytes);
+        dos.writeInt(count);
+        for (int i = 16 + versionBytes.length; i < headerLength(versionBytes.length); i++) {
+            dos.writeByte(0);
+        }
+        for (int i = 0; i < count * 4; i++) {
+            dos.writeDouble(bounds[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            dos.writeInt(codes[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            dos.writeInt(bases[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            dos.writeInt(insertions[i]);
+        }
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            dos.writeInt(offset);
+            offset += encoded[i].length;
+        }
+        dos.writeInt(offset);
+        dos.write(kinds, 0, count);
+        for (int i = 0; i < count; i++) {
+            dos.write(encoded[i]);
+        }
+        dos.flush();
+    }
+}
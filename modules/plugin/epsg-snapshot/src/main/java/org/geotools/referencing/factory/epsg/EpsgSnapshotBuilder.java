@@ -0,0 +1,119 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.wkt.Formattable;
+import org.geotools.referencing.wkt.Parser;
+import org.geotools.util.logging.Logging;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Builds the {@linkplain ThreadedSnapshotEpsgFactory#FILENAME EPSG snapshot} from the EPSG-HSQL
+ * database. This is run by the build when packaging this plugin, passing the destination file
+ * as the only argument.
+ * <p>
+ * Every coordinate reference system is written as its Well Known Text, after checking it can be
+ * parsed back. The ones that cannot be formatted or parsed are logged and left out.
+ *
+ * @source $URL$
+ */
+public class EpsgSnapshotBuilder {
+
+    static final Logger LOGGER = Logging.getLogger("org.geotools.referencing.factory.epsg");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: EpsgSnapshotBuilder <destination file>");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+
+        ThreadedHsqlEpsgFactory factory = new ThreadedHsqlEpsgFactory();
+        try {
+            List<Integer> codeList = new ArrayList<Integer>();
+            for (String code : factory.getAuthorityCodes(CoordinateReferenceSystem.class)) {
+                try {
+                    codeList.add(Integer.valueOf(code.trim()));
+                } catch (NumberFormatException e) {
+                    // not an EPSG code
+                }
+            }
+            int[] codes = new int[codeList.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = codeList.get(i);
+            }
+            Arrays.sort(codes);
+
+            Parser parser = new Parser();
+            int count = 0;
+            byte[] kinds = new byte[codes.length];
+            String[] texts = new String[codes.length];
+            double[] bounds = new double[codes.length * 4];
+            for (int code : codes) {
+                try {
+                    CoordinateReferenceSystem crs = factory
+                            .createCoordinateReferenceSystem(String.valueOf(code));
+                    String wkt = ((Formattable) crs).toWKT(Formattable.SINGLE_LINE, false);
+                    parser.parseObject(wkt);
+
+                    codes[count] = code;
+                    kinds[count] = EpsgSnapshot.kindOf(crs);
+                    texts[count] = wkt;
+                    GeographicBoundingBox bbox = CRS.getGeographicBoundingBox(crs);
+                    if (bbox != null) {
+                        bounds[count * 4] = bbox.getWestBoundLongitude();
+                        bounds[count * 4 + 1] = bbox.getEastBoundLongitude();
+                        bounds[count * 4 + 2] = bbox.getSouthBoundLatitude();
+                        bounds[count * 4 + 3] = bbox.getNorthBoundLatitude();
+                    } else {
+                        Arrays.fill(bounds, count * 4, count * 4 + 4, Double.NaN);
+                    }
+                    count++;
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Skipping EPSG:" + code + ", " + e.getMessage());
+                }
+            }
+
+            String version = String.valueOf(factory.getAuthority().getEdition());
+            file.getParentFile().mkdirs();
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                EpsgSnapshot.write(out, version, Arrays.copyOf(codes, count),
+                        Arrays.copyOf(kinds, count), Arrays.copyOf(texts, count),
+                        Arrays.copyOf(bounds, count * 4));
+            } finally {
+                out.close();
+            }
+            LOGGER.info("Wrote " + count + " EPSG definitions, version " + version + ", to "
+                    + file);
+        } finally {
+            factory.dispose();
+        }
+    }
+}
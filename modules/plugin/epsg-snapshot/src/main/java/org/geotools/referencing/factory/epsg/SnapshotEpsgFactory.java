@@ -0,0 +1,276 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.CitationImpl;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.metadata.iso.extent.ExtentImpl;
+import org.geotools.metadata.iso.extent.GeographicBoundingBoxImpl;
+import org.geotools.referencing.factory.DirectAuthorityFactory;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.referencing.wkt.Symbols;
+import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.Version;
+import org.opengis.metadata.Identifier;
+import org.opengis.metadata.citation.Citation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.InternationalString;
+
+/**
+ * An EPSG authority factory creating the coordinate reference systems from a binary snapshot of
+ * the EPSG database, built from the EPSG-HSQL database when this module is packaged. Codes are
+ * looked up with a binary search in the snapshot and the definitions parsed from Well Known Text,
+ * there is no embedded database to start.
+ * <p>
+ * Only coordinate reference systems are available. The coordinate operations between them are
+ * not part of the snapshot, datum shifts are performed with the {@code TOWGS84} parameters of
+ * the definitions instead.
+ * <p>
+ * This factory is usually not used directly, but through {@link ThreadedSnapshotEpsgFactory}.
+ *
+ * @source $URL$
+ */
+public class SnapshotEpsgFactory extends DirectAuthorityFactory implements CRSAuthorityFactory {
+
+    private final EpsgSnapshot snapshot;
+
+    private final Citation authority;
+
+    private final Set<String> codes;
+
+    private final Map<Class<?>, Set<String>> filteredCodes = new HashMap<Class<?>, Set<String>>();
+
+    private transient Parser parser;
+
+    /**
+     * Builds a factory on top of the specified snapshot
+     * 
+     * @param factories The underlying factories used for objects creation.
+     * @param snapshot The EPSG snapshot
+     */
+    SnapshotEpsgFactory(final ReferencingFactoryContainer factories, final EpsgSnapshot snapshot) {
+        super(factories, ThreadedEpsgFactory.PRIORITY);
+        this.snapshot = snapshot;
+        // the definitions are the EPSG ones, latitude first where EPSG says so
+        hints.put(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_DIRECTIONS, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_UNITS, Boolean.FALSE);
+        hints.put(Hints.VERSION, new Version(snapshot.version));
+
+        CitationImpl c = new CitationImpl(Citations.EPSG);
+        c.setEdition(new SimpleInternationalString(snapshot.version));
+        authority = (Citation) c.unmodifiable();
+
+        Set<String> all = new LinkedHashSet<String>(snapshot.count * 2);
+        for (int i = 0; i < snapshot.count; i++) {
+            all.add(String.valueOf(snapshot.getCode(i)));
+        }
+        codes = Collections.unmodifiableSet(all);
+    }
+
+    /**
+     * Returns the EPSG authority, with the database version the snapshot has been built from
+     * as the edition.
+     */
+    public Citation getAuthority() {
+        return authority;
+    }
+
+    /**
+     * Returns the database version the snapshot has been built from.
+     */
+    @Override
+    public String getBackingStoreDescription() throws FactoryException {
+        return "EPSG snapshot, version " + snapshot.version;
+    }
+
+    /**
+     * Returns the set of authority codes of the given type. Only coordinate reference systems
+     * are available, the set is empty for any other type.
+     * 
+     * @param type The spatial reference objects type (may be {@code Object.class}).
+     * @return The set of authority codes for spatial reference objects of the given type.
+     */
+    public Set<String> getAuthorityCodes(final Class<? extends IdentifiedObject> type) {
+        if (type == null || type.isAssignableFrom(CoordinateReferenceSystem.class)) {
+            return codes;
+        }
+        synchronized (filteredCodes) {
+            Set<String> filtered = filteredCodes.get(type);
+            if (filtered == null) {
+                filtered = new LinkedHashSet<String>();
+                for (int i = 0; i < snapshot.count; i++) {
+                    if (type.isAssignableFrom(snapshot.getType(i))) {
+                        filtered.add(String.valueOf(snapshot.getCode(i)));
+                    }
+                }
+                filtered = Collections.unmodifiableSet(filtered);
+                filteredCodes.put(type, filtered);
+            }
+            return filtered;
+        }
+    }
+
+    /**
+     * Returns the record number of a code in the snapshot.
+     * 
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    private int getIndex(final String code) throws NoSuchAuthorityCodeException {
+        ensureNonNull("code", code);
+        int index = -1;
+        try {
+            index = snapshot.indexOf(Integer.parseInt(trimAuthority(code)));
+        } catch (NumberFormatException e) {
+            // not an EPSG code, fall back on the exception below
+        }
+        if (index < 0) {
+            throw noSuchAuthorityCode(IdentifiedObject.class, code);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the Well Know Text from a code.
+     * 
+     * @param code Value allocated by authority.
+     * @return The Well Know Text (WKT) for the specified code.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    public String getWKT(final String code) throws NoSuchAuthorityCodeException {
+        return snapshot.getText(getIndex(code));
+    }
+
+    /**
+     * Gets a description of the object corresponding to a code.
+     * 
+     * @param code Value allocated by authority.
+     * @return A description of the object, or {@code null} if the object corresponding to the
+     *         specified {@code code} has no description.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    public InternationalString getDescriptionText(final String code)
+            throws NoSuchAuthorityCodeException {
+        final String wkt = getWKT(code);
+        int start = wkt.indexOf('"');
+        if (start >= 0) {
+            final int end = wkt.indexOf('"', ++start);
+            if (end >= 0) {
+                return new SimpleInternationalString(wkt.substring(start, end).trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an arbitrary object from a code. Only coordinate reference systems are available.
+     * 
+     * @param code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public IdentifiedObject createObject(final String code) throws NoSuchAuthorityCodeException,
+            FactoryException {
+        return createCoordinateReferenceSystem(code);
+    }
+
+    /**
+     * Returns a coordinate reference system from a code.
+     * 
+     * @param code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(
+            final String code) throws NoSuchAuthorityCodeException, FactoryException {
+        final int index = getIndex(code);
+        if (parser == null) {
+            parser = new Parser();
+        }
+        try {
+            parser.code = String.valueOf(snapshot.getCode(index));
+            parser.bounds = snapshot.getBounds(index);
+            return parser.parseCoordinateReferenceSystem(snapshot.getText(index));
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+
+    /**
+     * Releases the snapshot parser.
+     */
+    @Override
+    public synchronized void dispose() throws FactoryException {
+        parser = null;
+        super.dispose();
+    }
+
+    /**
+     * The WKT parser for this authority factory. The WKT does not carry the domain of validity,
+     * this parser adds it back to the object with the requested code.
+     */
+    private final class Parser extends org.geotools.referencing.wkt.Parser {
+        /**
+         * For cross-version compatibility.
+         */
+        private static final long serialVersionUID = 2398523406813796466L;
+
+        /**
+         * The authority code for the WKT to be parsed.
+         */
+        String code;
+
+        /**
+         * The domain of validity of the object to be parsed, or null if unknown
+         */
+        double[] bounds;
+
+        public Parser() {
+            super(Symbols.DEFAULT, factories);
+        }
+
+        @Override
+        protected Map<String, Object> alterProperties(Map<String, Object> properties) {
+            final Object candidate = properties.get(IdentifiedObject.IDENTIFIERS_KEY);
+            if (bounds != null && candidate instanceof Identifier
+                    && code.equals(((Identifier) candidate).getCode())
+                    && properties.get(CoordinateReferenceSystem.DOMAIN_OF_VALIDITY_KEY) == null) {
+                ExtentImpl extent = new ExtentImpl();
+                extent.getGeographicElements().add(
+                        new GeographicBoundingBoxImpl(bounds[0], bounds[1], bounds[2], bounds[3]));
+                properties = new HashMap<String, Object>(properties);
+                properties.put(CoordinateReferenceSystem.DOMAIN_OF_VALIDITY_KEY,
+                        extent.unmodifiable());
+            }
+            return super.alterProperties(properties);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.IOException;
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.sql.DataSource;
+
+import org.geotools.factory.Hints;
+import org.geotools.referencing.factory.AbstractAuthorityFactory;
+import org.geotools.referencing.factory.FactoryNotFoundException;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.resources.i18n.ErrorKeys;
+import org.geotools.resources.i18n.Errors;
+import org.geotools.resources.i18n.LoggingKeys;
+import org.geotools.resources.i18n.Loggings;
+import org.opengis.referencing.FactoryException;
+
+/**
+ * EPSG factory using the binary snapshot of the EPSG database bundled in this plugin, see
+ * {@link SnapshotEpsgFactory}. The snapshot is loaded in a few milliseconds, so this factory
+ * is a good fit for short lived processes that cannot afford the creation of the EPSG-HSQL
+ * database, while still providing the EPSG definitions of the coordinate reference systems.
+ * <p>
+ * The EPSG-HSQL plugin has a higher priority, if both are in the classpath the full database
+ * is used.
+ *
+ * @source $URL$
+ */
+public class ThreadedSnapshotEpsgFactory extends ThreadedEpsgFactory {
+
+    /**
+     * The name of the snapshot resource, relative to this class
+     */
+    public static final String FILENAME = "epsg.snapshot";
+
+    private final ReferencingFactoryContainer factories;
+
+    /**
+     * Constructs an authority factory using the default set of factories.
+     */
+    public ThreadedSnapshotEpsgFactory() {
+        this(null);
+    }
+
+    /**
+     * Constructs an authority factory using a set of factories created from the specified hints.
+     */
+    public ThreadedSnapshotEpsgFactory(final Hints hints) {
+        super(hints, PRIORITY);
+        factories = ReferencingFactoryContainer.instance(hints);
+    }
+
+    /**
+     * There is no database behind this factory, always returns {@code null}.
+     */
+    @Override
+    protected DataSource createDataSource() throws SQLException {
+        return null;
+    }
+
+    /**
+     * Opens the snapshot and returns a {@link SnapshotEpsgFactory} on top of it.
+     * 
+     * @throws FactoryException if the snapshot cannot be found or read.
+     */
+    @Override
+    protected AbstractAuthorityFactory createBackingStore() throws FactoryException {
+        final URL url = ThreadedSnapshotEpsgFactory.class.getResource(FILENAME);
+        if (url == null) {
+            throw new FactoryNotFoundException(Errors.format(ErrorKeys.FILE_DOES_NOT_EXIST_$1,
+                    FILENAME));
+        }
+        final EpsgSnapshot snapshot;
+        try {
+            snapshot = EpsgSnapshot.open(url);
+        } catch (IOException exception) {
+            throw new FactoryException(Errors.format(ErrorKeys.CANT_READ_$1, url), exception);
+        }
+        final LogRecord record = Loggings.format(Level.CONFIG,
+                LoggingKeys.USING_FILE_AS_FACTORY_$2, url.getPath(), "EPSG");
+        record.setLoggerName(LOGGER.getName());
+        LOGGER.log(record);
+        return new SnapshotEpsgFactory(factories, snapshot);
+    }
+}
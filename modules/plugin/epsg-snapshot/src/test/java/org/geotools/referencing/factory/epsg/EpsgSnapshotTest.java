@@ -0,0 +1,142 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.crs.VerticalCRS;
+
+public class EpsgSnapshotTest {
+
+    static final String GEOGRAPHIC = "GEOGCS[\"WGS 84\", DATUM[\"World Geodetic System 1984\", "
+            + "SPHEROID[\"WGS 84\", 6378137.0, 298.257223563, AUTHORITY[\"EPSG\",\"7030\"]], "
+            + "AUTHORITY[\"EPSG\",\"6326\"]], PRIMEM[\"Greenwich\", 0.0], "
+            + "UNIT[\"degree\", 0.017453292519943295], AUTHORITY[\"EPSG\",\"4326\"]]";
+
+    static final String PROJECTED = "PROJCS[\"WGS 84 / UTM zone 33N\", " + GEOGRAPHIC
+            + ", PROJECTION[\"Transverse_Mercator\"], PARAMETER[\"central_meridian\", 15.0], "
+            + "UNIT[\"m\", 1.0], AUTHORITY[\"EPSG\",\"32633\"]]";
+
+    static final String VERTICAL = "VERT_CS[\"Höhe\", VERT_DATUM[\"Normal\", 2005], "
+            + "UNIT[\"m\", 1.0], AXIS[\"Gravity-related height\", UP], AUTHORITY[\"EPSG\",\"5783\"]]";
+
+    static final String COMPOUND = "COMPD_CS[\"UTM 33N + height\", " + PROJECTED + ", " + VERTICAL
+            + ", AUTHORITY[\"EPSG\",\"90000\"]]";
+
+    static final int[] CODES = new int[] { 4326, 5783, 32633, 90000 };
+
+    static final String[] TEXTS = new String[] { GEOGRAPHIC, VERTICAL, PROJECTED, COMPOUND };
+
+    static final byte[] KINDS = new byte[] { kind(GeographicCRS.class),
+            kind(VerticalCRS.class), kind(ProjectedCRS.class),
+            kind(CompoundCRS.class) };
+
+    static final double[] BOUNDS = new double[] { -180, 180, -90, 90, 5.8, 15.1, 47.2, 55.1,
+            12, 18, 0, 84, Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+
+    static byte kind(Class<?> type) {
+        return (byte) Arrays.asList(EpsgSnapshot.TYPES).indexOf(type);
+    }
+
+    static byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EpsgSnapshot.write(bytes, "7.9", CODES, KINDS, TEXTS, BOUNDS);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] bytes = write();
+        assertRecords(new EpsgSnapshot(ByteBuffer.wrap(bytes)));
+
+        // the projected and compound records share the text of their bases
+        int total = 0;
+        for (String text : TEXTS) {
+            total += text.getBytes("UTF-8").length;
+        }
+        assertTrue(bytes.length < total);
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        File file = File.createTempFile("epsg", ".snapshot");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(write());
+            } finally {
+                out.close();
+            }
+            assertRecords(EpsgSnapshot.open(file.toURI().toURL()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    void assertRecords(EpsgSnapshot snapshot) {
+        assertEquals("7.9", snapshot.version);
+        assertEquals(CODES.length, snapshot.count);
+        for (int i = 0; i < CODES.length; i++) {
+            int index = snapshot.indexOf(CODES[i]);
+            assertEquals(i, index);
+            assertEquals(CODES[i], snapshot.getCode(index));
+            assertEquals(TEXTS[i], snapshot.getText(index));
+            assertEquals(EpsgSnapshot.TYPES[KINDS[i]], snapshot.getType(index));
+        }
+        assertArrayEquals(new double[] { 5.8, 15.1, 47.2, 55.1 }, snapshot.getBounds(1), 0d);
+        assertNull(snapshot.getBounds(3));
+
+        assertTrue(snapshot.indexOf(0) < 0);
+        assertTrue(snapshot.indexOf(4327) < 0);
+        assertTrue(snapshot.indexOf(Integer.MAX_VALUE) < 0);
+    }
+
+    @Test
+    public void testInvalidContents() {
+        try {
+            new EpsgSnapshot(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+            fail("Not a snapshot");
+        } catch (IOException e) {
+            // fine
+        }
+
+        try {
+            byte[] bytes = write();
+            new EpsgSnapshot(ByteBuffer.wrap(bytes, 0, bytes.length - 10).slice());
+            fail("Truncated snapshot");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedCodes() throws Exception {
+        EpsgSnapshot.write(new ByteArrayOutputStream(), "7.9", new int[] { 5783, 4326 },
+                new byte[2], new String[] { VERTICAL, GEOGRAPHIC }, new double[8]);
+    }
+}
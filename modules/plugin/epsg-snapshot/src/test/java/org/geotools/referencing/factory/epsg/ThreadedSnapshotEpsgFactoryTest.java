@@ -0,0 +1,150 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.CRS;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+/**
+ * Checks the snapshot built from the EPSG-HSQL database against the database itself.
+ */
+public class ThreadedSnapshotEpsgFactoryTest {
+
+    static ThreadedSnapshotEpsgFactory factory;
+
+    static ThreadedHsqlEpsgFactory hsql;
+
+    @BeforeClass
+    public static void setUp() {
+        factory = new ThreadedSnapshotEpsgFactory();
+        hsql = new ThreadedHsqlEpsgFactory();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        factory.dispose();
+        hsql.dispose();
+    }
+
+    @Test
+    public void testAuthority() throws Exception {
+        assertTrue(Citations.identifierMatches(factory.getAuthority(), "EPSG"));
+        assertEquals(hsql.getAuthority().getEdition().toString(), factory.getAuthority()
+                .getEdition().toString());
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        CoordinateReferenceSystem wgs84 = factory.createCoordinateReferenceSystem("EPSG:4326");
+        assertTrue(wgs84 instanceof GeographicCRS);
+        assertEquals("4326", CRS.lookupIdentifier(wgs84, false).replace("EPSG:", ""));
+        // latitude first, as in the EPSG database
+        assertEquals(CRS.AxisOrder.NORTH_EAST, CRS.getAxisOrder(wgs84));
+
+        ProjectedCRS utm = factory.createProjectedCRS("32633");
+        assertEquals("WGS 84 / UTM zone 33N", utm.getName().getCode());
+        GeographicBoundingBox bbox = CRS.getGeographicBoundingBox(utm);
+        assertNotNull(bbox);
+        assertEquals(12, bbox.getWestBoundLongitude(), 1e-6);
+        assertEquals(18, bbox.getEastBoundLongitude(), 1e-6);
+
+        assertTrue(factory.getDescriptionText("EPSG:32633").toString().contains("33N"));
+    }
+
+    @Test
+    public void testAgainstDatabase() throws Exception {
+        String[] codes = new String[] { "4326", "4258", "4269", "27700", "3857", "2154", "32756",
+                "26918", "3031", "7405", "5703", "4979", "4978" };
+        for (String code : codes) {
+            CoordinateReferenceSystem expected = hsql.createCoordinateReferenceSystem(code);
+            CoordinateReferenceSystem actual = factory.createCoordinateReferenceSystem(code);
+            assertEquals(code, expected.getName().getCode(), actual.getName().getCode());
+            if (expected instanceof ProjectedCRS) {
+                assertProjectedEquals(code, (ProjectedCRS) expected, (ProjectedCRS) actual);
+            } else {
+                assertTrue(code, CRS.equalsIgnoreMetadata(expected, actual));
+            }
+        }
+        assertTrue(factory.createCoordinateReferenceSystem("7405") instanceof CompoundCRS);
+    }
+
+    /**
+     * The database may store the projection parameters in other units than the WKT, so they
+     * can be a few ulps away after the conversion to degrees
+     */
+    void assertProjectedEquals(String code, ProjectedCRS expected, ProjectedCRS actual) {
+        assertTrue(code, CRS.equalsIgnoreMetadata(expected.getBaseCRS(), actual.getBaseCRS()));
+        assertTrue(code, CRS.equalsIgnoreMetadata(expected.getCoordinateSystem(),
+                actual.getCoordinateSystem()));
+        ParameterValueGroup expectedValues = expected.getConversionFromBase().getParameterValues();
+        ParameterValueGroup actualValues = actual.getConversionFromBase().getParameterValues();
+        assertEquals(code, expectedValues.getDescriptor().getName().getCode(), actualValues
+                .getDescriptor().getName().getCode());
+        for (GeneralParameterValue value : expectedValues.values()) {
+            String name = value.getDescriptor().getName().getCode();
+            assertEquals(code + " " + name, ((ParameterValue<?>) value).doubleValue(),
+                    actualValues.parameter(name).doubleValue(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testAuthorityCodes() throws Exception {
+        Set<String> all = factory.getAuthorityCodes(CoordinateReferenceSystem.class);
+        assertTrue(all.contains("4326"));
+        assertTrue(all.contains("32633"));
+        assertTrue(all.size() > 4000);
+
+        Set<String> geographic = factory.getAuthorityCodes(GeographicCRS.class);
+        assertTrue(geographic.contains("4326"));
+        assertFalse(geographic.contains("32633"));
+        Set<String> projected = factory.getAuthorityCodes(ProjectedCRS.class);
+        assertTrue(projected.contains("32633"));
+        assertFalse(projected.contains("4326"));
+    }
+
+    @Test
+    public void testUnknownCodes() throws Exception {
+        try {
+            factory.createCoordinateReferenceSystem("EPSG:1");
+            fail("Not an EPSG code");
+        } catch (NoSuchAuthorityCodeException e) {
+            assertEquals("EPSG:1", e.getAuthorityCode());
+        }
+        try {
+            factory.createCoordinateReferenceSystem("EPSG:abc");
+            fail("Not an EPSG code");
+        } catch (NoSuchAuthorityCodeException e) {
+            // fine
+        }
+    }
+}
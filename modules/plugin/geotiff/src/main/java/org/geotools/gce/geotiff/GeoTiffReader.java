@@ -66,7 +66,6 @@ import javax.imageio.stream.ImageInputStream;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
-import javax.media.jai.RenderedOp;
 
 import org.geotools.coverage.Category;
 import org.geotools.coverage.GridSampleDimension;
@@ -78,6 +77,8 @@ import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.GridCoverage2DReader;
 import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.coverage.grid.io.imageio.DecodedTileCache;
+import org.geotools.coverage.grid.io.imageio.DecodedTileImage;
 import org.geotools.coverage.grid.io.imageio.geotiff.GeoTiffIIOMetadataDecoder;
 import org.geotools.coverage.grid.io.imageio.geotiff.GeoTiffMetadata2CRSAdapter;
 import org.geotools.data.DataSourceException;
@@ -237,6 +238,48 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
 		}
 	}
 	
+    /**
+     * Reads the requested region through the shared {@link DecodedTileCache}. The tiles are
+     * decoded as they are requested, with the tile layout of the hints, and the image closes the
+     * stream and the reader once disposed.
+     * 
+     * @param imageChoice the image to read, possibly in the external overviews file
+     * @param readP the read parameters
+     * @param hints the hints, with the requested tile layout if any
+     * @return the requested region
+     * @throws IOException
+     */
+    private PlanarImage readCached(final int imageChoice, final ImageReadParam readP, final Hints hints) throws IOException {
+        final boolean external = extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice;
+        final Object input = external ? ovrSource : source;
+        final ImageInputStream stream;
+        if (external) {
+            stream = ovrInStreamSPI.createInputStreamInstance(ovrSource, ImageIO.getUseCache(), ImageIO.getCacheDirectory());
+        } else {
+            stream = inStreamSPI != null ? inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), ImageIO.getCacheDirectory()) : ImageIO.createImageInputStream(source);
+        }
+        if (stream == null) {
+            throw new DataSourceException("No input stream for the provided source");
+        }
+        final ImageReader reader = READER_SPI.createReaderInstance();
+        boolean owned = false;
+        try {
+            reader.setInput(stream);
+            final PlanarImage image = DecodedTileImage.create(decodedTileCache, input, reader,
+                    external ? imageChoice - extOvrImgChoice : imageChoice, readP, hints);
+            owned = true;
+            return image;
+        } finally {
+            if (!owned) {
+                try {
+                    stream.close();
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+
     private void checkForExternalOverviews() {
         if (!(source instanceof File)) {
             return;
@@ -531,22 +574,29 @@ public class GeoTiffReader extends AbstractGridCoverage2DReader implements GridC
             layout.setTileWidth(suggestedTileSize[0]);
             newHints.add(new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout));
 		}
-		final ParameterBlock pbjRead = new ParameterBlock();
-        if (extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice) {
-            pbjRead.add(ovrInStreamSPI.createInputStreamInstance(ovrSource, ImageIO.getUseCache(),ImageIO.getCacheDirectory()));
-            pbjRead.add(imageChoice - extOvrImgChoice);
-        } else {
-            pbjRead.add(inStreamSPI != null ? inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), ImageIO.getCacheDirectory()) : ImageIO.createImageInputStream(source));
-            pbjRead.add(imageChoice);
-        }
-    	pbjRead.add(Boolean.FALSE);
-		pbjRead.add(Boolean.FALSE);
-		pbjRead.add(Boolean.FALSE);
-		pbjRead.add(null);
-		pbjRead.add(null);
-		pbjRead.add(readP);
-		pbjRead.add(READER_SPI.createReaderInstance());
-		RenderedOp coverageRaster=JAI.create("ImageRead", pbjRead,newHints!=null?(RenderingHints) newHints:null);
+		PlanarImage coverageRaster;
+		if (decodedTileCache != null && DecodedTileCache.canCache(readP)
+		        && !(source instanceof InputStream) && !(source instanceof ImageInputStream)) {
+		    // plain reads are served tile by tile by the shared tile cache
+		    coverageRaster = readCached(imageChoice.intValue(), readP, newHints != null ? newHints : hints);
+		} else {
+		    final ParameterBlock pbjRead = new ParameterBlock();
+		    if (extOvrImgChoice >= 0 && imageChoice >= extOvrImgChoice) {
+		        pbjRead.add(ovrInStreamSPI.createInputStreamInstance(ovrSource, ImageIO.getUseCache(),ImageIO.getCacheDirectory()));
+		        pbjRead.add(imageChoice - extOvrImgChoice);
+		    } else {
+		        pbjRead.add(inStreamSPI != null ? inStreamSPI.createInputStreamInstance(source, ImageIO.getUseCache(), ImageIO.getCacheDirectory()) : ImageIO.createImageInputStream(source));
+		        pbjRead.add(imageChoice);
+		    }
+		    pbjRead.add(Boolean.FALSE);
+		    pbjRead.add(Boolean.FALSE);
+		    pbjRead.add(Boolean.FALSE);
+		    pbjRead.add(null);
+		    pbjRead.add(null);
+		    pbjRead.add(readP);
+		    pbjRead.add(READER_SPI.createReaderInstance());
+		    coverageRaster=JAI.create("ImageRead", pbjRead,newHints!=null?(RenderingHints) newHints:null);
+		}
 		
         //
         // MASKING INPUT COLOR as indicated
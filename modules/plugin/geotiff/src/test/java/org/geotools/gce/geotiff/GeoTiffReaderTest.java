@@ -21,6 +21,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.FileInputStream;
@@ -35,6 +36,7 @@ import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.coverage.grid.io.imageio.DecodedTileCache;
 import org.geotools.coverage.grid.io.imageio.IIOMetadataDumper;
 import org.geotools.data.PrjFileReader;
 import org.geotools.factory.Hints;
@@ -512,6 +514,46 @@ public class GeoTiffReaderTest extends org.junit.Assert {
 
     }
     
+    /**
+     * Tests a read through the decoded tile cache keeps the requested tiling, decoding the source
+     * tiles as the coverage tiles are requested.
+     */
+    @Test
+    public void testDecodedTileCacheRead() throws Exception {
+        final File file = TestData.file(GeoTiffReaderTest.class, "milanogeo1.tif");
+        final ParameterValue<String> tileSize = AbstractGridFormat.SUGGESTED_TILE_SIZE.createValue();
+        tileSize.setValue("128,128");
+        final GeneralParameterValue[] params = new GeneralParameterValue[] { tileSize };
+
+        GeoTiffReader reader = new GeoTiffReader(file);
+        final GridCoverage2D expected = reader.read(params);
+        reader.dispose();
+
+        final DecodedTileCache cache = new DecodedTileCache();
+        reader = new GeoTiffReader(file, new Hints(Hints.DECODED_TILE_CACHE, cache));
+        final GridCoverage2D coverage = reader.read(params);
+        final RenderedImage image = coverage.getRenderedImage();
+        assertEquals(128, image.getTileWidth());
+        assertEquals(128, image.getTileHeight());
+        assertEquals(expected.getRenderedImage().getWidth(), image.getWidth());
+        assertEquals(expected.getRenderedImage().getHeight(), image.getHeight());
+
+        // a tile only decodes the four 64x64 source tiles it covers
+        image.getTile(image.getMinTileX() + 1, image.getMinTileY() + 1);
+        assertTrue(cache.getTileCount() <= 5);
+
+        final Raster expectedData = expected.getRenderedImage().getData();
+        final Raster actualData = image.getData();
+        final Rectangle bounds = expectedData.getBounds();
+        assertArrayEquals(
+                expectedData.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null),
+                actualData.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null));
+
+        coverage.dispose(true);
+        expected.dispose(true);
+        reader.dispose();
+    }
+
     /**
      * The leak geotiff is a strange geotiff with PixelScale and TiePoints that are all 0
      * hence the matrix we come up with is all 0 and not invertibile.
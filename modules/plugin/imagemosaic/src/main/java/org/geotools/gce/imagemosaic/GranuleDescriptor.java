@@ -949,12 +949,14 @@ public class GranuleDescriptor {
 			return null;
 
                 } finally {
+                    // a deferred read keeps using the stream and the reader
+                    final boolean deferred = request.getReadType().isDeferred(readParameters, hints);
                     try {
-                        if (request.getReadType() != ReadType.JAI_IMAGEREAD && inStream != null) {
+                        if (!deferred && inStream != null) {
                             inStream.close();
                         }
                     } finally {
-                        if (request.getReadType() != ReadType.JAI_IMAGEREAD && reader != null) {
+                        if (!deferred && reader != null) {
                             reader.dispose();
                         }
                     }
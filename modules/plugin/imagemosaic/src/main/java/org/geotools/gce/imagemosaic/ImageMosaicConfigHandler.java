@@ -555,6 +555,9 @@ public class ImageMosaicConfigHandler {
         if (props.containsKey(Prop.CACHING))
             IndexerUtils.setParam(parameters, props, Prop.CACHING);
 
+        if (props.containsKey(Prop.PERSISTENT_INDEX))
+            IndexerUtils.setParam(parameters, props, Prop.PERSISTENT_INDEX);
+
         if (props.containsKey(Prop.ROOT_MOSAIC_DIR)) {
             // Overriding root mosaic directory
             IndexerUtils.setParam(parameters, props, Prop.ROOT_MOSAIC_DIR);
@@ -671,6 +674,9 @@ public class ImageMosaicConfigHandler {
         }
         properties.setProperty(Utils.Prop.CACHING,
                 Boolean.toString(catalogConfigurationBean.isCaching()));
+        if (catalogConfigurationBean.isPersistentIndex()) {
+            properties.setProperty(Utils.Prop.PERSISTENT_INDEX, Boolean.TRUE.toString());
+        }
         if (mosaicConfiguration.getAuxiliaryFilePath() != null) {
             properties.setProperty(Utils.Prop.AUXILIARY_FILE,
                     mosaicConfiguration.getAuxiliaryFilePath());
@@ -821,6 +827,8 @@ public class ImageMosaicConfigHandler {
             final CatalogConfigurationBean catalogConfigurationBean = new CatalogConfigurationBean();
             catalogConfigurationBean.setCaching(IndexerUtils.getParameterAsBoolean(Prop.CACHING,
                     indexer));
+            catalogConfigurationBean.setPersistentIndex(IndexerUtils.getParameterAsBoolean(
+                    Prop.PERSISTENT_INDEX, indexer));
             catalogConfigurationBean.setAbsolutePath(IndexerUtils.getParameterAsBoolean(
                     Prop.ABSOLUTE_PATH, indexer));
 
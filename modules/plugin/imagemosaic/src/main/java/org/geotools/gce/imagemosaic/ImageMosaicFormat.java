@@ -136,6 +136,17 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
     /** Control the threading behavior for this plugin.*/
     public static final ParameterDescriptor<Boolean> ALLOW_MULTITHREADING = new DefaultParameterDescriptor<Boolean>(
             "AllowMultithreading", Boolean.class, new Boolean[]{Boolean.TRUE,Boolean.FALSE}, Boolean.FALSE);
+
+    /**
+     * Control the streaming mosaic mode: granules are decoded a few at a time and folded
+     * incrementally into the output raster, instead of being all loaded before mosaicking.
+     */
+    public static final ParameterDescriptor<Boolean> STREAMING_MOSAIC = new DefaultParameterDescriptor<Boolean>(
+            "StreamingMosaic", Boolean.class, new Boolean[]{Boolean.TRUE,Boolean.FALSE}, Boolean.FALSE);
+
+    /** Maximum number of granules decoded ahead of the mosaicking when {@link #STREAMING_MOSAIC} is enabled. */
+    public static final ParameterDescriptor<Integer> STREAMING_READ_AHEAD = new DefaultParameterDescriptor<Integer>(
+            "StreamingReadAhead", Integer.class, null, Integer.valueOf(4));
     
     /** Control the footprint management.*/
     public static final ParameterDescriptor<String> FOOTPRINT_BEHAVIOR = new DefaultParameterDescriptor<String>(
@@ -193,6 +204,8 @@ public final class ImageMosaicFormat extends AbstractGridFormat implements Forma
                 BACKGROUND_VALUES,
                 SUGGESTED_TILE_SIZE,
                 ALLOW_MULTITHREADING,
+                STREAMING_MOSAIC,
+                STREAMING_READ_AHEAD,
                 MAX_ALLOWED_TILES,
                 TIME,
                 ELEVATION,
@@ -100,6 +100,10 @@ class RasterLayerRequest {
 
 	private boolean multithreadingAllowed;
 
+	private boolean streamingMosaic;
+
+	private int streamingReadAhead = ImageMosaicFormat.STREAMING_READ_AHEAD.getDefaultValue().intValue();
+
 	private List<?> requestedTimes;
 
 	private List<?> elevation;
@@ -137,6 +141,22 @@ class RasterLayerRequest {
 		return multithreadingAllowed;
 	}
 
+	/**
+	 * @return <code>true</code> if granules have to be folded into the mosaic as soon as
+	 *         they are loaded, <code>false</code> if they are all loaded first.
+	 */
+	public boolean isStreamingMosaic() {
+		return streamingMosaic;
+	}
+
+	/**
+	 * @return the maximum number of granules decoded ahead of the mosaicking in
+	 *         streaming mode.
+	 */
+	public int getStreamingReadAhead() {
+		return streamingReadAhead;
+	}
+
 	public DecimationPolicy getDecimationPolicy() {
 	        return decimationPolicy;
 	}
@@ -370,6 +390,20 @@ class RasterLayerRequest {
 				multithreadingAllowed = ((Boolean) value).booleanValue();
 				continue;
 			}	 	
+
+			if (name.equals(ImageMosaicFormat.STREAMING_MOSAIC.getName())) {
+	        	if(value==null)
+	        		continue;
+				streamingMosaic = ((Boolean) value).booleanValue();
+				continue;
+			}
+
+			if (name.equals(ImageMosaicFormat.STREAMING_READ_AHEAD.getName())) {
+	        	if(value==null)
+	        		continue;
+				streamingReadAhead = (Integer) value;
+				continue;
+			}
 			
             if (name.equals(ImageMosaicFormat.FOOTPRINT_BEHAVIOR.getName())) {
                 if (value == null)
@@ -604,6 +638,22 @@ class RasterLayerRequest {
 			multithreadingAllowed = ((Boolean) value).booleanValue();
 			return;
 		}	 	
+
+		if (name.equals(ImageMosaicFormat.STREAMING_MOSAIC.getName())) {
+        	final Object value = param.getValue();
+        	if(value==null)
+        		return;
+			streamingMosaic = ((Boolean) value).booleanValue();
+			return;
+		}
+
+		if (name.equals(ImageMosaicFormat.STREAMING_READ_AHEAD.getName())) {
+        	final Object value = param.getValue();
+        	if(value==null)
+        		return;
+			streamingReadAhead = param.intValue();
+			return;
+		}
 		
         if (name.equals(ImageMosaicFormat.FOOTPRINT_BEHAVIOR.getName())) {
             final Object value = param.getValue();
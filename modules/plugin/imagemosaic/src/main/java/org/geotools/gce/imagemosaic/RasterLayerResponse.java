@@ -25,10 +25,13 @@ import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.IndexColorModel;
 import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
@@ -36,6 +39,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -54,9 +59,11 @@ import javax.media.jai.Interpolation;
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.ROI;
+import javax.media.jai.RasterFactory;
 import javax.media.jai.RenderedOp;
 import javax.media.jai.TileCache;
 import javax.media.jai.TileScheduler;
+import javax.media.jai.TiledImage;
 import javax.media.jai.operator.ConstantDescriptor;
 import javax.media.jai.operator.FormatDescriptor;
 import javax.media.jai.operator.MosaicDescriptor;
@@ -348,6 +355,10 @@ class RasterLayerResponse{
         private GranuleCollector(Filter granuleFilter, boolean dryRun) {
             this.granuleFilter = granuleFilter;
             this.dryRun = dryRun;
+            // granules are streamed with the overlay priority, transparent footprints need the post processing
+            // of the whole mosaic instead
+            this.streaming = request.isStreamingMosaic() && !request.isBlend()
+                    && footprintBehavior != FootprintBehavior.Transparent;
             inputTransparentColor = request.getInputTransparentColor();
             doInputTransparency = inputTransparentColor != null && !footprintBehavior.handleFootprints();
         }
@@ -364,6 +375,12 @@ class RasterLayerResponse{
         /** The final lists for granules to be computed, splitted per dimension value.*/
         private final List<Future<GranuleLoadingResult>> granulesFutures = new ArrayList<Future<GranuleLoadingResult>>();
 
+        /** Whether the granules are loaded with a bounded read-ahead and folded into the mosaic as they come.*/
+        private final boolean streaming;
+
+        /** The granules to be loaded by {@link #streamGranules()}, in mosaicking order.*/
+        private final List<GranuleLoader> granulesLoaders = new ArrayList<GranuleLoader>();
+
         private double[][] sourceThreshold;
 
         private boolean hasAlpha;
@@ -396,14 +413,11 @@ class RasterLayerResponse{
                 
                 final GranuleLoader loader = new GranuleLoader(baseReadParameters, imageChoice, mosaicBBox, finalWorldToGridCorner, granuleDescriptor, request, hints);
                 if (!dryRun) {
-                    if (multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null) {
-                        // MULTITHREADED EXECUTION submitting the task
-                        granulesFutures.add(rasterManager.parentReader.multiThreadedLoader.submit(loader));
+                    if (streaming) {
+                        // STREAMING Execution, the loading is deferred to the mosaicking
+                        granulesLoaders.add(loader);
                     } else {
-                        // SINGLE THREADED Execution, we defer the execution to when we have done the loading
-                        final FutureTask<GranuleLoadingResult> task = new FutureTask<GranuleLoadingResult>(loader);
-                        granulesFutures.add(task);
-                        task.run(); // run in current thread
+                        granulesFutures.add(submit(loader));
                     }
                 }
                 if (LOGGER.isLoggable(Level.FINE)) {
@@ -421,6 +435,22 @@ class RasterLayerResponse{
             return false;
         }
         
+        /**
+         * Starts loading the provided granule, in the multithreaded loader if we are allowed to use it
+         * or in the current thread otherwise.
+         */
+        private Future<GranuleLoadingResult> submit(final GranuleLoader loader) {
+            if (multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null) {
+                // MULTITHREADED EXECUTION submitting the task
+                return rasterManager.parentReader.multiThreadedLoader.submit(loader);
+            } else {
+                // SINGLE THREADED Execution, we defer the execution to when we have done the loading
+                final FutureTask<GranuleLoadingResult> task = new FutureTask<GranuleLoadingResult>(loader);
+                task.run(); // run in current thread
+                return task;
+            }
+        }
+
         /**
          * This methods collects the granules from their eventual multithreaded processing
          * and turn them into a {@link MosaicInputs} object.
@@ -435,13 +465,80 @@ class RasterLayerResponse{
                 }
                 return null;
             }
+            if (streaming) {
+                return streamGranules();
+            }
             
            // execute them all
            final StringBuilder paths = new StringBuilder();
            final List<MosaicElement> returnValues= new ArrayList<RasterLayerResponse.MosaicElement>();
            // collect sources for the current dimension and then process them
            for (Future<GranuleLoadingResult> future :granulesFutures) {
-                     
+                final MosaicElement input = collectGranule(future, paths);
+                if (input != null) {
+                    returnValues.add(input);
+                }
+           }
+           if (returnValues == null || returnValues.isEmpty()) {
+               if (LOGGER.isLoggable(Level.INFO)){
+                   LOGGER.info("The MosaicElement list is null or empty");
+               }
+           }
+           return new MosaicInputs(doInputTransparency, hasAlpha, returnValues, sourceThreshold);
+        }
+
+        /**
+         * Streaming variant of {@link #collectGranules()}. At most {@link RasterLayerRequest#getStreamingReadAhead()}
+         * granules are decoded ahead of the mosaicking: each one is written into a {@link StreamedMosaic} as soon
+         * as it has been collected, and can then be released while the next ones are being loaded. This bounds the
+         * memory to the output raster plus the read-ahead, whatever the number of granules, and overlaps the
+         * mosaicking with the I/O.
+         * 
+         * @return a {@link MosaicInputs} holding the single, fully computed, mosaic of all the granules.
+         */
+        private MosaicInputs streamGranules() throws IOException {
+            final int readAhead = Math.max(1, request.getStreamingReadAhead());
+            final StringBuilder paths = new StringBuilder();
+            final LinkedList<Future<GranuleLoadingResult>> window = new LinkedList<Future<GranuleLoadingResult>>();
+            final Iterator<GranuleLoader> loaders = granulesLoaders.iterator();
+            final StreamedMosaic mosaic = new StreamedMosaic();
+            try {
+                while (loaders.hasNext() || !window.isEmpty()) {
+                    // keep the read-ahead window full, in mosaicking order
+                    while (loaders.hasNext() && window.size() < readAhead) {
+                        window.add(submit(loaders.next()));
+                    }
+                    final MosaicElement input = collectGranule(window.removeFirst(), paths);
+                    if (input != null) {
+                        mosaic.add(input);
+                    }
+                }
+            } finally {
+                // on failure do not leave granules being loaded for nothing
+                for (Future<GranuleLoadingResult> future : window) {
+                    future.cancel(true);
+                }
+                granulesLoaders.clear();
+            }
+            final List<MosaicElement> returnValues = new ArrayList<RasterLayerResponse.MosaicElement>(1);
+            final MosaicElement streamed = mosaic.getMosaic(hasAlpha || doInputTransparency);
+            if (streamed != null) {
+                returnValues.add(streamed);
+            } else if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info("The MosaicElement list is null or empty");
+            }
+            return new MosaicInputs(doInputTransparency, hasAlpha, returnValues, sourceThreshold);
+        }
+
+        /**
+         * Waits for the provided granule to be loaded and prepares it for the mosaic.
+         * 
+         * @param future the granule being loaded.
+         * @param paths the paths of the collected granules, to which the path of this one is appended.
+         * @return the {@link MosaicElement} for the granule, or {@code null} if it could not be loaded.
+         */
+        private MosaicElement collectGranule(final Future<GranuleLoadingResult> future, final StringBuilder paths)
+                throws IOException {
                 try {
                     // get the resulting RenderedImage
                     final GranuleLoadingResult result = future.get();
@@ -449,7 +546,7 @@ class RasterLayerResponse{
                         if (LOGGER.isLoggable(Level.FINE)){
                             LOGGER.log(Level.FINE, "Unable to load the raster for granule with request " + request.toString());
                         }
-                        continue;
+                        return null;
                     }
                     final RenderedImage loadedImage = result.getRaster();
                     if (loadedImage == null) {
@@ -458,7 +555,7 @@ class RasterLayerResponse{
                                    "Unable to load the raster for granuleDescriptor " +result.granuleUrl+ " with request "+request.toString()
                            );
                        }
-                       continue;
+                       return null;
                    }
                    
                    // now process it
@@ -496,32 +593,21 @@ class RasterLayerResponse{
                    File inputFile = DataUtilities.urlToFile(result.granuleUrl);
                    String canonicalPath = inputFile.getCanonicalPath();                   
                    paths.append(canonicalPath).append(",");
+                   granulesPaths = paths.substring(0, paths.length() - 1);
                    
                    // add to the mosaic collection, with preprocessing
                    // TODO pluggable mechanism for processing (artifacts,etc...)
-                   MosaicElement input = preProcessGranuleRaster(
+                   return preProcessGranuleRaster(
                                            loadedImage,
                                            result,
                                            canonicalPath);  
-                   returnValues.add(input);
                    
                 } catch (Exception e) {
                     if (LOGGER.isLoggable(Level.INFO)){
                         LOGGER.info("Adding to mosaic failed, original request was " + request);
                     }
                     throw new IOException(e);
-                }               
-               
-
-               // collect paths
-                granulesPaths = paths.length() > 1 ? paths.substring(0, paths.length() - 1) : "";
-           }
-           if (returnValues == null || returnValues.isEmpty()) {
-               if (LOGGER.isLoggable(Level.INFO)){
-                   LOGGER.info("The MosaicElement list is null or empty");
-               }
-           }
-           return new MosaicInputs(doInputTransparency, hasAlpha, returnValues, sourceThreshold);
+                }
         }
 
         private MosaicElement preProcessGranuleRaster(
@@ -645,6 +731,224 @@ class RasterLayerResponse{
             return new MosaicElement(alphaChannel, imageROI, granule, result.getPamDataset());
         }
     }
+    /**
+     * The mosaic of the granules streamed by a {@link GranuleCollector}.
+     * 
+     * <p>
+     * The output raster is allocated once, with the layout of the final mosaic, on the first granule. Each
+     * granule is then written into it over its own bounds only, where its alpha channel (or its ROI when it has
+     * none) is valid and no previous granule has been written yet, which is the priority of an overlay mosaic.
+     * The pixels written so far are tracked in a coverage raster, which becomes the ROI of the mosaic.
+     */
+    private class StreamedMosaic {
+
+        /** The output raster, {@code null} until the first granule is added.*/
+        private TiledImage image;
+
+        /** 1 where a granule has been written into {@link #image}, 0 elsewhere.*/
+        private TiledImage coverage;
+
+        private final List<PAMDataset> pams = new ArrayList<PAMDataset>();
+
+        /**
+         * Writes the provided granule into the pixels of the mosaic not set yet.
+         */
+        private void add(final MosaicElement granule) {
+            final RenderedImage source = granule.source;
+            if (image == null) {
+                allocate(source);
+            }
+            if (granule.pamDataset != null) {
+                pams.add(granule.pamDataset);
+            }
+            Rectangle bounds = PlanarImage.wrapRenderedImage(source).getBounds().intersection(rasterBounds);
+            if (granule.alphaChannel == null && granule.roi != null) {
+                bounds = bounds.intersection(granule.roi.getAsImage().getBounds());
+            }
+            if (bounds.isEmpty()) {
+                return;
+            }
+            final int minTileX = image.XToTileX(bounds.x);
+            final int maxTileX = image.XToTileX(bounds.x + bounds.width - 1);
+            final int minTileY = image.YToTileY(bounds.y);
+            final int maxTileY = image.YToTileY(bounds.y + bounds.height - 1);
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    final Rectangle rect = image.getTileRect(tileX, tileY).intersection(bounds);
+                    if (!rect.isEmpty()) {
+                        write(granule, rect, tileX, tileY);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Writes the provided area of the granule into the given tile of the mosaic, copying whole rows of
+         * pixels at once.
+         */
+        private void write(final MosaicElement granule, final Rectangle rect, final int tileX, final int tileY) {
+            final Raster source = granule.source.getData(rect);
+            final Raster valid;
+            if (granule.alphaChannel != null) {
+                valid = granule.alphaChannel.getData(rect);
+            } else if (granule.roi != null) {
+                valid = granule.roi.getAsImage().getData(rect);
+            } else {
+                valid = null;
+            }
+            final WritableRaster target = image.getWritableTile(tileX, tileY);
+            final WritableRaster covered = coverage.getWritableTile(tileX, tileY);
+            try {
+                // the pixels to write are the valid ones not covered yet
+                final int[] mask = covered.getSamples(rect.x, rect.y, rect.width, rect.height, 0, (int[]) null);
+                final int[] validity = valid != null ? valid.getSamples(rect.x, rect.y, rect.width, rect.height,
+                        0, (int[]) null) : null;
+                final boolean[] write = new boolean[mask.length];
+                boolean all = true;
+                for (int i = 0; i < mask.length; i++) {
+                    write[i] = mask[i] == 0 && (validity == null || validity[i] != 0);
+                    all &= write[i];
+                }
+                if (all) {
+                    copy(source, target, rect.x, rect.y, rect.width, rect.height);
+                    Arrays.fill(mask, 1);
+                } else {
+                    // copy the runs of pixels to write of each row
+                    for (int row = 0; row < rect.height; row++) {
+                        final int rowStart = row * rect.width;
+                        int i = rowStart;
+                        while (i < rowStart + rect.width) {
+                            if (!write[i]) {
+                                i++;
+                                continue;
+                            }
+                            final int runStart = i;
+                            while (i < rowStart + rect.width && write[i]) {
+                                mask[i++] = 1;
+                            }
+                            copy(source, target, rect.x + runStart - rowStart, rect.y + row, i - runStart, 1);
+                        }
+                    }
+                }
+                covered.setSamples(rect.x, rect.y, rect.width, rect.height, 0, mask);
+            } finally {
+                image.releaseWritableTile(tileX, tileY);
+                coverage.releaseWritableTile(tileX, tileY);
+            }
+        }
+
+        /**
+         * Copies an area of the source into the target, as packed data elements when both share the same
+         * transfer type and layout, as pixels otherwise.
+         */
+        private void copy(final Raster source, final WritableRaster target, final int x, final int y,
+                final int width, final int height) {
+            final SampleModel sourceModel = source.getSampleModel();
+            final SampleModel targetModel = target.getSampleModel();
+            if (sourceModel.getTransferType() == targetModel.getTransferType()
+                    && sourceModel.getNumDataElements() == targetModel.getNumDataElements()
+                    && sourceModel.getClass() == targetModel.getClass()
+                    && Arrays.equals(sourceModel.getSampleSize(), targetModel.getSampleSize())) {
+                target.setDataElements(x, y, width, height, source.getDataElements(x, y, width, height, null));
+            } else {
+                target.setPixels(x, y, width, height, source.getPixels(x, y, width, height, (double[]) null));
+            }
+        }
+
+        /**
+         * Allocates the output and the coverage rasters, with the layout of the final mosaic.
+         */
+        private void allocate(final RenderedImage granule) {
+            Dimension tileDimensions = request.getTileDimensions();
+            if (tileDimensions == null) {
+                tileDimensions = JAI.getDefaultTileSize();
+            }
+            final SampleModel sampleModel = granule.getSampleModel().createCompatibleSampleModel(
+                    tileDimensions.width, tileDimensions.height);
+            image = new TiledImage(rasterBounds.x, rasterBounds.y, rasterBounds.width, rasterBounds.height, 0, 0,
+                    sampleModel, granule.getColorModel());
+            final SampleModel coverageModel = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE,
+                    tileDimensions.width, tileDimensions.height, 1);
+            coverage = new TiledImage(rasterBounds.x, rasterBounds.y, rasterBounds.width, rasterBounds.height, 0, 0,
+                    coverageModel, PlanarImage.createColorModel(coverageModel));
+        }
+
+        /**
+         * Sets the pixels no granule has been written into to the background values.
+         */
+        private void fillBackground() {
+            if (backgroundValues == null || backgroundValues.length == 0) {
+                return;
+            }
+            final int bands = image.getSampleModel().getNumBands();
+            final double[] background = new double[bands];
+            boolean zero = true;
+            for (int b = 0; b < bands; b++) {
+                // like the mosaic operation, use the first value for all the bands if there are not enough
+                background[b] = backgroundValues[backgroundValues.length < bands ? 0 : b];
+                zero &= background[b] == 0;
+            }
+            if (zero) {
+                return;
+            }
+            for (int tileY = image.getMinTileY(); tileY <= image.getMaxTileY(); tileY++) {
+                for (int tileX = image.getMinTileX(); tileX <= image.getMaxTileX(); tileX++) {
+                    final Rectangle rect = image.getTileRect(tileX, tileY);
+                    final int[] covered = coverage.getTile(tileX, tileY).getSamples(rect.x, rect.y, rect.width,
+                            rect.height, 0, (int[]) null);
+                    boolean full = true;
+                    boolean empty = true;
+                    for (int i = 0; i < covered.length; i++) {
+                        full &= covered[i] != 0;
+                        empty &= covered[i] == 0;
+                    }
+                    if (full) {
+                        continue;
+                    }
+                    final WritableRaster target = image.getWritableTile(tileX, tileY);
+                    try {
+                        // a single setSamples per band, over the tile samples when some granule covers it
+                        double[] samples = new double[covered.length];
+                        for (int b = 0; b < bands; b++) {
+                            if (empty) {
+                                Arrays.fill(samples, background[b]);
+                            } else {
+                                samples = target.getSamples(rect.x, rect.y, rect.width, rect.height, b, samples);
+                                for (int i = 0; i < covered.length; i++) {
+                                    if (covered[i] == 0) {
+                                        samples[i] = background[b];
+                                    }
+                                }
+                            }
+                            target.setSamples(rect.x, rect.y, rect.width, rect.height, b, samples);
+                        }
+                    } finally {
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param alpha whether the granules carry an alpha band, which is then the alpha channel of the mosaic.
+         * @return the mosaic of the granules added so far, or {@code null} if none was added.
+         */
+        private MosaicElement getMosaic(final boolean alpha) {
+            if (image == null) {
+                return null;
+            }
+            fillBackground();
+            final ROI roi = new ROI(coverage, 1);
+            if (footprintBehavior != FootprintBehavior.None) {
+                image.setProperty("ROI", roi);
+            }
+            final PlanarImage alphaChannel = alpha ? new ImageWorker(image).retainLastBand().getPlanarImage() : null;
+            final PAMDataset pamDataset = pams.isEmpty() ? null : Utils.mergePamDatasets(pams
+                    .toArray(new PAMDataset[pams.size()]));
+            return new MosaicElement(alphaChannel, roi, image, pamDataset);
+        }
+    }
+
     /**
      * A class doing the mosaic operation on top of a List of {@link MosaicElement}s.
      * 
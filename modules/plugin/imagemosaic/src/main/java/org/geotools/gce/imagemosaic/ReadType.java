@@ -28,6 +28,8 @@ import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import javax.media.jai.RenderedOp;
 
+import org.geotools.coverage.grid.io.imageio.DecodedTileCache;
+import org.geotools.coverage.grid.io.imageio.DecodedTileImage;
 import org.geotools.factory.Hints;
 import org.geotools.resources.coverage.CoverageUtilities;
 import org.geotools.resources.i18n.ErrorKeys;
@@ -84,7 +86,10 @@ enum ReadType {
     			if (LOGGER.isLoggable(Level.FINER))
     			    LOGGER.log(Level.FINER, "reading file: " + granuleUrl);
     			
-    			// read data
+    			// read data, through the shared tile cache if any
+    			final DecodedTileCache tileCache = getDecodedTileCache(hints);
+    			if (tileCache != null)
+    				return tileCache.read(granuleUrl, reader, imageIndex, readParameters);
     			return reader.read(imageIndex,readParameters);
     		} catch (IOException e) {
     			if (LOGGER.isLoggable(Level.WARNING))
@@ -140,6 +145,11 @@ enum ReadType {
 	                                return null;
 	                        }
 	                        
+	                        // plain reads are served tile by tile by the shared tile cache if any
+	                        final DecodedTileCache tileCache = getDecodedTileCache(hints);
+	                        if (tileCache != null && DecodedTileCache.canCache(readParameters))
+	                            return DecodedTileImage.create(tileCache, granuleUrl, reader, imageIndex, readParameters, hints);
+
 	                        // check input stream
 	                        final ImageInputStream inStream=(ImageInputStream) reader.getInput();
 				// read data    
@@ -165,6 +175,11 @@ enum ReadType {
 				return null;
 			}
 		}
+
+		@Override
+		boolean isDeferred(final ImageReadParam readParameters, final Hints hints) {
+			return true;
+		}
     }, 
     
     UNSPECIFIED{
@@ -181,6 +196,24 @@ enum ReadType {
 		}
     };
 
+    /**
+     * Returns true if the image returned by {@link #read} with these parameters keeps reading from
+     * the reader and its input stream, which then must not be closed by the caller. False if the
+     * data is read before returning, in which case the caller has to close them.
+     */
+    boolean isDeferred(final ImageReadParam readParameters, final Hints hints) {
+        return false;
+    }
+
+    /**
+     * Returns the {@link DecodedTileCache} set in the hints, or null
+     */
+    static DecodedTileCache getDecodedTileCache(final Hints hints) {
+        if (hints != null && hints.containsKey(Hints.DECODED_TILE_CACHE))
+            return (DecodedTileCache) hints.get(Hints.DECODED_TILE_CACHE);
+        return null;
+    }
+
     /** Logger. */
 	private final static Logger LOGGER = org.geotools.util.logging.Logging .getLogger(ReadType.class);
 	
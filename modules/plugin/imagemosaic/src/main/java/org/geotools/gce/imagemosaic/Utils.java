@@ -232,6 +232,8 @@ public class Utils {
         public static final String RESOLUTION_LEVELS = "ResolutionLevels";
         public static final String PROPERTY_COLLECTORS = "PropertyCollectors";
         public final static String CACHING= "Caching";
+        /** Sets if the granules should be looked up through a persistent memory mapped index */
+        public final static String PERSISTENT_INDEX = "PersistentIndex";
     }
         /**
      * Extracts a bbox from a filter in case there is at least one.
@@ -566,6 +568,14 @@ public class Utils {
 			}
 		}
 
+		//
+		// persistent index
+		//
+		if (properties.containsKey(Prop.PERSISTENT_INDEX)) {
+			String persistentIndex = properties.getProperty(Prop.PERSISTENT_INDEX).trim();
+			catalogConfigurationBean.setPersistentIndex(Boolean.valueOf(persistentIndex));
+		}
+
 		//
 		// name is not optional
 		//
@@ -1032,6 +1042,8 @@ public class Utils {
 	
 	public static final boolean DEFAULT_CONFIGURATION_CACHING = false;
 
+	public static final boolean DEFAULT_CONFIGURATION_PERSISTENT_INDEX = false;
+
             public static Map<String, Serializable> createDataStoreParamsFromPropertiesFile(
 			Properties properties, DataStoreFactorySpi spi) throws IOException {
 		// get the params
@@ -38,6 +38,9 @@ public class CatalogConfigurationBean {
     /** we want to use caching for our index. */
     private boolean caching = Utils.DEFAULT_CONFIGURATION_CACHING;
 
+    /** we want to look up the granules through a persistent, memory mapped index. */
+    private boolean persistentIndex = Utils.DEFAULT_CONFIGURATION_PERSISTENT_INDEX;
+
     private boolean heterogeneous;
 
     /**
@@ -88,6 +91,14 @@ public class CatalogConfigurationBean {
         this.caching = caching;
     }
 
+    public boolean isPersistentIndex() {
+        return persistentIndex;
+    }
+
+    public void setPersistentIndex(final boolean persistentIndex) {
+        this.persistentIndex = persistentIndex;
+    }
+
     /**
      * @return the suggestedSPI
      */
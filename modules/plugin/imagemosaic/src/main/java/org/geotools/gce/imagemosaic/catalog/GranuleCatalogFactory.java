@@ -143,9 +143,14 @@ public abstract class GranuleCatalogFactory {
 		if (overrideParams != null && !overrideParams.isEmpty()) {
 		    params.putAll(overrideParams);
 		}
-		final GranuleCatalog catalog = catalogConfigurationBean.isCaching()?
+		final GranuleCatalog catalog;
+		if (catalogConfigurationBean.isPersistentIndex()) {
+		    catalog = new PackedRTreeGranuleCatalog(params, spi, hints);
+		} else {
+		    catalog = catalogConfigurationBean.isCaching()?
 		        new STRTreeGranuleCatalog(params,spi,hints):
 		            new CachingDataStoreGranuleCatalog(new GTDataStoreGranuleCatalog(params,false,spi,hints));
+		}
 
 		return catalog;
 	}
@@ -0,0 +1,506 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.data.collection.SimpleFeatureCodec;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A persistent index of mosaic granules, read straight out of a memory mapped file: a packed
+ * R-tree whose entries carry, besides the bounds, the range of every numeric and date attribute
+ * of the granules below them (typically time and elevation), followed by the granules themselves
+ * encoded with a {@link SimpleFeatureCodec}.
+ * <p>
+ * The file starts with a 32 bytes header (signature, version, node size, number of granules, of
+ * nodes and of columns, start of the granule records), followed by the column names and by fixed
+ * size entries, the leaves first and the root last. Each entry holds four little endian doubles
+ * for the bounds, a min and a max double per column, and eight more bytes: the offset of the
+ * granule record for leaves, the position of the first child and the number of children for the
+ * other nodes. Null values are stored as NaN and never match a constrained column.
+ * <p>
+ * Opening the index costs a mapping and a header check, lookups only read primitives out of the
+ * nodes and decode the matching granules. The index is immutable, {@link PackedGranuleIndexWriter}
+ * builds a new one.
+ *
+ * @see PackedGranuleIndexWriter
+ *
+ * @source $URL$
+ */
+class PackedGranuleIndex {
+
+    /**
+     * Visits the granules matching a query
+     */
+    interface Visitor {
+        /**
+         * Called for each matching granule
+         *
+         * @param item the granule position in the index
+         * @return false to stop the query
+         */
+        boolean visit(int item) throws IOException;
+    }
+
+    static final String SIGNATURE = "GGI";
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+
+    final SimpleFeatureType schema;
+
+    /**
+     * The codec reuses its builder and WKB reader, so each thread decodes with its own one
+     */
+    final ThreadLocal<SimpleFeatureCodec> codecs = new ThreadLocal<SimpleFeatureCodec>() {
+        @Override
+        protected SimpleFeatureCodec initialValue() {
+            return new SimpleFeatureCodec(schema);
+        }
+    };
+
+    final int[] columns;
+
+    final String[] columnNames;
+
+    final int entrySize;
+
+    RandomAccessFile raf;
+
+    ByteBuffer nodes;
+
+    ByteBuffer records;
+
+    int nodesStart;
+
+    int numItems;
+
+    int numNodes;
+
+    /**
+     * Maps the index file.
+     *
+     * @param file
+     * @param schema the granules feature type, which must be the one the index was built for
+     * @throws IOException If the file is not a valid granule index, or has been built for another
+     *         schema
+     */
+    PackedGranuleIndex(File file, SimpleFeatureType schema) throws IOException {
+        this.schema = schema;
+        this.columns = getColumns(schema);
+        this.columnNames = getColumnNames(schema, columns).toArray(new String[columns.length]);
+        this.entrySize = entrySize(columns.length);
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            open();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw new IOException("The granule index is corrupted", e);
+        }
+    }
+
+    void open() throws IOException {
+        FileChannel channel = raf.getChannel();
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("The file is too short to be a granule index");
+        }
+        byte[] bytes = new byte[HEADER_SIZE];
+        raf.readFully(bytes);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] signature = new byte[3];
+        header.get(signature);
+        byte version = header.get();
+        if (!SIGNATURE.equals(new String(signature, "US-ASCII")) || version != VERSION) {
+            throw new IOException("Not a granule index, or unsupported version");
+        }
+        numItems = header.getInt(8);
+        numNodes = header.getInt(12);
+        int numColumns = header.getInt(16);
+        long recordsStart = header.getLong(24);
+        if (recordsStart > size || recordsStart > Integer.MAX_VALUE
+                || size - recordsStart > Integer.MAX_VALUE) {
+            throw new IOException("The granule index is truncated, or too large to be mapped");
+        }
+
+        nodes = channel.map(FileChannel.MapMode.READ_ONLY, 0, recordsStart);
+        nodes.order(ByteOrder.LITTLE_ENDIAN);
+        records = channel.map(FileChannel.MapMode.READ_ONLY, recordsStart, size - recordsStart);
+
+        // the columns must be the ones of the schema
+        List<String> names = new ArrayList<String>();
+        nodes.position(HEADER_SIZE);
+        for (int c = 0; c < numColumns; c++) {
+            byte[] name = new byte[nodes.getShort()];
+            nodes.get(name);
+            names.add(new String(name, "UTF-8"));
+        }
+        if (!names.equals(Arrays.asList(columnNames))) {
+            throw new IOException("The granule index has been built for another schema");
+        }
+        nodesStart = nodes.position();
+        if (nodesStart + (long) numNodes * entrySize != recordsStart) {
+            throw new IOException("The granule index is corrupted");
+        }
+    }
+
+    /**
+     * Returns the positions in the schema of the numeric and date attributes, which are stored in
+     * the index nodes
+     */
+    static int[] getColumns(SimpleFeatureType schema) {
+        int[] columns = new int[schema.getAttributeCount()];
+        int count = 0;
+        for (int i = 0; i < columns.length; i++) {
+            Class<?> binding = schema.getDescriptor(i).getType().getBinding();
+            if (Number.class.isAssignableFrom(binding) || Date.class.isAssignableFrom(binding)) {
+                columns[count++] = i;
+            }
+        }
+        return Arrays.copyOf(columns, count);
+    }
+
+    static List<String> getColumnNames(SimpleFeatureType schema, int[] columns) {
+        List<String> names = new ArrayList<String>(columns.length);
+        for (int column : columns) {
+            names.add(schema.getDescriptor(column).getLocalName());
+        }
+        return names;
+    }
+
+    static int entrySize(int numColumns) {
+        return 8 * (4 + 2 * numColumns) + 8;
+    }
+
+    /**
+     * The number of granules in the index
+     */
+    int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * The bounds of all the granules, empty if there are none
+     */
+    Envelope getBounds() {
+        if (numItems == 0) {
+            return new Envelope();
+        }
+        int p = nodesStart + (numNodes - 1) * entrySize;
+        return new Envelope(nodes.getDouble(p), nodes.getDouble(p + 16), nodes.getDouble(p + 8),
+                nodes.getDouble(p + 24));
+    }
+
+    /**
+     * Returns the position of the column holding the specified attribute, or -1 if the attribute
+     * is not indexed
+     */
+    int getColumn(String name) {
+        for (int c = 0; c < columnNames.length; c++) {
+            if (columnNames[c].equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of a column for the specified granule, converted back to the attribute
+     * type
+     */
+    Object getValue(int item, int column) {
+        return toValue(nodes.getDouble(nodesStart + item * entrySize + 32 + 16 * column), column);
+    }
+
+    /**
+     * Returns the smallest value of a column, or null if the index holds no value for it
+     */
+    Object getMinimum(int column) {
+        return numItems == 0 ? null : toValue(
+                nodes.getDouble(nodesStart + (numNodes - 1) * entrySize + 32 + 16 * column), column);
+    }
+
+    /**
+     * Returns the largest value of a column, or null if the index holds no value for it
+     */
+    Object getMaximum(int column) {
+        return numItems == 0 ? null : toValue(
+                nodes.getDouble(nodesStart + (numNodes - 1) * entrySize + 40 + 16 * column), column);
+    }
+
+    Object toValue(double value, int column) {
+        // the root of an index without values holds infinite ranges
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        AttributeDescriptor descriptor = schema.getDescriptor(columns[column]);
+        Class<?> binding = descriptor.getType().getBinding();
+        if (Date.class.isAssignableFrom(binding)) {
+            return Converters.convert(new Date((long) value), binding);
+        }
+        return Converters.convert(value, binding);
+    }
+
+    /**
+     * Decodes the specified granule
+     *
+     * @throws IOException
+     */
+    SimpleFeature getFeature(int item) throws IOException {
+        long offset = nodes.getLong(nodesStart + item * entrySize + entrySize - 8);
+        ByteBuffer source = records.duplicate();
+        source.position((int) offset);
+        return codecs.get().decode(source);
+    }
+
+    /**
+     * Visits the granules that may match the filter, according to its bounds and to the ranges
+     * it sets on the indexed columns. The filter itself is not evaluated.
+     *
+     * @param filter
+     * @param visitor
+     * @throws IOException
+     */
+    void query(Filter filter, Visitor visitor) throws IOException {
+        Envelope bounds = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (bounds == null || bounds.isNull()) {
+            return;
+        }
+        double[] min = new double[columns.length];
+        double[] max = new double[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            double[] range = getRange(filter, columnNames[c]);
+            if (range == null) {
+                return;
+            }
+            min[c] = range[0];
+            max[c] = range[1];
+        }
+        query(bounds, min, max, visitor);
+    }
+
+    /**
+     * Visits the granules whose bounds intersect the envelope and whose column values are within
+     * the specified ranges.
+     *
+     * @param bounds
+     * @param min the lower bound of each column, inclusive
+     * @param max the upper bound of each column, inclusive
+     * @param visitor
+     * @throws IOException
+     */
+    void query(Envelope bounds, double[] min, double[] max, Visitor visitor) throws IOException {
+        if (numItems == 0) {
+            return;
+        }
+        double minX = bounds.getMinX();
+        double minY = bounds.getMinY();
+        double maxX = bounds.getMaxX();
+        double maxY = bounds.getMaxY();
+        boolean[] constrained = new boolean[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            constrained[c] = min[c] != Double.NEGATIVE_INFINITY
+                    || max[c] != Double.POSITIVE_INFINITY;
+        }
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = numNodes - 1;
+        while (top > 0) {
+            int node = stack[--top];
+            int p = nodesStart + node * entrySize;
+            if (nodes.getDouble(p + 16) < minX || nodes.getDouble(p) > maxX
+                    || nodes.getDouble(p + 24) < minY || nodes.getDouble(p + 8) > maxY) {
+                continue;
+            }
+            boolean matches = true;
+            for (int c = 0; c < columns.length && matches; c++) {
+                if (constrained[c]) {
+                    // NaN and empty ranges fail this test too
+                    double emin = nodes.getDouble(p + 32 + 16 * c);
+                    double emax = nodes.getDouble(p + 40 + 16 * c);
+                    matches = emax >= min[c] && emin <= max[c];
+                }
+            }
+            if (!matches) {
+                continue;
+            }
+            if (node < numItems) {
+                if (!visitor.visit(node)) {
+                    return;
+                }
+            } else {
+                int first = nodes.getInt(p + entrySize - 8);
+                int count = nodes.getInt(p + entrySize - 4);
+                if (top + count > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count));
+                }
+                // pushed backwards, so that the granules are visited in the index order
+                for (int child = first + count - 1; child >= first; child--) {
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the range of values of the specified attribute that may match the filter, as a
+     * {min, max} array, or null if no value matches
+     */
+    static double[] getRange(Filter filter, String name) {
+        double[] all = new double[] { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+        if (filter == Filter.EXCLUDE) {
+            return null;
+        } else if (filter instanceof And) {
+            double[] range = all;
+            for (Filter child : ((And) filter).getChildren()) {
+                double[] childRange = getRange(child, name);
+                if (childRange == null) {
+                    return null;
+                }
+                range = new double[] { Math.max(range[0], childRange[0]),
+                        Math.min(range[1], childRange[1]) };
+            }
+            return range[0] <= range[1] ? range : null;
+        } else if (filter instanceof Or) {
+            double[] range = null;
+            for (Filter child : ((Or) filter).getChildren()) {
+                double[] childRange = getRange(child, name);
+                if (range == null) {
+                    range = childRange;
+                } else if (childRange != null) {
+                    range = new double[] { Math.min(range[0], childRange[0]),
+                            Math.max(range[1], childRange[1]) };
+                }
+            }
+            return range;
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (isProperty(between.getExpression(), name)) {
+                return new double[] { getLiteral(between.getLowerBoundary(), all[0]),
+                        getLiteral(between.getUpperBoundary(), all[1]) };
+            }
+        } else if (filter instanceof BinaryComparisonOperator) {
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            Expression other;
+            boolean greater;
+            if (isProperty(comparison.getExpression1(), name)) {
+                other = comparison.getExpression2();
+                greater = filter instanceof PropertyIsGreaterThan
+                        || filter instanceof PropertyIsGreaterThanOrEqualTo;
+            } else if (isProperty(comparison.getExpression2(), name)) {
+                other = comparison.getExpression1();
+                greater = filter instanceof PropertyIsLessThan
+                        || filter instanceof PropertyIsLessThanOrEqualTo;
+            } else {
+                return all;
+            }
+            if (filter instanceof PropertyIsEqualTo) {
+                double value = getLiteral(other, Double.NaN);
+                return Double.isNaN(value) ? all : new double[] { value, value };
+            } else if (greater) {
+                return new double[] { getLiteral(other, all[0]), all[1] };
+            } else if (filter instanceof PropertyIsLessThan
+                    || filter instanceof PropertyIsLessThanOrEqualTo
+                    || filter instanceof PropertyIsGreaterThan
+                    || filter instanceof PropertyIsGreaterThanOrEqualTo) {
+                return new double[] { all[0], getLiteral(other, all[1]) };
+            }
+        }
+        return all;
+    }
+
+    static boolean isProperty(Expression expression, String name) {
+        if (!(expression instanceof PropertyName)) {
+            return false;
+        }
+        String property = ((PropertyName) expression).getPropertyName();
+        return property.equals(name) || property.endsWith(":" + name);
+    }
+
+    /**
+     * Returns the value of a literal as stored in the columns, or the fallback if the expression
+     * is not a literal or cannot be converted
+     */
+    static double getLiteral(Expression expression, double fallback) {
+        if (!(expression instanceof Literal)) {
+            return fallback;
+        }
+        Object value = ((Literal) expression).getValue();
+        if (value != null && !(value instanceof Number) && !(value instanceof Date)) {
+            Double number = Converters.convert(value, Double.class);
+            value = number != null ? number : Converters.convert(value, Date.class);
+        }
+        double result = PackedGranuleIndexWriter.toDouble(value);
+        return Double.isNaN(result) ? fallback : result;
+    }
+
+    /**
+     * Unmaps and closes the index file
+     *
+     * @throws IOException
+     */
+    void close() throws IOException {
+        if (nodes != null) {
+            NIOUtilities.clean(nodes, true);
+            nodes = null;
+        }
+        if (records != null) {
+            NIOUtilities.clean(records, true);
+            records = null;
+        }
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.data.collection.SimpleFeatureCodec;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTreeWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Builds a {@link PackedGranuleIndex} file. The granules are encoded as they are added in a
+ * temporary file next to the index, while their bounds and the values of their numeric and date
+ * attributes are kept in memory; {@link #write()} then sorts them along a Hilbert curve, packs the
+ * tree bottom up and assembles the index file.
+ * <p>
+ * Granules without a geometry cannot be found by the tree and are skipped.
+ *
+ * @source $URL$
+ */
+class PackedGranuleIndexWriter {
+
+    /** The default number of entries per node */
+    static final int DEFAULT_NODE_SIZE = 16;
+
+    final File file;
+
+    final int nodeSize;
+
+    final SimpleFeatureCodec codec;
+
+    /** The positions in the schema of the attributes stored as columns */
+    final int[] columns;
+
+    final File recordsFile;
+
+    RandomAccessFile records;
+
+    long recordsSize;
+
+    int numItems;
+
+    /** minx, miny, maxx, maxy for each granule */
+    double[] bounds = new double[4 * 1024];
+
+    /** the column values for each granule, NaN for nulls */
+    double[] values;
+
+    long[] offsets = new long[1024];
+
+    /**
+     * Creates a writer for the index of granules of the given type.
+     *
+     * @param file the index file, overwritten by {@link #write()}
+     * @param schema the granules feature type
+     * @param nodeSize the number of entries per node
+     * @throws IOException if the temporary records file cannot be created
+     */
+    PackedGranuleIndexWriter(File file, SimpleFeatureType schema, int nodeSize) throws IOException {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2, but was "
+                    + nodeSize);
+        }
+        this.file = file;
+        this.nodeSize = nodeSize;
+        this.codec = new SimpleFeatureCodec(schema);
+        this.columns = PackedGranuleIndex.getColumns(schema);
+        this.values = new double[Math.max(1, columns.length) * 1024];
+        this.recordsFile = new File(file.getPath() + ".records");
+        this.records = new RandomAccessFile(recordsFile, "rw");
+        this.records.setLength(0);
+    }
+
+    /**
+     * Adds a granule to the index.
+     *
+     * @param granule
+     * @throws IOException
+     */
+    void add(SimpleFeature granule) throws IOException {
+        Geometry geometry = (Geometry) granule.getDefaultGeometry();
+        if (geometry == null || geometry.isEmpty()) {
+            return;
+        }
+        if (numItems == offsets.length) {
+            offsets = Arrays.copyOf(offsets, numItems * 2);
+            bounds = Arrays.copyOf(bounds, numItems * 8);
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        Envelope envelope = geometry.getEnvelopeInternal();
+        int p = numItems * 4;
+        bounds[p] = envelope.getMinX();
+        bounds[p + 1] = envelope.getMinY();
+        bounds[p + 2] = envelope.getMaxX();
+        bounds[p + 3] = envelope.getMaxY();
+        for (int c = 0; c < columns.length; c++) {
+            values[numItems * columns.length + c] = toDouble(granule.getAttribute(columns[c]));
+        }
+
+        ByteBuffer encoded = codec.encode(granule);
+        offsets[numItems] = recordsSize;
+        recordsSize += encoded.remaining();
+        FileChannel channel = records.getChannel();
+        while (encoded.hasRemaining()) {
+            channel.write(encoded);
+        }
+        numItems++;
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * The number of granules added so far
+     */
+    int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Sorts and packs the granules, writes the index file and removes the temporary one. The index
+     * is written aside and then renamed, so that readers never see a partial file.
+     *
+     * @throws IOException
+     */
+    void write() throws IOException {
+        int numColumns = columns.length;
+        int numNodes = numItems;
+        int levelSize = numItems;
+        while (levelSize > 1) {
+            levelSize = (levelSize + nodeSize - 1) / nodeSize;
+            numNodes += levelSize;
+        }
+
+        // gather the node bounds and column ranges, leaves first
+        int[] order = sortByHilbertValue();
+        int stride = 4 + 2 * numColumns;
+        double[] nodes = new double[numNodes * stride];
+        for (int i = 0; i < numItems; i++) {
+            int p = i * stride;
+            System.arraycopy(bounds, order[i] * 4, nodes, p, 4);
+            for (int c = 0; c < numColumns; c++) {
+                double value = values[order[i] * numColumns + c];
+                nodes[p + 4 + 2 * c] = value;
+                nodes[p + 5 + 2 * c] = value;
+            }
+        }
+        int[] firstChild = new int[numNodes - numItems];
+        int[] childCount = new int[numNodes - numItems];
+        int levelStart = 0;
+        int levelEnd = numItems;
+        int pos = numItems;
+        while (levelEnd - levelStart > 1) {
+            for (int child = levelStart; child < levelEnd; child += nodeSize) {
+                int end = Math.min(child + nodeSize, levelEnd);
+                int p = pos * stride;
+                for (int k = 0; k < stride; k += 2) {
+                    // min, max pairs: x, y, then each column
+                    nodes[p + (k < 4 ? k / 2 : k)] = Double.POSITIVE_INFINITY;
+                    nodes[p + (k < 4 ? k / 2 + 2 : k + 1)] = Double.NEGATIVE_INFINITY;
+                }
+                for (int c = child; c < end; c++) {
+                    int cp = c * stride;
+                    nodes[p] = Math.min(nodes[p], nodes[cp]);
+                    nodes[p + 1] = Math.min(nodes[p + 1], nodes[cp + 1]);
+                    nodes[p + 2] = Math.max(nodes[p + 2], nodes[cp + 2]);
+                    nodes[p + 3] = Math.max(nodes[p + 3], nodes[cp + 3]);
+                    for (int k = 4; k < stride; k += 2) {
+                        // NaN values (nulls) do not widen the ranges
+                        if (nodes[cp + k] < nodes[p + k]) {
+                            nodes[p + k] = nodes[cp + k];
+                        }
+                        if (nodes[cp + k + 1] > nodes[p + k + 1]) {
+                            nodes[p + k + 1] = nodes[cp + k + 1];
+                        }
+                    }
+                }
+                firstChild[pos - numItems] = child;
+                childCount[pos - numItems] = end - child;
+                pos++;
+            }
+            levelStart = levelEnd;
+            levelEnd = pos;
+        }
+
+        // header and column names
+        List<String> names = PackedGranuleIndex.getColumnNames(codec.getSchema(), columns);
+        int namesSize = 0;
+        byte[][] encodedNames = new byte[numColumns][];
+        for (int c = 0; c < numColumns; c++) {
+            encodedNames[c] = names.get(c).getBytes("UTF-8");
+            namesSize += 2 + encodedNames[c].length;
+        }
+        int entrySize = PackedGranuleIndex.entrySize(numColumns);
+        long recordsStart = PackedGranuleIndex.HEADER_SIZE + namesSize + (long) numNodes * entrySize;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(entrySize, namesSize + 32) * 1024);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(PackedGranuleIndex.SIGNATURE.getBytes("US-ASCII"));
+            buffer.put(PackedGranuleIndex.VERSION);
+            buffer.putInt(nodeSize);
+            buffer.putInt(numItems);
+            buffer.putInt(numNodes);
+            buffer.putInt(numColumns);
+            buffer.putInt(0);
+            buffer.putLong(recordsStart);
+            for (int c = 0; c < numColumns; c++) {
+                buffer.putShort((short) encodedNames[c].length);
+                buffer.put(encodedNames[c]);
+            }
+            for (int node = 0; node < numNodes; node++) {
+                if (buffer.remaining() < entrySize) {
+                    flush(buffer, channel);
+                }
+                int p = node * stride;
+                for (int k = 0; k < stride; k++) {
+                    buffer.putDouble(nodes[p + k]);
+                }
+                if (node < numItems) {
+                    buffer.putLong(offsets[order[node]]);
+                } else {
+                    buffer.putInt(firstChild[node - numItems]);
+                    buffer.putInt(childCount[node - numItems]);
+                }
+            }
+            flush(buffer, channel);
+
+            // then append the records as they were encoded
+            FileChannel source = records.getChannel();
+            long copied = 0;
+            while (copied < recordsSize) {
+                copied += source.transferTo(copied, recordsSize - copied, channel);
+            }
+        } finally {
+            raf.close();
+        }
+        dispose();
+        if (file.exists() && !file.delete()) {
+            tmp.delete();
+            throw new IOException("Could not replace the granule index " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the granule positions sorted by the Hilbert value of their centers
+     */
+    int[] sortByHilbertValue() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numItems; i++) {
+            int p = i * 4;
+            minX = Math.min(minX, bounds[p]);
+            minY = Math.min(minY, bounds[p + 1]);
+            maxX = Math.max(maxX, bounds[p + 2]);
+            maxY = Math.max(maxY, bounds[p + 3]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+
+        // the hilbert value uses 32 bits, the granule position the lower 31 ones
+        int max = HilbertRTreeWriter.HILBERT_MAX;
+        long[] keys = new long[numItems];
+        for (int i = 0; i < numItems; i++) {
+            int p = i * 4;
+            int x = width > 0 ? (int) Math.floor(max
+                    * ((bounds[p] + bounds[p + 2]) / 2 - minX) / width) : 0;
+            int y = height > 0 ? (int) Math.floor(max
+                    * ((bounds[p + 1] + bounds[p + 3]) / 2 - minY) / height) : 0;
+            keys[i] = ((HilbertRTreeWriter.hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[numItems];
+        for (int i = 0; i < numItems; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    /**
+     * Closes and removes the temporary records file, without writing the index
+     */
+    void dispose() throws IOException {
+        if (records != null) {
+            records.close();
+            records = null;
+            recordsFile.delete();
+        }
+    }
+}
@@ -0,0 +1,648 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataStoreFactorySpi;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.Transaction;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.collection.SimpleFeatureCodec;
+import org.geotools.data.shapefile.ShapefileDataStoreFactory;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.Utils;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.ConcurrentSoftValueHashMap;
+import org.geotools.util.Utilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A granule catalog backed by a {@link PackedGranuleIndex}, a persistent packed R-tree stored
+ * next to the mosaic configuration, whose nodes also carry the ranges of the numeric and date
+ * attributes (time, elevation, ...) and whose leaves point to the encoded granules.
+ * <p>
+ * Opening the catalog only maps the index file, instead of loading every granule in memory like
+ * {@link STRTreeGranuleCatalog}, and queries on the bounds, time and elevation only decode the
+ * granules of the matching nodes, without going to the underlying store. The index is built from
+ * the wrapped store the first time a type is accessed, and rebuilt when it is missing, was built
+ * for another schema, or is older than the shapefile index. Granules added or removed through the
+ * catalog invalidate the index; for a database index, whose changes have no timestamp, the index
+ * is rebuilt when the number of granules or their bounds changed behind the catalog back, other
+ * changes require removing the index file.
+ * <p>
+ * Queries sorting the granules are delegated to the wrapped store.
+ * <p>
+ * When the index cannot be written, or the schema cannot be encoded, the catalog falls back on the
+ * wrapped store.
+ *
+ * @source $URL$
+ */
+class PackedRTreeGranuleCatalog extends GranuleCatalog {
+
+    /** Logger. */
+    final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(PackedRTreeGranuleCatalog.class);
+
+    /** The extension of the index files */
+    static final String INDEX_EXTENSION = ".gidx";
+
+    private GTDataStoreGranuleCatalog wrappedCatalogue;
+
+    private String typeName;
+
+    private final File indexDirectory;
+
+    private final File shapefile;
+
+    private final Map<String, PackedGranuleIndex> indexes = new HashMap<String, PackedGranuleIndex>();
+
+    /** The types which cannot be indexed, served by the wrapped catalog */
+    private final Set<String> unindexed = new HashSet<String>();
+
+    private final ConcurrentSoftValueHashMap<String, GranuleDescriptor> descriptorsCache = new ConcurrentSoftValueHashMap<String, GranuleDescriptor>();
+
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+
+    public PackedRTreeGranuleCatalog(final Properties params, DataStoreFactorySpi spi,
+            final Hints hints) {
+        super(hints);
+        Utilities.ensureNonNull("params", params);
+        this.wrappedCatalogue = new GTDataStoreGranuleCatalog(params, false, spi, hints);
+        this.typeName = (String) params.get(Utils.Prop.TYPENAME);
+        if (typeName == null && !wrappedCatalogue.typeNames.isEmpty()) {
+            typeName = wrappedCatalogue.typeNames.iterator().next();
+        }
+        this.indexDirectory = toFile(params.get(Utils.Prop.PARENT_LOCATION));
+        this.shapefile = toFile(params.get(ShapefileDataStoreFactory.URLP.key));
+    }
+
+    /**
+     * Returns the file a location parameter points to, or null if it is not a local file
+     */
+    private static File toFile(Object location) {
+        if (location == null) {
+            return null;
+        } else if (location instanceof URL) {
+            return DataUtilities.urlToFile((URL) location);
+        }
+        try {
+            return DataUtilities.urlToFile(new URL(location.toString()));
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index for the specified type, opening or building it if needed, or null if the
+     * type cannot be indexed. Must be called holding the read lock, which is upgraded to a write
+     * lock when the index has to be opened.
+     *
+     * @param readLock
+     * @param typeName
+     * @throws IOException
+     */
+    private PackedGranuleIndex getIndex(Lock readLock, String typeName) throws IOException {
+        if (typeName == null) {
+            typeName = this.typeName;
+        }
+        PackedGranuleIndex index = indexes.get(typeName);
+        if (index != null || unindexed.contains(typeName)) {
+            return index;
+        }
+
+        final Lock writeLock = rwLock.writeLock();
+        try {
+            // upgrade the read lock to write lock
+            readLock.unlock();
+            writeLock.lock();
+
+            index = indexes.get(typeName);
+            if (index == null && !unindexed.contains(typeName)) {
+                index = openIndex(typeName);
+                if (index != null) {
+                    indexes.put(typeName, index);
+                } else {
+                    unindexed.add(typeName);
+                }
+            }
+            return index;
+        } finally {
+            // get read lock again
+            readLock.lock();
+            // leave write lock
+            writeLock.unlock();
+        }
+    }
+
+    private PackedGranuleIndex openIndex(String typeName) throws IOException {
+        final SimpleFeatureType schema = wrappedCatalogue.getType(typeName);
+        if (schema == null || indexDirectory == null || !SimpleFeatureCodec.canEncode(schema)) {
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine("The granules of " + typeName + " cannot be indexed, using the store");
+            return null;
+        }
+
+        final File file = new File(indexDirectory, typeName + INDEX_EXTENSION);
+        if (file.exists()
+                && (shapefile == null || file.lastModified() >= shapefile.lastModified())) {
+            try {
+                final PackedGranuleIndex index = new PackedGranuleIndex(file, schema);
+                boolean current = false;
+                try {
+                    current = shapefile != null || matchesStore(index, typeName);
+                } finally {
+                    if (!current) {
+                        index.close();
+                    }
+                }
+                if (current) {
+                    return index;
+                }
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.fine("The granules of " + typeName
+                            + " have been changed, rebuilding the granule index " + file);
+            } catch (IOException e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, "Rebuilding the granule index " + file, e);
+            }
+        }
+
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Building the granule index " + file);
+        PackedGranuleIndexWriter writer = null;
+        try {
+            writer = new PackedGranuleIndexWriter(file, schema,
+                    PackedGranuleIndexWriter.DEFAULT_NODE_SIZE);
+            final SimpleFeatureIterator it = wrappedCatalogue.getGranules(new Query(typeName))
+                    .features();
+            try {
+                while (it.hasNext()) {
+                    writer.add(it.next());
+                }
+            } finally {
+                it.close();
+            }
+            writer.write();
+            return new PackedGranuleIndex(file, schema);
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.WARNING))
+                LOGGER.log(Level.WARNING, "Unable to build the granule index " + file
+                        + ", using the store", e);
+            return null;
+        } finally {
+            if (writer != null) {
+                writer.dispose();
+            }
+        }
+    }
+
+    /**
+     * Checks the index still matches the granules of a store which has no timestamp to compare
+     * with, such as a database: the store must have as many granules as the index, and its bounds
+     * must cover the index ones.
+     */
+    private boolean matchesStore(PackedGranuleIndex index, String typeName) throws IOException {
+        if (index.getNumItems() != wrappedCatalogue.getGranulesCount(new Query(typeName))) {
+            return false;
+        }
+        final BoundingBox bounds = wrappedCatalogue.getBounds(typeName);
+        return index.getNumItems() == 0 || bounds == null
+                || ReferencedEnvelope.reference(bounds).contains(index.getBounds());
+    }
+
+    /**
+     * Returns true if the query asks for sorted granules, which the index cannot return
+     */
+    private static boolean isSorted(Query q) {
+        return q.getSortBy() != null && q.getSortBy().length > 0;
+    }
+
+    /**
+     * Closes and removes the index of the specified type, after its granules have been changed.
+     * Must be called holding the write lock.
+     */
+    private void invalidate(String typeName) {
+        if (typeName == null) {
+            typeName = this.typeName;
+        }
+        PackedGranuleIndex index = indexes.remove(typeName);
+        if (index != null) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+            }
+        }
+        unindexed.remove(typeName);
+        descriptorsCache.clear();
+        if (indexDirectory != null) {
+            new File(indexDirectory, typeName + INDEX_EXTENSION).delete();
+        }
+    }
+
+    /**
+     * Visits the granules matching a query
+     */
+    private interface GranuleVisitor {
+        void visit(SimpleFeature granule) throws IOException;
+    }
+
+    /**
+     * Visits the granules of the index matching the query filter, up to its max features
+     */
+    private void query(final PackedGranuleIndex index, final Query q,
+            final GranuleVisitor visitor) throws IOException {
+        final Filter filter = q.getFilter() != null ? q.getFilter() : Filter.INCLUDE;
+        final int maxGranules = q.getMaxFeatures();
+        index.query(filter, new PackedGranuleIndex.Visitor() {
+            int numGranules = 0;
+
+            public boolean visit(int item) throws IOException {
+                final SimpleFeature granule = index.getFeature(item);
+                if (!filter.evaluate(granule)) {
+                    return true;
+                }
+                visitor.visit(granule);
+                numGranules++;
+                return maxGranules <= 0 || numGranules < maxGranules;
+            }
+        });
+    }
+
+    @Override
+    public void getGranuleDescriptors(final Query q, final GranuleCatalogVisitor visitor)
+            throws IOException {
+        Utilities.ensureNonNull("q", q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            final PackedGranuleIndex index = isSorted(q) ? null : getIndex(lock, q.getTypeName());
+            if (index == null) {
+                wrappedCatalogue.getGranuleDescriptors(q, visitor);
+                return;
+            }
+
+            // ROI
+            final Utils.BBOXFilterExtractor bboxExtractor = new Utils.BBOXFilterExtractor();
+            q.getFilter().accept(bboxExtractor, null);
+            final ReferencedEnvelope requestedBBox = bboxExtractor.getBBox();
+            final Geometry intersectionGeometry = requestedBBox != null ? JTS
+                    .toGeometry(requestedBBox) : null;
+
+            query(index, q, new GranuleVisitor() {
+                public void visit(SimpleFeature sf) throws IOException {
+                    String featureId = sf.getID();
+                    GranuleDescriptor granule = descriptorsCache.get(featureId);
+                    if (granule == null) {
+                        // create the granule descriptor
+                        MultiLevelROI footprint = getGranuleFootprint(sf);
+                        if (footprint != null && footprint.isEmpty()) {
+                            return;
+                        }
+                        granule = new GranuleDescriptor(sf,
+                                wrappedCatalogue.suggestedRasterSPI,
+                                wrappedCatalogue.pathType,
+                                wrappedCatalogue.locationAttribute,
+                                wrappedCatalogue.parentLocation,
+                                footprint,
+                                wrappedCatalogue.heterogeneous,
+                                wrappedCatalogue.hints); // retain hints since this may contain a reader or anything
+                        descriptorsCache.put(featureId, granule);
+                    }
+
+                    // check ROI inclusion
+                    final Geometry footprint = granule.getFootprint();
+                    if (intersectionGeometry == null || footprint == null
+                            || polygonOverlap(footprint, intersectionGeometry)) {
+                        visitor.visit(granule, null);
+                    } else if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine("Skipping granule " + granule
+                                + "\n since its ROI does not intersect the requested area");
+                    }
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean polygonOverlap(Geometry g1, Geometry g2) {
+        Geometry intersection = g1.intersection(g2);
+        return intersection != null && intersection.getDimension() == 2;
+    }
+
+    @Override
+    public SimpleFeatureCollection getGranules(Query q) throws IOException {
+        q = mergeHints(q);
+        Utilities.ensureNonNull("q", q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            final PackedGranuleIndex index = isSorted(q) ? null : getIndex(lock, q.getTypeName());
+            if (index == null) {
+                return wrappedCatalogue.getGranules(q);
+            }
+            final ListFeatureCollection retVal = new ListFeatureCollection(index.schema);
+            query(index, q, new GranuleVisitor() {
+                public void visit(SimpleFeature granule) throws IOException {
+                    retVal.add(granule);
+                }
+            });
+            return retVal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getGranulesCount(Query q) throws IOException {
+        q = mergeHints(q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            final PackedGranuleIndex index = getIndex(lock, q.getTypeName());
+            if (index == null) {
+                return wrappedCatalogue.getGranulesCount(q);
+            }
+            if (q.getFilter() == null || q.getFilter() == Filter.INCLUDE) {
+                int count = index.getNumItems();
+                return q.getMaxFeatures() > 0 ? Math.min(count, q.getMaxFeatures()) : count;
+            }
+            final int[] count = new int[1];
+            query(index, q, new GranuleVisitor() {
+                public void visit(SimpleFeature granule) throws IOException {
+                    count[0]++;
+                }
+            });
+            return count[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void computeAggregateFunction(Query q, final FeatureCalc function) throws IOException {
+        q = mergeHints(q);
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            final PackedGranuleIndex index = getIndex(lock, q.getTypeName());
+            if (index == null) {
+                wrappedCatalogue.computeAggregateFunction(q, function);
+                return;
+            }
+
+            // the dimension domains and extrema are read straight out of the index nodes
+            if ((q.getFilter() == null || q.getFilter() == Filter.INCLUDE)
+                    && q.getMaxFeatures() <= 0) {
+                Expression expression = null;
+                if (function instanceof UniqueVisitor) {
+                    expression = ((UniqueVisitor) function).getExpression();
+                } else if (function instanceof MinVisitor) {
+                    expression = ((MinVisitor) function).getExpression();
+                } else if (function instanceof MaxVisitor) {
+                    expression = ((MaxVisitor) function).getExpression();
+                }
+                int column = expression instanceof PropertyName ? index
+                        .getColumn(((PropertyName) expression).getPropertyName()) : -1;
+                if (column >= 0) {
+                    computeAggregateFunction(index, column, function);
+                    return;
+                }
+            }
+
+            query(index, q, new GranuleVisitor() {
+                public void visit(SimpleFeature granule) throws IOException {
+                    function.visit(granule);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void computeAggregateFunction(PackedGranuleIndex index, int column, FeatureCalc function) {
+        if (function instanceof UniqueVisitor) {
+            Set<Object> values = new HashSet<Object>();
+            for (int item = 0; item < index.getNumItems(); item++) {
+                Object value = index.getValue(item, column);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            ((UniqueVisitor) function).setValue(values);
+        } else {
+            Object value = function instanceof MinVisitor ? index.getMinimum(column) : index
+                    .getMaximum(column);
+            if (value != null) {
+                if (function instanceof MinVisitor) {
+                    ((MinVisitor) function).setValue(value);
+                } else {
+                    ((MaxVisitor) function).setValue(value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public BoundingBox getBounds(String typeName) {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getBounds(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException
+     */
+    private void checkStore() throws IllegalStateException {
+        if (wrappedCatalogue == null)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+    }
+
+    @Override
+    public SimpleFeatureType getType(String typeName) throws IOException {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getType(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getTypeNames();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public QueryCapabilities getQueryCapabilities(String typeName) {
+        final Lock lock = rwLock.readLock();
+        try {
+            lock.lock();
+            checkStore();
+            return wrappedCatalogue.getQueryCapabilities(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addGranules(String typeName, Collection<SimpleFeature> granules,
+            Transaction transaction) throws IOException {
+        final Lock lock = rwLock.writeLock();
+        try {
+            lock.lock();
+            checkStore();
+            wrappedCatalogue.addGranules(typeName, granules, transaction);
+            invalidate(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeGranules(Query query) {
+        final Lock lock = rwLock.writeLock();
+        try {
+            lock.lock();
+            checkStore();
+            final int val = wrappedCatalogue.removeGranules(query);
+            if (val >= 1) {
+                invalidate(query.getTypeName());
+            }
+            return val;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void createType(String namespace, String typeName, String typeSpec)
+            throws IOException, SchemaException {
+        wrappedCatalogue.createType(namespace, typeName, typeSpec);
+    }
+
+    @Override
+    public void createType(SimpleFeatureType featureType) throws IOException {
+        wrappedCatalogue.createType(featureType);
+    }
+
+    @Override
+    public void createType(String identification, String typeSpec) throws SchemaException,
+            IOException {
+        wrappedCatalogue.createType(identification, typeSpec);
+    }
+
+    @Override
+    public void removeType(String typeName) throws IOException {
+        final Lock lock = rwLock.writeLock();
+        try {
+            lock.lock();
+            checkStore();
+            wrappedCatalogue.removeType(typeName);
+            invalidate(typeName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        final Lock l = rwLock.writeLock();
+        try {
+            l.lock();
+            for (PackedGranuleIndex index : indexes.values()) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    if (LOGGER.isLoggable(Level.FINE))
+                        LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+                }
+            }
+            if (wrappedCatalogue != null) {
+                try {
+                    wrappedCatalogue.dispose();
+                } catch (Exception e) {
+                    if (LOGGER.isLoggable(Level.FINE))
+                        LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+                }
+            }
+            if (multiScaleROIProvider != null) {
+                multiScaleROIProvider.dispose();
+            }
+        } finally {
+            indexes.clear();
+            descriptorsCache.clear();
+            wrappedCatalogue = null;
+            multiScaleROIProvider = null;
+            l.unlock();
+        }
+    }
+}
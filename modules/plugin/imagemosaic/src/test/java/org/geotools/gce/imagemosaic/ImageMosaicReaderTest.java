@@ -303,6 +303,69 @@ public class ImageMosaicReaderTest extends Assert{
 		TestUtils.checkCoverage(reader, new GeneralParameterValue[] {gg,useJai ,tileSize}, "overviews test");
 	}
 	
+    /**
+     * Tests that the streaming mosaic mode, folding a few granules at a time into the
+     * output, produces the same image as the default mode.
+     */
+    @Test
+    public void streamingMosaic() throws Exception {
+        assertStreamedMosaic(rgbURL, 2);
+    }
+
+    /**
+     * Tests the streaming mosaic mode against the default one when every granule is written on its
+     * own into the output, over a background.
+     */
+    @Test
+    public void streamingMosaicMultiGranule() throws Exception {
+        final ParameterValue<double[]> bkg = ImageMosaicFormat.BACKGROUND_VALUES.createValue();
+        bkg.setValue(new double[] { 10 });
+        assertStreamedMosaic(rgbURL, 1, bkg);
+        assertStreamedMosaic(grayURL, 1, bkg);
+        assertStreamedMosaic(overviewURL, 1);
+    }
+
+    private void assertStreamedMosaic(final URL url, final int granulesReadAhead,
+            final GeneralParameterValue... parameters) throws Exception {
+        final AbstractGridFormat format = TestUtils.getFormat(url);
+        final ImageMosaicReader reader = TestUtils.getReader(url, format);
+        try {
+            final ParameterValue<Boolean> useJai = AbstractGridFormat.USE_JAI_IMAGEREAD.createValue();
+            useJai.setValue(false);
+            final List<GeneralParameterValue> defaults = new ArrayList<GeneralParameterValue>(
+                    Arrays.asList(parameters));
+            defaults.add(useJai);
+            final GridCoverage2D expected = TestUtils.getCoverage(reader,
+                    defaults.toArray(new GeneralParameterValue[defaults.size()]), true);
+
+            for (boolean multithreading : new boolean[] { false, true }) {
+                final ParameterValue<Boolean> streaming = ImageMosaicFormat.STREAMING_MOSAIC.createValue();
+                streaming.setValue(true);
+                final ParameterValue<Integer> readAhead = ImageMosaicFormat.STREAMING_READ_AHEAD.createValue();
+                readAhead.setValue(granulesReadAhead);
+                final ParameterValue<Boolean> multithread = ImageMosaicFormat.ALLOW_MULTITHREADING.createValue();
+                multithread.setValue(multithreading);
+                final List<GeneralParameterValue> streamed = new ArrayList<GeneralParameterValue>(defaults);
+                streamed.addAll(Arrays.asList(streaming, readAhead, multithread));
+                final GridCoverage2D actual = TestUtils.getCoverage(reader,
+                        streamed.toArray(new GeneralParameterValue[streamed.size()]), true);
+
+                final Raster expectedData = expected.getRenderedImage().getData();
+                final Raster actualData = actual.getRenderedImage().getData();
+                assertEquals(expectedData.getBounds(), actualData.getBounds());
+                assertEquals(expectedData.getNumBands(), actualData.getNumBands());
+                final Rectangle bounds = expectedData.getBounds();
+                assertTrue(Arrays.equals(
+                        expectedData.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null),
+                        actualData.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null)));
+                actual.dispose(true);
+            }
+            expected.dispose(true);
+        } finally {
+            reader.dispose();
+        }
+    }
+
     /**
      * 
      * @throws IOException
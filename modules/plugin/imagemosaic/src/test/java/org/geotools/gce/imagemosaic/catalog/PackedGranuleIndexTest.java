@@ -0,0 +1,248 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Testing {@link PackedGranuleIndex} and {@link PackedGranuleIndexWriter}.
+ *
+ * @source $URL$
+ */
+public class PackedGranuleIndexTest extends Assert {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final long DAY = 24 * 3600 * 1000L;
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> granules;
+
+    File file;
+
+    PackedGranuleIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("granules",
+                "the_geom:Polygon,location:String,ingestion:java.util.Date,elevation:Double");
+
+        // a 10x10 grid of granules for each of 10 days, with a few missing elevations
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        granules = new ArrayList<SimpleFeature>();
+        for (int day = 0; day < 10; day++) {
+            for (int i = 0; i < 100; i++) {
+                int x = i % 10;
+                int y = i / 10;
+                builder.add(JTS.toGeometry(new Envelope(x * 10, x * 10 + 10, y * 10, y * 10 + 10)));
+                builder.add("granule_" + day + "_" + i + ".tif");
+                builder.add(new Date(day * DAY));
+                builder.add(i % 7 == 0 ? null : Double.valueOf(i % 5 * 100));
+                granules.add(builder.buildFeature("granules." + (day * 100 + i)));
+            }
+        }
+
+        file = File.createTempFile("granules", ".gidx");
+        PackedGranuleIndexWriter writer = new PackedGranuleIndexWriter(file, schema, 8);
+        for (SimpleFeature granule : granules) {
+            writer.add(granule);
+        }
+        writer.write();
+        assertFalse(writer.recordsFile.exists());
+        index = new PackedGranuleIndex(file, schema);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (index != null) {
+            index.close();
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        assertEquals(1000, index.getNumItems());
+        assertEquals(new Envelope(0, 100, 0, 100), index.getBounds());
+        assertEquals(0, index.getColumn("ingestion"));
+        assertEquals(1, index.getColumn("elevation"));
+        assertEquals(-1, index.getColumn("location"));
+        assertEquals(new Date(0), index.getMinimum(0));
+        assertEquals(new Date(9 * DAY), index.getMaximum(0));
+        assertEquals(0d, index.getMinimum(1));
+        assertEquals(400d, index.getMaximum(1));
+    }
+
+    @Test
+    public void testFeatureRoundTrip() throws Exception {
+        final List<SimpleFeature> decoded = new ArrayList<SimpleFeature>();
+        index.query(Filter.INCLUDE, new PackedGranuleIndex.Visitor() {
+            public boolean visit(int item) throws IOException {
+                decoded.add(index.getFeature(item));
+                return true;
+            }
+        });
+        assertEquals(granules.size(), decoded.size());
+        Set<String> ids = new TreeSet<String>();
+        for (SimpleFeature feature : decoded) {
+            ids.add(feature.getID());
+            int position = Integer.parseInt(feature.getID().substring("granules.".length()));
+            SimpleFeature original = granules.get(position);
+            assertEquals(original.getDefaultGeometry(), feature.getDefaultGeometry());
+            assertEquals(original.getAttribute("location"), feature.getAttribute("location"));
+            assertEquals(original.getAttribute("ingestion"), feature.getAttribute("ingestion"));
+            assertEquals(original.getAttribute("elevation"), feature.getAttribute("elevation"));
+        }
+        assertEquals(granules.size(), ids.size());
+    }
+
+    @Test
+    public void testColumnValues() throws Exception {
+        index.query(Filter.INCLUDE, new PackedGranuleIndex.Visitor() {
+            public boolean visit(int item) throws IOException {
+                SimpleFeature feature = index.getFeature(item);
+                assertEquals(feature.getAttribute("ingestion"), index.getValue(item, 0));
+                assertEquals(feature.getAttribute("elevation"), index.getValue(item, 1));
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testBBOX() throws Exception {
+        assertQuery(FF.bbox("the_geom", 15, 15, 32, 25, null));
+        assertQuery(FF.bbox("the_geom", 1000, 1000, 2000, 2000, null));
+        assertEquals(0, countCandidates(FF.bbox("the_geom", 1000, 1000, 2000, 2000, null)));
+    }
+
+    @Test
+    public void testTime() throws Exception {
+        Date day = new Date(3 * DAY);
+        assertQuery(FF.equals(FF.property("ingestion"), FF.literal(day)));
+        assertQuery(FF.and(FF.bbox("the_geom", 15, 15, 32, 25, null),
+                FF.greaterOrEqual(FF.property("ingestion"), FF.literal(day))));
+        assertQuery(FF.between(FF.property("ingestion"), FF.literal(day), FF.literal(new Date(
+                5 * DAY))));
+        assertQuery(FF.less(FF.literal(day), FF.property("ingestion")));
+
+        // the ingestion ranges of the nodes prune most of the tree
+        assertTrue(countCandidates(FF.equals(FF.property("ingestion"), FF.literal(day))) < 200);
+    }
+
+    @Test
+    public void testElevation() throws Exception {
+        assertQuery(FF.equals(FF.property("elevation"), FF.literal(200)));
+        assertQuery(FF.lessOrEqual(FF.property("elevation"), FF.literal("150")));
+        assertQuery(FF.and(FF.greater(FF.property("elevation"), FF.literal(100)),
+                FF.less(FF.property("elevation"), FF.literal(100))));
+    }
+
+    @Test
+    public void testOr() throws Exception {
+        assertQuery(FF.or(FF.equals(FF.property("elevation"), FF.literal(100)),
+                FF.equals(FF.property("elevation"), FF.literal(300))));
+        assertQuery(FF.or(FF.bbox("the_geom", 0, 0, 5, 5, null),
+                FF.equals(FF.property("ingestion"), FF.literal(new Date(7 * DAY)))));
+        assertQuery(FF.or(Filter.EXCLUDE, FF.bbox("the_geom", 95, 95, 100, 100, null)));
+    }
+
+    @Test
+    public void testExclude() throws Exception {
+        assertQuery(Filter.EXCLUDE);
+        assertQuery(FF.and(FF.bbox("the_geom", 0, 0, 5, 5, null), Filter.EXCLUDE));
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final int[] count = new int[1];
+        index.query(Filter.INCLUDE, new PackedGranuleIndex.Visitor() {
+            public boolean visit(int item) throws IOException {
+                return ++count[0] < 10;
+            }
+        });
+        assertEquals(10, count[0]);
+    }
+
+    @Test
+    public void testSchemaMismatch() throws Exception {
+        SimpleFeatureType other = DataUtilities.createType("granules",
+                "the_geom:Polygon,location:String,ingestion:java.util.Date");
+        try {
+            new PackedGranuleIndex(file, other);
+            fail("The index has been built for another schema");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    int countCandidates(Filter filter) throws IOException {
+        final int[] count = new int[1];
+        index.query(filter, new PackedGranuleIndex.Visitor() {
+            public boolean visit(int item) throws IOException {
+                count[0]++;
+                return true;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Checks the index returns all the granules matching the filter, and that the ones it returns
+     * at least intersect its bounds
+     */
+    void assertQuery(final Filter filter) throws IOException {
+        Set<String> expected = new TreeSet<String>();
+        for (SimpleFeature granule : granules) {
+            if (filter.evaluate(granule)) {
+                expected.add(granule.getID());
+            }
+        }
+        final Set<String> actual = new TreeSet<String>();
+        index.query(filter, new PackedGranuleIndex.Visitor() {
+            public boolean visit(int item) throws IOException {
+                SimpleFeature feature = index.getFeature(item);
+                if (filter.evaluate(feature)) {
+                    actual.add(feature.getID());
+                }
+                return true;
+            }
+        });
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.h2.H2DataStoreFactory;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.gce.imagemosaic.Utils;
+import org.geotools.geometry.jts.JTS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Testing {@link PackedRTreeGranuleCatalog} on top of a database index.
+ *
+ * @source $URL$
+ */
+public class PackedRTreeGranuleCatalogTest extends Assert {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final String TYPE_NAME = "granules";
+
+    File directory;
+
+    Properties params;
+
+    SimpleFeatureType schema;
+
+    PackedRTreeGranuleCatalog catalog;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("packed", "catalog");
+        directory.delete();
+        directory.mkdirs();
+
+        params = new Properties();
+        params.put("dbtype", "h2");
+        params.put("database", "granules");
+        params.put(Utils.Prop.PARENT_LOCATION, DataUtilities.fileToURL(directory).toString());
+        params.put(Utils.Prop.TYPENAME, TYPE_NAME);
+        params.put(Utils.Prop.LOCATION_ATTRIBUTE, Utils.DEFAULT_LOCATION_ATTRIBUTE);
+
+        schema = DataUtilities.createType(TYPE_NAME, "the_geom:Polygon,location:String");
+        DataStore store = openStore();
+        try {
+            store.createSchema(schema);
+        } finally {
+            store.dispose();
+        }
+        addGranules(0, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (catalog != null) {
+            catalog.dispose();
+        }
+        FileUtils.deleteQuietly(directory);
+    }
+
+    DataStore openStore() throws IOException {
+        Map<String, Serializable> storeParams = new HashMap<String, Serializable>();
+        storeParams.put("dbtype", "h2");
+        storeParams.put("database", "file:" + new File(directory, "granules").getPath());
+        return new H2DataStoreFactory().createDataStore(storeParams);
+    }
+
+    /**
+     * Adds granules straight to the database, behind the catalog back
+     */
+    void addGranules(int first, int last) throws IOException {
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        List<SimpleFeature> granules = new ArrayList<SimpleFeature>();
+        for (int i = first; i < last; i++) {
+            builder.add(JTS.toGeometry(new Envelope(i * 10, i * 10 + 10, 0, 10)));
+            builder.add("granule_" + i + ".tif");
+            granules.add(builder.buildFeature(null));
+        }
+        DataStore store = openStore();
+        try {
+            SimpleFeatureStore featureStore = (SimpleFeatureStore) store
+                    .getFeatureSource(TYPE_NAME);
+            featureStore.setTransaction(Transaction.AUTO_COMMIT);
+            featureStore.addFeatures(DataUtilities.collection(granules));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    PackedRTreeGranuleCatalog openCatalog() {
+        if (catalog != null) {
+            catalog.dispose();
+        }
+        catalog = new PackedRTreeGranuleCatalog(params, new H2DataStoreFactory(), null);
+        return catalog;
+    }
+
+    @Test
+    public void testStoreChangedAfterIndexing() throws Exception {
+        assertEquals(10, openCatalog().getGranules(new Query(TYPE_NAME)).size());
+        File index = new File(directory, TYPE_NAME + PackedRTreeGranuleCatalog.INDEX_EXTENSION);
+        assertTrue(index.exists());
+        catalog.dispose();
+        catalog = null;
+
+        // the persisted index must not hide the granules added behind the catalog back
+        addGranules(10, 15);
+        assertEquals(15, openCatalog().getGranulesCount(new Query(TYPE_NAME)));
+        assertEquals(15, catalog.getGranules(new Query(TYPE_NAME)).size());
+        Query query = new Query(TYPE_NAME, FF.bbox("the_geom", 125, 0, 135, 10, null));
+        assertEquals(2, catalog.getGranules(query).size());
+    }
+
+    @Test
+    public void testSortBy() throws Exception {
+        Query query = new Query(TYPE_NAME);
+        query.setSortBy(new SortBy[] { FF.sort("location", SortOrder.DESCENDING) });
+        SimpleFeatureCollection granules = openCatalog().getGranules(query);
+        List<String> locations = new ArrayList<String>();
+        SimpleFeatureIterator it = granules.features();
+        try {
+            while (it.hasNext()) {
+                locations.add((String) it.next().getAttribute("location"));
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(10, locations.size());
+        for (int i = 1; i < locations.size(); i++) {
+            assertTrue(locations.get(i - 1).compareTo(locations.get(i)) >= 0);
+        }
+    }
+}
@@ -43,5 +43,10 @@ public class DB2PrimaryKeyTest extends JDBCPrimaryKeyTest {
         //db2 does not do auto generated primary keys
     }
 
+    @Override
+    public void testAutoGeneratedPrimaryKeyBatchInsert() throws Exception {
+        //db2 does not do auto generated primary keys
+    }
+
 
 }
@@ -36,4 +36,9 @@ public class MySQLPrimaryKeyTest extends JDBCPrimaryKeyTest {
         //seems mysql does not really do explicit sequences...
     }
 
+    @Override
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        //seems mysql does not really do explicit sequences...
+    }
+
 }
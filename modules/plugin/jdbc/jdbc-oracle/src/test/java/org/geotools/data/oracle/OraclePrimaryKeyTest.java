@@ -35,4 +35,9 @@ public class OraclePrimaryKeyTest extends JDBCPrimaryKeyTest {
     public void testAutoGeneratedPrimaryKey() throws Exception {
         //oracle does not do auto generated primary keys
     }
+
+    @Override
+    public void testAutoGeneratedPrimaryKeyBatchInsert() throws Exception {
+        //oracle does not do auto generated primary keys
+    }
 }
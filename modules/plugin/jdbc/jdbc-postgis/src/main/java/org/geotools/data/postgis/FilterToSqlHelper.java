@@ -31,6 +31,7 @@ import java.util.Map;
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.geotools.filter.function.FilterFunction_strConcat;
 import org.geotools.filter.function.FilterFunction_strEndsWith;
 import org.geotools.filter.function.FilterFunction_strEqualsIgnoreCase;
@@ -54,6 +55,7 @@ import org.geotools.geometry.jts.JTS;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
 import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.FilterFactory;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.Function;
 import org.opengis.filter.expression.Literal;
@@ -317,6 +319,79 @@ class FilterToSqlHelper {
         out.write(closingParenthesis);
     }
 
+    /**
+     * Encodes the spatial filters of a large disjunction as a semi join against an array of the
+     * literal geometries, so that the database tests each row against the geometries with its
+     * own index instead of evaluating a chain of ORs. Only homogeneous Intersects/BBOX or
+     * DWithin (same distance) filters against geometry columns are encoded this way.
+     */
+    boolean visitSpatialDisjunction(IndexedSpatialDisjunction disjunction, Object extraData)
+            throws IOException {
+        if (isCurrentGeography()) {
+            // the literals would have to be clipped one by one
+            return false;
+        }
+        List<BinarySpatialOperator> filters = disjunction.getSpatialFilters();
+        DWithin distance = filters.get(0) instanceof DWithin ? (DWithin) filters.get(0) : null;
+        boolean loose = looseBBOXEnabled;
+        for (BinarySpatialOperator filter : filters) {
+            if (distance != null) {
+                if (!(filter instanceof DWithin)
+                        || ((DWithin) filter).getDistance() != distance.getDistance()
+                        || !equals(((DWithin) filter).getDistanceUnits(),
+                                distance.getDistanceUnits())) {
+                    return false;
+                }
+            } else if (filter instanceof BBOX) {
+                // fine as is
+            } else if (filter instanceof Intersects) {
+                loose = false;
+            } else {
+                return false;
+            }
+        }
+
+        PropertyName property = disjunction.getProperty();
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+        out.write("(");
+        // a single && against the overall envelope lets the planner use the spatial index
+        property.accept(delegate, extraData);
+        out.write(" && ");
+        ff.literal(JTS.toGeometry(disjunction.getBounds())).accept(delegate, extraData);
+        out.write(" AND EXISTS (SELECT 1 FROM unnest(ARRAY[");
+        for (int i = 0; i < filters.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            BinarySpatialOperator filter = filters.get(i);
+            Expression literal = filter.getExpression1() instanceof Literal ? filter
+                    .getExpression1() : filter.getExpression2();
+            literal.accept(delegate, extraData);
+        }
+        out.write("]) AS gt_geoms(geom) WHERE ");
+        if (distance != null) {
+            out.write("ST_DWithin(");
+            property.accept(delegate, extraData);
+            out.write(", gt_geoms.geom, ");
+            out.write(toMeters(distance.getDistance(), distance.getDistanceUnits()));
+            out.write(")");
+        } else {
+            property.accept(delegate, extraData);
+            out.write(" && gt_geoms.geom");
+            if (!loose) {
+                out.write(" AND ST_Intersects(");
+                property.accept(delegate, extraData);
+                out.write(", gt_geoms.geom)");
+            }
+        }
+        out.write("))");
+        return true;
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
     boolean isCurrentGeography() {
         AttributeDescriptor geom = null;
         if(delegate instanceof PostgisPSFilterToSql) {
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Wrapper;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Loads rows into a PostgreSQL table using <code>COPY ... FROM STDIN</code>, which is
+ * significantly faster than running one INSERT per row, even when batched.
+ * <p>
+ * Rows are encoded in the COPY text format, geometries are sent as hex encoded WKB with an
+ * <code>SRID=</code> prefix. The data is streamed to the server in chunks, so the whole load is
+ * never materialized in memory as a single string.
+ * </p>
+ *
+ * @source $URL$
+ */
+class PostGISCopyLoader {
+
+    static final Logger LOGGER = Logging.getLogger(PostGISCopyLoader.class);
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** size of the chunks sent to the server */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    static final UnWrapper UNWRAPPER_NOT_FOUND = new UnWrapper() {
+
+        public boolean canUnwrap(Connection conn) {
+            return false;
+        }
+
+        public Connection unwrap(Connection conn) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean canUnwrap(java.sql.Statement st) {
+            return false;
+        }
+
+        public java.sql.Statement unwrap(java.sql.Statement statement) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    PostGISDialect dialect;
+
+    UnWrapper uw;
+
+    PostGISCopyLoader(PostGISDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Loads the rows, see {@link PostGISDialect#insertBulk}
+     */
+    void load(String schemaName, String tableName, List<String> columnNames,
+            List<Class> bindings, int[] srids, int[] dimensions, List<Object[]> rows,
+            Connection cx) throws SQLException, IOException {
+        String sql = copySQL(schemaName, tableName, columnNames);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Loading " + rows.size() + " rows with: " + sql);
+        }
+
+        WKBWriter[] writers = new WKBWriter[columnNames.size()];
+        for (int i = 0; i < writers.length; i++) {
+            if (Geometry.class.isAssignableFrom(bindings.get(i))) {
+                int dimension = dimensions[i] == 3 ? 3 : 2;
+                writers[i] = new WKBWriter(dimension);
+            }
+        }
+
+        CopyManager copyManager = unwrapConnection(cx).getCopyAPI();
+        CopyIn copy = copyManager.copyIn(sql);
+        try {
+            StringBuilder sb = new StringBuilder(CHUNK_SIZE + 1024);
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        sb.append('\t');
+                    }
+                    encodeValue(row[i], writers[i], srids[i], sb);
+                }
+                sb.append('\n');
+
+                if (sb.length() >= CHUNK_SIZE) {
+                    write(copy, sb);
+                }
+            }
+            write(copy, sb);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Failed to cancel the copy operation", e);
+                }
+            }
+        }
+    }
+
+    String copySQL(String schemaName, String tableName, List<String> columnNames) {
+        StringBuffer sql = new StringBuffer("COPY ");
+        if (schemaName != null && !"".equals(schemaName)) {
+            dialect.encodeSchemaName(schemaName, sql);
+            sql.append(".");
+        }
+        dialect.encodeTableName(tableName, sql);
+        sql.append(" (");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            dialect.encodeColumnName(columnNames.get(i), sql);
+        }
+        sql.append(") FROM STDIN");
+        return sql.toString();
+    }
+
+    void write(CopyIn copy, StringBuilder sb) throws SQLException {
+        if (sb.length() > 0) {
+            byte[] bytes = sb.toString().getBytes(UTF8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            sb.setLength(0);
+        }
+    }
+
+    void encodeValue(Object value, WKBWriter writer, int srid, StringBuilder sb) {
+        if (value == null) {
+            sb.append("\\N");
+        } else if (writer != null && value instanceof Geometry) {
+            Geometry g = (Geometry) value;
+            if (g.isEmpty()) {
+                // consistent with the insert statements
+                sb.append("\\N");
+                return;
+            }
+            if (g instanceof LinearRing) {
+                //postgis does not handle linear rings, convert to just a line string
+                g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+            }
+            if (srid <= 0) {
+                srid = g.getSRID();
+            }
+            if (srid > 0) {
+                sb.append("SRID=").append(srid).append(';');
+            }
+            appendHex(writer.write(g), sb);
+        } else if (value instanceof byte[]) {
+            // bytea hex format, the backslash needs to be escaped for COPY
+            sb.append("\\\\x");
+            appendHex((byte[]) value, sb);
+        } else if (value instanceof Boolean) {
+            sb.append(((Boolean) value).booleanValue() ? 't' : 'f');
+        } else if (value instanceof Number) {
+            sb.append(value);
+        } else {
+            if (value instanceof Date && !(value instanceof java.sql.Date)
+                    && !(value instanceof java.sql.Time) && !(value instanceof Timestamp)) {
+                value = new Timestamp(((Date) value).getTime());
+            }
+            String text = Converters.convert(value, String.class);
+            escape(text != null ? text : value.toString(), sb);
+        }
+    }
+
+    /**
+     * Escapes the characters that have a special meaning in the COPY text format
+     */
+    static void escape(String text, StringBuilder sb) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    static void appendHex(byte[] bytes, StringBuilder sb) {
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            sb.append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+        }
+    }
+
+    /**
+     * Obtains the native PostgreSQL connection, which gives access to the COPY API
+     */
+    PGConnection unwrapConnection(Connection cx) throws SQLException {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+
+        try {
+            // first lookup ever? (we have UNWRAPPER_NOT_FOUND as a sentinel for a lookup that
+            // will not work)
+            if (uw == null) {
+                UnWrapper unwrapper = DataSourceFinder.getUnWrapper(cx);
+                uw = unwrapper == null ? UNWRAPPER_NOT_FOUND : unwrapper;
+            }
+            if (uw != UNWRAPPER_NOT_FOUND) {
+                Connection uwcx = uw.unwrap(cx);
+                if (uwcx instanceof PGConnection) {
+                    return (PGConnection) uwcx;
+                }
+            } else if (cx instanceof Wrapper) {
+                // try to use java 6 unwrapping
+                try {
+                    Wrapper w = cx;
+                    if (w.isWrapperFor(PGConnection.class)) {
+                        return w.unwrap(PGConnection.class);
+                    }
+                } catch (Throwable t) {
+                    // not a mistake, old DBCP versions will throw an Error here
+                    LOGGER.log(Level.FINER, "Failed to unwrap connection using java 6 facilities",
+                            t);
+                }
+            }
+        } catch (IOException e) {
+            throw (SQLException) new SQLException(
+                    "Could not obtain native PostgreSQL connection.").initCause(e);
+        }
+
+        throw new SQLException("Could not obtain native PostgreSQL connection for "
+                + cx.getClass());
+    }
+}
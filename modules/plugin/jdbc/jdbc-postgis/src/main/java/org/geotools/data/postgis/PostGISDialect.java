@@ -134,6 +134,10 @@ public class PostGISDialect extends BasicSQLDialect {
     
     boolean simplifyEnabled = true;
     
+    boolean copyInsertEnabled = false;
+    
+    PostGISCopyLoader copyLoader;
+    
     Version version, pgsqlVersion;
 
     public boolean isLooseBBOXEnabled() {
@@ -176,6 +180,20 @@ public class PostGISDialect extends BasicSQLDialect {
     public void setSimplifyEnabled(boolean simplifyEnabled) {
         this.simplifyEnabled = simplifyEnabled;
     }
+    
+    public boolean isCopyInsertEnabled() {
+        return copyInsertEnabled;
+    }
+
+    /**
+     * Enables/disables usage of COPY to load the features when multiple
+     * features are inserted at once
+     * 
+     * @see PostgisNGDataStoreFactory#COPY_INSERT
+     */
+    public void setCopyInsertEnabled(boolean copyInsertEnabled) {
+        this.copyInsertEnabled = copyInsertEnabled;
+    }
 
 
     @Override
@@ -697,6 +715,45 @@ public class PostGISDialect extends BasicSQLDialect {
         return null;
     }
 
+    @Override
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        Statement st = cx.createStatement();
+        try {
+            String sql = "SELECT nextval('" + sequenceName + "') FROM generate_series(1, "
+                    + count + ")";
+
+            dataStore.getLogger().fine(sql);
+            ResultSet rs = st.executeQuery(sql);
+            try {
+                List<Object> values = new ArrayList<Object>(count);
+                while (rs.next()) {
+                    values.add(rs.getLong(1));
+                }
+                return values;
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+    }
+    
+    @Override
+    public boolean isBulkInsertSupported() {
+        return copyInsertEnabled;
+    }
+    
+    @Override
+    public void insertBulk(String schemaName, String tableName, List<String> columnNames,
+            List<Class> bindings, int[] srids, int[] dimensions, List<Object[]> rows,
+            Connection cx) throws SQLException, IOException {
+        if (copyLoader == null) {
+            copyLoader = new PostGISCopyLoader(this);
+        }
+        copyLoader.load(schemaName, tableName, columnNames, bindings, srids, dimensions, rows, cx);
+    }
+
     @Override
     public boolean lookupGeneratedValuesPostInsert() {
         return true;
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
 import java.util.Map;
 
 import org.geotools.factory.Hints;
@@ -246,4 +247,23 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
             Connection cx) throws SQLException {
         return delegate.getGeometryDimension(schemaName, tableName, columnName, cx);
     }
+
+    @Override
+    public List<Object> getNextSequenceValues(String schemaName, String sequenceName, int count,
+            Connection cx) throws SQLException {
+        return delegate.getNextSequenceValues(schemaName, sequenceName, count, cx);
+    }
+
+    @Override
+    public boolean isBulkInsertSupported() {
+        return delegate.isBulkInsertSupported();
+    }
+
+    @Override
+    public void insertBulk(String schemaName, String tableName, List<String> columnNames,
+            List<Class> bindings, int[] srids, int[] dimensions, List<Object[]> rows,
+            Connection cx) throws SQLException, IOException {
+        delegate.insertBulk(schemaName, tableName, columnNames, bindings, srids, dimensions,
+                rows, cx);
+    }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.geotools.jdbc.JDBCDataStore;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.filter.expression.Add;
@@ -102,6 +103,13 @@ public class PostgisFilterToSQL extends FilterToSQL {
         return helper.visitBinarySpatialOperator(filter, e1, e2, extraData);
     }
 
+    @Override
+    protected boolean visitSpatialDisjunction(IndexedSpatialDisjunction disjunction,
+            Object extraData) throws IOException {
+        helper.out = out;
+        return helper.visitSpatialDisjunction(disjunction, extraData);
+    }
+
     GeometryDescriptor getCurrentGeometry() {
         return currentGeometry;
     }
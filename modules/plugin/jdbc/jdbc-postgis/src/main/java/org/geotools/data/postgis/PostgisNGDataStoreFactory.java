@@ -85,6 +85,19 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
     public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification", Boolean.class, 
             "When enabled, operations such as map rendering will pass a hint that will enable the usage of ST_Simplify", false, Boolean.TRUE);
     
+    /**
+     * The batch insert size used when COPY inserts are enabled and the batch size is not set
+     */
+    static final int DEFAULT_COPY_BATCH_SIZE = 1000;
+
+    /**
+     * Enables usage of COPY to load the features when more than one feature is inserted at once
+     */
+    public static final Param COPY_INSERT = new Param("Use COPY for bulk inserts", Boolean.class,
+            "When enabled, features added in batches are loaded with the COPY command instead of " +
+            "INSERT statements. If no batch insert size is specified, it defaults to " + 
+            DEFAULT_COPY_BATCH_SIZE + " features", false, Boolean.FALSE, 
+            new KVP(Param.LEVEL, "advanced"));
     
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
@@ -157,6 +170,13 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
 
+        // check if COPY should be used for bulk inserts (off by default)
+        Boolean copyInsert = (Boolean) COPY_INSERT.lookUp(params);
+        dialect.setCopyInsertEnabled(copyInsert != null && copyInsert);
+        if (dialect.isCopyInsertEnabled() && BATCH_INSERT_SIZE.lookUp(params) == null) {
+            dataStore.setBatchInsertSize(DEFAULT_COPY_BATCH_SIZE);
+        }
+
         return dataStore;
     }
     
@@ -174,6 +194,7 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(COPY_INSERT.key, COPY_INSERT);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
@@ -16,7 +16,10 @@
  */
 package org.geotools.data.postgis;
 
+import java.io.IOException;
+
 import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.spatial.IndexedSpatialDisjunction;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.filter.expression.Expression;
@@ -66,6 +69,13 @@ public class PostgisPSFilterToSql extends PreparedFilterToSQL {
         return helper.visitBinarySpatialOperator(filter, e1, e2, extraData);
     }
 
+    @Override
+    protected boolean visitSpatialDisjunction(IndexedSpatialDisjunction disjunction,
+            Object extraData) throws IOException {
+        helper.out = out;
+        return helper.visitSpatialDisjunction(disjunction, extraData);
+    }
+
     GeometryDescriptor getCurrentGeometry() {
         return currentGeometry;
     }
@@ -22,8 +22,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 
-import org.geotools.data.Base64;
 import org.geotools.data.DataSourceException;
 
 import com.vividsolutions.jts.geom.Geometry;
@@ -44,20 +44,44 @@ import com.vividsolutions.jts.io.WKBWriter;
  * @since 2.4.1
  */
 public class WKBAttributeIO {
+    /** Maps base64 characters to their six bit values, -1 for characters to be skipped */
+    static final byte[] BASE64_DECODE = new byte[128];
+    static {
+        Arrays.fill(BASE64_DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+    
+    /**
+     * Largest decode buffer kept around between reads, a bigger one is dropped once used so that
+     * a single huge geometry does not pin its memory in every pooled reader
+     */
+    static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    static final byte[] EMPTY = new byte[0];
+
     WKBReader wkbr;
-    ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
+    ByteArrayInStream inStream = new ByteArrayInStream(EMPTY);
     GeometryFactory gf;
+    /** reused across reads to hold the decoded base64 contents */
+    byte[] buffer = EMPTY;
 
     public WKBAttributeIO() {
         this(new GeometryFactory());
     }
     
     public WKBAttributeIO(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        setGeometryFactory(gf);
     }
     
     public void setGeometryFactory(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        // the reader keeps its internal buffers across reads, only replace it if needed
+        if (wkbr == null || this.gf != gf) {
+            this.gf = gf;
+            wkbr = new WKBReader(gf);
+        }
     }
 
     /**
@@ -82,6 +106,72 @@ public class WKBAttributeIO {
             return wkbr.read(inStream);
         } catch (Exception e) {
             throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        } finally {
+            // don't keep a reference to the column contents
+            inStream.setBytes(EMPTY);
+        }
+    }
+
+    /**
+     * Decodes the contents of a geometry column, which can be either the raw (E)WKB or its 
+     * base64 encoding as returned by <code>encode(ST_AsEWKB(...), 'base64')</code>.
+     * <p>
+     * The base64 text is decoded into a buffer that is reused across calls, so no intermediate
+     * arrays are allocated in the common case. Buffers larger than {@link #MAX_RETAINED_BUFFER}
+     * are released after use.
+     * </p>
+     */
+    Geometry decode(byte[] bytes) throws IOException {
+        if (bytes == null) // ie. its a null column -> return a null geometry!
+            return null;
+        
+        // raw wkb starts with the byte order marker, which is not a base64 character
+        if (bytes.length > 0 && (bytes[0] == 0 || bytes[0] == 1)) {
+            return wkb2Geometry(bytes);
+        }
+        
+        decodeBase64(bytes);
+        try {
+            return wkb2Geometry(buffer);
+        } finally {
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = EMPTY;
+            }
+        }
+    }
+    
+    /**
+     * Decodes base64 text into {@link #buffer}, skipping the line breaks PostgreSQL adds every 76
+     * characters. The buffer is grown as needed, and might be longer than the decoded contents
+     * (the WKB parser will just ignore the trailing bytes).
+     */
+    void decodeBase64(byte[] text) throws IOException {
+        int required = text.length / 4 * 3 + 3;
+        if (buffer.length < required) {
+            buffer = new byte[Math.max(required, buffer.length * 2)];
+        }
+        
+        int length = 0;
+        int bits = 0;
+        int accumulator = 0;
+        for (int i = 0; i < text.length; i++) {
+            int c = text[i];
+            if (c == '=') {
+                break;
+            }
+            int value = c >= 0 && c < 128 ? BASE64_DECODE[c] : -1;
+            if (value < 0) {
+                if (c == '\n' || c == '\r' || c == ' ') {
+                    continue;
+                }
+                throw new DataSourceException("Invalid character in base64 encoded WKB: " + c);
+            }
+            accumulator = ((accumulator << 6) | value) & 0xFFFF;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                buffer[length++] = (byte) (accumulator >> bits);
+            }
         }
     }
 
@@ -91,10 +181,7 @@ public class WKBAttributeIO {
      */
     public Object read(ResultSet rs, String columnName) throws IOException {
         try {
-            byte bytes[] = rs.getBytes(columnName);
-            if (bytes == null) // ie. its a null column -> return a null geometry!
-                return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return decode(rs.getBytes(columnName));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -106,10 +193,7 @@ public class WKBAttributeIO {
      */
     public Object read(ResultSet rs, int columnIndex) throws IOException {
         try {
-            byte bytes[] = rs.getBytes(columnIndex);
-            if (bytes == null) // ie. its a null column -> return a null geometry!
-                return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return decode(rs.getBytes(columnIndex));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -16,6 +16,8 @@
  */
 package org.geotools.data.postgis;
 
+import java.io.IOException;
+
 import org.geotools.jdbc.JDBCFeatureStoreTest;
 import org.geotools.jdbc.JDBCTestSetup;
 
@@ -31,4 +33,9 @@ public class PostgisFeatureStoreTest extends JDBCFeatureStoreTest {
         return new PostGISTestSetup();
     }
 
+    public void testAddFeaturesCopy() throws IOException {
+        ((PostGISDialect) dataStore.getSQLDialect()).setCopyInsertEnabled(true);
+        testAddFeaturesBatch();
+    }
+
 }
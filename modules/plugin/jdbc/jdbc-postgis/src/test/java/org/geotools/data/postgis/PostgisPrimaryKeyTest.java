@@ -16,8 +16,10 @@
  */
 package org.geotools.data.postgis;
 
+import org.geotools.jdbc.JDBCFeatureStore;
 import org.geotools.jdbc.JDBCPrimaryKeyTest;
 import org.geotools.jdbc.JDBCPrimaryKeyTestSetup;
+import org.geotools.jdbc.SequencedPrimaryKeyColumn;
 
 /**
  * 
@@ -31,4 +33,14 @@ public class PostgisPrimaryKeyTest extends JDBCPrimaryKeyTest {
         return new PostgisPrimaryKeyTestSetup(new PostGISTestSetup());
     }
 
+    public void testSequencedPrimaryKeyCopyInsert() throws Exception {
+        JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("seq"));
+        assertTrue( fs.getPrimaryKey().getColumns().get(0) instanceof SequencedPrimaryKeyColumn );
+        
+        ((PostGISDialect) dataStore.getSQLDialect()).setCopyInsertEnabled(true);
+        dataStore.setBatchInsertSize(10);
+        addFeatures(fs.getSchema(), fs);
+        assertPrimaryKeyValues(fs.getFeatures(), 5);
+    }
+
 }
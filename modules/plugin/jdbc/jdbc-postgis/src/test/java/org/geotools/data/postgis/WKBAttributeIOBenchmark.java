@@ -0,0 +1,96 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import org.geotools.data.Base64;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ByteArrayInStream;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Compares the decoding of base64 encoded WKB polygons, as returned by the PostGIS dialect, using
+ * the previous approach (a full base64 decode and a new WKB reader per value) against the
+ * buffer reusing {@link WKBAttributeIO}.
+ * <p>
+ * Not a unit test, run it as a java application, optionally passing the number of polygons and
+ * the number of vertices per polygon.
+ * </p>
+ *
+ * @source $URL$
+ */
+public class WKBAttributeIOBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int vertices = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        byte[][] values = buildValues(count, vertices);
+
+        // a few rounds to let the JIT kick in, the last ones are the meaningful ones
+        for (int i = 0; i < 5; i++) {
+            benchmarkCopyingDecode(values);
+            benchmarkReusingDecode(values);
+        }
+    }
+
+    static byte[][] buildValues(int count, int vertices) {
+        GeometryFactory gf = new GeometryFactory();
+        WKBWriter writer = new WKBWriter(2, true);
+        byte[][] values = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            Coordinate[] coords = new Coordinate[vertices + 1];
+            for (int j = 0; j < vertices; j++) {
+                double angle = 2 * Math.PI * j / vertices;
+                coords[j] = new Coordinate(i + Math.cos(angle), i + Math.sin(angle));
+            }
+            coords[vertices] = coords[0];
+            Polygon polygon = gf.createPolygon(gf.createLinearRing(coords), null);
+            polygon.setSRID(4326);
+            // mimic the line breaks PostgreSQL adds in the base64 output
+            values[i] = Base64.encodeBytes(writer.write(polygon)).getBytes();
+        }
+        return values;
+    }
+
+    static void benchmarkCopyingDecode(byte[][] values) throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        long t1 = System.currentTimeMillis();
+        long points = 0;
+        for (byte[] value : values) {
+            WKBReader reader = new WKBReader(gf);
+            points += reader.read(new ByteArrayInStream(Base64.decode(value))).getNumPoints();
+        }
+        long t2 = System.currentTimeMillis();
+        System.out.println("Copying decode: " + (t2 - t1) + "ms (" + points + " points)");
+    }
+
+    static void benchmarkReusingDecode(byte[][] values) throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        WKBAttributeIO io = new WKBAttributeIO(gf);
+        long t1 = System.currentTimeMillis();
+        long points = 0;
+        for (byte[] value : values) {
+            io.setGeometryFactory(gf);
+            points += io.decode(value).getNumPoints();
+        }
+        long t2 = System.currentTimeMillis();
+        System.out.println("Reusing decode: " + (t2 - t1) + "ms (" + points + " points)");
+    }
+}
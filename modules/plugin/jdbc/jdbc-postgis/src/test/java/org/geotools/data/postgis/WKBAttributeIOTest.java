@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.Base64;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class WKBAttributeIOTest extends TestCase {
+
+    WKTReader wkt = new WKTReader();
+
+    public void testDecodeBase64() throws Exception {
+        WKBAttributeIO io = new WKBAttributeIO();
+        Geometry polygon = wkt.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))");
+        Geometry point = wkt.read("POINT(1 2)");
+
+        // PostgreSQL breaks the base64 output in lines, and the buffer is reused for the
+        // smaller geometry
+        String encoded = Base64.encodeBytes(new WKBWriter().write(polygon));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < encoded.length(); i += 76) {
+            sb.append(encoded, i, Math.min(encoded.length(), i + 76)).append('\n');
+        }
+        assertTrue(polygon.equalsExact(io.decode(sb.toString().getBytes())));
+        assertTrue(point.equalsExact(io.decode(Base64.encodeBytes(new WKBWriter().write(point))
+                .getBytes())));
+    }
+
+    public void testDecodeBinary() throws Exception {
+        WKBAttributeIO io = new WKBAttributeIO();
+        Geometry line = wkt.read("LINESTRING(0 0, 5 5, 10 0)");
+        assertTrue(line.equalsExact(io.decode(new WKBWriter().write(line))));
+        assertNull(io.decode(null));
+    }
+
+    public void testLargeBufferReleased() throws Exception {
+        WKBAttributeIO io = new WKBAttributeIO();
+        Coordinate[] coords = new Coordinate[100000];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = new Coordinate(i, i % 10);
+        }
+        Geometry line = new GeometryFactory().createLineString(coords);
+        Geometry point = wkt.read("POINT(1 2)");
+
+        io.decode(Base64.encodeBytes(new WKBWriter().write(point)).getBytes());
+        byte[] small = io.buffer;
+        assertTrue(small.length > 0);
+        io.decode(Base64.encodeBytes(new WKBWriter().write(point)).getBytes());
+        assertSame(small, io.buffer);
+
+        assertTrue(line.equalsExact(io.decode(Base64.encodeBytes(new WKBWriter().write(line))
+                .getBytes())));
+        assertTrue(io.buffer.length <= WKBAttributeIO.MAX_RETAINED_BUFFER);
+    }
+}
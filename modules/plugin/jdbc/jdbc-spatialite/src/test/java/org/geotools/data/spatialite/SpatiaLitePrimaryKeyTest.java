@@ -36,4 +36,9 @@ public class SpatiaLitePrimaryKeyTest extends JDBCPrimaryKeyTest {
         //SQLite does not do sequences
     }
 
+    @Override
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        //SQLite does not do sequences
+    }
+
 }
@@ -36,4 +36,9 @@ public class SQLServerPrimaryKeyTest extends JDBCPrimaryKeyTest {
         //seems sqlserver does not really do explicit sequences...
     }
 
+    @Override
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        //seems sqlserver does not really do explicit sequences...
+    }
+
 }
@@ -84,4 +84,9 @@ public class TeradataPrimaryKeyTest extends JDBCPrimaryKeyTest {
         addFeature(fs.getSchema(), fs);
         assertPrimaryKeyValues(features, 4);
     }
+
+    @Override
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        //the seq table uses an identity column, see testSequencedPrimaryKey
+    }
 }
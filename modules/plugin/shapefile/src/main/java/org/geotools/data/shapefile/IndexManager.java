@@ -4,6 +4,7 @@ import static org.geotools.data.shapefile.files.ShpFileType.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.URL;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
@@ -24,6 +25,7 @@ import org.geotools.data.shapefile.index.CloseableIterator;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTree;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
@@ -84,7 +86,8 @@ class IndexManager {
     }
 
     /**
-     * Creates the spatial index is appropriate.
+     * Creates the spatial index is appropriate. A stale packed Hilbert R-tree is rebuilt as such,
+     * otherwise the quadtree is used.
      * 
      * @param force Forces the index re-creation even if the spatial index seems to be up to date
      * @return true if the spatial index has been created/updated
@@ -92,12 +95,14 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
 
                 return true;
@@ -176,7 +181,21 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && (shpFiles.exists(QIX) || shpFiles.exists(HRX));
+    }
+
+    /**
+     * Returns the type of spatial index in use, the packed Hilbert R-tree if its file is present,
+     * the quadtree otherwise
+     * 
+     * @return
+     */
+    ShpFileType getSpatialIndexType() {
+        if (shpFiles.isLocal() && shpFiles.exists(HRX)) {
+            return HRX;
+        } else {
+            return QIX;
+        }
     }
 
     /**
@@ -297,6 +316,10 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (getSpatialIndexType() == HRX) {
+            return queryHilbertRTree(bbox);
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -343,6 +366,57 @@ class IndexManager {
         return tmp;
     }
 
+    /**
+     * Queries the packed Hilbert R-tree, returns null if the bbox contains all the records
+     */
+    CloseableIterator<Data> queryHilbertRTree(Envelope bbox) throws DataSourceException {
+        HilbertRTree tree = null;
+        try {
+            tree = openHilbertRTree();
+            if (tree != null && tree.getBounds() != null && !bbox.contains(tree.getBounds())) {
+                CloseableIterator<Data> result = tree.search(bbox);
+                // the iterator closes the tree
+                tree = null;
+                return result;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new DataSourceException("Error querying the packed Hilbert R-tree", e);
+        } finally {
+            if (tree != null) {
+                try {
+                    tree.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Failed to close the packed Hilbert R-tree", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the packed Hilbert R-tree index, memory mapping it
+     * 
+     * @return The tree, or null if the index file is missing or empty
+     * @throws IOException
+     */
+    protected HilbertRTree openHilbertRTree() throws IOException {
+        if (!shpFiles.isLocal()) {
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(HRX, writer);
+        try {
+            File treeFile = DataUtilities.urlToFile(treeURL);
+
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                return null;
+            }
+
+            return new HilbertRTree(new RandomAccessFile(treeFile, "r").getChannel());
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
     /**
      * Convenience method for opening a QuadTree index.
      * 
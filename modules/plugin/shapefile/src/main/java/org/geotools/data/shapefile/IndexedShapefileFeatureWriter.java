@@ -110,6 +110,10 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
                 }
 
                 deleteFile(ShpFileType.QIX);
+                // the packed Hilbert R-tree is only built on request, keep it up to date
+                if (shpFiles.exists(ShpFileType.HRX)) {
+                    indexes.createSpatialIndex(true);
+                }
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
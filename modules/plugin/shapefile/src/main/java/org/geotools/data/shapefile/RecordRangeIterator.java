@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.shp.IndexFile;
+
+/**
+ * Iterates over a contiguous range of records of a shapefile, returning the same record number
+ * and shp offset pairs as the spatial index, using the .shx file to locate the records.
+ */
+class RecordRangeIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DEFINITION.addField(Integer.class);
+        DEFINITION.addField(Long.class);
+    }
+
+    IndexFile shx;
+
+    int current;
+
+    int end;
+
+    /**
+     * @param shx The index file, will be closed along with this iterator
+     * @param start The first record (zero based)
+     * @param end The last record, exclusive
+     */
+    public RecordRangeIterator(IndexFile shx, int start, int end) {
+        this.shx = shx;
+        this.current = start;
+        this.end = end;
+    }
+
+    public boolean hasNext() {
+        return current < end;
+    }
+
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            Data data = new Data(DEFINITION);
+            data.addValue(new Integer(current + 1));
+            data.addValue(new Long(shx.getOffsetInBytes(current)));
+            current++;
+            return data;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to locate record " + current + " in the shx file",
+                    e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() throws IOException {
+        if (shx != null) {
+            shx.close();
+            shx = null;
+        }
+    }
+
+}
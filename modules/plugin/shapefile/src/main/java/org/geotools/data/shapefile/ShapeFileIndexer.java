@@ -18,6 +18,7 @@ package org.geotools.data.shapefile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -33,6 +34,7 @@ import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.index.LockTimeoutException;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTreeWriter;
 import org.geotools.data.shapefile.index.quadtree.Node;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
@@ -66,6 +68,7 @@ class ShapeFileIndexer implements FileWriter {
 	private String byteOrder;
     private boolean interactive = false;
     private ShpFiles shpFiles;
+    private ShpFileType indexType = ShpFileType.QIX;
 
     public static void main(String[] args) throws IOException {
         if ((args.length < 1) || (((args.length - 1) % 2) != 0)) {
@@ -79,9 +82,10 @@ class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                // anything but HRX builds a quadtree, for backwards compatibility
+                if ("HRX".equalsIgnoreCase(args[++i])) {
+                    idx.setIndexType(ShpFileType.HRX);
+                }
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -115,7 +119,7 @@ class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX | HRX> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -123,7 +127,8 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (quadtree, default) or HRX (packed Hilbert R-tree)");
+        System.out.println("\t-s max number of items in a leaf, or node size for HRX");
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; "
@@ -165,32 +170,35 @@ class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(indexType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
-                // compute a reasonable index max depth, considering a fully developed
-                // 10 levels one already contains 200k index nodes, good for indexing up
-                // to 3M features without consuming too much memory
-                int features = reader.getCount(0);
-                max = 1;
-                int nodes = 1;
-                while(nodes * leafSize < features) {
-                    max++;
-                    nodes *= 4;
-                }
-                if(max < 10) {
-                    max = 10;
-                }
+            if (indexType == ShpFileType.HRX) {
+                cnt = this.buildHilbertRTree(reader, treeFile, verbose);
+            } else {
+                if(max == -1) {
+                    // compute a reasonable index max depth, considering a fully developed
+                    // 10 levels one already contains 200k index nodes, good for indexing up
+                    // to 3M features without consuming too much memory
+                    int features = reader.getCount(0);
+                    max = 1;
+                    int nodes = 1;
+                    while(nodes * leafSize < features) {
+                        max++;
+                        nodes *= 4;
+                    }
+                    if(max < 10) {
+                        max = 10;
+                    }
                 
-                reader.close();
-                reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+                    reader.close();
+                    reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+                }
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
             }
-            
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
         } finally {
             if (reader != null)
                 reader.close();
@@ -264,6 +272,36 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
     
+    private int buildHilbertRTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        int nodeSize = leafSize > 1 ? leafSize : HilbertRTreeWriter.DEFAULT_NODE_SIZE;
+        LOGGER.fine("Building packed Hilbert R-tree spatial index with node size " + nodeSize
+                + " for file " + file.getAbsolutePath());
+
+        HilbertRTreeWriter writer = new HilbertRTreeWriter(nodeSize);
+        int cnt = 0;
+        while (reader.hasNext()) {
+            Record rec = reader.nextRecord();
+            writer.add(rec.minX, rec.minY, rec.maxX, rec.maxY, rec.offset());
+            cnt++;
+
+            if (verbose && ((cnt % 1000) == 0)) {
+                System.out.print('.');
+            }
+        }
+        if (verbose)
+            System.out.println("done");
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            writer.write(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+        return cnt;
+    }
+    
     private Node optimizeTree(QuadTree tree, Node node, int level, ShapefileReader reader, IndexFile index) throws StoreException, IOException {
         // recurse, with a check to avoid too deep recursion due to odd data that has a
         if(node.getNumShapeIds() > leafSize && node.getNumSubNodes() == 0 && level < max * 2) {
@@ -432,4 +470,21 @@ class ShapeFileIndexer implements FileWriter {
 	public void setLeafSize(int leafSize) {
 		this.leafSize = leafSize;
 	}
+
+    public ShpFileType getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * Sets the type of spatial index to build, either {@link ShpFileType#QIX} (the default) or
+     * {@link ShpFileType#HRX}
+     * 
+     * @param indexType
+     */
+    public void setIndexType(ShpFileType indexType) {
+        if (indexType != ShpFileType.QIX && indexType != ShpFileType.HRX) {
+            throw new IllegalArgumentException("Not a spatial index type: " + indexType);
+        }
+        this.indexType = indexType;
+    }
 }
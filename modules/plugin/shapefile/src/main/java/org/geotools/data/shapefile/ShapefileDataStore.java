@@ -32,6 +32,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 
 import org.geotools.data.DataSourceException;
@@ -51,6 +52,8 @@ import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.NameImpl;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.FeatureCalc;
 import org.geotools.referencing.wkt.Formattable;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -206,6 +209,34 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         return getFeatureSource().getCount(query);
     }
 
+    /**
+     * Visits the features matching the query in parallel. The shapefile records are split, using
+     * the .shx file offsets, in as many contiguous ranges as the provided visitors, and each range
+     * is scanned on the executor by its own readers, feeding its own visitor. Once all ranges
+     * have been scanned the visitor results are merged (see {@link CalcResult#merge(CalcResult)})
+     * and returned.
+     * <p>
+     * The visitors must be distinct instances of the same calculation, for example a
+     * {@link org.geotools.feature.visitor.SumVisitor} per partition. Only the query filter,
+     * property names and hints are taken into account, paging is not supported. The scan reads
+     * the files on disk directly, ignoring the spatial index and any pending transaction state.
+     * </p>
+     * 
+     * @param query The query selecting the features to visit
+     * @param visitors One visitor per partition
+     * @param executor The executor running the partition scans
+     * @return The merged results of the visitors
+     * @throws IOException If the shapefile does not have a .shx file, or one of the scans failed
+     */
+    public CalcResult visitInParallel(Query query, List<? extends FeatureCalc> visitors,
+            ExecutorService executor) throws IOException {
+        ContentFeatureSource source = getFeatureSource();
+        if (source instanceof ShapefileFeatureStore) {
+            source = ((ShapefileFeatureStore) source).delegate;
+        }
+        return ((ShapefileFeatureSource) source).visitInParallel(query, visitors, executor);
+    }
+
     /**
      * Set the FeatureType of this DataStore. This method will delete any existing local resources
      * or throw an IOException if the DataStore is remote.
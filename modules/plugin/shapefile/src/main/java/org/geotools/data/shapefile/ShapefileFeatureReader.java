@@ -132,6 +132,25 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+            
+            // only copy out of the dbf records the fields we are going to parse
+            boolean[] used = new boolean[head.getNumFields()];
+            int usedCount = 0;
+            for (int i = 0; i < dbfindexes.length; i++) {
+                if (dbfindexes[i] != -1 && !used[dbfindexes[i]]) {
+                    used[dbfindexes[i]] = true;
+                    usedCount++;
+                }
+            }
+            if (usedCount < head.getNumFields()) {
+                int[] fields = new int[usedCount];
+                for (int i = 0, j = 0; i < used.length; i++) {
+                    if (used[i]) {
+                        fields[j++] = i;
+                    }
+                }
+                dbf.setFieldsToRead(fields);
+            }
         }
     }
 
@@ -28,6 +28,10 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,6 +62,8 @@ import org.geotools.feature.AttributeTypeBuilder;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.FeatureCalc;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -214,14 +220,9 @@ class ShapefileFeatureSource extends ContentFeatureSource {
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query q)
             throws IOException {
         SimpleFeatureType resultSchema = getResultSchema(q);
-        SimpleFeatureType readSchema = getReadSchema(q);
-        GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -251,6 +252,35 @@ class ShapefileFeatureSource extends ContentFeatureSource {
             return new EmptyFeatureReader<SimpleFeatureType, SimpleFeature>(resultSchema);
         }
         
+        return getReader(q, bbox, goodRecs);
+    }
+    
+    /**
+     * Extracts the bounding box of the query filter, to be used to skip records early
+     */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+        }
+        return bbox;
+    }
+    
+    /**
+     * Sets up the feature reader for the query
+     * 
+     * @param q The query
+     * @param bbox The query target bbox
+     * @param goodRecs The records to be read, or null to read all the records in file order
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getReader(Query q, Envelope bbox,
+            CloseableIterator<Data> goodRecs) throws IOException {
+        SimpleFeatureType resultSchema = getResultSchema(q);
+        SimpleFeatureType readSchema = getReadSchema(q);
+        GeometryFactory geometryFactory = getGeometryFactory(q);
+        Filter filter = q != null ? q.getFilter() : null;
+        IndexManager indexManager = getDataStore().indexManager;
+        
         // get the .fix file reader, if we have a .fix file
         IndexedFidReader fidReader = null;
         if (getDataStore().isFidIndexed() && filter instanceof Id && indexManager.hasFidIndex(false)) {
@@ -494,4 +524,122 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         return super.handleVisitor(query, visitor);
     }
 
+    /**
+     * Splits the scan of the features matching the query in as many record ranges as the
+     * provided visitors, using the .shx offsets, and visits each range on the executor with its
+     * own visitor and readers. The partial results are merged and returned.
+     * 
+     * @see ShapefileDataStore#visitInParallel(Query, List, ExecutorService)
+     */
+    CalcResult visitInParallel(Query query, List<? extends FeatureCalc> visitors,
+            ExecutorService executor) throws IOException {
+        if (visitors == null || visitors.isEmpty()) {
+            throw new IllegalArgumentException("At least one visitor must be provided");
+        }
+        if (query.getMaxFeatures() != Query.DEFAULT_MAX || query.getStartIndex() != null) {
+            throw new IllegalArgumentException("Parallel visits do not support paging");
+        }
+
+        IndexFile shx = getDataStore().shpManager.openIndexFile();
+        if (shx == null) {
+            throw new IOException("The .shx file is required to visit " + shpFiles.get(SHP)
+                    + " in parallel");
+        }
+        int records;
+        try {
+            records = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+
+        // split in contiguous ranges of records, the first ones eventually getting one more
+        Envelope bbox = getTargetBBox(query);
+        int partitions = visitors.size();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(partitions);
+        int start = 0;
+        for (int i = 0; i < partitions; i++) {
+            int end = start + records / partitions + (i < records % partitions ? 1 : 0);
+            futures.add(executor.submit(new PartitionVisit(query, bbox, start, end,
+                    visitors.get(i))));
+            start = end;
+        }
+
+        // wait for all the partitions to be done, even if one of them failed
+        Throwable failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                for (Future<Void> f : futures) {
+                    f.cancel(true);
+                }
+                throw new IOException("Interrupted while visiting the features in parallel", e);
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw new IOException("Failed to visit the features in parallel", failure);
+        }
+
+        CalcResult result = CalcResult.NULL_RESULT;
+        for (FeatureCalc visitor : visitors) {
+            CalcResult partial = visitor.getResult();
+            if (partial != null && partial != CalcResult.NULL_RESULT) {
+                result = result.merge(partial);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visits the features in a range of records with its own readers
+     */
+    class PartitionVisit implements Callable<Void> {
+        Query query;
+
+        Envelope bbox;
+
+        int start;
+
+        int end;
+
+        FeatureCalc visitor;
+
+        PartitionVisit(Query query, Envelope bbox, int start, int end, FeatureCalc visitor) {
+            this.query = query;
+            this.bbox = bbox;
+            this.start = start;
+            this.end = end;
+            this.visitor = visitor;
+        }
+
+        public Void call() throws Exception {
+            if (start >= end) {
+                return null;
+            }
+            RecordRangeIterator records = new RecordRangeIterator(getDataStore().shpManager
+                    .openIndexFile(), start, end);
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+            try {
+                reader = getReader(query, bbox, records);
+            } catch (IOException e) {
+                records.close();
+                throw e;
+            }
+            try {
+                while (reader.hasNext()) {
+                    visitor.visit(reader.next());
+                }
+            } finally {
+                reader.close();
+            }
+            return null;
+        }
+    }
+
 }
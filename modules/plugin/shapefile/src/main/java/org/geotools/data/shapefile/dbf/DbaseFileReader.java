@@ -76,6 +76,10 @@ public class DbaseFileReader implements FileReader {
         boolean deleted;
         
         public Object read(final int column) throws IOException {
+            if (partialRecord && !fieldsToRead[column]) {
+                throw new IllegalArgumentException("Field " + column
+                        + " has not been selected for reading, see setFieldsToRead");
+            }
             final int offset = fieldOffsets[column];
             return readObject(offset, column);
         }
@@ -83,6 +87,9 @@ public class DbaseFileReader implements FileReader {
         public String toString() {
             final StringBuffer ret = new StringBuffer("DBF Row - ");
             for (int i = 0; i < header.getNumFields(); i++) {
+                if (partialRecord && !fieldsToRead[i]) {
+                    continue;
+                }
                 ret.append(header.getFieldName(i)).append(": \"");
                 try {
                     ret.append(this.read(i));
@@ -112,6 +119,17 @@ public class DbaseFileReader implements FileReader {
     int[] fieldLengths;
     
     int[] fieldOffsets;
+    
+    /** The fields selected for reading, or null if all fields are to be read */
+    boolean[] fieldsToRead;
+    
+    /** Offsets and lengths of the record byte ranges covering the fields to read */
+    int[] rangeOffsets;
+    
+    int[] rangeLengths;
+    
+    /** True if the current record has been only partially copied into {@link #bytes} */
+    boolean partialRecord;
 
     int cnt = 1;
 
@@ -131,6 +149,9 @@ public class DbaseFileReader implements FileReader {
     private Calendar calendar;
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
+    
+    /** Marks a numeric field that cannot be parsed by {@link #parseLong(byte[], int, int)} */
+    static final long NOT_A_LONG = Long.MIN_VALUE;
 
     
     /**
@@ -321,6 +342,51 @@ public class DbaseFileReader implements FileReader {
         read();
         return row;
     }
+    
+    /**
+     * Limits the fields copied out of each record by {@link #readRow()} and {@link #read()} to
+     * the specified ones. When only a few columns of a wide file are needed this avoids touching
+     * the bytes of all the other fields. After this call only the selected fields can be
+     * accessed with {@link Row#read(int)} and {@link #readField(int)}, the readEntry methods
+     * are not affected and keep on returning all the fields.
+     * 
+     * @param fields The (zero based) indexes of the fields to be read, or <code>null</code> to
+     *        read all of them
+     */
+    public void setFieldsToRead(final int[] fields) {
+        if (fields == null) {
+            fieldsToRead = null;
+            rangeOffsets = null;
+            rangeLengths = null;
+            return;
+        }
+        
+        final int numFields = header.getNumFields();
+        fieldsToRead = new boolean[numFields];
+        for (int i = 0; i < fields.length; i++) {
+            fieldsToRead[fields[i]] = true;
+        }
+        
+        // merge adjacent fields in a single range, so that we do as few copies as possible
+        final int[] offsets = new int[numFields];
+        final int[] lengths = new int[numFields];
+        int ranges = 0;
+        for (int i = 0; i < numFields; i++) {
+            if (fieldsToRead[i]) {
+                if (ranges > 0 && offsets[ranges - 1] + lengths[ranges - 1] == fieldOffsets[i]) {
+                    lengths[ranges - 1] += fieldLengths[i];
+                } else {
+                    offsets[ranges] = fieldOffsets[i];
+                    lengths[ranges] = fieldLengths[i];
+                    ranges++;
+                }
+            }
+        }
+        rangeOffsets = new int[ranges];
+        rangeLengths = new int[ranges];
+        System.arraycopy(offsets, 0, rangeOffsets, 0, ranges);
+        System.arraycopy(lengths, 0, rangeLengths, 0, ranges);
+    }
 
     /**
      * Skip the next record.
@@ -372,7 +438,7 @@ public class DbaseFileReader implements FileReader {
             throw new ArrayIndexOutOfBoundsException();
         }
 
-        read();
+        read(true);
         if(row.deleted) {
             return null;
         }
@@ -397,7 +463,7 @@ public class DbaseFileReader implements FileReader {
      */
     public Object readField(final int fieldNum)
             throws IOException {
-        return readObject(fieldOffsets[fieldNum], fieldNum);
+        return row.read(fieldNum);
     }
 
     /**
@@ -418,6 +484,10 @@ public class DbaseFileReader implements FileReader {
      * @throws IOException
      */
     public void read() throws IOException {
+        read(false);
+    }
+    
+    private void read(final boolean allFields) throws IOException {
         boolean foundRecord = false;
         while (!foundRecord) {
 
@@ -427,9 +497,21 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (allFields || rangeOffsets == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+                partialRecord = false;
+            } else {
+                // only copy the bytes of the fields we are going to parse
+                final int start = buffer.position();
+                for (int i = 0; i < rangeOffsets.length; i++) {
+                    buffer.position(start + rangeOffsets[i]);
+                    buffer.get(bytes, rangeOffsets[i], rangeLengths[i]);
+                }
+                buffer.position(start + header.getRecordLength() - 1);
+                partialRecord = true;
+            }
 
             foundRecord = true;
         }
@@ -549,8 +631,21 @@ public class DbaseFileReader implements FileReader {
                 if (bytes[fieldOffset] == '*') {
                     break;
                 } else {
-                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     Class clazz = header.getFieldClass(fieldNum);
+                    if (clazz == Integer.class || clazz == Long.class) {
+                        // common case, parse straight from the bytes without building strings
+                        final long value = parseLong(bytes, fieldOffset, fieldLen);
+                        if (value != NOT_A_LONG) {
+                            if (clazz == Integer.class && value >= Integer.MIN_VALUE
+                                    && value <= Integer.MAX_VALUE) {
+                                object = Integer.valueOf((int) value);
+                            } else {
+                                object = Long.valueOf(value);
+                            }
+                            break;
+                        }
+                    }
+                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     if (clazz == Integer.class) {
                         try {
                             object = Integer.parseInt(string);
@@ -592,6 +687,42 @@ public class DbaseFileReader implements FileReader {
         return object;
     }
     
+    /**
+     * Parses a integral number, surrounded by optional blanks, straight from the record bytes.
+     * Returns {@link #NOT_A_LONG} if the field contains anything else, or has too many digits
+     * to be safely parsed without overflow checks, in which case the caller should fall back on
+     * the string based parsing.
+     */
+    static long parseLong(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        final int end = fieldOffset + fieldLen;
+        while (i < end && bytes[i] == ' ') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        final int digitsStart = i;
+        long value = 0;
+        while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+            value = value * 10 + (bytes[i] - '0');
+            i++;
+        }
+        final int digits = i - digitsStart;
+        if (digits == 0 || digits > 18) {
+            return NOT_A_LONG;
+        }
+        while (i < end && (bytes[i] == ' ' || bytes[i] == '\0')) {
+            i++;
+        }
+        if (i < end) {
+            return NOT_A_LONG;
+        }
+        return negative ? -value : value;
+    }
+
     /**
      * Performs a faster byte[] to String conversion under the assumption the content
      * is represented with one byte per char 
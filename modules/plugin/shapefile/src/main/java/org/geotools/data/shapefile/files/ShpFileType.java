@@ -50,6 +50,11 @@ public enum ShpFileType {
      * format the mapservers shptree tool generates
      */
     QIX("qix"),
+    /**
+     * the .hrx file, a packed Hilbert R-tree spatial index of the shapefile. When present it is
+     * used in place of the .qix file
+     */
+    HRX("hrx"),
     /**
      * the .fix file, it contains all the Feature IDs for constant time lookup
      * by fid also so that the fids stay consistent across deletes and adds
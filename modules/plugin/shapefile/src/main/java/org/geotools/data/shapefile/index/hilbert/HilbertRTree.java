@@ -0,0 +1,190 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.resources.NIOUtilities;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A static, packed R-tree whose leaves are sorted along a Hilbert curve, read straight out of a
+ * memory mapped file.
+ * <p>
+ * The file is made of a 16 bytes header followed by fixed size entries, the leaves first, then
+ * each upper level of the tree, with the root being the last entry. Each entry holds the bounds
+ * (four little endian doubles) and two integers: for leaves they are the record number and the
+ * byte offset of the record in the .shp file, for the other nodes they are the position of the
+ * first child and the number of children. Searching the tree only reads primitives out of the
+ * mapped buffer, no objects are allocated while walking the nodes.
+ * </p>
+ *
+ * @see HilbertRTreeWriter
+ *
+ * @source $URL$
+ */
+public class HilbertRTree {
+
+    static final String SIGNATURE = "HRT";
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int ENTRY_SIZE = 40;
+
+    FileChannel channel;
+
+    ByteBuffer buffer;
+
+    int nodeSize;
+
+    int numItems;
+
+    int numNodes;
+
+    int numLevels;
+
+    /**
+     * Maps the index file contained in the channel. The channel will be closed along with the
+     * tree.
+     *
+     * @param channel
+     * @throws IOException If the file is not a valid packed Hilbert R-tree index
+     */
+    public HilbertRTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < HEADER_SIZE) {
+            close();
+            throw new IOException("The index file is too short to be a packed Hilbert R-tree");
+        }
+        byte[] signature = new byte[3];
+        buffer.get(signature);
+        byte version = buffer.get();
+        if (!SIGNATURE.equals(new String(signature, "US-ASCII")) || version != VERSION) {
+            close();
+            throw new IOException("Not a packed Hilbert R-tree index, or unsupported version");
+        }
+        nodeSize = buffer.getInt(4);
+        numItems = buffer.getInt(8);
+        numNodes = buffer.getInt(12);
+        if (buffer.limit() < HEADER_SIZE + (long) numNodes * ENTRY_SIZE) {
+            close();
+            throw new IOException("The packed Hilbert R-tree index file is truncated");
+        }
+
+        numLevels = 1;
+        int n = numItems;
+        while (n > 1) {
+            n = (n + nodeSize - 1) / nodeSize;
+            numLevels++;
+        }
+    }
+
+    /**
+     * The number of records indexed by the tree
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * The bounds of all the indexed records, or null if the tree is empty
+     */
+    public Envelope getBounds() {
+        if (numNodes == 0) {
+            return null;
+        }
+        int root = numNodes - 1;
+        return new Envelope(minX(root), maxX(root), minY(root), maxY(root));
+    }
+
+    /**
+     * Returns the record numbers and shp offsets of the records whose bounds intersect the
+     * specified envelope. Closing the iterator also closes the tree.
+     *
+     * @param bbox
+     */
+    public CloseableIterator<Data> search(Envelope bbox) {
+        return new HilbertRTreeSearchIterator(this, bbox);
+    }
+
+    /**
+     * Unmaps the file and closes the channel
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (buffer != null) {
+            NIOUtilities.clean(buffer, true);
+            buffer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    final double minX(int node) {
+        return buffer.getDouble(HEADER_SIZE + node * ENTRY_SIZE);
+    }
+
+    final double minY(int node) {
+        return buffer.getDouble(HEADER_SIZE + node * ENTRY_SIZE + 8);
+    }
+
+    final double maxX(int node) {
+        return buffer.getDouble(HEADER_SIZE + node * ENTRY_SIZE + 16);
+    }
+
+    final double maxY(int node) {
+        return buffer.getDouble(HEADER_SIZE + node * ENTRY_SIZE + 24);
+    }
+
+    /**
+     * The record number for leaves, the position of the first child for the other nodes
+     */
+    final int first(int node) {
+        return buffer.getInt(HEADER_SIZE + node * ENTRY_SIZE + 32);
+    }
+
+    /**
+     * The shp offset for leaves, the number of children for the other nodes
+     */
+    final int second(int node) {
+        return buffer.getInt(HEADER_SIZE + node * ENTRY_SIZE + 36);
+    }
+
+    final boolean isLeaf(int node) {
+        return node < numItems;
+    }
+
+}
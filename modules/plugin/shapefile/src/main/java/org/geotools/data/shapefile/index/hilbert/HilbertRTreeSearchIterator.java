@@ -0,0 +1,155 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Depth first search of a {@link HilbertRTree}. The nodes to be visited are kept in a plain int
+ * stack, the matches are collected in chunks which are sorted by record number, so that the
+ * shapefile is read mostly forward, the same way the quadtree search does.
+ *
+ * @source $URL$
+ */
+class HilbertRTreeSearchIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    static final int MAX_MATCHES = 32768;
+
+    HilbertRTree tree;
+
+    double minX, minY, maxX, maxY;
+
+    int[] stack;
+
+    int stackSize;
+
+    /**
+     * The matches, record number in the high bits and shp offset in the low ones
+     */
+    long[] matches;
+
+    int matchCount;
+
+    int matchIndex;
+
+    boolean closed;
+
+    HilbertRTreeSearchIterator(HilbertRTree tree, Envelope bbox) {
+        this.tree = tree;
+        this.minX = bbox.getMinX();
+        this.minY = bbox.getMinY();
+        this.maxX = bbox.getMaxX();
+        this.maxY = bbox.getMaxY();
+        this.stack = new int[tree.numLevels * tree.nodeSize + 1];
+        this.matches = new long[Math.min(MAX_MATCHES, tree.numItems) + tree.nodeSize];
+        int root = tree.numNodes - 1;
+        if (root >= 0 && intersects(root)) {
+            if (tree.isLeaf(root)) {
+                addMatch(root);
+            } else {
+                stack[stackSize++] = root;
+            }
+        }
+    }
+
+    final boolean intersects(int node) {
+        return !(tree.minX(node) > maxX || tree.maxX(node) < minX || tree.minY(node) > maxY || tree
+                .maxY(node) < minY);
+    }
+
+    final void addMatch(int leaf) {
+        matches[matchCount++] = ((long) tree.first(leaf) << 32)
+                | (tree.second(leaf) & 0xFFFFFFFFL);
+    }
+
+    void fillMatches() {
+        if (matchIndex > 0) {
+            matchCount = 0;
+            matchIndex = 0;
+        }
+        while (stackSize > 0 && matchCount < MAX_MATCHES) {
+            int node = stack[--stackSize];
+            int first = tree.first(node);
+            int end = first + tree.second(node);
+            // push in reverse order so that the children are visited in curve order
+            for (int child = end - 1; child >= first; child--) {
+                if (intersects(child)) {
+                    if (tree.isLeaf(child)) {
+                        addMatch(child);
+                    } else {
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+        }
+        // sort so that the shapefile is read in natural order
+        Arrays.sort(matches, 0, matchCount);
+    }
+
+    public boolean hasNext() {
+        if (closed) {
+            throw new IllegalStateException("Iterator has been closed!");
+        }
+        if (matchIndex < matchCount) {
+            return true;
+        }
+        fillMatches();
+        return matchIndex < matchCount;
+    }
+
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements available");
+        }
+        long match = matches[matchIndex++];
+        try {
+            Data data = new Data(DATA_DEFINITION);
+            data.addValue(new Integer((int) (match >>> 32) + 1));
+            data.addValue(new Long(match & 0xFFFFFFFFL));
+            return data;
+        } catch (TreeException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            tree.close();
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link HilbertRTree} file. The record bounds are added in shapefile order, then sorted
+ * along a Hilbert curve over the centers of the records and packed bottom up in nodes of
+ * <code>nodeSize</code> entries.
+ *
+ * @source $URL$
+ */
+public class HilbertRTreeWriter {
+
+    /** The default number of entries per node */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /** The largest coordinate accepted by {@link #hilbert(int, int)} */
+    public static final int HILBERT_MAX = (1 << 16) - 1;
+
+    int nodeSize;
+
+    int numItems;
+
+    /** minx, miny, maxx, maxy for each record */
+    double[] bounds = new double[4 * 1024];
+
+    int[] offsets = new int[1024];
+
+    public HilbertRTreeWriter() {
+        this(DEFAULT_NODE_SIZE);
+    }
+
+    public HilbertRTreeWriter(int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2, but was "
+                    + nodeSize);
+        }
+        this.nodeSize = nodeSize;
+    }
+
+    /**
+     * Adds the next record of the shapefile
+     *
+     * @param minX
+     * @param minY
+     * @param maxX
+     * @param maxY
+     * @param offset The offset of the record in the .shp file, in bytes
+     */
+    public void add(double minX, double minY, double maxX, double maxY, int offset) {
+        if (numItems == offsets.length) {
+            offsets = Arrays.copyOf(offsets, numItems * 2);
+            bounds = Arrays.copyOf(bounds, numItems * 8);
+        }
+        int i = numItems * 4;
+        bounds[i] = minX;
+        bounds[i + 1] = minY;
+        bounds[i + 2] = maxX;
+        bounds[i + 3] = maxY;
+        offsets[numItems] = offset;
+        numItems++;
+    }
+
+    /**
+     * The number of records added so far
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Sorts and packs the records, and writes the tree in the channel
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        // count the nodes
+        int numNodes = numItems;
+        int levelSize = numItems;
+        while (levelSize > 1) {
+            levelSize = (levelSize + nodeSize - 1) / nodeSize;
+            numNodes += levelSize;
+        }
+
+        // sort the records along the curve
+        int[] order = sortByHilbertValue();
+
+        // gather the node bounds, leaves first
+        double[] nodeBounds = new double[numNodes * 4];
+        for (int i = 0; i < numItems; i++) {
+            System.arraycopy(bounds, order[i] * 4, nodeBounds, i * 4, 4);
+        }
+        int[] firstChild = new int[numNodes - numItems];
+        int[] childCount = new int[numNodes - numItems];
+        int levelStart = 0;
+        int levelEnd = numItems;
+        int pos = numItems;
+        while (levelEnd - levelStart > 1) {
+            for (int child = levelStart; child < levelEnd; child += nodeSize) {
+                int end = Math.min(child + nodeSize, levelEnd);
+                int p = pos * 4;
+                nodeBounds[p] = Double.POSITIVE_INFINITY;
+                nodeBounds[p + 1] = Double.POSITIVE_INFINITY;
+                nodeBounds[p + 2] = Double.NEGATIVE_INFINITY;
+                nodeBounds[p + 3] = Double.NEGATIVE_INFINITY;
+                for (int c = child; c < end; c++) {
+                    int cp = c * 4;
+                    nodeBounds[p] = Math.min(nodeBounds[p], nodeBounds[cp]);
+                    nodeBounds[p + 1] = Math.min(nodeBounds[p + 1], nodeBounds[cp + 1]);
+                    nodeBounds[p + 2] = Math.max(nodeBounds[p + 2], nodeBounds[cp + 2]);
+                    nodeBounds[p + 3] = Math.max(nodeBounds[p + 3], nodeBounds[cp + 3]);
+                }
+                firstChild[pos - numItems] = child;
+                childCount[pos - numItems] = end - child;
+                pos++;
+            }
+            levelStart = levelEnd;
+            levelEnd = pos;
+        }
+
+        // and write everything out
+        ByteBuffer buffer = ByteBuffer.allocate(HilbertRTree.ENTRY_SIZE * 1024);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(HilbertRTree.SIGNATURE.getBytes("US-ASCII"));
+        buffer.put(HilbertRTree.VERSION);
+        buffer.putInt(nodeSize);
+        buffer.putInt(numItems);
+        buffer.putInt(numNodes);
+        for (int node = 0; node < numNodes; node++) {
+            if (buffer.remaining() < HilbertRTree.ENTRY_SIZE) {
+                flush(buffer, channel);
+            }
+            int p = node * 4;
+            buffer.putDouble(nodeBounds[p]);
+            buffer.putDouble(nodeBounds[p + 1]);
+            buffer.putDouble(nodeBounds[p + 2]);
+            buffer.putDouble(nodeBounds[p + 3]);
+            if (node < numItems) {
+                buffer.putInt(order[node]);
+                buffer.putInt(offsets[order[node]]);
+            } else {
+                buffer.putInt(firstChild[node - numItems]);
+                buffer.putInt(childCount[node - numItems]);
+            }
+        }
+        flush(buffer, channel);
+    }
+
+    void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the record positions sorted by the Hilbert value of their centers
+     */
+    int[] sortByHilbertValue() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numItems; i++) {
+            int p = i * 4;
+            minX = Math.min(minX, bounds[p]);
+            minY = Math.min(minY, bounds[p + 1]);
+            maxX = Math.max(maxX, bounds[p + 2]);
+            maxY = Math.max(maxY, bounds[p + 3]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+
+        // the hilbert value uses 32 bits, the record position the lower 31 ones
+        long[] keys = new long[numItems];
+        for (int i = 0; i < numItems; i++) {
+            int p = i * 4;
+            int x = width > 0 ? (int) Math.floor(HILBERT_MAX
+                    * ((bounds[p] + bounds[p + 2]) / 2 - minX) / width) : 0;
+            int y = height > 0 ? (int) Math.floor(HILBERT_MAX
+                    * ((bounds[p + 1] + bounds[p + 3]) / 2 - minY) / height) : 0;
+            keys[i] = ((hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[numItems];
+        for (int i = 0; i < numItems; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    /**
+     * Computes the position of a point along a Hilbert curve of order 16, using the branch free
+     * algorithm described at http://threadlocalmutex.com/?p=126
+     *
+     * @param x Between 0 and 65535
+     * @param y Between 0 and 65535
+     * @return The position on the curve, as an unsigned 32 bit value
+     */
+    public static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+        B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+        C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+        D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+        B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+        C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+        D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+        D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        return (interleave(i1) << 1) | interleave(i0);
+    }
+
+    /**
+     * Spreads the lower 16 bits of the value on the even bits
+     */
+    static int interleave(int x) {
+        x = (x | (x << 8)) & 0x00FF00FF;
+        x = (x | (x << 4)) & 0x0F0F0F0F;
+        x = (x | (x << 2)) & 0x33333333;
+        x = (x | (x << 1)) & 0x55555555;
+        return x;
+    }
+}
@@ -17,9 +17,11 @@
 package org.geotools.data.shapefile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -107,6 +109,42 @@ public class DbaseFileTest extends TestCaseSupport {
         dbf2.close();
     }
 
+    @Test
+    public void testFieldsToRead() throws Exception {
+        checkFieldsToRead(false);
+        checkFieldsToRead(true);
+    }
+
+    private void checkFieldsToRead(boolean memoryMapped) throws Exception {
+        Object[] attrs = new Object[dbf.getHeader().getNumFields()];
+        DbaseFileReader full = new DbaseFileReader(shpFiles, memoryMapped,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        DbaseFileReader partial = new DbaseFileReader(shpFiles, memoryMapped,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            // a mix of adjacent and isolated fields
+            int[] fields = new int[] { 0, 1, 4, 100, 251 };
+            partial.setFieldsToRead(fields);
+            while (full.hasNext()) {
+                full.readEntry(attrs);
+                DbaseFileReader.Row r = partial.readRow();
+                for (int field : fields) {
+                    assertEquals(attrs[field], r.read(field));
+                }
+                try {
+                    r.read(2);
+                    fail("Field 2 has not been selected, should have failed");
+                } catch (IllegalArgumentException e) {
+                    // fine
+                }
+            }
+            assertFalse(partial.hasNext());
+        } finally {
+            full.close();
+            partial.close();
+        }
+    }
+
     @Test
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
@@ -51,6 +51,8 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.TestData;
 import org.geotools.data.DataStore;
@@ -61,6 +63,7 @@ import org.geotools.data.FeatureWriter;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
@@ -74,9 +77,14 @@ import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.filter.IllegalFilterException;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
+import org.geotools.util.NullProgressListener;
 import org.junit.After;
 import org.junit.Test;
 import org.opengis.feature.Feature;
@@ -390,6 +398,46 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
     
+    @Test
+    public void testCreateAndReadHRX() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+
+        String name = shpFile.getName();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        File file = new File(shpFile.getParent(), base + ".hrx");
+        file.deleteOnExit();
+        new File(shpFile.getParent(), base + ".qix").delete();
+
+        ShpFiles shpFiles = new ShpFiles(url);
+        ShapeFileIndexer indexer = new ShapeFileIndexer();
+        indexer.setShapeFileName(shpFiles);
+        indexer.setIndexType(ShpFileType.HRX);
+        assertEquals(49, indexer.index(false, new NullProgressListener()));
+        assertTrue(file.exists());
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        assertEquals(ShpFileType.HRX, ds.indexManager.getSpatialIndexType());
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // reduce the bounds, thus making the store use the spatial index
+        Envelope newBounds = ds.getFeatureSource().getBounds(Query.ALL);
+        double dx = newBounds.getWidth() / 4;
+        double dy = newBounds.getHeight() / 4;
+        newBounds = new Envelope(newBounds.getMinX() + dx, newBounds.getMaxX() - dx,
+                newBounds.getMinY() + dy, newBounds.getMaxY() - dy);
+        CoordinateReferenceSystem crs = ds.getSchema().getCoordinateReferenceSystem();
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+
+        // the packed Hilbert R-tree has been used in place of the quadtree
+        assertFalse(new File(shpFile.getParent(), base + ".qix").exists());
+        ds.dispose();
+        ds2.dispose();
+        // the copy is shared with the other tests, which expect the quadtree
+        assertTrue(file.delete());
+    }
+    
     @Test
     public void testSelectionQuery() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
@@ -1256,6 +1304,46 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         shapeDataStore.dispose();
     }
 
+    @Test
+    public void testVisitInParallel() throws Exception {
+        ShapefileDataStore s = new ShapefileDataStore(TestData.url(STATE_POP));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+            Query query = new Query(s.getTypeName().getLocalPart(), ff.greater(
+                    ff.property("LAND_KM"), ff.literal(100000)));
+
+            // sequential reference values
+            SumVisitor sum = new SumVisitor("LAND_KM", s.getSchema());
+            CountVisitor count = new CountVisitor();
+            SimpleFeatureCollection features = s.getFeatureSource().getFeatures(query);
+            features.accepts(sum, null);
+            features.accepts(count, null);
+            assertTrue(count.getCount() > 0);
+
+            // more partitions than threads, and one more partition than features
+            List<SumVisitor> sums = new ArrayList<SumVisitor>();
+            for (int i = 0; i < 5; i++) {
+                sums.add(new SumVisitor("LAND_KM", s.getSchema()));
+            }
+            CalcResult sumResult = s.visitInParallel(query, sums, executor);
+            assertEquals(sum.getResult().toDouble(), sumResult.toDouble(), 1e-6);
+
+            List<CountVisitor> counts = new ArrayList<CountVisitor>();
+            for (int i = 0; i < s.getCount(Query.ALL) + 1; i++) {
+                counts.add(new CountVisitor());
+            }
+            assertEquals(count.getCount(), s.visitInParallel(query, counts, executor).toInt());
+
+            List<BoundsVisitor> bounds = Arrays.asList(new BoundsVisitor(), new BoundsVisitor());
+            assertEquals(s.getFeatureSource().getBounds(), 
+                    s.visitInParallel(Query.ALL, bounds, executor).getValue());
+        } finally {
+            executor.shutdown();
+            s.dispose();
+        }
+    }
+
     @Test
     public void testGetCount() throws Exception {
         assertTrue(copyShapefiles(STREAM).canRead()); // The following test
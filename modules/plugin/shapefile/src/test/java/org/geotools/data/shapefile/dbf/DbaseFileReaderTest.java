@@ -0,0 +1,35 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.dbf;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DbaseFileReaderTest {
+
+    @Test
+    public void testParseLong() throws Exception {
+        assertEquals(123, DbaseFileReader.parseLong(" 123  ".getBytes(), 0, 6));
+        assertEquals(-45, DbaseFileReader.parseLong("  -45".getBytes(), 0, 5));
+        assertEquals(7, DbaseFileReader.parseLong("xx7".getBytes(), 2, 1));
+        assertEquals(DbaseFileReader.NOT_A_LONG, DbaseFileReader.parseLong("  1.5".getBytes(), 0, 5));
+        assertEquals(DbaseFileReader.NOT_A_LONG, DbaseFileReader.parseLong("     ".getBytes(), 0, 5));
+        assertEquals(DbaseFileReader.NOT_A_LONG, 
+                DbaseFileReader.parseLong("1234567890123456789".getBytes(), 0, 19));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class HilbertRTreeTest {
+
+    File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("hilbert", ".hrx");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        Random random = new Random(42);
+        int count = 5000;
+        Envelope[] envelopes = new Envelope[count];
+        HilbertRTreeWriter writer = new HilbertRTreeWriter(8);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 500;
+            envelopes[i] = new Envelope(x, x + random.nextDouble() * 10, y, y
+                    + random.nextDouble() * 10);
+            writer.add(envelopes[i].getMinX(), envelopes[i].getMinY(), envelopes[i].getMaxX(),
+                    envelopes[i].getMaxY(), 100 + i * 10);
+        }
+        write(writer);
+
+        HilbertRTree tree = open();
+        assertEquals(count, tree.getNumItems());
+        Envelope bounds = tree.getBounds();
+        for (Envelope envelope : envelopes) {
+            assertTrue(bounds.contains(envelope));
+        }
+        tree.close();
+
+        for (int q = 0; q < 20; q++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 500;
+            Envelope query = new Envelope(x, x + 100, y, y + 50);
+            Set<Integer> expected = new HashSet<Integer>();
+            for (int i = 0; i < count; i++) {
+                if (envelopes[i].intersects(query)) {
+                    expected.add(i + 1);
+                }
+            }
+
+            Set<Integer> actual = new HashSet<Integer>();
+            int previous = 0;
+            CloseableIterator<Data> it = open().search(query);
+            try {
+                while (it.hasNext()) {
+                    Data data = it.next();
+                    int recno = (Integer) data.getValue(0);
+                    // sorted by record number
+                    assertTrue(recno > previous);
+                    previous = recno;
+                    assertEquals(100 + (recno - 1) * 10, ((Long) data.getValue(1)).longValue());
+                    actual.add(recno);
+                }
+            } finally {
+                it.close();
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testSmallTrees() throws Exception {
+        // empty
+        write(new HilbertRTreeWriter());
+        HilbertRTree tree = open();
+        assertNull(tree.getBounds());
+        CloseableIterator<Data> it = tree.search(new Envelope(0, 10, 0, 10));
+        assertFalse(it.hasNext());
+        it.close();
+
+        // a single record, the root is a leaf
+        HilbertRTreeWriter writer = new HilbertRTreeWriter();
+        writer.add(1, 1, 2, 2, 100);
+        write(writer);
+        it = open().search(new Envelope(0, 10, 0, 10));
+        assertTrue(it.hasNext());
+        assertEquals(1, ((Integer) it.next().getValue(0)).intValue());
+        assertFalse(it.hasNext());
+        it.close();
+        it = open().search(new Envelope(5, 10, 5, 10));
+        assertFalse(it.hasNext());
+        it.close();
+    }
+
+    @Test
+    public void testInvalidFile() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.write("SQT1234567890123".getBytes("US-ASCII"));
+        raf.close();
+        try {
+            open();
+            fail("Should have failed, this is not a packed Hilbert R-tree");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testHilbertLocality() {
+        // the curve starts at the origin and visits the 4 quadrants in order
+        assertEquals(0, HilbertRTreeWriter.hilbert(0, 0));
+        long q1 = HilbertRTreeWriter.hilbert(100, 100) & 0xFFFFFFFFL;
+        long q2 = HilbertRTreeWriter.hilbert(100, 40000) & 0xFFFFFFFFL;
+        long q3 = HilbertRTreeWriter.hilbert(40000, 40000) & 0xFFFFFFFFL;
+        long q4 = HilbertRTreeWriter.hilbert(40000, 100) & 0xFFFFFFFFL;
+        assertTrue(q1 < q2 && q2 < q3 && q3 < q4);
+    }
+
+    void write(HilbertRTreeWriter writer) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            writer.write(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+    }
+
+    HilbertRTree open() throws IOException {
+        return new HilbertRTree(new RandomAccessFile(file, "r").getChannel());
+    }
+}
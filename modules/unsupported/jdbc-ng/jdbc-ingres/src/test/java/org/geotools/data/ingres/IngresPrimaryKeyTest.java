@@ -31,5 +31,11 @@ public class IngresPrimaryKeyTest extends JDBCPrimaryKeyTest {
     	//however the current JDBC driver does not
     	//implement when available
     }
+
+    public void testAutoGeneratedPrimaryKeyBatchInsert() throws Exception {
+    	//Ingres 10 supports auto generated primary keys
+    	//however the current JDBC driver does not
+    	//implement when available
+    }
         
 }